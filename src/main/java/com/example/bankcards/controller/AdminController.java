@@ -0,0 +1,144 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.dto.BulkCardIssueDto;
+import com.example.bankcards.dto.BulkCardStatusDto;
+import com.example.bankcards.dto.BulkCardStatusResultDto;
+import com.example.bankcards.dto.CardDto;
+import com.example.bankcards.dto.CardLookupDto;
+import com.example.bankcards.dto.HotCardDto;
+import com.example.bankcards.service.AdminExportService;
+import com.example.bankcards.service.CardBalanceShardService;
+import com.example.bankcards.service.CardBulkIssuer;
+import com.example.bankcards.service.CardBulkStatusUpdater;
+import com.example.bankcards.service.CardService;
+import com.example.bankcards.service.ExportFormat;
+import com.example.bankcards.service.OptimisticRetryExecutor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin")
+@CrossOrigin(origins = "*")
+@PreAuthorize("hasRole('ADMIN')")
+public class AdminController {
+
+    @Autowired
+    private OptimisticRetryExecutor optimisticRetryExecutor;
+
+    @Autowired
+    private CardBalanceShardService cardBalanceShardService;
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private AdminExportService adminExportService;
+
+    @Autowired
+    private CardBulkIssuer cardBulkIssuer;
+
+    @Autowired
+    private CardBulkStatusUpdater cardBulkStatusUpdater;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PutMapping("/cards/status")
+    public ResponseEntity<BulkCardStatusResultDto> updateCardsStatus(@Valid @RequestBody BulkCardStatusDto request) {
+        int updated = cardBulkStatusUpdater.updateStatus(request);
+        return ResponseEntity.ok(new BulkCardStatusResultDto(updated));
+    }
+
+    // Выпущенные карты отдаются NDJSON по мере фиксации частей; ошибки запроса проверяются до начала ответа
+    @PostMapping("/cards/bulk")
+    public ResponseEntity<StreamingResponseBody> issueCards(@Valid @RequestBody BulkCardIssueDto request) {
+        cardBulkIssuer.validate(request);
+        StreamingResponseBody body = out -> cardBulkIssuer.issue(request, cards -> {
+            try {
+                for (CardDto card : cards) {
+                    out.write(objectMapper.writeValueAsBytes(card));
+                    out.write('\n');
+                }
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(ExportFormat.NDJSON.getContentType() + ";charset=UTF-8"))
+                .body(body);
+    }
+
+    // Ответ пишется в асинхронном потоке MVC по мере чтения курсора, без загрузки таблицы в память
+    @GetMapping("/export/cards")
+    public ResponseEntity<StreamingResponseBody> exportCards(@RequestParam(defaultValue = "ndjson") String format) {
+        ExportFormat exportFormat = ExportFormat.of(format);
+        return export("cards", exportFormat, out -> adminExportService.exportCards(exportFormat, out));
+    }
+
+    @GetMapping("/export/transactions")
+    public ResponseEntity<StreamingResponseBody> exportTransactions(@RequestParam(defaultValue = "ndjson") String format) {
+        ExportFormat exportFormat = ExportFormat.of(format);
+        return export("transactions", exportFormat, out -> adminExportService.exportTransactions(exportFormat, out));
+    }
+
+    @GetMapping("/export/users")
+    public ResponseEntity<StreamingResponseBody> exportUsers(@RequestParam(defaultValue = "ndjson") String format) {
+        ExportFormat exportFormat = ExportFormat.of(format);
+        return export("users", exportFormat, out -> adminExportService.exportUsers(exportFormat, out));
+    }
+
+    @GetMapping("/cards/search")
+    public ResponseEntity<Page<CardDto>> searchCards(@RequestParam String owner, Pageable pageable) {
+        Page<CardDto> cards = cardService.searchCardsByOwner(owner, pageable);
+        return ResponseEntity.ok(cards);
+    }
+
+    // Номер карты передается в теле, чтобы не попадать в URL и журналы доступа
+    @PostMapping("/cards/lookup")
+    public ResponseEntity<CardDto> lookupCard(@Valid @RequestBody CardLookupDto lookupDto) {
+        CardDto card = cardService.getCardByNumber(lookupDto.getCardNumber());
+        return ResponseEntity.ok(card);
+    }
+
+    @GetMapping("/transfers/hot-cards")
+    public ResponseEntity<List<HotCardDto>> getHotCards(@RequestParam(defaultValue = "20") int limit) {
+        List<HotCardDto> hotCards = optimisticRetryExecutor.getHotCards(limit);
+        return ResponseEntity.ok(hotCards);
+    }
+
+    @PostMapping("/cards/{cardId}/hot")
+    public ResponseEntity<Void> enableBalanceSharding(@PathVariable Long cardId,
+                                                      @RequestParam(required = false) Integer shards) {
+        cardBalanceShardService.enableSharding(cardId, shards);
+        return ResponseEntity.ok().build();
+    }
+
+    @DeleteMapping("/cards/{cardId}/hot")
+    public ResponseEntity<Void> disableBalanceSharding(@PathVariable Long cardId) {
+        cardBalanceShardService.disableSharding(cardId);
+        return ResponseEntity.ok().build();
+    }
+
+    private ResponseEntity<StreamingResponseBody> export(String name, ExportFormat format, StreamingResponseBody body) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(name + "." + format.getExtension()).build().toString())
+                .body(body);
+    }
+}
@@ -2,8 +2,11 @@ package com.example.bankcards.controller;
 
 import com.example.bankcards.dto.CardDto;
 import com.example.bankcards.dto.CreateCardDto;
+import com.example.bankcards.dto.CursorPageDto;
+import com.example.bankcards.dto.UserCardSummaryDto;
 import com.example.bankcards.entity.CardStatus;
 import com.example.bankcards.service.CardService;
+import com.example.bankcards.service.UserCardSummaryService;
 import com.example.bankcards.service.UserService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -28,6 +31,9 @@ public class CardController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private UserCardSummaryService summaryService;
+
     @PostMapping
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<CardDto> createCard(@Valid @RequestBody CreateCardDto createCardDto, @RequestParam Long userId) {
@@ -52,6 +58,29 @@ public class CardController {
         return ResponseEntity.ok(cards);
     }
 
+    /**
+     * Курсорная пагинация: первая страница без after, следующая — с after из поля next
+     */
+    @GetMapping("/cursor")
+    public ResponseEntity<CursorPageDto<CardDto>> getUserCardsAfter(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) CardStatus status,
+            @RequestParam(required = false) String owner) {
+        Long userId = getCurrentUserId();
+        CursorPageDto<CardDto> cards = cardService.getUserCardsAfter(userId, after, size, status, owner);
+        return ResponseEntity.ok(cards);
+    }
+
+    /**
+     * Суммарный баланс и число карт по статусам: одна строка сводки, без чтения карт
+     */
+    @GetMapping("/summary")
+    public ResponseEntity<UserCardSummaryDto> getCardSummary() {
+        Long userId = getCurrentUserId();
+        return ResponseEntity.ok(summaryService.getSummary(userId));
+    }
+
     @PutMapping("/{cardId}/status")
     public ResponseEntity<CardDto> updateCardStatus(@PathVariable Long cardId, @RequestParam CardStatus status) {
         Long userId = getCurrentUserId();
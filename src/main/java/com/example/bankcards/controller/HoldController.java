@@ -0,0 +1,62 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.dto.CardHoldDto;
+import com.example.bankcards.dto.TransactionDto;
+import com.example.bankcards.service.CardHoldService;
+import com.example.bankcards.service.UserService;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+
+import java.math.BigDecimal;
+
+@RestController
+@RequestMapping("/api/holds")
+@CrossOrigin(origins = "*")
+public class HoldController {
+
+    @Autowired
+    private CardHoldService cardHoldService;
+
+    @Autowired
+    private UserService userService;
+
+    @PostMapping
+    public ResponseEntity<CardHoldDto> authorizeHold(@Valid @RequestBody CardHoldDto holdDto) {
+        Long userId = getCurrentUserId();
+        CardHoldDto hold = cardHoldService.authorize(holdDto, userId);
+        return ResponseEntity.status(HttpStatus.CREATED).body(hold);
+    }
+
+    @GetMapping("/{holdId}")
+    public ResponseEntity<CardHoldDto> getHold(@PathVariable Long holdId) {
+        Long userId = getCurrentUserId();
+        return ResponseEntity.ok(cardHoldService.getHold(holdId, userId));
+    }
+
+    /**
+     * Списывает холд; без amount списывается вся сумма холда
+     */
+    @PostMapping("/{holdId}/capture")
+    public ResponseEntity<TransactionDto> captureHold(@PathVariable Long holdId,
+                                                      @RequestParam(required = false) BigDecimal amount) {
+        Long userId = getCurrentUserId();
+        return ResponseEntity.ok(cardHoldService.capture(holdId, amount, userId));
+    }
+
+    @PostMapping("/{holdId}/release")
+    public ResponseEntity<CardHoldDto> releaseHold(@PathVariable Long holdId) {
+        Long userId = getCurrentUserId();
+        return ResponseEntity.ok(cardHoldService.release(holdId, userId));
+    }
+
+    private Long getCurrentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String username = authentication.getName();
+        return userService.getUserByUsername(username).getId();
+    }
+}
@@ -1,20 +1,33 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.BatchTransferRequestDto;
+import com.example.bankcards.dto.BatchTransferResultDto;
+import com.example.bankcards.dto.CursorPageDto;
 import com.example.bankcards.dto.TransactionDto;
 import com.example.bankcards.entity.TransactionStatus;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.service.AsyncTransferService;
+import com.example.bankcards.service.TransactionEventHub;
 import com.example.bankcards.service.TransactionService;
+import com.example.bankcards.service.TransferRateLimiter;
 import com.example.bankcards.service.UserService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.net.URI;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/transactions")
@@ -24,16 +37,66 @@ public class TransactionController {
     @Autowired
     private TransactionService transactionService;
 
+    @Autowired
+    private AsyncTransferService asyncTransferService;
+
+    @Autowired
+    private TransactionEventHub transactionEventHub;
+
+    @Autowired
+    private TransferRateLimiter transferRateLimiter;
+
     @Autowired
     private UserService userService;
 
     @PostMapping
-    public ResponseEntity<TransactionDto> createTransaction(@Valid @RequestBody TransactionDto transactionDto) {
+    public ResponseEntity<TransactionDto> createTransaction(
+            @Valid @RequestBody TransactionDto transactionDto,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        checkRateLimit(transactionDto.getFromCardId());
         Long userId = getCurrentUserId();
-        TransactionDto createdTransaction = transactionService.createTransaction(transactionDto, userId);
+        TransactionDto createdTransaction = transactionService.createTransaction(transactionDto, userId, idempotencyKey);
+        // С включенным журналом перевод принят, но еще не применен к балансам
+        if (createdTransaction.getStatus() == TransactionStatus.PENDING) {
+            return ResponseEntity.accepted().body(createdTransaction);
+        }
         return ResponseEntity.ok(createdTransaction);
     }
 
+    @PostMapping("/async")
+    public ResponseEntity<TransactionDto> submitTransaction(@Valid @RequestBody TransactionDto transactionDto) {
+        checkRateLimit(transactionDto.getFromCardId());
+        Long userId = getCurrentUserId();
+        TransactionDto pendingTransaction = asyncTransferService.submit(transactionDto, userId);
+        URI statusUri = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/api/transactions/{transactionId}")
+                .buildAndExpand(pendingTransaction.getId())
+                .toUri();
+        return ResponseEntity.accepted().location(statusUri).body(pendingTransaction);
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<List<BatchTransferResultDto>> createTransactions(@Valid @RequestBody BatchTransferRequestDto request) {
+        // Пакет тратит по токену на перевод, в том числе из корзин карт отправителя
+        Map<Long, Integer> transfersByCard = new HashMap<>();
+        for (TransactionDto transfer : request.getTransfers()) {
+            transfersByCard.merge(transfer.getFromCardId(), 1, Integer::sum);
+        }
+        checkBatchRateLimit(transfersByCard);
+        Long userId = getCurrentUserId();
+        List<BatchTransferResultDto> results = transactionService.createTransactions(request.getTransfers(), userId);
+        return ResponseEntity.ok(results);
+    }
+
+    /**
+     * Поток событий "transaction" (TransactionDto) и "balance" (CardBalanceDto) по картам пользователя
+     */
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamTransactions() {
+        Long userId = getCurrentUserId();
+        return transactionEventHub.subscribe(userId);
+    }
+
     @GetMapping("/{transactionId}")
     public ResponseEntity<TransactionDto> getTransaction(@PathVariable Long transactionId) {
         Long userId = getCurrentUserId();
@@ -50,6 +113,19 @@ public class TransactionController {
         return ResponseEntity.ok(transactions);
     }
 
+    /**
+     * Курсорная пагинация: первая страница без after, следующая — с after из поля next
+     */
+    @GetMapping("/cursor")
+    public ResponseEntity<CursorPageDto<TransactionDto>> getUserTransactionsAfter(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) TransactionStatus status) {
+        Long userId = getCurrentUserId();
+        CursorPageDto<TransactionDto> transactions = transactionService.getUserTransactionsAfter(userId, after, size, status);
+        return ResponseEntity.ok(transactions);
+    }
+
     @PostMapping("/{transactionId}/cancel")
     public ResponseEntity<TransactionDto> cancelTransaction(@PathVariable Long transactionId) {
         Long userId = getCurrentUserId();
@@ -64,6 +140,24 @@ public class TransactionController {
         return ResponseEntity.ok(transactions);
     }
 
+    /**
+     * Лимит проверяется до любых обращений к БД: пользователь берется из уже
+     * аутентифицированного principal, а не повторным запросом по имени
+     */
+    private void checkRateLimit(Long fromCardId) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof User user) {
+            transferRateLimiter.acquire(user.getId(), user.getRole(), fromCardId);
+        }
+    }
+
+    private void checkBatchRateLimit(Map<Long, Integer> transfersByCard) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof User user) {
+            transferRateLimiter.acquireBatch(user.getId(), user.getRole(), transfersByCard);
+        }
+    }
+
     private Long getCurrentUserId() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         String username = authentication.getName();
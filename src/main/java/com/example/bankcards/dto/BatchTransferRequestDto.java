@@ -0,0 +1,30 @@
+package com.example.bankcards.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+
+public class BatchTransferRequestDto {
+    
+    public static final int MAX_TRANSFERS = 5000;
+    
+    @NotEmpty(message = "Список переводов не может быть пустым")
+    @Size(max = MAX_TRANSFERS, message = "Слишком много переводов в одном пакете")
+    private List<@Valid TransactionDto> transfers;
+
+    public BatchTransferRequestDto() {}
+
+    public BatchTransferRequestDto(List<TransactionDto> transfers) {
+        this.transfers = transfers;
+    }
+
+    // Getters and Setters
+    public List<TransactionDto> getTransfers() {
+        return transfers;
+    }
+
+    public void setTransfers(List<TransactionDto> transfers) {
+        this.transfers = transfers;
+    }
+}
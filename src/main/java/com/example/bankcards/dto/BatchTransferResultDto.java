@@ -0,0 +1,58 @@
+package com.example.bankcards.dto;
+
+public class BatchTransferResultDto {
+    private int index; // Позиция перевода в исходном пакете
+    private boolean success;
+    private TransactionDto transaction;
+    private String error;
+
+    public BatchTransferResultDto() {}
+
+    public BatchTransferResultDto(int index, boolean success, TransactionDto transaction, String error) {
+        this.index = index;
+        this.success = success;
+        this.transaction = transaction;
+        this.error = error;
+    }
+
+    public static BatchTransferResultDto completed(int index, TransactionDto transaction) {
+        return new BatchTransferResultDto(index, true, transaction, null);
+    }
+
+    public static BatchTransferResultDto rejected(int index, String error) {
+        return new BatchTransferResultDto(index, false, null, error);
+    }
+
+    // Getters and Setters
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+
+    public TransactionDto getTransaction() {
+        return transaction;
+    }
+
+    public void setTransaction(TransactionDto transaction) {
+        this.transaction = transaction;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.bankcards.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+public class BulkCardIssueDto {
+    
+    public static final int MAX_CARDS = 10000;
+    
+    @NotEmpty(message = "Список выпусков не может быть пустым")
+    @Size(max = 1000, message = "Слишком много пользователей в одном запросе")
+    private List<@Valid Item> items;
+
+    public BulkCardIssueDto() {}
+
+    public BulkCardIssueDto(List<Item> items) {
+        this.items = items;
+    }
+
+    /**
+     * Общее число карт во всех позициях
+     */
+    public int totalCount() {
+        return items.stream().mapToInt(Item::getCount).sum();
+    }
+
+    // Getters and Setters
+    public List<Item> getItems() {
+        return items;
+    }
+
+    public void setItems(List<Item> items) {
+        this.items = items;
+    }
+
+    /**
+     * count одинаковых карт одного пользователя
+     */
+    public static class Item {
+        
+        @NotNull(message = "Пользователь обязателен")
+        private Long userId;
+        
+        @NotBlank(message = "Владелец обязателен")
+        private String owner;
+        
+        @NotNull(message = "Дата истечения обязательна")
+        private LocalDate expiryDate;
+        
+        @PositiveOrZero(message = "Начальный баланс не может быть отрицательным")
+        private BigDecimal initialBalance = BigDecimal.ZERO;
+        
+        @Min(value = 1, message = "Число карт должно быть положительным")
+        @Max(value = MAX_CARDS, message = "Слишком много карт в одном запросе")
+        private int count = 1;
+
+        public Item() {}
+
+        public Item(Long userId, String owner, LocalDate expiryDate, BigDecimal initialBalance, int count) {
+            this.userId = userId;
+            this.owner = owner;
+            this.expiryDate = expiryDate;
+            this.initialBalance = initialBalance;
+            this.count = count;
+        }
+
+        public Long getUserId() {
+            return userId;
+        }
+
+        public void setUserId(Long userId) {
+            this.userId = userId;
+        }
+
+        public String getOwner() {
+            return owner;
+        }
+
+        public void setOwner(String owner) {
+            this.owner = owner;
+        }
+
+        public LocalDate getExpiryDate() {
+            return expiryDate;
+        }
+
+        public void setExpiryDate(LocalDate expiryDate) {
+            this.expiryDate = expiryDate;
+        }
+
+        public BigDecimal getInitialBalance() {
+            return initialBalance;
+        }
+
+        public void setInitialBalance(BigDecimal initialBalance) {
+            this.initialBalance = initialBalance;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.entity.CardStatus;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Новый статус для карт из списка ID или для карт, подходящих под фильтр.
+ * Список и фильтр взаимоисключающие; пустой фильтр не допускается.
+ */
+public class BulkCardStatusDto {
+    
+    public static final int MAX_CARD_IDS = 100000;
+    
+    @NotNull(message = "Статус обязателен")
+    private CardStatus status;
+    
+    @Size(max = MAX_CARD_IDS, message = "Слишком много карт в одном запросе")
+    private List<Long> cardIds;
+    
+    // Фильтр
+    private Long userId;
+    
+    private CardStatus currentStatus;
+    
+    private LocalDate expiresFrom;
+    
+    private LocalDate expiresTo;
+
+    public BulkCardStatusDto() {}
+
+    public BulkCardStatusDto(CardStatus status, List<Long> cardIds) {
+        this.status = status;
+        this.cardIds = cardIds;
+    }
+
+    public boolean hasCardIds() {
+        return cardIds != null && !cardIds.isEmpty();
+    }
+
+    public boolean hasFilter() {
+        return userId != null || currentStatus != null || expiresFrom != null || expiresTo != null;
+    }
+
+    // Getters and Setters
+    public CardStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(CardStatus status) {
+        this.status = status;
+    }
+
+    public List<Long> getCardIds() {
+        return cardIds;
+    }
+
+    public void setCardIds(List<Long> cardIds) {
+        this.cardIds = cardIds;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public CardStatus getCurrentStatus() {
+        return currentStatus;
+    }
+
+    public void setCurrentStatus(CardStatus currentStatus) {
+        this.currentStatus = currentStatus;
+    }
+
+    public LocalDate getExpiresFrom() {
+        return expiresFrom;
+    }
+
+    public void setExpiresFrom(LocalDate expiresFrom) {
+        this.expiresFrom = expiresFrom;
+    }
+
+    public LocalDate getExpiresTo() {
+        return expiresTo;
+    }
+
+    public void setExpiresTo(LocalDate expiresTo) {
+        this.expiresTo = expiresTo;
+    }
+}
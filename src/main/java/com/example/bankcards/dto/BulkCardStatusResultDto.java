@@ -0,0 +1,21 @@
+package com.example.bankcards.dto;
+
+public class BulkCardStatusResultDto {
+    
+    private int updated; // Число карт, статус которых изменился
+
+    public BulkCardStatusResultDto() {}
+
+    public BulkCardStatusResultDto(int updated) {
+        this.updated = updated;
+    }
+
+    // Getters and Setters
+    public int getUpdated() {
+        return updated;
+    }
+
+    public void setUpdated(int updated) {
+        this.updated = updated;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.bankcards.dto;
+
+import java.math.BigDecimal;
+
+public class CardBalanceDto {
+    private Long cardId;
+    private BigDecimal balance;
+
+    public CardBalanceDto() {}
+
+    public CardBalanceDto(Long cardId, BigDecimal balance) {
+        this.cardId = cardId;
+        this.balance = balance;
+    }
+
+    // Getters and Setters
+    public Long getCardId() {
+        return cardId;
+    }
+
+    public void setCardId(Long cardId) {
+        this.cardId = cardId;
+    }
+
+    public BigDecimal getBalance() {
+        return balance;
+    }
+
+    public void setBalance(BigDecimal balance) {
+        this.balance = balance;
+    }
+}
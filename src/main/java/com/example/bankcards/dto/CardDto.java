@@ -25,6 +25,8 @@ public class CardDto {
     @Positive(message = "Баланс должен быть положительным")
     private BigDecimal balance;
     
+    private BigDecimal availableBalance; // Баланс за вычетом активных холдов
+    
     private Long userId;
 
     public CardDto() {}
@@ -89,6 +91,14 @@ public class CardDto {
         this.balance = balance;
     }
 
+    public BigDecimal getAvailableBalance() {
+        return availableBalance;
+    }
+
+    public void setAvailableBalance(BigDecimal availableBalance) {
+        this.availableBalance = availableBalance;
+    }
+
     public Long getUserId() {
         return userId;
     }
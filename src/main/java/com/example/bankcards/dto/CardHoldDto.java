@@ -0,0 +1,126 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.entity.HoldStatus;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public class CardHoldDto {
+    private Long id;
+    
+    @NotNull(message = "ID карты отправителя обязателен")
+    private Long fromCardId;
+    
+    @NotNull(message = "ID карты получателя обязателен")
+    private Long toCardId;
+    
+    @NotNull(message = "Сумма обязательна")
+    @Positive(message = "Сумма должна быть положительной")
+    private BigDecimal amount;
+    
+    @Positive(message = "Срок холда должен быть положительным")
+    private Long ttlSeconds; // Срок холда при создании, по умолчанию transfer.holds.default-ttl
+    
+    private HoldStatus status;
+    private LocalDateTime expiresAt;
+    private LocalDateTime createdAt;
+    private LocalDateTime resolvedAt;
+    private Long transactionId;
+
+    public CardHoldDto() {}
+
+    public CardHoldDto(Long id, Long fromCardId, Long toCardId, BigDecimal amount, HoldStatus status,
+                       LocalDateTime expiresAt, LocalDateTime createdAt, LocalDateTime resolvedAt, Long transactionId) {
+        this.id = id;
+        this.fromCardId = fromCardId;
+        this.toCardId = toCardId;
+        this.amount = amount;
+        this.status = status;
+        this.expiresAt = expiresAt;
+        this.createdAt = createdAt;
+        this.resolvedAt = resolvedAt;
+        this.transactionId = transactionId;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getFromCardId() {
+        return fromCardId;
+    }
+
+    public void setFromCardId(Long fromCardId) {
+        this.fromCardId = fromCardId;
+    }
+
+    public Long getToCardId() {
+        return toCardId;
+    }
+
+    public void setToCardId(Long toCardId) {
+        this.toCardId = toCardId;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+
+    public Long getTtlSeconds() {
+        return ttlSeconds;
+    }
+
+    public void setTtlSeconds(Long ttlSeconds) {
+        this.ttlSeconds = ttlSeconds;
+    }
+
+    public HoldStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(HoldStatus status) {
+        this.status = status;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getResolvedAt() {
+        return resolvedAt;
+    }
+
+    public void setResolvedAt(LocalDateTime resolvedAt) {
+        this.resolvedAt = resolvedAt;
+    }
+
+    public Long getTransactionId() {
+        return transactionId;
+    }
+
+    public void setTransactionId(Long transactionId) {
+        this.transactionId = transactionId;
+    }
+}
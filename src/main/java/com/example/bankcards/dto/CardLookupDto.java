@@ -0,0 +1,26 @@
+package com.example.bankcards.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+
+public class CardLookupDto {
+    
+    @NotBlank(message = "Номер карты обязателен")
+    @Pattern(regexp = "[0-9 -]{12,23}", message = "Номер карты должен содержать только цифры, пробелы и дефисы")
+    private String cardNumber;
+
+    public CardLookupDto() {}
+
+    public CardLookupDto(String cardNumber) {
+        this.cardNumber = cardNumber;
+    }
+
+    // Getters and Setters
+    public String getCardNumber() {
+        return cardNumber;
+    }
+
+    public void setCardNumber(String cardNumber) {
+        this.cardNumber = cardNumber;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.entity.CardStatus;
+import java.util.List;
+
+/**
+ * Карты пользователя, получившие новый статус
+ */
+public class CardStatusChangeDto {
+    
+    private List<Long> cardIds;
+    
+    private CardStatus status;
+
+    public CardStatusChangeDto() {}
+
+    public CardStatusChangeDto(List<Long> cardIds, CardStatus status) {
+        this.cardIds = cardIds;
+        this.status = status;
+    }
+
+    // Getters and Setters
+    public List<Long> getCardIds() {
+        return cardIds;
+    }
+
+    public void setCardIds(List<Long> cardIds) {
+        this.cardIds = cardIds;
+    }
+
+    public CardStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(CardStatus status) {
+        this.status = status;
+    }
+}
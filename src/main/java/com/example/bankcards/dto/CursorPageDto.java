@@ -0,0 +1,63 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.util.PageCursor;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Страница списка с курсором следующей страницы, без общего числа строк
+ */
+public class CursorPageDto<T> {
+    
+    private List<T> content;
+    
+    private String next; // Токен after следующей страницы, null на последней
+    
+    private boolean hasNext;
+
+    public CursorPageDto() {}
+
+    public CursorPageDto(List<T> content, String next) {
+        this.content = content;
+        this.next = next;
+        this.hasNext = next != null;
+    }
+
+    /**
+     * Собирает страницу из size + 1 строк: лишняя строка только показывает, что страница не последняя
+     */
+    public static <E, T> CursorPageDto<T> of(List<E> rows, int size, Function<E, T> mapper,
+                                             Function<E, PageCursor> cursor) {
+        if (rows.size() <= size) {
+            return new CursorPageDto<>(rows.stream().map(mapper).toList(), null);
+        }
+        List<E> page = rows.subList(0, size);
+        return new CursorPageDto<>(page.stream().map(mapper).toList(), cursor.apply(page.get(size - 1)).encode());
+    }
+
+    // Getters and Setters
+    public List<T> getContent() {
+        return content;
+    }
+
+    public void setContent(List<T> content) {
+        this.content = content;
+    }
+
+    public String getNext() {
+        return next;
+    }
+
+    public void setNext(String next) {
+        this.next = next;
+    }
+
+    public boolean isHasNext() {
+        return hasNext;
+    }
+
+    public void setHasNext(boolean hasNext) {
+        this.hasNext = hasNext;
+    }
+}
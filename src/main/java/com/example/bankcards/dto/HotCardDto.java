@@ -0,0 +1,30 @@
+package com.example.bankcards.dto;
+
+public class HotCardDto {
+    private Long cardId;
+    private long conflicts; // Конфликты оптимистической блокировки с момента запуска
+
+    public HotCardDto() {}
+
+    public HotCardDto(Long cardId, long conflicts) {
+        this.cardId = cardId;
+        this.conflicts = conflicts;
+    }
+
+    // Getters and Setters
+    public Long getCardId() {
+        return cardId;
+    }
+
+    public void setCardId(Long cardId) {
+        this.cardId = cardId;
+    }
+
+    public long getConflicts() {
+        return conflicts;
+    }
+
+    public void setConflicts(long conflicts) {
+        this.conflicts = conflicts;
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.bankcards.dto;
+
+import java.math.BigDecimal;
+
+public class UserCardSummaryDto {
+    private Long userId;
+    private BigDecimal totalBalance; // Сумма балансов всех карт пользователя
+    private long activeCards;
+    private long blockedCards;
+    private long expiredCards;
+
+    public UserCardSummaryDto() {}
+
+    public UserCardSummaryDto(Long userId, BigDecimal totalBalance, long activeCards, long blockedCards, long expiredCards) {
+        this.userId = userId;
+        this.totalBalance = totalBalance;
+        this.activeCards = activeCards;
+        this.blockedCards = blockedCards;
+        this.expiredCards = expiredCards;
+    }
+
+    public long getTotalCards() {
+        return activeCards + blockedCards + expiredCards;
+    }
+
+    // Getters and Setters
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public BigDecimal getTotalBalance() {
+        return totalBalance;
+    }
+
+    public void setTotalBalance(BigDecimal totalBalance) {
+        this.totalBalance = totalBalance;
+    }
+
+    public long getActiveCards() {
+        return activeCards;
+    }
+
+    public void setActiveCards(long activeCards) {
+        this.activeCards = activeCards;
+    }
+
+    public long getBlockedCards() {
+        return blockedCards;
+    }
+
+    public void setBlockedCards(long blockedCards) {
+        this.blockedCards = blockedCards;
+    }
+
+    public long getExpiredCards() {
+        return expiredCards;
+    }
+
+    public void setExpiredCards(long expiredCards) {
+        this.expiredCards = expiredCards;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Снимок баланса карты: сумма всех проводок, созданных раньше coveredUntil.
+ * Граница — время, а не ID проводки: ID выдаются из последовательности блоками
+ * и не идут в порядке фиксации транзакций.
+ */
+@Entity
+@Table(name = "balance_snapshots")
+public class BalanceSnapshot {
+    
+    @Id
+    @Column(name = "card_id")
+    private Long cardId;
+    
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal balance = BigDecimal.ZERO;
+    
+    @Column(name = "covered_until", nullable = false)
+    private LocalDateTime coveredUntil;
+    
+    private LocalDateTime updatedAt;
+
+    public BalanceSnapshot() {}
+
+    public BalanceSnapshot(Long cardId) {
+        this.cardId = cardId;
+    }
+
+    // Getters and Setters
+    public Long getCardId() {
+        return cardId;
+    }
+
+    public void setCardId(Long cardId) {
+        this.cardId = cardId;
+    }
+
+    public BigDecimal getBalance() {
+        return balance;
+    }
+
+    public void setBalance(BigDecimal balance) {
+        this.balance = balance;
+    }
+
+    public LocalDateTime getCoveredUntil() {
+        return coveredUntil;
+    }
+
+    public void setCoveredUntil(LocalDateTime coveredUntil) {
+        this.coveredUntil = coveredUntil;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    @PrePersist
+    @PreUpdate
+    protected void onUpdate() {
+        this.updatedAt = LocalDateTime.now();
+    }
+}
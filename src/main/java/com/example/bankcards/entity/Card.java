@@ -13,14 +13,21 @@ import java.time.LocalDateTime;
 @Table(name = "cards")
 public class Card {
     
+    // Последовательность с пулом идентификаторов вместо IDENTITY, чтобы массовый выпуск шел JDBC batch
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cards_seq")
+    @SequenceGenerator(name = "cards_seq", sequenceName = "cards_seq", allocationSize = 50)
     private Long id;
     
     @NotBlank
-    @Size(min = 16, max = 16)
-    @Column(unique = true)
-    private String cardNumber; // Зашифрованный номер карты
+    @Size(max = 255)
+    private String cardNumber; // Зашифрованный номер карты, см. CardNumberUtil
+    
+    @Column(name = "card_number_hash", length = 64, unique = true)
+    private String cardNumberHash; // Слепой индекс номера для поиска и уникальности, см. CardNumberUtil.blindIndex
+    
+    @Column(name = "last_four", length = 4)
+    private String lastFour; // Последние 4 цифры номера для маски, хранятся открыто
     
     @NotBlank
     @Size(max = 100)
@@ -42,6 +49,12 @@ public class Card {
     private LocalDateTime createdAt;
     
     private LocalDateTime updatedAt;
+    
+    @Version
+    private Long version; // Оптимистическая блокировка
+    
+    @Column(nullable = false)
+    private boolean hot = false; // Баланс разделен на шарды card_balance_shards
 
     public Card() {}
 
@@ -71,6 +84,22 @@ public class Card {
         this.cardNumber = cardNumber;
     }
 
+    public String getCardNumberHash() {
+        return cardNumberHash;
+    }
+
+    public void setCardNumberHash(String cardNumberHash) {
+        this.cardNumberHash = cardNumberHash;
+    }
+
+    public String getLastFour() {
+        return lastFour;
+    }
+
+    public void setLastFour(String lastFour) {
+        this.lastFour = lastFour;
+    }
+
     public String getOwner() {
         return owner;
     }
@@ -127,6 +156,22 @@ public class Card {
         this.updatedAt = updatedAt;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public boolean isHot() {
+        return hot;
+    }
+
+    public void setHot(boolean hot) {
+        this.hot = hot;
+    }
+
     @PreUpdate
     protected void onUpdate() {
         this.updatedAt = LocalDateTime.now();
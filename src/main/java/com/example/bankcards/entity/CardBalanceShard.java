@@ -0,0 +1,69 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+
+/**
+ * Часть баланса «горячей» карты. Баланс такой карты равен сумме ее шардов,
+ * а зачисления распределяются по шардам, чтобы не конкурировать за одну строку.
+ */
+@Entity
+@Table(name = "card_balance_shards",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"card_id", "shard_index"}))
+public class CardBalanceShard {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "card_id", nullable = false)
+    private Long cardId;
+    
+    @Column(name = "shard_index", nullable = false)
+    private Integer shardIndex;
+    
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal balance = BigDecimal.ZERO;
+
+    public CardBalanceShard() {}
+
+    public CardBalanceShard(Long cardId, Integer shardIndex, BigDecimal balance) {
+        this.cardId = cardId;
+        this.shardIndex = shardIndex;
+        this.balance = balance;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getCardId() {
+        return cardId;
+    }
+
+    public void setCardId(Long cardId) {
+        this.cardId = cardId;
+    }
+
+    public Integer getShardIndex() {
+        return shardIndex;
+    }
+
+    public void setShardIndex(Integer shardIndex) {
+        this.shardIndex = shardIndex;
+    }
+
+    public BigDecimal getBalance() {
+        return balance;
+    }
+
+    public void setBalance(BigDecimal balance) {
+        this.balance = balance;
+    }
+}
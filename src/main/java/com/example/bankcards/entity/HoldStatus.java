@@ -0,0 +1,8 @@
+package com.example.bankcards.entity;
+
+public enum HoldStatus {
+    ACTIVE,
+    CAPTURED,
+    RELEASED,
+    EXPIRED
+}
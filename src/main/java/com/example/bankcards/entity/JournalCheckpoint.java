@@ -0,0 +1,60 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Контрольная точка журнала переводов: номер последней записи, примененной к таблицам.
+ * Обновляется в той же транзакции, что и балансы карт, поэтому запись журнала
+ * применяется ровно один раз.
+ */
+@Entity
+@Table(name = "journal_checkpoint")
+public class JournalCheckpoint {
+    
+    @Id
+    private Long id;
+    
+    @Column(name = "last_sequence", nullable = false)
+    private Long lastSequence = 0L;
+    
+    private LocalDateTime updatedAt;
+
+    public JournalCheckpoint() {}
+
+    public JournalCheckpoint(Long id) {
+        this.id = id;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getLastSequence() {
+        return lastSequence;
+    }
+
+    public void setLastSequence(Long lastSequence) {
+        this.lastSequence = lastSequence;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    @PrePersist
+    @PreUpdate
+    protected void onUpdate() {
+        this.updatedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Проводка по карте. Списание хранится с отрицательной суммой, зачисление — с положительной,
+ * поэтому баланс карты равен сумме ее проводок. Проводки только добавляются.
+ */
+@Entity
+@Immutable
+@Table(name = "ledger_entries")
+public class LedgerEntry {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ledger_entries_seq")
+    @SequenceGenerator(name = "ledger_entries_seq", sequenceName = "ledger_entries_seq", allocationSize = 50)
+    private Long id;
+    
+    // Идентификаторы вместо связей: проводка пишется без загрузки карты и перевода
+    @NotNull
+    @Column(name = "card_id", nullable = false)
+    private Long cardId;
+    
+    @Column(name = "transaction_id")
+    private Long transactionId;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entry_type", nullable = false, length = 20)
+    private LedgerEntryType type;
+    
+    @NotNull
+    private BigDecimal amount;
+    
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public LedgerEntry() {}
+
+    public LedgerEntry(Long cardId, Long transactionId, LedgerEntryType type, BigDecimal amount) {
+        this.cardId = cardId;
+        this.transactionId = transactionId;
+        this.type = type;
+        this.amount = amount;
+    }
+
+    // Getters
+    public Long getId() {
+        return id;
+    }
+
+    public Long getCardId() {
+        return cardId;
+    }
+
+    public Long getTransactionId() {
+        return transactionId;
+    }
+
+    public LedgerEntryType getType() {
+        return type;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        this.createdAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.bankcards.entity;
+
+public enum LedgerEntryType {
+    OPENING,     // Начальный баланс карты
+    TRANSFER,    // Списание или зачисление по переводу
+    REVERSAL,    // Возврат по отмененному переводу
+    ADJUSTMENT   // Ручное изменение баланса
+}
@@ -6,13 +6,18 @@ import jakarta.validation.constraints.Positive;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"from_card_id", "idempotency_key"}))
 public class Transaction {
     
+    // Последовательность с пулом идентификаторов вместо IDENTITY, чтобы Hibernate мог группировать вставки в JDBC batch
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transactions_seq")
+    @SequenceGenerator(name = "transactions_seq", sequenceName = "transactions_seq", allocationSize = 50)
     private Long id;
     
     @ManyToOne(fetch = FetchType.LAZY)
@@ -30,9 +35,20 @@ public class Transaction {
     @Enumerated(EnumType.STRING)
     private TransactionStatus status = TransactionStatus.PENDING;
     
+    @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt;
     
     private LocalDateTime processedAt;
+    
+    @Column(name = "idempotency_key", length = 64)
+    private String idempotencyKey; // Ключ из заголовка Idempotency-Key, уникален в пределах карты отправителя
+    
+    @Version
+    private Long version; // Оптимистическая блокировка
+    
+    // Строки проекции по участникам для страниц переводов пользователя, вставляются вместе с переводом
+    @OneToMany(mappedBy = "transaction", cascade = CascadeType.PERSIST)
+    private List<UserTransaction> participants = new ArrayList<>();
 
     public Transaction() {}
 
@@ -100,8 +116,39 @@ public class Transaction {
         this.processedAt = processedAt;
     }
 
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public List<UserTransaction> getParticipants() {
+        return participants;
+    }
+
     @PrePersist
     protected void onCreate() {
-        this.createdAt = LocalDateTime.now();
+        // Перевод из журнала сохраняет время приема, а не время применения
+        if (this.createdAt == null) {
+            this.createdAt = LocalDateTime.now();
+        }
+        // Каскад коллекции выполняется после этого обратного вызова; перевод между
+        // своими картами дает одну строку
+        Long fromUserId = fromCard.getUser().getId();
+        Long toUserId = toCard.getUser().getId();
+        participants.add(new UserTransaction(fromUserId, this));
+        if (!toUserId.equals(fromUserId)) {
+            participants.add(new UserTransaction(toUserId, this));
+        }
     }
 }
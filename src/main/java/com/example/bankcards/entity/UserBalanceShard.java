@@ -0,0 +1,70 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+
+/**
+ * Часть суммарного баланса пользователя в сводке. Приращения балансов от переводов
+ * распределяются по шардам, чтобы переводы одного пользователя не конкурировали
+ * за одну строку user_card_summaries.
+ */
+@Entity
+@Table(name = "user_balance_shards",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "shard_index"}))
+public class UserBalanceShard {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    
+    @Column(name = "shard_index", nullable = false)
+    private Integer shardIndex;
+    
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal balance = BigDecimal.ZERO;
+
+    public UserBalanceShard() {}
+
+    public UserBalanceShard(Long userId, Integer shardIndex, BigDecimal balance) {
+        this.userId = userId;
+        this.shardIndex = shardIndex;
+        this.balance = balance;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Integer getShardIndex() {
+        return shardIndex;
+    }
+
+    public void setShardIndex(Integer shardIndex) {
+        this.shardIndex = shardIndex;
+    }
+
+    public BigDecimal getBalance() {
+        return balance;
+    }
+
+    public void setBalance(BigDecimal balance) {
+        this.balance = balance;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Сводка по картам пользователя: суммарный баланс и число карт по статусам.
+ * Поддерживается приращениями в транзакциях, изменяющих карты, см. UserCardSummaryService.
+ * Суммарный баланс равен totalBalance плюс шарды {@link UserBalanceShard} пользователя
+ */
+@Entity
+@Table(name = "user_card_summaries")
+public class UserCardSummary {
+    
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+    
+    @Column(name = "total_balance", nullable = false, precision = 19, scale = 2)
+    private BigDecimal totalBalance = BigDecimal.ZERO;
+    
+    @Column(name = "active_cards", nullable = false)
+    private long activeCards;
+    
+    @Column(name = "blocked_cards", nullable = false)
+    private long blockedCards;
+    
+    @Column(name = "expired_cards", nullable = false)
+    private long expiredCards;
+    
+    private LocalDateTime updatedAt;
+
+    public UserCardSummary() {}
+
+    public UserCardSummary(Long userId) {
+        this.userId = userId;
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public BigDecimal getTotalBalance() {
+        return totalBalance;
+    }
+
+    public void setTotalBalance(BigDecimal totalBalance) {
+        this.totalBalance = totalBalance;
+    }
+
+    public long getActiveCards() {
+        return activeCards;
+    }
+
+    public void setActiveCards(long activeCards) {
+        this.activeCards = activeCards;
+    }
+
+    public long getBlockedCards() {
+        return blockedCards;
+    }
+
+    public void setBlockedCards(long blockedCards) {
+        this.blockedCards = blockedCards;
+    }
+
+    public long getExpiredCards() {
+        return expiredCards;
+    }
+
+    public void setExpiredCards(long expiredCards) {
+        this.expiredCards = expiredCards;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Строка проекции переводов по участникам: по одной на каждого пользователя, чья карта
+ * отправляет или получает перевод. Страница переводов пользователя читается одним поиском
+ * по индексу (user_id, created_at, transaction_id) вместо поисков по каждой его карте.
+ * Строки создаются каскадом при сохранении {@link Transaction} и не изменяются:
+ * владелец карты и время создания перевода постоянны.
+ */
+@Entity
+@Table(name = "user_transactions",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "transaction_id"}))
+public class UserTransaction {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_transactions_seq")
+    @SequenceGenerator(name = "user_transactions_seq", sequenceName = "user_transactions_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "transaction_id", nullable = false)
+    private Transaction transaction;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt; // Копия transactions.created_at для порядка индекса
+
+    public UserTransaction() {}
+
+    public UserTransaction(Long userId, Transaction transaction) {
+        this.userId = userId;
+        this.transaction = transaction;
+        this.createdAt = transaction.getCreatedAt();
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Transaction getTransaction() {
+        return transaction;
+    }
+
+    public void setTransaction(Transaction transaction) {
+        this.transaction = transaction;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.bankcards.exception;
+
+public class HoldNotFoundException extends RuntimeException {
+    
+    public HoldNotFoundException(Long holdId) {
+        super("Холд с ID " + holdId + " не найден");
+    }
+}
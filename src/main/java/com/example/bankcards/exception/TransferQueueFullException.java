@@ -0,0 +1,12 @@
+package com.example.bankcards.exception;
+
+public class TransferQueueFullException extends RuntimeException {
+    
+    public TransferQueueFullException(String message) {
+        super(message);
+    }
+    
+    public TransferQueueFullException() {
+        super("Очередь переводов переполнена, повторите запрос позже");
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.bankcards.exception;
+
+public class TransferRateLimitException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public TransferRateLimitException(long retryAfterSeconds) {
+        // Без стека: отказ лимитера должен стоить микросекунды
+        super("Слишком много переводов, повторите запрос позже", null, false, false);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.bankcards.exception;
+
+public class VelocityLimitExceededException extends RuntimeException {
+    
+    public VelocityLimitExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.BalanceSnapshot;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface BalanceSnapshotRepository extends JpaRepository<BalanceSnapshot, Long> {
+    
+    /**
+     * Блокирует снимки карт: параллельное обновление снимков на другом узле ждет,
+     * а не прибавляет те же проводки второй раз
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM BalanceSnapshot s WHERE s.cardId IN :cardIds ORDER BY s.cardId")
+    List<BalanceSnapshot> findByCardIdsForUpdate(@Param("cardIds") Collection<Long> cardIds);
+}
@@ -0,0 +1,55 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.CardBalanceShard;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface CardBalanceShardRepository extends JpaRepository<CardBalanceShard, Long> {
+    
+    @Query("SELECT COALESCE(SUM(s.balance), 0) FROM CardBalanceShard s WHERE s.cardId = :cardId")
+    BigDecimal sumByCardId(@Param("cardId") Long cardId);
+    
+    /**
+     * ID карты и сумма ее шардов по каждой из карт, у которых есть шарды
+     */
+    @Query("SELECT s.cardId, SUM(s.balance) FROM CardBalanceShard s WHERE s.cardId IN :cardIds GROUP BY s.cardId")
+    List<Object[]> sumByCardIds(@Param("cardIds") Collection<Long> cardIds);
+    
+    int countByCardId(Long cardId);
+    
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE CardBalanceShard s SET s.balance = s.balance + :amount " +
+           "WHERE s.cardId = :cardId AND s.shardIndex = :shardIndex")
+    int credit(@Param("cardId") Long cardId, @Param("shardIndex") int shardIndex, @Param("amount") BigDecimal amount);
+    
+    /**
+     * Атомарное списание, если в шарде достаточно средств. Возвращает число измененных строк.
+     * Перед UPDATE в БД сбрасываются измененные в транзакции шарды, иначе запись
+     * их состояния при коммите затерла бы результат UPDATE.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE CardBalanceShard s SET s.balance = s.balance - :amount " +
+           "WHERE s.cardId = :cardId AND s.shardIndex = :shardIndex AND s.balance >= :amount")
+    int debit(@Param("cardId") Long cardId, @Param("shardIndex") int shardIndex, @Param("amount") BigDecimal amount);
+    
+    /**
+     * Блокирует все шарды карты в порядке индекса
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM CardBalanceShard s WHERE s.cardId = :cardId ORDER BY s.shardIndex")
+    List<CardBalanceShard> findByCardIdForUpdate(@Param("cardId") Long cardId);
+    
+    @Modifying
+    @Query("DELETE FROM CardBalanceShard s WHERE s.cardId = :cardId")
+    void deleteByCardId(@Param("cardId") Long cardId);
+}
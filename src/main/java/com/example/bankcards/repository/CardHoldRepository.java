@@ -0,0 +1,29 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.CardHold;
+import com.example.bankcards.entity.HoldStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface CardHoldRepository extends JpaRepository<CardHold, Long> {
+    
+    List<CardHold> findByStatus(HoldStatus status);
+    
+    /**
+     * Помечает истекшими активные холды из списка. Версия увеличивается, чтобы
+     * параллельное списание холда получило конфликт оптимистической блокировки.
+     */
+    @Modifying
+    @Query("UPDATE CardHold h SET h.status = com.example.bankcards.entity.HoldStatus.EXPIRED, " +
+           "h.resolvedAt = :now, h.version = h.version + 1 " +
+           "WHERE h.id IN :ids AND h.status = com.example.bankcards.entity.HoldStatus.ACTIVE")
+    int expire(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+}
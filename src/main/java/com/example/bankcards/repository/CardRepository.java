@@ -2,16 +2,25 @@ package com.example.bankcards.repository;
 
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.CardStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface CardRepository extends JpaRepository<Card, Long> {
@@ -22,6 +31,26 @@ public interface CardRepository extends JpaRepository<Card, Long> {
     
     List<Card> findByUserIdAndStatus(Long userId, CardStatus status);
     
+    List<Card> findByIdIn(Collection<Long> ids);
+    
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Card c WHERE c.id IN :ids ORDER BY c.id")
+    List<Card> findByIdInForUpdate(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * Все карты по возрастанию ID курсором БД: строки читаются пакетами по fetch size,
+     * вызывать внутри транзакции и закрывать поток
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT c FROM Card c ORDER BY c.id")
+    Stream<Card> streamAll();
+    
+    @Query("SELECT c.id FROM Card c WHERE c.hot = true")
+    List<Long> findHotCardIds();
+    
     @Query("SELECT c FROM Card c WHERE c.user.id = :userId AND " +
            "(:status IS NULL OR c.status = :status) AND " +
            "(:owner IS NULL OR c.owner ILIKE %:owner%)")
@@ -30,10 +59,121 @@ public interface CardRepository extends JpaRepository<Card, Long> {
                                      @Param("owner") String owner, 
                                      Pageable pageable);
     
-    Optional<Card> findByCardNumber(String cardNumber);
+    /**
+     * Страница карт пользователя строго раньше (createdAt, id), от новых к старым, без подсчета
+     * общего числа. Пара сравнивается целиком, и поиск начинается с позиции курсора в индексе
+     * idx_cards_user_created_at_desc; статус и владелец проверяются по прочитанным строкам
+     */
+    @Query("SELECT c FROM Card c WHERE c.user.id = :userId AND c.status IN :statuses AND " +
+           "(:owner IS NULL OR c.owner ILIKE %:owner%) AND " +
+           "(c.createdAt, c.id) < (cast(:createdAt as LocalDateTime), cast(:id as Long)) " +
+           "ORDER BY c.user.id DESC, c.createdAt DESC, c.id DESC")
+    List<Card> findByUserIdBefore(@Param("userId") Long userId,
+                                  @Param("statuses") Collection<CardStatus> statuses,
+                                  @Param("owner") String owner,
+                                  @Param("createdAt") LocalDateTime createdAt,
+                                  @Param("id") Long id,
+                                  Pageable pageable);
+    
+    /**
+     * Карты, имя владельца которых содержит owner без учета регистра, по возрастанию ID.
+     * На PostgreSQL использует триграммный индекс idx_cards_owner_trgm; символы %, _ и \
+     * в owner должны быть экранированы обратной косой чертой
+     */
+    @Query(value = "SELECT * FROM cards WHERE owner ILIKE CONCAT('%', :owner, '%') ESCAPE '\\' ORDER BY id",
+           countQuery = "SELECT COUNT(*) FROM cards WHERE owner ILIKE CONCAT('%', :owner, '%') ESCAPE '\\'",
+           nativeQuery = true)
+    Page<Card> searchByOwner(@Param("owner") String owner, Pageable pageable);
+    
+    /**
+     * ID и имена владельцев карт после afterId, по возрастанию ID
+     */
+    @Query("SELECT c.id, c.owner FROM Card c WHERE c.id > :afterId ORDER BY c.id")
+    List<Object[]> findOwners(@Param("afterId") Long afterId, Pageable pageable);
+    
+    /**
+     * Поиск по номеру карты через слепой индекс, см. CardNumberUtil.blindIndex
+     */
+    Optional<Card> findByCardNumberHash(String cardNumberHash);
+    
+    boolean existsByCardNumberHash(String cardNumberHash);
+    
+    /**
+     * Блокирует карты из ids, у которых статус отличается от status, в порядке возрастания ID.
+     * Возвращает ID карты, ID владельца и текущий статус
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c.id, c.user.id, c.status FROM Card c WHERE c.id IN :ids AND c.status <> :status ORDER BY c.id")
+    List<Object[]> lockForStatusChange(@Param("ids") Collection<Long> ids, @Param("status") CardStatus status);
+    
+    /**
+     * Блокирует следующие после afterId карты под фильтр без диапазона сроков, у которых статус
+     * отличается от status, в порядке возрастания ID. Пустые параметры фильтра не ограничивают выборку.
+     * Возвращает ID карты, ID владельца и текущий статус
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c.id, c.user.id, c.status FROM Card c WHERE c.id > :afterId AND c.status <> :status AND " +
+           "(:userId IS NULL OR c.user.id = :userId) AND " +
+           "(:currentStatus IS NULL OR c.status = :currentStatus) ORDER BY c.id")
+    List<Object[]> lockForStatusChangeByFilter(@Param("afterId") Long afterId,
+                                               @Param("status") CardStatus status,
+                                               @Param("userId") Long userId,
+                                               @Param("currentStatus") CardStatus currentStatus,
+                                               Pageable pageable);
+    
+    /**
+     * Блокирует следующие после пары (afterExpiry, afterId) в порядке (срок, ID) карты под
+     * фильтр со сроком не позже expiresTo, у которых статус отличается от status. С заданным
+     * currentStatus часть берется поиском по индексу idx_cards_status_expiry_date_id без
+     * чтения карт вне диапазона сроков. Строки блокируются в порядке возрастания ID, как при
+     * переводах. Возвращает ID карты, ID владельца, текущий статус и срок
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c.id, c.user.id, c.status, c.expiryDate FROM Card c WHERE c.id IN (" +
+           "SELECT e.id FROM Card e WHERE e.status <> :status AND " +
+           "(:currentStatus IS NULL OR e.status = :currentStatus) AND " +
+           "(e.expiryDate, e.id) > (cast(:afterExpiry as LocalDate), cast(:afterId as Long)) AND " +
+           "(:expiresTo IS NULL OR e.expiryDate <= :expiresTo) AND " +
+           "(:userId IS NULL OR e.user.id = :userId) " +
+           "ORDER BY e.expiryDate, e.id LIMIT :limit) AND c.status <> :status AND " +
+           "(:currentStatus IS NULL OR c.status = :currentStatus) ORDER BY c.id")
+    List<Object[]> lockForStatusChangeByExpiry(@Param("afterExpiry") LocalDate afterExpiry,
+                                               @Param("afterId") Long afterId,
+                                               @Param("status") CardStatus status,
+                                               @Param("userId") Long userId,
+                                               @Param("currentStatus") CardStatus currentStatus,
+                                               @Param("expiresTo") LocalDate expiresTo,
+                                               @Param("limit") int limit);
+    
+    /**
+     * Устанавливает статус картам одним UPDATE. version увеличивается, чтобы параллельное
+     * сохранение загруженной карты получило конфликт версий
+     */
+    @Modifying
+    @Query("UPDATE Card c SET c.status = :status, c.version = c.version + 1, c.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE c.id IN :ids")
+    int updateStatus(@Param("ids") Collection<Long> ids, @Param("status") CardStatus status);
+    
+    /**
+     * ID и слепые индексы номеров после afterId, по возрастанию ID
+     */
+    @Query("SELECT c.id, c.cardNumberHash FROM Card c WHERE c.cardNumberHash IS NOT NULL AND c.id > :afterId ORDER BY c.id")
+    List<Object[]> findCardNumberHashes(@Param("afterId") Long afterId, Pageable pageable);
     
-    @Query("SELECT c FROM Card c WHERE c.expiryDate < :date")
-    List<Card> findExpiredCards(@Param("date") LocalDate date);
+    /**
+     * ID и зашифрованные номера карт без last_four или слепого индекса после afterId, по возрастанию ID
+     */
+    @Query("SELECT c.id, c.cardNumber FROM Card c WHERE (c.lastFour IS NULL OR c.cardNumberHash IS NULL) " +
+           "AND c.id > :afterId ORDER BY c.id")
+    List<Object[]> findWithoutNumberColumns(@Param("afterId") Long afterId, Pageable pageable);
     
-    boolean existsByCardNumber(String cardNumber);
+    /**
+     * Заполняет last_four и слепой индекс без изменения version: значения выводятся из неизменяемого номера
+     */
+    @Modifying
+    @Query("UPDATE Card c SET c.lastFour = COALESCE(c.lastFour, :lastFour), " +
+           "c.cardNumberHash = COALESCE(c.cardNumberHash, :cardNumberHash) " +
+           "WHERE c.id = :id AND (c.lastFour IS NULL OR c.cardNumberHash IS NULL)")
+    int fillNumberColumns(@Param("id") Long id, @Param("lastFour") String lastFour,
+                          @Param("cardNumberHash") String cardNumberHash);
 }
@@ -0,0 +1,53 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.LedgerEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, Long> {
+    
+    @Query("SELECT COALESCE(SUM(e.amount), 0) FROM LedgerEntry e WHERE e.cardId = :cardId")
+    BigDecimal sumByCardId(@Param("cardId") Long cardId);
+    
+    @Query("SELECT COALESCE(SUM(e.amount), 0) FROM LedgerEntry e WHERE e.cardId = :cardId AND e.createdAt >= :since")
+    BigDecimal sumByCardIdSince(@Param("cardId") Long cardId, @Param("since") LocalDateTime since);
+    
+    /**
+     * Карты, у которых есть не вошедшие в снимок проводки, созданные раньше before
+     */
+    @Query("SELECT DISTINCT e.cardId FROM LedgerEntry e WHERE e.createdAt < :before AND NOT EXISTS " +
+           "(SELECT s.cardId FROM BalanceSnapshot s WHERE s.cardId = e.cardId AND s.coveredUntil > e.createdAt)")
+    List<Long> findCardIdsWithEntriesBefore(@Param("before") LocalDateTime before);
+    
+    /**
+     * Сумма не вошедших в снимок проводок, созданных раньше before, по каждой из карт
+     */
+    @Query("SELECT e.cardId AS cardId, SUM(e.amount) AS amount FROM LedgerEntry e " +
+           "WHERE e.cardId IN :cardIds AND e.createdAt < :before AND NOT EXISTS " +
+           "(SELECT s.cardId FROM BalanceSnapshot s WHERE s.cardId = e.cardId AND s.coveredUntil > e.createdAt) " +
+           "GROUP BY e.cardId")
+    List<LedgerDelta> findDeltasBefore(@Param("cardIds") Collection<Long> cardIds,
+                                       @Param("before") LocalDateTime before);
+    
+    /**
+     * Составляющие производного баланса по каждой из карт одним запросом: ID карты, баланс
+     * снимка (null без снимка) и сумма проводок после снимка (null без проводок)
+     */
+    @Query("SELECT c.id, s.balance, (SELECT SUM(e.amount) FROM LedgerEntry e " +
+           "WHERE e.cardId = c.id AND (s.coveredUntil IS NULL OR e.createdAt >= s.coveredUntil)) " +
+           "FROM Card c LEFT JOIN BalanceSnapshot s ON s.cardId = c.id WHERE c.id IN :cardIds")
+    List<Object[]> findBalanceParts(@Param("cardIds") Collection<Long> cardIds);
+    
+    interface LedgerDelta {
+        Long getCardId();
+        BigDecimal getAmount();
+    }
+}
@@ -2,14 +2,21 @@ package com.example.bankcards.repository;
 
 import com.example.bankcards.entity.Transaction;
 import com.example.bankcards.entity.TransactionStatus;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
@@ -18,10 +25,56 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
     
     List<Transaction> findByStatus(TransactionStatus status);
     
+    /**
+     * Все переводы по возрастанию ID курсором БД: строки читаются пакетами по fetch size,
+     * вызывать внутри транзакции и закрывать поток
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT t FROM Transaction t ORDER BY t.id")
+    Stream<Transaction> streamAll();
+    
+    /**
+     * Перевод с карты пользователя с ключом идемпотентности. Ключ уникален в пределах
+     * карты отправителя, как и индекс idx_transactions_from_card_idempotency_key;
+     * перевод с чужой карты не находится
+     */
+    Optional<Transaction> findByFromCardIdAndFromCardUserIdAndIdempotencyKey(Long fromCardId, Long userId,
+                                                                             String idempotencyKey);
+    
+    List<Transaction> findByIdempotencyKeyIn(Collection<String> idempotencyKeys);
+    
+    /**
+     * Карта отправителя, сумма и время создания переводов начиная с since
+     */
+    @Query("SELECT t.fromCard.id, t.amount, t.createdAt FROM Transaction t " +
+           "WHERE t.createdAt >= :since AND t.status IN :statuses")
+    List<Object[]> findTransferVelocitySince(@Param("since") LocalDateTime since,
+                                             @Param("statuses") Collection<TransactionStatus> statuses);
+    
     @Query("SELECT t FROM Transaction t WHERE " +
            "(t.fromCard.user.id = :userId OR t.toCard.user.id = :userId) AND " +
            "(:status IS NULL OR t.status = :status)")
     Page<Transaction> findByUserIdAndStatus(@Param("userId") Long userId, 
                                            @Param("status") TransactionStatus status, 
                                            Pageable pageable);
+    
+    /**
+     * Переводы пользователя (отправителя или получателя) строго раньше (createdAt, id), от
+     * новых к старым. Пара сравнивается целиком и только по столбцам проекции, поэтому
+     * один поиск по индексу idx_user_transactions_user_created_at_desc начинается с позиции
+     * курсора и читает только строки страницы; перевод между своими картами представлен
+     * одной строкой
+     */
+    @Query("SELECT t FROM UserTransaction ut JOIN ut.transaction t WHERE ut.userId = :userId AND " +
+           "(:status IS NULL OR t.status = :status) AND " +
+           "(ut.createdAt, ut.transaction.id) < (cast(:createdAt as LocalDateTime), cast(:id as Long)) " +
+           "ORDER BY ut.userId DESC, ut.createdAt DESC, ut.transaction.id DESC")
+    List<Transaction> findByUserIdBefore(@Param("userId") Long userId,
+                                         @Param("status") TransactionStatus status,
+                                         @Param("createdAt") LocalDateTime createdAt,
+                                         @Param("id") Long id,
+                                         Pageable pageable);
 }
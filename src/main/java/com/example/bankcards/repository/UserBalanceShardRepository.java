@@ -0,0 +1,27 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.UserBalanceShard;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+
+@Repository
+public interface UserBalanceShardRepository extends JpaRepository<UserBalanceShard, Long> {
+    
+    @Query("SELECT COALESCE(SUM(s.balance), 0) FROM UserBalanceShard s WHERE s.userId = :userId")
+    BigDecimal sumByUserId(@Param("userId") Long userId);
+    
+    /**
+     * Прибавляет приращение к шарду одним UPDATE
+     *
+     * @return 0, если у пользователя нет такого шарда
+     */
+    @Modifying
+    @Query("UPDATE UserBalanceShard s SET s.balance = s.balance + :amount " +
+           "WHERE s.userId = :userId AND s.shardIndex = :shardIndex")
+    int add(@Param("userId") Long userId, @Param("shardIndex") int shardIndex, @Param("amount") BigDecimal amount);
+}
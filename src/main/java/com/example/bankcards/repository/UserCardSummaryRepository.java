@@ -0,0 +1,27 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.UserCardSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+
+@Repository
+public interface UserCardSummaryRepository extends JpaRepository<UserCardSummary, Long> {
+    
+    /**
+     * Прибавляет приращения к сводке пользователя одним UPDATE, без чтения строки
+     *
+     * @return 0, если сводки пользователя еще нет
+     */
+    @Modifying
+    @Query("UPDATE UserCardSummary s SET s.totalBalance = s.totalBalance + :balance, " +
+           "s.activeCards = s.activeCards + :active, s.blockedCards = s.blockedCards + :blocked, " +
+           "s.expiredCards = s.expiredCards + :expired, s.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE s.userId = :userId")
+    int applyDelta(@Param("userId") Long userId, @Param("balance") BigDecimal balance,
+                   @Param("active") long active, @Param("blocked") long blocked, @Param("expired") long expired);
+}
@@ -0,0 +1,182 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardDto;
+import com.example.bankcards.dto.TransactionDto;
+import com.example.bankcards.dto.UserDto;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Потоковая выгрузка всех карт, переводов и пользователей в NDJSON или CSV.
+ *
+ * Строки читаются однонаправленным курсором БД с fetch size (см. streamAll в репозиториях)
+ * и преобразуются в DTO пакетами до FLUSH_INTERVAL строк, чтобы балансы карт читались
+ * одним запросом на пакет. Каждая сущность отсоединяется после преобразования, а контекст
+ * персистентности очищается после пакета, поэтому память не зависит от размера таблицы.
+ * Первая строка сбрасывается в ответ сразу, дальше — каждые FLUSH_INTERVAL строк.
+ */
+@Service
+public class AdminExportService {
+
+    static final int FLUSH_INTERVAL = 1000;
+
+    private static final List<String> CARD_COLUMNS = List.of(
+            "id", "cardNumber", "owner", "expiryDate", "status", "balance", "availableBalance", "userId");
+    private static final List<String> TRANSACTION_COLUMNS = List.of(
+            "id", "fromCardId", "toCardId", "amount", "status", "createdAt", "processedAt");
+    private static final List<String> USER_COLUMNS = List.of(
+            "id", "username", "email", "role", "enabled");
+
+    private final CardRepository cardRepository;
+    private final TransactionRepository transactionRepository;
+    private final UserRepository userRepository;
+    private final CardService cardService;
+    private final TransactionService transactionService;
+    private final UserService userService;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    public AdminExportService(CardRepository cardRepository, TransactionRepository transactionRepository,
+                              UserRepository userRepository, CardService cardService,
+                              TransactionService transactionService, UserService userService,
+                              EntityManager entityManager, ObjectMapper objectMapper) {
+        this.cardRepository = cardRepository;
+        this.transactionRepository = transactionRepository;
+        this.userRepository = userRepository;
+        this.cardService = cardService;
+        this.transactionService = transactionService;
+        this.userService = userService;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @return число выгруженных карт
+     */
+    @Transactional(readOnly = true)
+    public long exportCards(ExportFormat format, OutputStream out) throws IOException {
+        return export(cardRepository.streamAll(), cardService::convertToDtos, format, CARD_COLUMNS,
+                card -> Arrays.asList(card.getId(), card.getCardNumber(), card.getOwner(), card.getExpiryDate(),
+                        card.getStatus(), card.getBalance(), card.getAvailableBalance(), card.getUserId()),
+                out);
+    }
+
+    /**
+     * @return число выгруженных переводов
+     */
+    @Transactional(readOnly = true)
+    public long exportTransactions(ExportFormat format, OutputStream out) throws IOException {
+        return export(transactionRepository.streamAll(), each(transactionService::convertToDto), format, TRANSACTION_COLUMNS,
+                transaction -> Arrays.asList(transaction.getId(), transaction.getFromCardId(), transaction.getToCardId(),
+                        transaction.getAmount(), transaction.getStatus(), transaction.getCreatedAt(),
+                        transaction.getProcessedAt()),
+                out);
+    }
+
+    /**
+     * @return число выгруженных пользователей
+     */
+    @Transactional(readOnly = true)
+    public long exportUsers(ExportFormat format, OutputStream out) throws IOException {
+        return export(userRepository.streamAll(), each(userService::convertToDto), format, USER_COLUMNS,
+                user -> Arrays.asList(user.getId(), user.getUsername(), user.getEmail(), user.getRole(), user.isEnabled()),
+                out);
+    }
+
+    private static <E, D> Function<List<E>, List<D>> each(Function<E, D> toDto) {
+        return entities -> entities.stream().map(toDto).toList();
+    }
+
+    private <E, D> long export(Stream<E> entities, Function<List<E>, List<D>> toDtos, ExportFormat format,
+                               List<String> columns, Function<D, List<Object>> toRow,
+                               OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        long written = 0;
+        try (entities) {
+            if (format == ExportFormat.CSV) {
+                writeCsvRow(writer, columns);
+            }
+            List<E> batch = new ArrayList<>();
+            Iterator<E> iterator = entities.iterator();
+            while (iterator.hasNext()) {
+                batch.add(iterator.next());
+                long read = written + batch.size();
+                if (read == 1 || read % FLUSH_INTERVAL == 0) {
+                    written += writeBatch(batch, toDtos, format, toRow, writer);
+                    // Отсоединение не убирает прокси связанных сущностей, поэтому контекст еще и очищается
+                    entityManager.clear();
+                    writer.flush();
+                }
+            }
+            written += writeBatch(batch, toDtos, format, toRow, writer);
+        }
+        writer.flush();
+        return written;
+    }
+
+    private <E, D> int writeBatch(List<E> batch, Function<List<E>, List<D>> toDtos, ExportFormat format,
+                                  Function<D, List<Object>> toRow, Writer writer) throws IOException {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        List<D> dtos = toDtos.apply(batch);
+        batch.forEach(entityManager::detach);
+        for (D dto : dtos) {
+            if (format == ExportFormat.CSV) {
+                writeCsvRow(writer, toRow.apply(dto));
+            } else {
+                writer.write(objectMapper.writeValueAsString(dto));
+                writer.write('\n');
+            }
+        }
+        int size = batch.size();
+        batch.clear();
+        return size;
+    }
+
+    private static void writeCsvRow(Writer writer, List<?> cells) throws IOException {
+        for (int i = 0; i < cells.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(csvCell(cells.get(i)));
+        }
+        writer.write("\r\n");
+    }
+
+    /**
+     * Ячейка CSV по RFC 4180. Строки, начинающиеся с =, +, - или @, предваряются апострофом,
+     * чтобы табличный редактор не выполнил их как формулу.
+     */
+    static String csvCell(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (value instanceof String && !text.isEmpty() && "=+-@".indexOf(text.charAt(0)) >= 0) {
+            text = "'" + text;
+        }
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            return '"' + text.replace("\"", "\"\"") + '"';
+        }
+        return text;
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransactionDto;
+import com.example.bankcards.exception.TransferQueueFullException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Асинхронное выполнение переводов.
+ *
+ * Перевод сразу сохраняется в статусе PENDING, а выполняется ограниченным пулом
+ * обработчиков (на виртуальных потоках, если JVM их поддерживает). Число принятых,
+ * но не завершенных переводов ограничено: при заполнении очереди новые запросы
+ * отклоняются с {@link TransferQueueFullException} до записи в БД.
+ */
+@Service
+public class AsyncTransferService {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncTransferService.class);
+
+    private final TransactionService transactionService;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final int capacity;
+    private final Counter rejected;
+
+    public AsyncTransferService(TransactionService transactionService,
+                                MeterRegistry meterRegistry,
+                                @Value("${transfer.async.workers:8}") int workers,
+                                @Value("${transfer.async.queue-capacity:1000}") int queueCapacity) {
+        this.transactionService = transactionService;
+        this.capacity = workers + queueCapacity;
+        this.permits = new Semaphore(capacity);
+        // Очередь не ограничена сама по себе: ее размер ограничивает семафор
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), workerThreadFactory());
+
+        this.rejected = Counter.builder("transfers.async.rejected").register(meterRegistry);
+        Gauge.builder("transfers.async.in.flight", this, AsyncTransferService::inFlight)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Принимает перевод в обработку и возвращает его в статусе PENDING
+     */
+    public TransactionDto submit(TransactionDto transactionDto, Long userId) {
+        if (!permits.tryAcquire()) {
+            rejected.increment();
+            throw new TransferQueueFullException();
+        }
+
+        TransactionDto pending;
+        try {
+            pending = transactionService.createPendingTransaction(transactionDto, userId);
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+
+        try {
+            executor.execute(() -> process(pending.getId()));
+        } catch (RejectedExecutionException e) {
+            // Пул остановлен: перевод останется в PENDING и будет возобновлен при запуске
+            permits.release();
+            throw new TransferQueueFullException();
+        }
+        return pending;
+    }
+
+    /**
+     * Доводит до конца переводы, оставшиеся в PENDING после остановки приложения
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumePendingTransactions() {
+        List<Long> pendingIds = transactionService.getPendingTransactionIds();
+        if (pendingIds.isEmpty()) {
+            return;
+        }
+        log.info("Возобновляется обработка {} переводов в статусе PENDING", pendingIds.size());
+
+        Thread recovery = new Thread(() -> {
+            for (Long transactionId : pendingIds) {
+                permits.acquireUninterruptibly();
+                executor.execute(() -> process(transactionId));
+            }
+        }, "transfer-recovery");
+        recovery.setDaemon(true);
+        recovery.start();
+    }
+
+    public int inFlight() {
+        return capacity - permits.availablePermits();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    private void process(Long transactionId) {
+        try {
+            transactionService.processPendingTransaction(transactionId);
+        } catch (Exception e) {
+            log.warn("Ошибка выполнения перевода {}", transactionId, e);
+            try {
+                transactionService.failPendingTransaction(transactionId);
+            } catch (Exception ex) {
+                log.error("Не удалось пометить перевод {} как FAILED", transactionId, ex);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Виртуальные потоки (Java 21+), иначе обычные потоки-демоны
+     */
+    private static ThreadFactory workerThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, "transfer-worker-", 0L);
+            Method factory = builderType.getMethod("factory");
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger counter = new AtomicInteger();
+            return runnable -> {
+                Thread thread = new Thread(runnable, "transfer-worker-" + counter.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardBalanceShard;
+import com.example.bankcards.exception.CardNotFoundException;
+import com.example.bankcards.repository.CardBalanceShardRepository;
+import com.example.bankcards.repository.CardRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Шардирование баланса «горячих» карт, участвующих в большой доле переводов
+ * (расчетные счета продавцов, карты для выплаты зарплаты).
+ *
+ * Баланс горячей карты хранится в N строках card_balance_shards, а Card.balance равен нулю.
+ * Зачисление атомарно увеличивает случайный шард. Списание пробует шарды по очереди
+ * условным UPDATE и только если ни в одном шарде нет всей суммы, блокирует все шарды
+ * и списывает из их общей суммы. Переводы с горячими картами не берут их блокировку
+ * в {@link TransferEngine}, поэтому не выстраиваются в очередь на одной карте.
+ *
+ * При производных балансах (transfer.ledger.derived-balances) списание не проходит через
+ * шарды, и без блокировки параллельные списания могли бы уйти в минус. В этом режиме
+ * шардирование не включается, а карты, помеченные горячими раньше, блокируются как обычные.
+ */
+@Service
+public class CardBalanceShardService {
+
+    private static final Logger log = LoggerFactory.getLogger(CardBalanceShardService.class);
+
+    private final CardBalanceShardRepository shardRepository;
+    private final CardRepository cardRepository;
+    private final TransferEngine transferEngine;
+    private final TransactionTemplate transactionTemplate;
+    private final int defaultShards;
+    private final boolean derivedBalances;
+    private final EntityManager entityManager;
+
+    // Горячие карты и число их шардов
+    private final Map<Long, Integer> hotCards = new ConcurrentHashMap<>();
+
+    public CardBalanceShardService(CardBalanceShardRepository shardRepository, CardRepository cardRepository,
+                                   TransferEngine transferEngine, PlatformTransactionManager transactionManager,
+                                   @Value("${transfer.hot-cards.shards:8}") int defaultShards,
+                                   @Value("${transfer.ledger.derived-balances:false}") boolean derivedBalances,
+                                   EntityManager entityManager) {
+        this.shardRepository = shardRepository;
+        this.cardRepository = cardRepository;
+        this.transferEngine = transferEngine;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.defaultShards = defaultShards;
+        this.derivedBalances = derivedBalances;
+        this.entityManager = entityManager;
+    }
+
+    @PostConstruct
+    public void loadHotCards() {
+        if (derivedBalances) {
+            return;
+        }
+        for (Long cardId : cardRepository.findHotCardIds()) {
+            hotCards.put(cardId, shardRepository.countByCardId(cardId));
+        }
+    }
+
+    public boolean isHot(Long cardId) {
+        return hotCards.containsKey(cardId);
+    }
+
+    /**
+     * Карты, которые нужно блокировать в {@link TransferEngine}: все, кроме горячих
+     */
+    public List<Long> lockableCardIds(Collection<Long> cardIds) {
+        List<Long> lockable = new ArrayList<>(cardIds.size());
+        for (Long cardId : cardIds) {
+            if (!hotCards.containsKey(cardId)) {
+                lockable.add(cardId);
+            }
+        }
+        return lockable;
+    }
+
+    public BigDecimal getBalance(Long cardId) {
+        return shardRepository.sumByCardId(cardId);
+    }
+
+    /**
+     * Балансы нескольких карт одним запросом; у карты без шардов баланс нулевой
+     */
+    public Map<Long, BigDecimal> getBalances(Collection<Long> cardIds) {
+        Map<Long, BigDecimal> balances = new HashMap<>();
+        for (Long cardId : cardIds) {
+            balances.put(cardId, BigDecimal.ZERO);
+        }
+        for (Object[] row : shardRepository.sumByCardIds(cardIds)) {
+            balances.put((Long) row[0], (BigDecimal) row[1]);
+        }
+        return balances;
+    }
+
+    /**
+     * Зачисление в случайный шард. Выполняется в транзакции перевода.
+     */
+    public void credit(Long cardId, BigDecimal amount) {
+        int shards = shardCount(cardId);
+        if (shardRepository.credit(cardId, ThreadLocalRandom.current().nextInt(shards), amount) == 0) {
+            // Шардирование карты отключено параллельно: перевод повторится обычным путем
+            throw new OptimisticLockingFailureException("Шарды баланса карты " + cardId + " изменились");
+        }
+    }
+
+    /**
+     * Списание с горячей карты. Возвращает false, если суммарного баланса шардов недостаточно.
+     */
+    public boolean debit(Long cardId, BigDecimal amount) {
+        int shards = shardCount(cardId);
+        int start = ThreadLocalRandom.current().nextInt(shards);
+        for (int i = 0; i < shards; i++) {
+            if (shardRepository.debit(cardId, (start + i) % shards, amount) > 0) {
+                return true;
+            }
+        }
+
+        // Ни в одном шарде нет всей суммы: списываем из общей суммы под блокировкой всех шардов
+        List<CardBalanceShard> locked = lockShards(cardId);
+        if (locked.isEmpty()) {
+            throw new OptimisticLockingFailureException("Шарды баланса карты " + cardId + " изменились");
+        }
+        if (sum(locked).compareTo(amount) < 0) {
+            return false;
+        }
+        BigDecimal remaining = amount;
+        for (CardBalanceShard shard : locked) {
+            BigDecimal taken = shard.getBalance().min(remaining);
+            shard.setBalance(shard.getBalance().subtract(taken));
+            remaining = remaining.subtract(taken);
+            if (remaining.signum() == 0) {
+                break;
+            }
+        }
+        shardRepository.saveAll(locked);
+        return true;
+    }
+
+    /**
+     * Устанавливает баланс горячей карты, распределяя его поровну по шардам.
+     * Возвращает прежний баланс, посчитанный по заблокированным шардам: зачисления,
+     * зафиксированные до блокировки, в него уже входят, а новые ждут ее снятия.
+     */
+    public BigDecimal setBalance(Long cardId, BigDecimal balance) {
+        List<CardBalanceShard> locked = lockShards(cardId);
+        BigDecimal previous = sum(locked);
+        distribute(locked, balance);
+        shardRepository.saveAll(locked);
+        return previous;
+    }
+
+    /**
+     * Переносит баланс карты в шарды
+     */
+    public void enableSharding(Long cardId, Integer shards) {
+        int shardCount = shards != null ? shards : defaultShards;
+        if (shardCount < 2 || shardCount > 256) {
+            throw new IllegalArgumentException("Число шардов должно быть от 2 до 256");
+        }
+        if (derivedBalances) {
+            throw new IllegalArgumentException("Шардирование баланса недоступно при производных балансах");
+        }
+        transferEngine.execute(List.of(cardId), () -> {
+            Card card = cardRepository.findById(cardId)
+                    .orElseThrow(() -> new CardNotFoundException(cardId));
+            if (card.isHot()) {
+                return null;
+            }
+            List<CardBalanceShard> created = new ArrayList<>(shardCount);
+            for (int i = 0; i < shardCount; i++) {
+                created.add(new CardBalanceShard(cardId, i, BigDecimal.ZERO));
+            }
+            distribute(created, card.getBalance());
+            shardRepository.saveAll(created);
+
+            card.setBalance(BigDecimal.ZERO);
+            card.setHot(true);
+            cardRepository.save(card);
+
+            // Переводы перестают блокировать карту только после фиксации шардов
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    hotCards.put(cardId, shardCount);
+                }
+            });
+            return null;
+        });
+        log.info("Баланс карты {} разделен на {} шардов", cardId, shardCount);
+    }
+
+    /**
+     * Собирает баланс из шардов обратно в Card.balance
+     */
+    public void disableSharding(Long cardId) {
+        // Новые переводы снова блокируют карту и ждут окончания переноса
+        hotCards.remove(cardId);
+        transferEngine.execute(List.of(cardId), () -> {
+            Card card = cardRepository.findById(cardId)
+                    .orElseThrow(() -> new CardNotFoundException(cardId));
+            if (!card.isHot()) {
+                return null;
+            }
+            BigDecimal total = sum(lockShards(cardId));
+            shardRepository.deleteByCardId(cardId);
+
+            card.setBalance(card.getBalance().add(total));
+            card.setHot(false);
+            cardRepository.save(card);
+            return null;
+        });
+        log.info("Шардирование баланса карты {} отключено", cardId);
+    }
+
+    /**
+     * Выравнивает шарды горячих карт, чтобы списания реже уходили в медленный путь
+     */
+    @Scheduled(fixedDelayString = "${transfer.hot-cards.rebalance-interval-ms:10000}")
+    public void rebalance() {
+        for (Long cardId : hotCards.keySet()) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    // Сумма берется по заблокированным строкам, иначе зачисление между чтением и блокировкой потеряется
+                    List<CardBalanceShard> locked = lockShards(cardId);
+                    distribute(locked, sum(locked));
+                    shardRepository.saveAll(locked);
+                });
+            } catch (RuntimeException e) {
+                log.warn("Не удалось выровнять шарды карты {}", cardId, e);
+            }
+        }
+    }
+
+    /**
+     * Блокирует шарды карты и перечитывает их из БД. Шарды, загруженные раньше в этой же
+     * транзакции (пакетный перевод), не видят зачислений и списаний условными UPDATE,
+     * и сохранение таких экземпляров затерло бы эти изменения.
+     */
+    private List<CardBalanceShard> lockShards(Long cardId) {
+        List<CardBalanceShard> locked = shardRepository.findByCardIdForUpdate(cardId);
+        locked.forEach(entityManager::refresh);
+        return locked;
+    }
+
+    private int shardCount(Long cardId) {
+        Integer known = hotCards.get(cardId);
+        int shards = known != null ? known : shardRepository.countByCardId(cardId);
+        if (shards == 0) {
+            throw new OptimisticLockingFailureException("Шарды баланса карты " + cardId + " изменились");
+        }
+        return shards;
+    }
+
+    private static BigDecimal sum(List<CardBalanceShard> shards) {
+        return shards.stream().map(CardBalanceShard::getBalance).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    /**
+     * Делит сумму поровну, остаток от деления уходит в первый шард
+     */
+    private static void distribute(List<CardBalanceShard> shards, BigDecimal total) {
+        if (shards.isEmpty()) {
+            return;
+        }
+        int scale = Math.max(2, total.scale());
+        BigDecimal share = total.divide(BigDecimal.valueOf(shards.size()), scale, RoundingMode.DOWN);
+        BigDecimal remainder = total.subtract(share.multiply(BigDecimal.valueOf(shards.size())));
+        for (CardBalanceShard shard : shards) {
+            shard.setBalance(share);
+        }
+        shards.get(0).setBalance(share.add(remainder));
+    }
+}
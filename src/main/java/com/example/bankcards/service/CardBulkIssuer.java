@@ -0,0 +1,193 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.BulkCardIssueDto;
+import com.example.bankcards.dto.CardDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.util.CardNumberUtil;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * Массовый выпуск карт для одного или нескольких пользователей.
+ *
+ * Пользователи загружаются один раз на запрос. Карты выпускаются частями по chunkSize:
+ * номера генерируются, хэшируются и шифруются параллельно, затем часть вставляется
+ * одной транзакцией — ID берутся из пула последовательности cards_seq, поэтому Hibernate
+ * отправляет вставки карт и проводок открытия JDBC batch. После коммита части ее карты
+ * передаются получателю, и ответ начинает отдаваться до конца выпуска.
+ *
+ * Части фиксируются независимо: при ошибке уже выпущенные карты остаются и были переданы.
+ */
+@Service
+public class CardBulkIssuer {
+
+    private static final Logger log = LoggerFactory.getLogger(CardBulkIssuer.class);
+    private static final int MAX_CARD_NUMBER_ATTEMPTS = 10;
+
+    private final CardRepository cardRepository;
+    private final UserService userService;
+    private final CardNumberUtil cardNumberUtil;
+    private final TransferEngine transferEngine;
+    private final LedgerService ledgerService;
+    private final IssuedCardNumberFilter issuedNumbers;
+    private final CardOwnerIndex ownerIndex;
+    private final UserCardSummaryService summaryService;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    public CardBulkIssuer(CardRepository cardRepository, UserService userService, CardNumberUtil cardNumberUtil,
+                          TransferEngine transferEngine, LedgerService ledgerService,
+                          IssuedCardNumberFilter issuedNumbers, CardOwnerIndex ownerIndex,
+                          UserCardSummaryService summaryService,
+                          @Value("${cards.bulk.threads:0}") int threads,
+                          @Value("${cards.bulk.chunk-size:500}") int chunkSize) {
+        this.cardRepository = cardRepository;
+        this.userService = userService;
+        this.cardNumberUtil = cardNumberUtil;
+        this.transferEngine = transferEngine;
+        this.ledgerService = ledgerService;
+        this.issuedNumbers = issuedNumbers;
+        this.ownerIndex = ownerIndex;
+        this.summaryService = summaryService;
+        this.pool = new ForkJoinPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Проверяет запрос до начала выпуска, чтобы ошибка вернулась статусом ответа, а не обрывом потока
+     *
+     * @return пользователи запроса по ID
+     */
+    public Map<Long, User> validate(BulkCardIssueDto request) {
+        if (request.totalCount() > BulkCardIssueDto.MAX_CARDS) {
+            throw new IllegalArgumentException("Слишком много карт в одном запросе, максимум " + BulkCardIssueDto.MAX_CARDS);
+        }
+        Map<Long, User> users = new HashMap<>();
+        for (BulkCardIssueDto.Item item : request.getItems()) {
+            users.computeIfAbsent(item.getUserId(), userService::getUserEntityById);
+        }
+        return users;
+    }
+
+    /**
+     * Выпускает карты запроса и передает каждую зафиксированную часть в sink
+     *
+     * @return число выпущенных карт
+     */
+    public int issue(BulkCardIssueDto request, Consumer<List<CardDto>> sink) {
+        Map<Long, User> users = validate(request);
+        List<BulkCardIssueDto.Item> slots = new ArrayList<>(request.totalCount());
+        for (BulkCardIssueDto.Item item : request.getItems()) {
+            for (int i = 0; i < item.getCount(); i++) {
+                slots.add(item);
+            }
+        }
+
+        long started = System.nanoTime();
+        // Хэши номеров этого запроса: еще не вставленные номера не видны ни фильтру, ни БД
+        Set<String> taken = ConcurrentHashMap.newKeySet();
+        int issued = 0;
+        for (int from = 0; from < slots.size(); from += chunkSize) {
+            List<BulkCardIssueDto.Item> chunk = slots.subList(from, Math.min(from + chunkSize, slots.size()));
+            List<IssuedNumber> numbers = generateNumbers(chunk.size(), taken);
+            List<CardDto> created = transferEngine.executeUnlocked(() -> insert(chunk, numbers, users));
+            issued += created.size();
+            sink.accept(created);
+        }
+
+        double seconds = Math.max(System.nanoTime() - started, 1) / 1_000_000_000.0;
+        log.info("Выпущено {} карт за {} мс, {} карт/с", issued, Math.round(seconds * 1000), Math.round(issued / seconds));
+        return issued;
+    }
+
+    private List<IssuedNumber> generateNumbers(int count, Set<String> taken) {
+        try {
+            return pool.submit(() -> IntStream.range(0, count).parallel()
+                    .mapToObj(i -> newNumber(taken))
+                    .toList()).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Выпуск карт прерван", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Как в CardService: фильтр Блума, при положительном ответе запрос к БД,
+     * и дополнительно проверка по номерам текущего запроса
+     */
+    private IssuedNumber newNumber(Set<String> taken) {
+        for (int attempt = 0; attempt < MAX_CARD_NUMBER_ATTEMPTS; attempt++) {
+            String cardNumber = cardNumberUtil.generateCardNumber();
+            String hash = cardNumberUtil.blindIndex(cardNumber);
+            if ((!issuedNumbers.mightContain(hash) || !cardRepository.existsByCardNumberHash(hash)) && taken.add(hash)) {
+                return new IssuedNumber(cardNumberUtil.encryptCardNumber(cardNumber), hash,
+                        CardNumberUtil.lastFourDigits(cardNumber));
+            }
+        }
+        throw new IllegalStateException("Не удалось сгенерировать уникальный номер карты");
+    }
+
+    private List<CardDto> insert(List<BulkCardIssueDto.Item> chunk, List<IssuedNumber> numbers, Map<Long, User> users) {
+        List<Card> cards = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            BulkCardIssueDto.Item item = chunk.get(i);
+            IssuedNumber number = numbers.get(i);
+            Card card = new Card();
+            card.setCardNumber(number.encrypted());
+            card.setCardNumberHash(number.hash());
+            card.setLastFour(number.lastFour());
+            card.setOwner(item.getOwner());
+            card.setExpiryDate(item.getExpiryDate());
+            card.setBalance(Objects.requireNonNullElse(item.getInitialBalance(), BigDecimal.ZERO));
+            card.setStatus(CardStatus.ACTIVE);
+            card.setUser(users.get(item.getUserId()));
+            cards.add(card);
+        }
+        List<Card> saved = cardRepository.saveAll(cards);
+
+        List<CardDto> created = new ArrayList<>(saved.size());
+        for (Card card : saved) {
+            ledgerService.recordOpening(card);
+            issuedNumbers.put(card.getCardNumberHash());
+            ownerIndex.cardCreated(card.getId(), card.getOwner());
+            summaryService.cardAdded(card.getUser().getId(), card.getStatus(), card.getBalance());
+            CardDto dto = new CardDto(card.getId(), CardNumberUtil.maskLastFour(card.getLastFour()), card.getOwner(),
+                    card.getExpiryDate(), card.getStatus(), card.getBalance(), card.getUser().getId());
+            dto.setAvailableBalance(card.getBalance());
+            created.add(dto);
+        }
+        return created;
+    }
+
+    private record IssuedNumber(String encrypted, String hash, String lastFour) {
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.BulkCardStatusDto;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.repository.CardRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Массовая смена статуса карт, например блокировка при инциденте мошенничества.
+ *
+ * Карты обрабатываются частями по chunkSize, каждая — в своей короткой транзакции:
+ * строки части блокируются одним SELECT ... FOR UPDATE в порядке возрастания ID,
+ * как при переводах, и получают статус одним UPDATE. Блокировка дает точный список
+ * измененных карт для событий {@link CardStatusEvent}, а version увеличивается, поэтому
+ * перевод, уже загрузивший карту, получит конфликт версий и повторится с новым статусом.
+ * Один UPDATE по фильтру без предварительной выборки не заменяет эту пару запросов:
+ * сводкам владельцев нужен прежний статус каждой карты, а UPDATE ... RETURNING
+ * в PostgreSQL возвращает только новые значения строки.
+ * Длинная транзакция не держит блокировки всех карт, но при ошибке уже обработанные
+ * части остаются примененными. Сводки владельцев {@link UserCardSummaryService}
+ * обновляются в транзакции той же части.
+ */
+@Service
+public class CardBulkStatusUpdater {
+
+    private static final Logger log = LoggerFactory.getLogger(CardBulkStatusUpdater.class);
+    // Начало курсора по сроку, если нижняя граница диапазона не задана
+    private static final LocalDate EARLIEST_EXPIRY = LocalDate.of(1, 1, 1);
+
+    private final CardRepository cardRepository;
+    private final TransferEngine transferEngine;
+    private final CardReadCache cardReadCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final UserCardSummaryService summaryService;
+    private final int chunkSize;
+
+    public CardBulkStatusUpdater(CardRepository cardRepository, TransferEngine transferEngine,
+                                 CardReadCache cardReadCache, ApplicationEventPublisher eventPublisher,
+                                 UserCardSummaryService summaryService,
+                                 @Value("${cards.bulk.status-chunk-size:1000}") int chunkSize) {
+        this.cardRepository = cardRepository;
+        this.transferEngine = transferEngine;
+        this.cardReadCache = cardReadCache;
+        this.eventPublisher = eventPublisher;
+        this.summaryService = summaryService;
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * @return число карт, статус которых изменился
+     */
+    public int updateStatus(BulkCardStatusDto request) {
+        return updateStatus(request, chunkSize);
+    }
+
+    /**
+     * @return число карт, статус которых изменился
+     */
+    public int updateStatus(BulkCardStatusDto request, int chunkSize) {
+        if (request.hasCardIds() == request.hasFilter()) {
+            throw new IllegalArgumentException("Укажите либо список карт, либо хотя бы одно условие фильтра");
+        }
+        int limit = Math.max(1, chunkSize);
+        long started = System.nanoTime();
+        CardStatus status = request.getStatus();
+        int updated = 0;
+        if (request.hasCardIds()) {
+            List<Long> ids = new ArrayList<>(new TreeSet<>(request.getCardIds()));
+            for (int from = 0; from < ids.size(); from += limit) {
+                List<Long> chunk = ids.subList(from, Math.min(from + limit, ids.size()));
+                updated += transferEngine.executeUnlocked(() ->
+                        apply(cardRepository.lockForStatusChange(chunk, status), status));
+            }
+        } else if (request.getExpiresFrom() != null || request.getExpiresTo() != null) {
+            updated = updateByExpiry(request, status, limit);
+        } else {
+            Long afterId = 0L;
+            while (true) {
+                Long from = afterId;
+                List<Object[]> rows = transferEngine.executeUnlocked(() -> {
+                    List<Object[]> locked = cardRepository.lockForStatusChangeByFilter(from, status,
+                            request.getUserId(), request.getCurrentStatus(), PageRequest.of(0, limit));
+                    apply(locked, status);
+                    return locked;
+                });
+                updated += rows.size();
+                if (rows.size() < limit) {
+                    break;
+                }
+                afterId = (Long) rows.get(rows.size() - 1)[0];
+            }
+        }
+        log.info("Статус {} установлен {} картам за {} мс", status, updated, (System.nanoTime() - started) / 1_000_000);
+        return updated;
+    }
+
+    /**
+     * Фильтр с диапазоном сроков, в том числе проверка истекших карт: части идут по курсору
+     * (срок, ID) от начала диапазона, поэтому не просматривается вся таблица в порядке ID
+     */
+    private int updateByExpiry(BulkCardStatusDto request, CardStatus status, int limit) {
+        LocalDate afterExpiry = request.getExpiresFrom() != null ? request.getExpiresFrom() : EARLIEST_EXPIRY;
+        Long afterId = 0L;
+        int updated = 0;
+        while (true) {
+            LocalDate fromExpiry = afterExpiry;
+            Long fromId = afterId;
+            List<Object[]> rows = transferEngine.executeUnlocked(() -> {
+                List<Object[]> locked = cardRepository.lockForStatusChangeByExpiry(fromExpiry, fromId, status,
+                        request.getUserId(), request.getCurrentStatus(), request.getExpiresTo(), limit);
+                apply(locked, status);
+                return locked;
+            });
+            updated += rows.size();
+            if (rows.size() < limit) {
+                return updated;
+            }
+            // Строки заблокированы в порядке ID; курсор — последняя в порядке (срок, ID)
+            for (Object[] row : rows) {
+                LocalDate expiry = (LocalDate) row[3];
+                Long cardId = (Long) row[0];
+                int order = expiry.compareTo(afterExpiry);
+                if (order > 0 || (order == 0 && cardId > afterId)) {
+                    afterExpiry = expiry;
+                    afterId = cardId;
+                }
+            }
+        }
+    }
+
+    /**
+     * Обновляет заблокированные строки (ID карты, ID владельца, прежний статус),
+     * учитывает изменение в сводках владельцев и публикует событие
+     */
+    private int apply(List<Object[]> rows, CardStatus status) {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        List<Long> cardIds = new ArrayList<>(rows.size());
+        Map<Long, List<Long>> cardIdsByUser = new LinkedHashMap<>();
+        Map<Long, Map<CardStatus, Integer>> previousByUser = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            Long cardId = (Long) row[0];
+            Long userId = (Long) row[1];
+            cardIds.add(cardId);
+            cardIdsByUser.computeIfAbsent(userId, id -> new ArrayList<>()).add(cardId);
+            previousByUser.computeIfAbsent(userId, id -> new EnumMap<>(CardStatus.class))
+                    .merge((CardStatus) row[2], 1, Integer::sum);
+        }
+        int updated = cardRepository.updateStatus(cardIds, status);
+        previousByUser.forEach((userId, previous) -> previous.forEach((from, cards) ->
+                summaryService.statusChanged(userId, from, status, cards)));
+        cardReadCache.invalidate(cardIds);
+        eventPublisher.publishEvent(new CardStatusEvent(status, cardIdsByUser));
+        return updated;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.bankcards.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Периодически помечает истекшими активные карты с прошедшим сроком,
+ * см. {@link CardService#checkAndUpdateExpiredCards(int)}
+ */
+@Component
+public class CardExpirySweeper {
+
+    private static final Logger log = LoggerFactory.getLogger(CardExpirySweeper.class);
+
+    private final CardService cardService;
+    private final int batchSize;
+    private final Counter expiredCards;
+    private final Timer sweepTimer;
+
+    public CardExpirySweeper(CardService cardService, MeterRegistry meterRegistry,
+                             @Value("${cards.expiry.batch-size:1000}") int batchSize) {
+        this.cardService = cardService;
+        this.batchSize = batchSize;
+        this.expiredCards = Counter.builder("cards.expiry.expired").register(meterRegistry);
+        this.sweepTimer = Timer.builder("cards.expiry.sweep").register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${cards.expiry.initial-delay-ms:60000}",
+               fixedDelayString = "${cards.expiry.interval-ms:3600000}")
+    public int sweep() {
+        long started = System.nanoTime();
+        int expired = cardService.checkAndUpdateExpiredCards(batchSize);
+        long elapsed = System.nanoTime() - started;
+
+        sweepTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        expiredCards.increment(expired);
+        if (expired > 0) {
+            log.info("Помечено истекшими {} карт за {} мс", expired, TimeUnit.NANOSECONDS.toMillis(elapsed));
+        } else {
+            log.debug("Истекших карт нет, проверка заняла {} мс", TimeUnit.NANOSECONDS.toMillis(elapsed));
+        }
+        return expired;
+    }
+}
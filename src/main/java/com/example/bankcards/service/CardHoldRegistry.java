@@ -0,0 +1,102 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.CardHold;
+import com.example.bankcards.entity.HoldStatus;
+import com.example.bankcards.repository.CardHoldRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Активные холды в памяти: сумма холдов по каждой карте и колесо таймеров их истечения.
+ *
+ * Доступный баланс карты (баланс минус активные холды) проверяется при каждом переводе,
+ * поэтому сумма холдов берется отсюда, а не агрегатным запросом. При запуске состояние
+ * восстанавливается из активных холдов в БД.
+ */
+@Component
+public class CardHoldRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(CardHoldRegistry.class);
+
+    private final CardHoldRepository holdRepository;
+    private final TimingWheel<Long> expiryWheel;
+
+    private final Map<Long, CardHold> activeHolds = new ConcurrentHashMap<>();
+    private final Map<Long, BigDecimal> heldByCard = new ConcurrentHashMap<>();
+
+    public CardHoldRegistry(CardHoldRepository holdRepository,
+                            @Value("${transfer.holds.tick-ms:100}") long tickMillis) {
+        this.holdRepository = holdRepository;
+        this.expiryWheel = new TimingWheel<>(tickMillis, System.currentTimeMillis());
+    }
+
+    @PostConstruct
+    public void loadActiveHolds() {
+        List<CardHold> holds = holdRepository.findByStatus(HoldStatus.ACTIVE);
+        holds.forEach(this::add);
+        if (!holds.isEmpty()) {
+            log.info("Восстановлено {} активных холдов", holds.size());
+        }
+    }
+
+    /**
+     * Сумма активных холдов карты
+     */
+    public BigDecimal heldAmount(Long cardId) {
+        return heldByCard.getOrDefault(cardId, BigDecimal.ZERO);
+    }
+
+    public void add(CardHold hold) {
+        if (activeHolds.putIfAbsent(hold.getId(), hold) == null) {
+            heldByCard.merge(hold.getFromCardId(), hold.getAmount(), BigDecimal::add);
+            expiryWheel.schedule(hold.getId(), toEpochMillis(hold.getExpiresAt()));
+        }
+    }
+
+    public void remove(Long holdId) {
+        CardHold hold = activeHolds.remove(holdId);
+        if (hold == null) {
+            return;
+        }
+        expiryWheel.cancel(holdId);
+        heldByCard.computeIfPresent(hold.getFromCardId(), (cardId, held) -> {
+            BigDecimal left = held.subtract(hold.getAmount());
+            return left.signum() <= 0 ? null : left;
+        });
+    }
+
+    /**
+     * Холды, срок которых наступил к моменту nowMillis. Они остаются в сумме холдов
+     * карты, пока истечение не зафиксировано и не вызван {@link #remove}.
+     */
+    public List<Long> expiredHoldIds(long nowMillis) {
+        return expiryWheel.advance(nowMillis);
+    }
+
+    /**
+     * Повторно планирует истечение, если его не удалось зафиксировать
+     */
+    public void retryExpiry(Long holdId, long retryAtMillis) {
+        if (activeHolds.containsKey(holdId)) {
+            expiryWheel.schedule(holdId, retryAtMillis);
+        }
+    }
+
+    public int activeCount() {
+        return activeHolds.size();
+    }
+
+    static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
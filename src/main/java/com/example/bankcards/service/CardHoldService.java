@@ -0,0 +1,244 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardHoldDto;
+import com.example.bankcards.dto.TransactionDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardHold;
+import com.example.bankcards.entity.HoldStatus;
+import com.example.bankcards.exception.HoldNotFoundException;
+import com.example.bankcards.exception.InsufficientBalanceException;
+import com.example.bankcards.exception.UnauthorizedException;
+import com.example.bankcards.repository.CardHoldRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Двухфазные переводы: холд резервирует сумму на карте отправителя, затем списывается
+ * (capture) переводом на карту получателя или отменяется (release).
+ *
+ * Неизрасходованный холд истекает по сроку. Сроки отслеживает колесо таймеров
+ * {@link CardHoldRegistry}, поэтому истечение не сканирует таблицу холдов.
+ */
+@Service
+@Transactional
+public class CardHoldService {
+
+    private static final Logger log = LoggerFactory.getLogger(CardHoldService.class);
+    private static final long EXPIRY_RETRY_DELAY_MILLIS = 1000L;
+
+    private final CardHoldRepository holdRepository;
+    private final CardHoldRegistry holdRegistry;
+    private final TransactionService transactionService;
+    private final CardService cardService;
+    private final TransferJournalApplier journalApplier;
+    private final OptimisticRetryExecutor retryExecutor;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration defaultTtl;
+    private final Duration maxTtl;
+    private final int expiryBatchSize;
+
+    public CardHoldService(CardHoldRepository holdRepository, CardHoldRegistry holdRegistry,
+                           TransactionService transactionService, CardService cardService,
+                           TransferJournalApplier journalApplier, OptimisticRetryExecutor retryExecutor,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${transfer.holds.default-ttl:7d}") Duration defaultTtl,
+                           @Value("${transfer.holds.max-ttl:30d}") Duration maxTtl,
+                           @Value("${transfer.holds.expiry-batch-size:500}") int expiryBatchSize) {
+        this.holdRepository = holdRepository;
+        this.holdRegistry = holdRegistry;
+        this.transactionService = transactionService;
+        this.cardService = cardService;
+        this.journalApplier = journalApplier;
+        this.retryExecutor = retryExecutor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.defaultTtl = defaultTtl;
+        this.maxTtl = maxTtl;
+        this.expiryBatchSize = Math.max(1, expiryBatchSize);
+    }
+
+    /**
+     * Резервирует сумму на карте отправителя. Доступный баланс проверяется под блокировками карт.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public CardHoldDto authorize(CardHoldDto request, Long userId) {
+        Duration ttl = request.getTtlSeconds() != null ? Duration.ofSeconds(request.getTtlSeconds()) : defaultTtl;
+        if (ttl.compareTo(maxTtl) > 0) {
+            throw new IllegalArgumentException("Срок холда не может превышать " + maxTtl.toSeconds() + " секунд");
+        }
+        Long fromCardId = request.getFromCardId();
+        Long toCardId = request.getToCardId();
+
+        return retryExecutor.execute("authorizeHold", () ->
+                transactionService.executeLocked(List.of(fromCardId, toCardId), () -> {
+                    Card fromCard = cardService.getCardEntityById(fromCardId);
+                    Card toCard = cardService.getCardEntityById(toCardId);
+                    transactionService.validateCards(fromCard, toCard, userId);
+
+                    BigDecimal available = transactionService.availableBalance(fromCard)
+                            .subtract(journalApplier.reservedAmount(fromCardId));
+                    if (available.compareTo(request.getAmount()) < 0) {
+                        throw new InsufficientBalanceException();
+                    }
+                    // Холд не меняет строку карты: без этого два параллельных холда в режиме OPTIMISTIC
+                    // зарезервируют один и тот же баланс
+                    transactionService.guardDebit(fromCard);
+
+                    CardHold hold = holdRepository.save(new CardHold(fromCardId, toCardId, request.getAmount(),
+                            LocalDateTime.now().plus(ttl)));
+                    // Холд уменьшает доступный баланс до фиксации: после нее блокировка строки
+                    // карты в режиме PESSIMISTIC уже снята, и перевод не должен успеть его не увидеть
+                    holdRegistry.add(hold);
+                    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                        @Override
+                        public void afterCompletion(int status) {
+                            if (status != STATUS_COMMITTED) {
+                                holdRegistry.remove(hold.getId());
+                            }
+                        }
+                    });
+                    return convertToDto(hold);
+                }));
+    }
+
+    /**
+     * Списывает холд переводом на карту получателя. Сумма списания не больше суммы холда,
+     * по умолчанию — вся сумма; остаток холда освобождается.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public TransactionDto capture(Long holdId, BigDecimal amount, Long userId) {
+        CardHold stored = holdRepository.findById(holdId)
+                .orElseThrow(() -> new HoldNotFoundException(holdId));
+
+        return retryExecutor.execute("captureHold", () ->
+                transactionService.executeLocked(List.of(stored.getFromCardId(), stored.getToCardId()), () -> {
+                    CardHold hold = findActiveHold(holdId);
+                    BigDecimal captured = amount != null ? amount : hold.getAmount();
+                    if (captured.signum() <= 0 || captured.compareTo(hold.getAmount()) > 0) {
+                        throw new IllegalArgumentException("Сумма списания должна быть положительной и не больше суммы холда");
+                    }
+
+                    Card fromCard = cardService.getCardEntityById(hold.getFromCardId());
+                    Card toCard = cardService.getCardEntityById(hold.getToCardId());
+                    transactionService.validateCards(fromCard, toCard, userId);
+                    // Баланс мог быть изменен вручную после авторизации
+                    if (transactionService.availableBalance(fromCard).add(hold.getAmount()).compareTo(captured) < 0) {
+                        throw new InsufficientBalanceException();
+                    }
+
+                    TransactionDto transaction = transactionService.executeReservedTransfer(fromCard, toCard, captured);
+                    hold.setTransactionId(transaction.getId());
+                    resolve(hold, HoldStatus.CAPTURED);
+                    return transaction;
+                }));
+    }
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public CardHoldDto release(Long holdId, Long userId) {
+        CardHold stored = holdRepository.findById(holdId)
+                .orElseThrow(() -> new HoldNotFoundException(holdId));
+
+        return retryExecutor.execute("releaseHold", () ->
+                transactionService.executeLocked(List.of(stored.getFromCardId()), () -> {
+                    CardHold hold = findActiveHold(holdId);
+                    checkOwnership(hold, userId);
+                    resolve(hold, HoldStatus.RELEASED);
+                    return convertToDto(hold);
+                }));
+    }
+
+    @Transactional(readOnly = true)
+    public CardHoldDto getHold(Long holdId, Long userId) {
+        CardHold hold = holdRepository.findById(holdId)
+                .orElseThrow(() -> new HoldNotFoundException(holdId));
+        checkOwnership(hold, userId);
+        return convertToDto(hold);
+    }
+
+    /**
+     * Помечает истекшими холды, срок которых наступил по колесу таймеров.
+     * Выполняется на каждом тике колеса и обращается к БД, только если есть истекшие холды.
+     */
+    @Scheduled(fixedDelayString = "${transfer.holds.tick-ms:100}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void expireHolds() {
+        long now = System.currentTimeMillis();
+        List<Long> expired = holdRegistry.expiredHoldIds(now);
+        for (int from = 0; from < expired.size(); from += expiryBatchSize) {
+            List<Long> chunk = expired.subList(from, Math.min(expired.size(), from + expiryBatchSize));
+            try {
+                transactionTemplate.executeWithoutResult(status -> holdRepository.expire(chunk, LocalDateTime.now()));
+                // Холды, списанные или отмененные параллельно, уже удалены из реестра
+                chunk.forEach(holdRegistry::remove);
+            } catch (RuntimeException e) {
+                log.warn("Не удалось отметить истекшими {} холдов, повтор через {} мс",
+                        chunk.size(), EXPIRY_RETRY_DELAY_MILLIS, e);
+                chunk.forEach(holdId -> holdRegistry.retryExpiry(holdId, now + EXPIRY_RETRY_DELAY_MILLIS));
+            }
+        }
+    }
+
+    private CardHold findActiveHold(Long holdId) {
+        CardHold hold = holdRepository.findById(holdId)
+                .orElseThrow(() -> new HoldNotFoundException(holdId));
+        if (hold.getStatus() != HoldStatus.ACTIVE) {
+            throw new IllegalArgumentException("Холд уже завершен со статусом " + hold.getStatus());
+        }
+        if (!hold.getExpiresAt().isAfter(LocalDateTime.now())) {
+            throw new IllegalArgumentException("Срок холда истек");
+        }
+        return hold;
+    }
+
+    private void checkOwnership(CardHold hold, Long userId) {
+        // Владелец холда — владелец карты отправителя
+        Card fromCard = cardService.getCardEntityById(hold.getFromCardId());
+        if (!fromCard.getUser().getId().equals(userId)) {
+            throw new UnauthorizedException("Нет доступа к данному холду");
+        }
+    }
+
+    /**
+     * Завершает холд. Сумма освобождается в реестре только после фиксации.
+     */
+    private void resolve(CardHold hold, HoldStatus status) {
+        hold.setStatus(status);
+        hold.setResolvedAt(LocalDateTime.now());
+        holdRepository.save(hold);
+
+        Long holdId = hold.getId();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                holdRegistry.remove(holdId);
+            }
+        });
+    }
+
+    private CardHoldDto convertToDto(CardHold hold) {
+        return new CardHoldDto(
+                hold.getId(),
+                hold.getFromCardId(),
+                hold.getToCardId(),
+                hold.getAmount(),
+                hold.getStatus(),
+                hold.getExpiresAt(),
+                hold.getCreatedAt(),
+                hold.getResolvedAt(),
+                hold.getTransactionId()
+        );
+    }
+}
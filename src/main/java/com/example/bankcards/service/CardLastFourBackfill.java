@@ -0,0 +1,107 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.util.CardNumberUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Заполняет last_four и слепой индекс card_number_hash картам, созданным до появления колонок.
+ *
+ * Оба значения можно получить только расшифровкой номера, поэтому заполнение идет
+ * в приложении, а не в SQL-миграции: пакеты по ID читаются по возрастанию, номера
+ * пакета расшифровываются параллельно, и значения записываются одной короткой
+ * транзакцией. Запускается в фоне после старта; пока оно идет, карты без last_four
+ * маскируются через расшифровку, а карты без индекса не находятся поиском по номеру.
+ */
+@Component
+public class CardLastFourBackfill {
+
+    private static final Logger log = LoggerFactory.getLogger(CardLastFourBackfill.class);
+
+    private final CardRepository cardRepository;
+    private final CardNumberUtil cardNumberUtil;
+    private final TransferEngine transferEngine;
+    private final IssuedCardNumberFilter issuedNumbers;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int threads;
+
+    public CardLastFourBackfill(CardRepository cardRepository, CardNumberUtil cardNumberUtil,
+                                TransferEngine transferEngine, IssuedCardNumberFilter issuedNumbers,
+                                @Value("${cards.last-four-backfill.enabled:true}") boolean enabled,
+                                @Value("${cards.last-four-backfill.batch-size:1000}") int batchSize,
+                                @Value("${cards.last-four-backfill.threads:0}") int threads) {
+        this.cardRepository = cardRepository;
+        this.cardNumberUtil = cardNumberUtil;
+        this.transferEngine = transferEngine;
+        this.issuedNumbers = issuedNumbers;
+        this.enabled = enabled;
+        this.batchSize = Math.max(1, batchSize);
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        Thread backfill = new Thread(this::backfill, "card-last-four-backfill");
+        backfill.setDaemon(true);
+        backfill.start();
+    }
+
+    /**
+     * @return число заполненных карт
+     */
+    public int backfill() {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long started = System.nanoTime();
+        int filled = 0;
+        try {
+            Long afterId = 0L;
+            while (true) {
+                Long from = afterId;
+                List<Object[]> rows = transferEngine.executeUnlocked(() ->
+                        cardRepository.findWithoutNumberColumns(from, PageRequest.of(0, batchSize)));
+                if (rows.isEmpty()) {
+                    break;
+                }
+                List<String> numbers = pool.submit(() -> rows.parallelStream()
+                        .map(row -> cardNumberUtil.decryptCardNumber((String) row[1]))
+                        .toList()).get();
+                filled += transferEngine.executeUnlocked(() -> {
+                    int updated = 0;
+                    for (int i = 0; i < rows.size(); i++) {
+                        String number = numbers.get(i);
+                        String hash = cardNumberUtil.blindIndex(number);
+                        issuedNumbers.put(hash);
+                        updated += cardRepository.fillNumberColumns((Long) rows.get(i)[0],
+                                CardNumberUtil.lastFourDigits(number), hash);
+                    }
+                    return updated;
+                });
+                afterId = (Long) rows.get(rows.size() - 1)[0];
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | RuntimeException e) {
+            log.error("Заполнение last_four и слепого индекса прервано после {} карт", filled, e);
+        } finally {
+            pool.shutdown();
+        }
+        if (filled > 0) {
+            log.info("last_four и слепой индекс заполнены для {} карт за {} мс", filled, (System.nanoTime() - started) / 1_000_000);
+        }
+        return filled;
+    }
+}
@@ -0,0 +1,295 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.repository.CardRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Триграммный индекс владельцев карт для поиска по подстроке.
+ *
+ * На PostgreSQL поиск идет в БД по GIN-индексу pg_trgm (миграция 014), и этот индекс
+ * не строится. На остальных БД (H2) ILIKE '%...%' читает всю таблицу, поэтому в памяти
+ * держится инвертированный индекс: для каждой триграммы имени — отсортированный список
+ * ID карт. Поиск пересекает списки триграмм запроса, начиная с самого короткого, и
+ * проверяет вхождение подстроки у оставшихся кандидатов. Запросы короче триграммы
+ * проверяются перебором имен в памяти.
+ *
+ * Режим задается cards.owner-search.mode: auto (по БД), database или memory.
+ * Индекс строится при запуске и обновляется после фиксации выпуска и удаления карт.
+ */
+@Component
+public class CardOwnerIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(CardOwnerIndex.class);
+    private static final int GRAM = 3;
+    private static final int LOAD_BATCH_SIZE = 10_000;
+
+    private final CardRepository cardRepository;
+    private final DataSource dataSource;
+    private final String mode;
+    private boolean enabled;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, String> owners = new HashMap<>();
+    private final Map<Long, Postings> postings = new HashMap<>();
+
+    public CardOwnerIndex(CardRepository cardRepository, DataSource dataSource,
+                          @Value("${cards.owner-search.mode:auto}") String mode) {
+        this.cardRepository = cardRepository;
+        this.dataSource = dataSource;
+        this.mode = mode.trim().toLowerCase(Locale.ROOT);
+    }
+
+    @PostConstruct
+    public void load() {
+        enabled = switch (mode) {
+            case "memory" -> true;
+            case "database" -> false;
+            case "auto" -> !isPostgres();
+            default -> throw new IllegalStateException("Неизвестный cards.owner-search.mode: " + mode);
+        };
+        if (!enabled) {
+            return;
+        }
+        long started = System.nanoTime();
+        long loaded = 0;
+        Long afterId = 0L;
+        while (true) {
+            List<Object[]> rows = cardRepository.findOwners(afterId, PageRequest.of(0, LOAD_BATCH_SIZE));
+            if (rows.isEmpty()) {
+                break;
+            }
+            for (Object[] row : rows) {
+                add((Long) row[0], (String) row[1]);
+            }
+            loaded += rows.size();
+            afterId = (Long) rows.get(rows.size() - 1)[0];
+        }
+        if (loaded > 0) {
+            log.info("Индекс владельцев карт построен по {} картам за {} мс",
+                    loaded, (System.nanoTime() - started) / 1_000_000);
+        }
+    }
+
+    /**
+     * true — поиск идет по индексу в памяти, false — запросом к БД
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Добавляет карту в индекс, в транзакции — после ее фиксации
+     */
+    public void cardCreated(Long cardId, String owner) {
+        if (enabled) {
+            afterCommit(() -> add(cardId, owner));
+        }
+    }
+
+    /**
+     * Удаляет карту из индекса, в транзакции — после ее фиксации
+     */
+    public void cardDeleted(Long cardId) {
+        if (enabled) {
+            afterCommit(() -> remove(cardId));
+        }
+    }
+
+    /**
+     * ID карт, имя владельца которых содержит query без учета регистра, по возрастанию
+     */
+    public List<Long> search(String query) {
+        String normalized = normalize(query);
+        lock.readLock().lock();
+        try {
+            if (normalized.length() < GRAM) {
+                return owners.entrySet().stream()
+                        .filter(entry -> entry.getValue().contains(normalized))
+                        .map(Map.Entry::getKey)
+                        .sorted()
+                        .toList();
+            }
+            List<Postings> lists = new ArrayList<>();
+            for (long gram : grams(normalized)) {
+                Postings list = postings.get(gram);
+                if (list == null) {
+                    return List.of();
+                }
+                lists.add(list);
+            }
+            lists.sort(Comparator.comparingInt(list -> list.size));
+
+            long[] candidates = Arrays.copyOf(lists.get(0).ids, lists.get(0).size);
+            int count = candidates.length;
+            for (int i = 1; i < lists.size() && count > 0; i++) {
+                count = lists.get(i).retain(candidates, count);
+            }
+            List<Long> result = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                if (owners.get(candidates[i]).contains(normalized)) {
+                    result.add(candidates[i]);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return owners.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    void add(Long cardId, String owner) {
+        String normalized = normalize(owner);
+        lock.writeLock().lock();
+        try {
+            String previous = owners.put(cardId, normalized);
+            if (previous != null) {
+                for (long gram : grams(previous)) {
+                    postings.get(gram).remove(cardId);
+                }
+            }
+            for (long gram : grams(normalized)) {
+                postings.computeIfAbsent(gram, key -> new Postings()).add(cardId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(Long cardId) {
+        lock.writeLock().lock();
+        try {
+            String owner = owners.remove(cardId);
+            if (owner == null) {
+                return;
+            }
+            for (long gram : grams(owner)) {
+                Postings list = postings.get(gram);
+                list.remove(cardId);
+                if (list.size == 0) {
+                    postings.remove(gram);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean isPostgres() {
+        try (Connection connection = dataSource.getConnection()) {
+            return "PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName());
+        } catch (SQLException e) {
+            throw new IllegalStateException("Не удалось определить тип БД для поиска по владельцу", e);
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Различные триграммы строки, каждая упакована в long по 16 бит на символ
+     */
+    private static Set<Long> grams(String value) {
+        Set<Long> grams = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM <= value.length(); i++) {
+            grams.add(((long) value.charAt(i) << 32) | ((long) value.charAt(i + 1) << 16) | value.charAt(i + 2));
+        }
+        return grams;
+    }
+
+    /**
+     * Отсортированный список ID карт одной триграммы
+     */
+    private static final class Postings {
+        private long[] ids = new long[4];
+        private int size;
+
+        private void add(long id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            // ID выдаются по возрастанию, поэтому вставка почти всегда в конец
+            int position = size;
+            while (position > 0 && ids[position - 1] > id) {
+                position--;
+            }
+            if (position > 0 && ids[position - 1] == id) {
+                return;
+            }
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            ids[position] = id;
+            size++;
+        }
+
+        private void remove(long id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0) {
+                System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+                size--;
+            }
+        }
+
+        /**
+         * Оставляет в начале candidates только ID из списка
+         *
+         * @return число оставшихся кандидатов
+         */
+        private int retain(long[] candidates, int count) {
+            int kept = 0;
+            int from = 0;
+            for (int i = 0; i < count && from < size; i++) {
+                int position = Arrays.binarySearch(ids, from, size, candidates[i]);
+                if (position >= 0) {
+                    candidates[kept++] = candidates[i];
+                    from = position + 1;
+                } else {
+                    from = -position - 1;
+                }
+            }
+            return kept;
+        }
+    }
+}
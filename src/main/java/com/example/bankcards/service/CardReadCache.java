@@ -0,0 +1,118 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardDto;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Ограниченный кэш представлений карт по ID для чтения без обращения к БД.
+ *
+ * Вытеснение W-TinyLFU (Caffeine): часто читаемые карты переживают волну разовых чтений.
+ * Кэшируется CardDto без доступного баланса — он зависит от холдов и считается при каждом
+ * чтении по {@link CardHoldRegistry}. Записи сбрасываются при каждом изменении карты:
+ * сразу и еще раз после завершения транзакции, чтобы параллельное чтение не вернуло
+ * в кэш значение, прочитанное до коммита. Время жизни записи ограничивает устаревание,
+ * если изменение прошло мимо сервисов.
+ *
+ * Метрики: cache.gets (hit/miss), cache.evictions, cache.size с тегом cache=cards.
+ */
+@Component
+public class CardReadCache {
+
+    private final Cache<Long, CardDto> cards;
+
+    public CardReadCache(MeterRegistry meterRegistry,
+                         @Value("${cards.cache.max-size:10000}") long maxSize,
+                         @Value("${cards.cache.ttl:10m}") Duration ttl) {
+        this.cards = Caffeine.newBuilder()
+                .maximumSize(Math.max(0, maxSize))
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cards, "cards");
+    }
+
+    /**
+     * Копия кэшированной карты; при промахе карта загружается loader'ом и кэшируется
+     */
+    public CardDto get(Long cardId, Function<Long, CardDto> loader) {
+        return copy(cards.get(cardId, loader));
+    }
+
+    /**
+     * Кэширует карту после коммита текущей транзакции, чтобы откат не оставил в кэше несуществующую карту
+     */
+    public void put(CardDto card) {
+        CardDto cached = copy(card);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cards.put(cached.getId(), cached);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cards.put(cached.getId(), cached);
+            }
+        });
+    }
+
+    /**
+     * Сбрасывает карту сейчас и после завершения текущей транзакции
+     */
+    public void invalidate(Long cardId) {
+        cards.invalidate(cardId);
+        afterCompletion(() -> cards.invalidate(cardId));
+    }
+
+    /**
+     * Сбрасывает карты сейчас и после завершения текущей транзакции
+     */
+    public void invalidate(Collection<Long> cardIds) {
+        List<Long> ids = List.copyOf(cardIds);
+        cards.invalidateAll(ids);
+        afterCompletion(() -> cards.invalidateAll(ids));
+    }
+
+    /**
+     * Для массовых UPDATE, после которых неизвестно, какие карты изменились
+     */
+    public void invalidateAll() {
+        cards.invalidateAll();
+        afterCompletion(cards::invalidateAll);
+    }
+
+    public long size() {
+        return cards.estimatedSize();
+    }
+
+    private static void afterCompletion(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                action.run();
+            }
+        });
+    }
+
+    // CardDto изменяем, поэтому наружу и в кэш уходят копии
+    private static CardDto copy(CardDto card) {
+        CardDto copy = new CardDto(card.getId(), card.getCardNumber(), card.getOwner(), card.getExpiryDate(),
+                card.getStatus(), card.getBalance(), card.getUserId());
+        copy.setAvailableBalance(card.getAvailableBalance());
+        return copy;
+    }
+}
@@ -1,7 +1,9 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.BulkCardStatusDto;
 import com.example.bankcards.dto.CardDto;
 import com.example.bankcards.dto.CreateCardDto;
+import com.example.bankcards.dto.CursorPageDto;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.CardStatus;
 import com.example.bankcards.entity.User;
@@ -9,13 +11,24 @@ import com.example.bankcards.exception.CardNotFoundException;
 import com.example.bankcards.exception.UnauthorizedException;
 import com.example.bankcards.repository.CardRepository;
 import com.example.bankcards.util.CardNumberUtil;
+import com.example.bankcards.util.PageCursor;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.math.BigDecimal;
 
@@ -23,25 +36,55 @@ import java.math.BigDecimal;
 @Transactional
 public class CardService {
     
+    private static final int MAX_CARD_NUMBER_ATTEMPTS = 10;
+    static final int MAX_CURSOR_PAGE_SIZE = 100;
+    
     private final CardRepository cardRepository;
     private final UserService userService;
     private final CardNumberUtil cardNumberUtil;
+    private final TransferEngine transferEngine;
+    private final OptimisticRetryExecutor retryExecutor;
+    private final LedgerService ledgerService;
+    private final CardHoldRegistry holdRegistry;
+    private final IssuedCardNumberFilter issuedNumbers;
+    private final CardOwnerIndex ownerIndex;
+    private final CardReadCache cardReadCache;
+    private final UserCardSummaryService summaryService;
+    private final CardBulkStatusUpdater bulkStatusUpdater;
+    private final EntityManager entityManager;
     
-    public CardService(CardRepository cardRepository, UserService userService, CardNumberUtil cardNumberUtil) {
+    public CardService(CardRepository cardRepository, UserService userService, CardNumberUtil cardNumberUtil,
+                       TransferEngine transferEngine, OptimisticRetryExecutor retryExecutor,
+                       LedgerService ledgerService, CardHoldRegistry holdRegistry,
+                       IssuedCardNumberFilter issuedNumbers, CardOwnerIndex ownerIndex,
+                       CardReadCache cardReadCache, UserCardSummaryService summaryService,
+                       CardBulkStatusUpdater bulkStatusUpdater, EntityManager entityManager) {
         this.cardRepository = cardRepository;
         this.userService = userService;
         this.cardNumberUtil = cardNumberUtil;
+        this.transferEngine = transferEngine;
+        this.retryExecutor = retryExecutor;
+        this.ledgerService = ledgerService;
+        this.holdRegistry = holdRegistry;
+        this.issuedNumbers = issuedNumbers;
+        this.ownerIndex = ownerIndex;
+        this.cardReadCache = cardReadCache;
+        this.summaryService = summaryService;
+        this.bulkStatusUpdater = bulkStatusUpdater;
+        this.entityManager = entityManager;
     }
     
     @Transactional
     public CardDto createCard(CreateCardDto createCardDto, Long userId) {
         User user = userService.getUserEntityById(userId);
         
-        String cardNumber = cardNumberUtil.generateCardNumber();
+        String cardNumber = generateUniqueCardNumber();
         String encryptedCardNumber = cardNumberUtil.encryptCardNumber(cardNumber);
         
         Card card = new Card();
         card.setCardNumber(encryptedCardNumber);
+        card.setCardNumberHash(cardNumberUtil.blindIndex(cardNumber));
+        card.setLastFour(CardNumberUtil.lastFourDigits(cardNumber));
         card.setOwner(createCardDto.getOwner());
         card.setExpiryDate(createCardDto.getExpiryDate());
         card.setBalance(createCardDto.getInitialBalance());
@@ -49,19 +92,31 @@ public class CardService {
         card.setUser(user);
         
         Card savedCard = cardRepository.save(card);
-        return convertToDto(savedCard);
+        // При откате выпуска лишний бит дает лишь ложноположительный ответ фильтра
+        issuedNumbers.put(card.getCardNumberHash());
+        ownerIndex.cardCreated(savedCard.getId(), savedCard.getOwner());
+        ledgerService.recordOpening(savedCard);
+        summaryService.cardAdded(user.getId(), savedCard.getStatus(), savedCard.getBalance());
+        CardDto created = convertToDto(savedCard);
+        cardReadCache.put(created);
+        return created;
     }
     
+    /**
+     * Обычно обслуживается из {@link CardReadCache} без обращения к БД;
+     * доступный баланс пересчитывается по текущим холдам
+     */
     @Transactional(readOnly = true)
     public CardDto getCardById(Long cardId, Long userId) {
-        Card card = cardRepository.findById(cardId)
-                .orElseThrow(() -> new CardNotFoundException(cardId));
+        CardDto card = cardReadCache.get(cardId, id -> convertToDto(cardRepository.findById(id)
+                .orElseThrow(() -> new CardNotFoundException(id))));
         
-        if (!card.getUser().getId().equals(userId)) {
+        if (!card.getUserId().equals(userId)) {
             throw new UnauthorizedException("Нет доступа к данной карте");
         }
         
-        return convertToDto(card);
+        card.setAvailableBalance(card.getBalance().subtract(holdRegistry.heldAmount(cardId)));
+        return card;
     }
     
     @Transactional(readOnly = true)
@@ -74,7 +129,28 @@ public class CardService {
             cards = cardRepository.findByUserIdAndStatusNot(userId, CardStatus.EXPIRED, pageable);
         }
         
-        return cards.map(this::convertToDto);
+        return new PageImpl<>(convertToDtos(cards.getContent()), cards.getPageable(), cards.getTotalElements());
+    }
+    
+    /**
+     * Страница карт пользователя после курсора after, от новых к старым. В отличие от
+     * {@link #getUserCards} не считает общее число карт, и глубокие страницы стоят
+     * столько же, сколько первая.
+     */
+    @Transactional(readOnly = true)
+    public CursorPageDto<CardDto> getUserCardsAfter(Long userId, String after, int size, CardStatus status, String owner) {
+        PageCursor cursor = PageCursor.decode(after);
+        int pageSize = Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+        Collection<CardStatus> statuses = status != null
+                ? List.of(status)
+                : EnumSet.complementOf(EnumSet.of(CardStatus.EXPIRED));
+        String ownerFilter = owner != null && !owner.trim().isEmpty() ? owner : null;
+        
+        List<Card> cards = cardRepository.findByUserIdBefore(userId, statuses, ownerFilter,
+                cursor.getCreatedAt(), cursor.getId(), PageRequest.of(0, pageSize + 1));
+        Map<Long, BigDecimal> balances = ledgerService.getBalances(cards.subList(0, Math.min(cards.size(), pageSize)));
+        return CursorPageDto.of(cards, pageSize, card -> convertToDto(card, balances.get(card.getId())),
+                card -> new PageCursor(card.getCreatedAt(), card.getId()));
     }
     
     @Transactional
@@ -86,8 +162,10 @@ public class CardService {
             throw new UnauthorizedException("Нет доступа к данной карте");
         }
         
+        summaryService.statusChanged(userId, card.getStatus(), status, 1);
         card.setStatus(status);
         Card savedCard = cardRepository.save(card);
+        cardReadCache.invalidate(cardId);
         return convertToDto(savedCard);
     }
     
@@ -100,41 +178,88 @@ public class CardService {
             throw new UnauthorizedException("Нет доступа к данной карте");
         }
         
+        summaryService.cardRemoved(userId, card.getStatus(), ledgerService.getBalance(card));
         cardRepository.delete(card);
+        cardReadCache.invalidate(cardId);
+        ownerIndex.cardDeleted(cardId);
     }
     
+    /**
+     * Поиск карты по номеру: точечный запрос по уникальному слепому индексу, без расшифровки
+     */
     @Transactional(readOnly = true)
-    public List<CardDto> getAllCards() {
-        return cardRepository.findAll().stream()
+    public CardDto getCardByNumber(String cardNumber) {
+        return cardRepository.findByCardNumberHash(cardNumberUtil.blindIndex(cardNumber))
                 .map(this::convertToDto)
-                .collect(Collectors.toList());
+                .orElseThrow(() -> new CardNotFoundException("Карта с указанным номером не найдена"));
     }
     
-    @Transactional
-    public CardDto updateCardBalance(Long cardId, Long userId, BigDecimal newBalance) {
-        Card card = cardRepository.findById(cardId)
-                .orElseThrow(() -> new CardNotFoundException(cardId));
-        
-        if (!card.getUser().getId().equals(userId)) {
-            throw new UnauthorizedException("Нет доступа к данной карте");
+    /**
+     * Поиск среди всех карт по подстроке имени владельца без учета регистра, по возрастанию ID.
+     * На PostgreSQL — запрос по триграммному индексу, на остальных БД — по {@link CardOwnerIndex}.
+     */
+    @Transactional(readOnly = true)
+    public Page<CardDto> searchCardsByOwner(String owner, Pageable pageable) {
+        if (!ownerIndex.isEnabled()) {
+            String pattern = owner.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+            Page<Card> cards = cardRepository.searchByOwner(pattern,
+                    PageRequest.of(pageable.getPageNumber(), pageable.getPageSize()));
+            return new PageImpl<>(convertToDtos(cards.getContent()), cards.getPageable(), cards.getTotalElements());
         }
         
-        card.setBalance(newBalance);
-        Card savedCard = cardRepository.save(card);
-        return convertToDto(savedCard);
+        List<Long> ids = ownerIndex.search(owner);
+        int from = (int) Math.min(pageable.getOffset(), ids.size());
+        List<Long> pageIds = ids.subList(from, Math.min(from + pageable.getPageSize(), ids.size()));
+        Map<Long, Card> cards = cardRepository.findByIdIn(pageIds).stream()
+                .collect(Collectors.toMap(Card::getId, Function.identity()));
+        List<Card> content = pageIds.stream()
+                .map(cards::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        return new PageImpl<>(convertToDtos(content), pageable, ids.size());
     }
     
-    @Transactional
-    public void checkAndUpdateExpiredCards() {
-        LocalDate today = LocalDate.now();
-        List<Card> expiredCards = cardRepository.findExpiredCards(today);
-        
-        for (Card card : expiredCards) {
-            if (card.getStatus() == CardStatus.ACTIVE) {
-                card.setStatus(CardStatus.EXPIRED);
-                cardRepository.save(card);
-            }
-        }
+    @Transactional(readOnly = true)
+    public List<CardDto> getAllCards() {
+        return convertToDtos(cardRepository.findAll());
+    }
+    
+    /**
+     * Изменение баланса сериализуется с переводами через блокировку карты в {@link TransferEngine}
+     * и повторяется при конфликте версий, поэтому метод сам транзакцию не открывает.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public CardDto updateCardBalance(Long cardId, Long userId, BigDecimal newBalance) {
+        return retryExecutor.execute("updateCardBalance", () ->
+                transferEngine.execute(List.of(cardId), () -> {
+                    Card card = cardRepository.findById(cardId)
+                            .orElseThrow(() -> new CardNotFoundException(cardId));
+                    
+                    if (!card.getUser().getId().equals(userId)) {
+                        throw new UnauthorizedException("Нет доступа к данной карте");
+                    }
+                    
+                    ledgerService.setBalance(card, newBalance);
+                    Card savedCard = cardRepository.save(card);
+                    return convertToDto(savedCard);
+                }));
+    }
+    
+    /**
+     * Помечает истекшими активные карты с прошедшим сроком. Идет через массовую смену
+     * статуса пакетами по batchSize карт, каждый в своей короткой транзакции: карты
+     * не загружаются в память, а сводки владельцев и кэш обновляются вместе со статусом.
+     * Пакеты выбираются поиском по индексу (status, expiry_date, id), а не обходом таблицы по ID.
+     *
+     * @return число карт, помеченных истекшими
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int checkAndUpdateExpiredCards(int batchSize) {
+        BulkCardStatusDto request = new BulkCardStatusDto();
+        request.setStatus(CardStatus.EXPIRED);
+        request.setCurrentStatus(CardStatus.ACTIVE);
+        request.setExpiresTo(LocalDate.now().minusDays(1));
+        return bulkStatusUpdater.updateStatus(request, batchSize);
     }
     
     @Transactional(readOnly = true)
@@ -143,22 +268,86 @@ public class CardService {
                 .orElseThrow(() -> new CardNotFoundException(cardId));
     }
     
+    /**
+     * Загружает карты одним запросом IN, результат индексирован по ID
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, Card> getCardEntitiesByIds(Collection<Long> cardIds) {
+        return cardRepository.findByIdIn(cardIds).stream()
+                .collect(Collectors.toMap(Card::getId, Function.identity()));
+    }
+    
+    /**
+     * Блокирует строки карт (SELECT ... FOR UPDATE) одним запросом в порядке возрастания ID.
+     * Встречные переводы блокируют карты в одном порядке и не попадают во взаимную блокировку,
+     * а последующие findById в той же транзакции берут карты из контекста персистентности.
+     */
+    @Transactional
+    public Map<Long, Card> lockCardEntities(Collection<Long> cardIds) {
+        return cardRepository.findByIdInForUpdate(cardIds).stream()
+                .collect(Collectors.toMap(Card::getId, Function.identity()));
+    }
+    
+    /**
+     * Увеличивает версию карты при фиксации, даже если сама карта не изменилась.
+     * Параллельная транзакция, проверившая баланс по той же версии, получит конфликт версий.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void forceVersionIncrement(Card card) {
+        entityManager.lock(card, LockModeType.OPTIMISTIC_FORCE_INCREMENT);
+    }
+    
     @Transactional
     public Card saveCard(Card card) {
         return cardRepository.save(card);
     }
     
-    private CardDto convertToDto(Card card) {
-        String maskedCardNumber = cardNumberUtil.maskCardNumber(cardNumberUtil.decryptCardNumber(card.getCardNumber()));
+    /**
+     * Генерирует номер, которого еще нет среди карт. Проверка идет по слепому индексу:
+     * сначала по фильтру Блума, и только при его положительном ответе запросом к БД.
+     * Гонку двух одновременных выпусков закрывает уникальный индекс card_number_hash.
+     */
+    private String generateUniqueCardNumber() {
+        for (int attempt = 0; attempt < MAX_CARD_NUMBER_ATTEMPTS; attempt++) {
+            String cardNumber = cardNumberUtil.generateCardNumber();
+            String hash = cardNumberUtil.blindIndex(cardNumber);
+            if (!issuedNumbers.mightContain(hash) || !cardRepository.existsByCardNumberHash(hash)) {
+                return cardNumber;
+            }
+        }
+        throw new IllegalStateException("Не удалось сгенерировать уникальный номер карты");
+    }
+    
+    CardDto convertToDto(Card card) {
+        return convertToDto(card, ledgerService.getBalance(card));
+    }
+    
+    /**
+     * DTO списка карт: балансы всех карт читаются одним запросом, см. {@link LedgerService#getBalances}
+     */
+    List<CardDto> convertToDtos(List<Card> cards) {
+        Map<Long, BigDecimal> balances = ledgerService.getBalances(cards);
+        return cards.stream()
+                .map(card -> convertToDto(card, balances.get(card.getId())))
+                .collect(Collectors.toList());
+    }
+    
+    private CardDto convertToDto(Card card, BigDecimal balance) {
+        // Расшифровка нужна только картам, которые еще не обработал CardLastFourBackfill
+        String maskedCardNumber = card.getLastFour() != null
+                ? CardNumberUtil.maskLastFour(card.getLastFour())
+                : cardNumberUtil.maskCardNumber(cardNumberUtil.decryptCardNumber(card.getCardNumber()));
         
-        return new CardDto(
+        CardDto dto = new CardDto(
                 card.getId(),
                 maskedCardNumber,
                 card.getOwner(),
                 card.getExpiryDate(),
                 card.getStatus(),
-                card.getBalance(),
+                balance,
                 card.getUser().getId()
         );
+        dto.setAvailableBalance(balance.subtract(holdRegistry.heldAmount(card.getId())));
+        return dto;
     }
 }
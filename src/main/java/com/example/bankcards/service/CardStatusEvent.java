@@ -0,0 +1,33 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.CardStatus;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Новый статус группы карт, сгруппированных по владельцу. Публикуется
+ * {@link CardBulkStatusUpdater} и доставляется клиентам {@link TransactionEventHub}
+ * после фиксации транзакции.
+ */
+public final class CardStatusEvent {
+
+    private final CardStatus status;
+    private final Map<Long, List<Long>> cardIdsByUser;
+
+    public CardStatusEvent(CardStatus status, Map<Long, List<Long>> cardIdsByUser) {
+        this.status = status;
+        this.cardIdsByUser = cardIdsByUser;
+    }
+
+    public CardStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * ID карт по ID владельца
+     */
+    public Map<Long, List<Long>> getCardIdsByUser() {
+        return cardIdsByUser;
+    }
+}
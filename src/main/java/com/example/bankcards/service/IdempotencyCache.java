@@ -0,0 +1,120 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransactionDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Ограниченный кэш результатов переводов по ключу идемпотентности.
+ *
+ * Вытеснение LRU по размеру и по времени жизни записи. Ключ действует в пределах
+ * карты отправителя, как уникальный индекс в БД, и дополнительно изолирован
+ * по пользователю: запрос с чужой картой не вернет чужой перевод до проверки владельца.
+ */
+@Component
+public class IdempotencyCache {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Map<String, Entry> entries;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter databaseHits;
+
+    public IdempotencyCache(MeterRegistry meterRegistry,
+                            @Value("${transfer.idempotency.cache-size:10000}") int maxSize,
+                            @Value("${transfer.idempotency.ttl:24h}") Duration ttl) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > IdempotencyCache.this.maxSize;
+            }
+        };
+
+        this.hits = Counter.builder("transfers.idempotency.cache")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("transfers.idempotency.cache")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        this.databaseHits = Counter.builder("transfers.idempotency.cache")
+                .tag("result", "database")
+                .register(meterRegistry);
+        Gauge.builder("transfers.idempotency.cache.size", this, IdempotencyCache::size)
+                .register(meterRegistry);
+        Gauge.builder("transfers.idempotency.cache.hit.ratio", this, IdempotencyCache::hitRate)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Возвращает сохраненный результат перевода, если он есть и не устарел
+     */
+    public Optional<TransactionDto> get(Long userId, Long fromCardId, String idempotencyKey) {
+        String key = cacheKey(userId, fromCardId, idempotencyKey);
+        long now = System.nanoTime();
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && now - entry.createdAt < ttlNanos) {
+                hits.increment();
+                return Optional.of(entry.transaction);
+            }
+            if (entry != null) {
+                entries.remove(key);
+            }
+        }
+        misses.increment();
+        return Optional.empty();
+    }
+
+    public void put(Long userId, Long fromCardId, String idempotencyKey, TransactionDto transaction) {
+        String key = cacheKey(userId, fromCardId, idempotencyKey);
+        Entry entry = new Entry(transaction, System.nanoTime());
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+
+    /**
+     * Учитывает повтор, найденный в БД после промаха кэша
+     */
+    public void recordDatabaseHit() {
+        databaseHits.increment();
+    }
+
+    public double hitRate() {
+        double hitCount = hits.count();
+        double total = hitCount + misses.count();
+        return total == 0 ? 0.0 : hitCount / total;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private String cacheKey(Long userId, Long fromCardId, String idempotencyKey) {
+        return userId + ":" + fromCardId + ":" + idempotencyKey;
+    }
+
+    private static final class Entry {
+        private final TransactionDto transaction;
+        private final long createdAt;
+
+        private Entry(TransactionDto transaction, long createdAt) {
+            this.transaction = transaction;
+            this.createdAt = createdAt;
+        }
+    }
+}
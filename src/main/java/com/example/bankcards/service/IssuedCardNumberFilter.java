@@ -0,0 +1,134 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.repository.CardRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Фильтр Блума по слепым индексам выпущенных номеров карт.
+ *
+ * Отрицательный ответ точен: номера с таким индексом нет, и новый номер выпускается без
+ * запроса к БД. Положительный ответ может быть ложным с вероятностью около fpp при
+ * expected-cards номерах, тогда уникальность проверяется запросом по индексу.
+ * Окончательную гарантию дает уникальный индекс card_number_hash.
+ *
+ * Фильтр строится при запуске по всем индексам из БД и пополняется при выпуске карт
+ * и заполнении индексов старых карт. Биты только устанавливаются, поэтому массив
+ * обновляется без блокировок.
+ */
+@Component
+public class IssuedCardNumberFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(IssuedCardNumberFilter.class);
+    private static final int LOAD_BATCH_SIZE = 10_000;
+
+    private final CardRepository cardRepository;
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    private final Counter negatives;
+    private final Counter positives;
+
+    public IssuedCardNumberFilter(CardRepository cardRepository, MeterRegistry meterRegistry,
+                                  @Value("${cards.number.bloom.expected-cards:1000000}") long expectedCards,
+                                  @Value("${cards.number.bloom.fpp:0.001}") double fpp) {
+        this.cardRepository = cardRepository;
+        long expected = Math.max(1L, expectedCards);
+        double probability = Math.min(0.5, Math.max(1e-9, fpp));
+        // m = -n ln p / (ln 2)^2, k = m / n * ln 2
+        long bits = (long) Math.ceil(-expected * Math.log(probability) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.min(Integer.MAX_VALUE, (Math.max(64L, bits) + 63) / 64);
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = words * 64L;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expected * Math.log(2)));
+
+        this.negatives = Counter.builder("cards.number.bloom")
+                .tag("result", "absent")
+                .register(meterRegistry);
+        this.positives = Counter.builder("cards.number.bloom")
+                .tag("result", "maybe_present")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Загружает индексы выпущенных карт пакетами по ID
+     */
+    @PostConstruct
+    public void load() {
+        long started = System.nanoTime();
+        long loaded = 0;
+        Long afterId = 0L;
+        while (true) {
+            List<Object[]> rows = cardRepository.findCardNumberHashes(afterId, PageRequest.of(0, LOAD_BATCH_SIZE));
+            if (rows.isEmpty()) {
+                break;
+            }
+            for (Object[] row : rows) {
+                put((String) row[1]);
+            }
+            loaded += rows.size();
+            afterId = (Long) rows.get(rows.size() - 1)[0];
+        }
+        if (loaded > 0) {
+            log.info("Фильтр выпущенных номеров построен по {} картам за {} мс",
+                    loaded, (System.nanoTime() - started) / 1_000_000);
+        }
+    }
+
+    public void put(String cardNumberHash) {
+        long hash1 = hash(cardNumberHash);
+        long hash2 = mix(hash1) | 1L;
+        for (int i = 0; i < hashCount; i++) {
+            long index = Math.floorMod(hash1 + i * hash2, bitCount);
+            int word = (int) (index >>> 6);
+            long mask = 1L << index;
+            long current;
+            do {
+                current = bits.get(word);
+            } while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    /**
+     * @return false, если номер с таким индексом точно не выпускался
+     */
+    public boolean mightContain(String cardNumberHash) {
+        long hash1 = hash(cardNumberHash);
+        long hash2 = mix(hash1) | 1L;
+        for (int i = 0; i < hashCount; i++) {
+            long index = Math.floorMod(hash1 + i * hash2, bitCount);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                negatives.increment();
+                return false;
+            }
+        }
+        positives.increment();
+        return true;
+    }
+
+    // FNV-1a по символам индекса с финальным перемешиванием
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+        value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return value ^ (value >>> 33);
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.bankcards.service;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Запись журнала переводов: перевод, принятый к исполнению, но еще не примененный к таблицам
+ */
+public final class JournalRecord {
+
+    private final long sequence;
+    private final long fromCardId;
+    private final long toCardId;
+    private final long userId;
+    private final BigDecimal amount;
+    private final String idempotencyKey;
+    private final LocalDateTime createdAt;
+
+    public JournalRecord(long fromCardId, long toCardId, long userId, BigDecimal amount,
+                         String idempotencyKey, LocalDateTime createdAt) {
+        this(0L, fromCardId, toCardId, userId, amount, idempotencyKey, createdAt);
+    }
+
+    private JournalRecord(long sequence, long fromCardId, long toCardId, long userId, BigDecimal amount,
+                          String idempotencyKey, LocalDateTime createdAt) {
+        this.sequence = sequence;
+        this.fromCardId = fromCardId;
+        this.toCardId = toCardId;
+        this.userId = userId;
+        this.amount = amount;
+        this.idempotencyKey = idempotencyKey;
+        this.createdAt = createdAt;
+    }
+
+    /**
+     * Номер записи в журнале, 0 для еще не добавленной записи
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getFromCardId() {
+        return fromCardId;
+    }
+
+    public long getToCardId() {
+        return toCardId;
+    }
+
+    public long getUserId() {
+        return userId;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    byte[] encode() {
+        byte[] unscaled = amount.unscaledValue().toByteArray();
+        byte[] key = idempotencyKey == null ? new byte[0] : idempotencyKey.getBytes(StandardCharsets.UTF_8);
+
+        ByteBuffer buffer = ByteBuffer.allocate(8 * 4 + 4 + 4 + 2 + unscaled.length + 2 + key.length);
+        buffer.putLong(fromCardId);
+        buffer.putLong(toCardId);
+        buffer.putLong(userId);
+        buffer.putLong(createdAt.toEpochSecond(ZoneOffset.UTC));
+        buffer.putInt(createdAt.getNano());
+        buffer.putInt(amount.scale());
+        buffer.putShort((short) unscaled.length);
+        buffer.put(unscaled);
+        buffer.putShort((short) key.length);
+        buffer.put(key);
+        return buffer.array();
+    }
+
+    static JournalRecord decode(long sequence, byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        long fromCardId = buffer.getLong();
+        long toCardId = buffer.getLong();
+        long userId = buffer.getLong();
+        LocalDateTime createdAt = LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC);
+        int scale = buffer.getInt();
+        byte[] unscaled = new byte[buffer.getShort()];
+        buffer.get(unscaled);
+        byte[] key = new byte[buffer.getShort()];
+        buffer.get(key);
+
+        return new JournalRecord(sequence, fromCardId, toCardId, userId,
+                new BigDecimal(new BigInteger(unscaled), scale),
+                key.length == 0 ? null : new String(key, StandardCharsets.UTF_8),
+                createdAt);
+    }
+}
@@ -0,0 +1,284 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.BalanceSnapshot;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.LedgerEntry;
+import com.example.bankcards.entity.LedgerEntryType;
+import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.repository.BalanceSnapshotRepository;
+import com.example.bankcards.repository.LedgerEntryRepository;
+import com.example.bankcards.repository.LedgerEntryRepository.LedgerDelta;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Журнал проводок по картам (двойная запись).
+ *
+ * Каждый перевод порождает две проводки: списание с карты отправителя и зачисление
+ * на карту получателя. Проводки только добавляются, поэтому по ним восстанавливается
+ * вся история баланса карты.
+ *
+ * Изменения балансов идут через {@link #debit}/{@link #credit}: обычная карта хранит баланс
+ * в Card.balance, горячая — в шардах {@link CardBalanceShardService}. Оба метода сбрасывают
+ * карту в {@link CardReadCache} и передают изменение в {@link UserCardSummaryService}.
+ *
+ * В режиме производных балансов (transfer.ledger.derived-balances) переводы не изменяют
+ * Card.balance: баланс равен последнему снимку плюс проводки после него. Снимки
+ * периодически обновляет фоновая задача, поэтому чтение баланса не требует суммирования
+ * всей истории. В снимок попадают только проводки старше transfer.ledger.snapshot-lag:
+ * к этому времени их транзакции уже завершены, а более новые проводки могут быть
+ * еще не зафиксированы и снимок не должен их пропустить.
+ */
+@Service
+@Transactional
+public class LedgerService {
+
+    private static final Logger log = LoggerFactory.getLogger(LedgerService.class);
+
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final BalanceSnapshotRepository snapshotRepository;
+    private final CardBalanceShardService shardService;
+    private final CardReadCache cardReadCache;
+    private final UserCardSummaryService summaryService;
+    private final TransferEngine transferEngine;
+    private final boolean derivedBalances;
+    private final int snapshotChunkSize;
+    private final Duration snapshotLag;
+
+    public LedgerService(LedgerEntryRepository ledgerEntryRepository, BalanceSnapshotRepository snapshotRepository,
+                         CardBalanceShardService shardService, CardReadCache cardReadCache,
+                         UserCardSummaryService summaryService, TransferEngine transferEngine,
+                         @Value("${transfer.ledger.derived-balances:false}") boolean derivedBalances,
+                         @Value("${transfer.ledger.snapshot-chunk-size:500}") int snapshotChunkSize,
+                         @Value("${transfer.ledger.snapshot-lag:5m}") Duration snapshotLag) {
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.snapshotRepository = snapshotRepository;
+        this.shardService = shardService;
+        this.cardReadCache = cardReadCache;
+        this.summaryService = summaryService;
+        this.transferEngine = transferEngine;
+        this.derivedBalances = derivedBalances;
+        this.snapshotChunkSize = Math.max(1, snapshotChunkSize);
+        this.snapshotLag = snapshotLag;
+    }
+
+    /**
+     * true, если баланс карты выводится из проводок, а Card.balance переводами не изменяется
+     */
+    public boolean isDerivedBalances() {
+        return derivedBalances;
+    }
+
+    /**
+     * Текущий баланс карты. Для проверки перед списанием вызывается под блокировкой карты.
+     */
+    @Transactional(readOnly = true)
+    public BigDecimal getBalance(Card card) {
+        if (!derivedBalances) {
+            return card.isHot() ? shardService.getBalance(card.getId()) : card.getBalance();
+        }
+        BalanceSnapshot snapshot = snapshotRepository.findById(card.getId()).orElse(null);
+        if (snapshot == null) {
+            return ledgerEntryRepository.sumByCardId(card.getId());
+        }
+        return snapshot.getBalance().add(ledgerEntryRepository.sumByCardIdSince(card.getId(), snapshot.getCoveredUntil()));
+    }
+
+    /**
+     * Текущие балансы нескольких карт для списков и выгрузок: не больше одного запроса
+     * на все карты вместо запросов на каждую карту
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, BigDecimal> getBalances(Collection<Card> cards) {
+        Map<Long, BigDecimal> balances = new HashMap<>();
+        if (cards.isEmpty()) {
+            return balances;
+        }
+        if (!derivedBalances) {
+            List<Long> hotCardIds = new ArrayList<>();
+            for (Card card : cards) {
+                if (card.isHot()) {
+                    hotCardIds.add(card.getId());
+                } else {
+                    balances.put(card.getId(), card.getBalance());
+                }
+            }
+            if (!hotCardIds.isEmpty()) {
+                balances.putAll(shardService.getBalances(hotCardIds));
+            }
+            return balances;
+        }
+        List<Long> cardIds = cards.stream().map(Card::getId).toList();
+        for (Object[] row : ledgerEntryRepository.findBalanceParts(cardIds)) {
+            BigDecimal snapshot = row[1] != null ? (BigDecimal) row[1] : BigDecimal.ZERO;
+            BigDecimal after = row[2] != null ? (BigDecimal) row[2] : BigDecimal.ZERO;
+            balances.put((Long) row[0], snapshot.add(after));
+        }
+        return balances;
+    }
+
+    /**
+     * Списывает сумму с баланса карты, если балансы не выводятся из проводок.
+     * Возвращает false, если на горячей карте недостаточно средств.
+     */
+    public boolean debit(Card card, BigDecimal amount) {
+        cardReadCache.invalidate(card.getId());
+        if (!derivedBalances) {
+            if (card.isHot()) {
+                if (!shardService.debit(card.getId(), amount)) {
+                    return false;
+                }
+            } else {
+                card.setBalance(card.getBalance().subtract(amount));
+            }
+        }
+        summaryService.balanceChanged(card.getUser().getId(), amount.negate());
+        return true;
+    }
+
+    /**
+     * Зачисляет сумму на баланс карты, если балансы не выводятся из проводок
+     */
+    public void credit(Card card, BigDecimal amount) {
+        cardReadCache.invalidate(card.getId());
+        summaryService.balanceChanged(card.getUser().getId(), amount);
+        if (derivedBalances) {
+            return;
+        }
+        if (card.isHot()) {
+            shardService.credit(card.getId(), amount);
+        } else {
+            card.setBalance(card.getBalance().add(amount));
+        }
+    }
+
+    /**
+     * Устанавливает баланс карты вручную
+     */
+    public void setBalance(Card card, BigDecimal balance) {
+        cardReadCache.invalidate(card.getId());
+        BigDecimal previous;
+        if (card.isHot() && !derivedBalances) {
+            // Горячая карта не заблокирована в TransferEngine: прежний баланс берется из заблокированных шардов
+            previous = shardService.setBalance(card.getId(), balance);
+        } else {
+            previous = getBalance(card);
+            card.setBalance(balance);
+        }
+        BigDecimal difference = balance.subtract(previous);
+        recordAdjustment(card, difference);
+        summaryService.balanceChanged(card.getUser().getId(), difference);
+    }
+
+    public void recordOpening(Card card) {
+        ledgerEntryRepository.save(new LedgerEntry(card.getId(), null, LedgerEntryType.OPENING, card.getBalance()));
+    }
+
+    /**
+     * Проводка ручного изменения баланса на разницу между новым и текущим балансом
+     */
+    public void recordAdjustment(Card card, BigDecimal difference) {
+        if (difference.signum() != 0) {
+            ledgerEntryRepository.save(new LedgerEntry(card.getId(), null, LedgerEntryType.ADJUSTMENT, difference));
+        }
+    }
+
+    /**
+     * Проводки по выполненному переводу. Перевод должен быть уже сохранен и иметь ID.
+     */
+    public void recordTransfer(Transaction transaction) {
+        recordTransfers(List.of(transaction));
+    }
+
+    public void recordTransfers(List<Transaction> transactions) {
+        List<LedgerEntry> entries = new ArrayList<>(transactions.size() * 2);
+        for (Transaction transaction : transactions) {
+            addEntries(entries, transaction, LedgerEntryType.TRANSFER, transaction.getAmount());
+        }
+        ledgerEntryRepository.saveAll(entries);
+    }
+
+    /**
+     * Обратные проводки при возврате средств по переводу. Если балансы выводятся
+     * из проводок, возврат проходит без debit/credit, и сводки обновляются здесь
+     */
+    public void recordReversal(Transaction transaction) {
+        List<LedgerEntry> entries = new ArrayList<>(2);
+        addEntries(entries, transaction, LedgerEntryType.REVERSAL, transaction.getAmount().negate());
+        ledgerEntryRepository.saveAll(entries);
+        if (derivedBalances) {
+            cardReadCache.invalidate(List.of(transaction.getFromCard().getId(), transaction.getToCard().getId()));
+            summaryService.balanceChanged(transaction.getFromCard().getUser().getId(), transaction.getAmount());
+            summaryService.balanceChanged(transaction.getToCard().getUser().getId(), transaction.getAmount().negate());
+        }
+    }
+
+    /**
+     * Переносит в снимки проводки, созданные раньше чем snapshot-lag назад.
+     *
+     * Граница снимка — время создания проводки, а не ее ID и не блокировка карты: ID
+     * выдаются блоками и не идут в порядке фиксации, а горячие карты, получатели в режиме
+     * OPTIMISTIC и другие узлы карту в {@link TransferEngine} не блокируют. Проводка,
+     * созданная раньше границы, к моменту обновления уже зафиксирована или отменена,
+     * поэтому задержка должна превышать самую долгую транзакцию перевода вместе
+     * с расхождением часов узлов. Снимки блокируются строками, чтобы два узла
+     * не прибавили одни и те же проводки дважды.
+     */
+    @Scheduled(fixedDelayString = "${transfer.ledger.snapshot-interval-ms:60000}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void refreshSnapshots() {
+        LocalDateTime coveredUntil = LocalDateTime.now().minus(snapshotLag);
+        List<Long> cardIds = ledgerEntryRepository.findCardIdsWithEntriesBefore(coveredUntil);
+        for (int from = 0; from < cardIds.size(); from += snapshotChunkSize) {
+            List<Long> chunk = cardIds.subList(from, Math.min(cardIds.size(), from + snapshotChunkSize));
+            try {
+                transferEngine.executeUnlocked(() -> {
+                    writeSnapshots(chunk, coveredUntil);
+                    return null;
+                });
+            } catch (RuntimeException e) {
+                // Снимок новой карты одновременно создал другой узел: карты дождутся следующего запуска
+                log.warn("Не удалось обновить снимки балансов {} карт", chunk.size(), e);
+            }
+        }
+        if (!cardIds.isEmpty()) {
+            log.debug("Обновлены снимки балансов {} карт", cardIds.size());
+        }
+    }
+
+    private void writeSnapshots(List<Long> cardIds, LocalDateTime coveredUntil) {
+        // Проводки читаются после блокировки снимков, относительно их зафиксированных границ
+        Map<Long, BalanceSnapshot> snapshots = snapshotRepository.findByCardIdsForUpdate(cardIds).stream()
+                .collect(Collectors.toMap(BalanceSnapshot::getCardId, Function.identity()));
+
+        List<BalanceSnapshot> updated = new ArrayList<>();
+        for (LedgerDelta delta : ledgerEntryRepository.findDeltasBefore(cardIds, coveredUntil)) {
+            BalanceSnapshot snapshot = snapshots.computeIfAbsent(delta.getCardId(), BalanceSnapshot::new);
+            snapshot.setBalance(snapshot.getBalance().add(delta.getAmount()));
+            snapshot.setCoveredUntil(coveredUntil);
+            updated.add(snapshot);
+        }
+        snapshotRepository.saveAll(updated);
+    }
+
+    private void addEntries(List<LedgerEntry> entries, Transaction transaction, LedgerEntryType type, BigDecimal amount) {
+        entries.add(new LedgerEntry(transaction.getFromCard().getId(), transaction.getId(), type, amount.negate()));
+        entries.add(new LedgerEntry(transaction.getToCard().getId(), transaction.getId(), type, amount));
+    }
+}
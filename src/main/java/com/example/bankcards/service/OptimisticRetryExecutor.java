@@ -0,0 +1,111 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.HotCardDto;
+import com.example.bankcards.entity.Card;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Повторяет операцию при конфликте оптимистической блокировки (@Version)
+ * с ограниченной экспоненциальной задержкой и случайным разбросом (full jitter).
+ *
+ * Операция должна целиком открывать и фиксировать собственную транзакцию,
+ * иначе повтор внутри уже откатываемой транзакции бессмыслен.
+ */
+@Component
+public class OptimisticRetryExecutor {
+
+    private static final int MAX_TRACKED_CARDS = 10_000;
+
+    private final MeterRegistry meterRegistry;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+
+    // Число конфликтов по картам, чтобы видеть «горячие» карты
+    private final Map<Long, LongAdder> conflictsByCard = new ConcurrentHashMap<>();
+
+    public OptimisticRetryExecutor(MeterRegistry meterRegistry,
+                                   @Value("${transfer.retry.max-attempts:5}") int maxAttempts,
+                                   @Value("${transfer.retry.initial-backoff:10ms}") Duration initialBackoff,
+                                   @Value("${transfer.retry.max-backoff:200ms}") Duration maxBackoff) {
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoffMillis = Math.max(1, initialBackoff.toMillis());
+        this.maxBackoffMillis = Math.max(this.initialBackoffMillis, maxBackoff.toMillis());
+    }
+
+    public <T> T execute(String operation, Supplier<T> action) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return action.get();
+            } catch (OptimisticLockingFailureException e) {
+                counter("transfers.optimistic.conflicts", operation).increment();
+                recordConflictingCard(e);
+
+                if (attempt >= maxAttempts) {
+                    counter("transfers.optimistic.exhausted", operation).increment();
+                    throw e;
+                }
+                counter("transfers.optimistic.retries", operation).increment();
+                backoff(attempt, e);
+            }
+        }
+    }
+
+    /**
+     * Карты с наибольшим числом конфликтов
+     */
+    public List<HotCardDto> getHotCards(int limit) {
+        return conflictsByCard.entrySet().stream()
+                .map(entry -> new HotCardDto(entry.getKey(), entry.getValue().sum()))
+                .sorted(Comparator.comparingLong(HotCardDto::getConflicts).reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    private void recordConflictingCard(OptimisticLockingFailureException e) {
+        if (e instanceof ObjectOptimisticLockingFailureException lockingFailure
+                && Card.class.getName().equals(lockingFailure.getPersistentClassName())
+                && lockingFailure.getIdentifier() instanceof Long cardId) {
+            LongAdder conflicts = conflictsByCard.get(cardId);
+            if (conflicts == null && conflictsByCard.size() < MAX_TRACKED_CARDS) {
+                conflicts = conflictsByCard.computeIfAbsent(cardId, id -> new LongAdder());
+            }
+            if (conflicts != null) {
+                conflicts.increment();
+            }
+        }
+    }
+
+    private void backoff(int attempt, OptimisticLockingFailureException cause) {
+        long ceiling = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt - 1, 20));
+        long delay = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw cause;
+        }
+    }
+
+    private Counter counter(String name, String operation) {
+        return Counter.builder(name)
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.bankcards.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Иерархическое колесо таймеров: планирование и отмена за O(1), продвижение времени
+ * за O(1) на тик плюс число истекших ключей.
+ *
+ * Четыре уровня по 64 ячейки: уровень L покрывает 64^(L+1) тиков. Когда младший уровень
+ * проходит полный оборот, ячейка следующего уровня переносится вниз. Сроки дальше
+ * последнего уровня хранятся в отдельном множестве и пересматриваются раз в его оборот.
+ *
+ * Ключ может быть запланирован только один раз: повторное планирование заменяет срок.
+ */
+public class TimingWheel<K> {
+
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 4;
+
+    private final long tickMillis;
+    private final List<List<Set<K>>> wheels = new ArrayList<>(LEVELS);
+    private final Set<K> overflow = new HashSet<>();
+    private final Map<K, Long> deadlines = new HashMap<>();
+    private final Map<K, Set<K>> buckets = new HashMap<>();
+    private long currentTick;
+
+    public TimingWheel(long tickMillis, long nowMillis) {
+        this.tickMillis = Math.max(1, tickMillis);
+        this.currentTick = nowMillis / this.tickMillis;
+        for (int level = 0; level < LEVELS; level++) {
+            List<Set<K>> wheel = new ArrayList<>(WHEEL_SIZE);
+            for (int i = 0; i < WHEEL_SIZE; i++) {
+                wheel.add(new HashSet<>());
+            }
+            wheels.add(wheel);
+        }
+    }
+
+    /**
+     * Планирует истечение ключа. Срок в прошлом истекает на ближайшем тике.
+     */
+    public synchronized void schedule(K key, long deadlineMillis) {
+        cancel(key);
+        long deadlineTick = Math.max(currentTick + 1, Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis));
+        deadlines.put(key, deadlineTick);
+        place(key, deadlineTick);
+    }
+
+    public synchronized boolean cancel(K key) {
+        if (deadlines.remove(key) == null) {
+            return false;
+        }
+        buckets.remove(key).remove(key);
+        return true;
+    }
+
+    /**
+     * Продвигает колесо до текущего момента и возвращает истекшие ключи
+     */
+    public synchronized List<K> advance(long nowMillis) {
+        long targetTick = nowMillis / tickMillis;
+        List<K> expired = new ArrayList<>();
+        while (currentTick < targetTick) {
+            currentTick++;
+            cascade();
+            Set<K> bucket = wheels.get(0).get((int) (currentTick & MASK));
+            for (K key : bucket) {
+                deadlines.remove(key);
+                buckets.remove(key);
+                expired.add(key);
+            }
+            bucket.clear();
+        }
+        return expired;
+    }
+
+    public synchronized int size() {
+        return deadlines.size();
+    }
+
+    /**
+     * Переносит вниз ячейки старших уровней, оборот которых начинается на текущем тике
+     */
+    private void cascade() {
+        int level = 1;
+        while (level <= LEVELS && (currentTick & ((1L << (WHEEL_BITS * level)) - 1)) == 0) {
+            level++;
+        }
+        if (level > LEVELS) {
+            reschedule(overflow);
+        }
+        for (int l = Math.min(level, LEVELS) - 1; l >= 1; l--) {
+            reschedule(wheels.get(l).get((int) ((currentTick >>> (WHEEL_BITS * l)) & MASK)));
+        }
+    }
+
+    private void reschedule(Set<K> bucket) {
+        if (bucket.isEmpty()) {
+            return;
+        }
+        List<K> keys = new ArrayList<>(bucket);
+        bucket.clear();
+        for (K key : keys) {
+            place(key, deadlines.get(key));
+        }
+    }
+
+    private void place(K key, long deadlineTick) {
+        long delta = deadlineTick - currentTick;
+        Set<K> bucket = overflow;
+        if (delta <= 0) {
+            // Срок наступает на текущем тике: ячейка еще не обработана
+            bucket = wheels.get(0).get((int) (currentTick & MASK));
+        } else {
+            for (int level = 0; level < LEVELS; level++) {
+                if (delta < 1L << (WHEEL_BITS * (level + 1))) {
+                    bucket = wheels.get(level).get((int) ((deadlineTick >>> (WHEEL_BITS * level)) & MASK));
+                    break;
+                }
+            }
+        }
+        bucket.add(key);
+        buckets.put(key, bucket);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransactionDto;
+
+import java.math.BigDecimal;
+
+/**
+ * Изменение статуса перевода и, если перевод изменил балансы, новые балансы его карт.
+ * Публикуется {@link TransactionService} и доставляется клиентам {@link TransactionEventHub}
+ * после фиксации транзакции.
+ */
+public final class TransactionEvent {
+
+    private final TransactionDto transaction;
+    private final Long fromUserId;
+    private final Long toUserId;
+    private final BigDecimal fromBalance;
+    private final BigDecimal toBalance;
+
+    public TransactionEvent(TransactionDto transaction, Long fromUserId, Long toUserId) {
+        this(transaction, fromUserId, toUserId, null, null);
+    }
+
+    public TransactionEvent(TransactionDto transaction, Long fromUserId, Long toUserId,
+                            BigDecimal fromBalance, BigDecimal toBalance) {
+        this.transaction = transaction;
+        this.fromUserId = fromUserId;
+        this.toUserId = toUserId;
+        this.fromBalance = fromBalance;
+        this.toBalance = toBalance;
+    }
+
+    public TransactionDto getTransaction() {
+        return transaction;
+    }
+
+    public Long getFromUserId() {
+        return fromUserId;
+    }
+
+    public Long getToUserId() {
+        return toUserId;
+    }
+
+    /**
+     * Баланс карты отправителя после перевода или null, если баланс не изменился
+     */
+    public BigDecimal getFromBalance() {
+        return fromBalance;
+    }
+
+    /**
+     * Баланс карты получателя после перевода или null, если баланс не изменился
+     */
+    public BigDecimal getToBalance() {
+        return toBalance;
+    }
+}
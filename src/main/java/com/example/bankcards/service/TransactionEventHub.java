@@ -0,0 +1,186 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardBalanceDto;
+import com.example.bankcards.dto.CardStatusChangeDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Рассылка изменений переводов и балансов по Server-Sent Events.
+ *
+ * Клиент держит одно соединение GET /api/transactions/stream вместо периодического опроса.
+ * События приходят от {@link TransactionService} после фиксации транзакции и отправляются
+ * всем соединениям владельцев карт перевода. Массовая смена статуса карт
+ * ({@link CardStatusEvent}) доставляется владельцам событием "status". Отправка идет в отдельном потоке, чтобы
+ * медленный клиент не задерживал перевод, который еще держит блокировки карт.
+ *
+ * События не сохраняются: после переподключения клиент должен перечитать состояние
+ * обычными запросами.
+ */
+@Component
+public class TransactionEventHub {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionEventHub.class);
+
+    private final Map<Long, List<SseEmitter>> emittersByUser = new ConcurrentHashMap<>();
+    private final ExecutorService sender;
+    private final long timeoutMillis;
+    private final int maxConnectionsPerUser;
+    private final Counter dropped;
+
+    public TransactionEventHub(MeterRegistry meterRegistry,
+                               @Value("${transfer.stream.timeout:30m}") Duration timeout,
+                               @Value("${transfer.stream.max-connections-per-user:5}") int maxConnectionsPerUser,
+                               @Value("${transfer.stream.queue-capacity:10000}") int queueCapacity) {
+        this.timeoutMillis = timeout.toMillis();
+        this.maxConnectionsPerUser = Math.max(1, maxConnectionsPerUser);
+        // Один поток сохраняет порядок событий; при переполнении очереди события отбрасываются
+        this.sender = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), runnable -> {
+                    Thread thread = new Thread(runnable, "transaction-events");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        this.dropped = Counter.builder("transactions.stream.dropped").register(meterRegistry);
+        Gauge.builder("transactions.stream.connections", this, TransactionEventHub::connectionCount)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Открывает поток событий для пользователя. Самое старое соединение закрывается,
+     * если у пользователя их уже слишком много.
+     */
+    public SseEmitter subscribe(Long userId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        List<SseEmitter> evicted = new ArrayList<>();
+        emittersByUser.compute(userId, (id, emitters) -> {
+            List<SseEmitter> updated = emitters != null ? emitters : new CopyOnWriteArrayList<>();
+            updated.add(emitter);
+            while (updated.size() > maxConnectionsPerUser) {
+                evicted.add(updated.remove(0));
+            }
+            return updated;
+        });
+        evicted.forEach(SseEmitter::complete);
+
+        emitter.onCompletion(() -> remove(userId, emitter));
+        emitter.onTimeout(() -> remove(userId, emitter));
+        emitter.onError(error -> remove(userId, emitter));
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransactionEvent(TransactionEvent event) {
+        if (!emittersByUser.containsKey(event.getFromUserId()) && !emittersByUser.containsKey(event.getToUserId())) {
+            return;
+        }
+        dispatch(() -> deliver(event));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCardStatusEvent(CardStatusEvent event) {
+        event.getCardIdsByUser().forEach((userId, cardIds) -> {
+            if (emittersByUser.containsKey(userId)) {
+                CardStatusChangeDto change = new CardStatusChangeDto(cardIds, event.getStatus());
+                dispatch(() -> sendToUser(userId, "status", change));
+            }
+        });
+    }
+
+    /**
+     * Комментарий-пинг не дает прокси закрыть простаивающее соединение
+     * и выявляет отключившихся клиентов
+     */
+    @Scheduled(fixedDelayString = "${transfer.stream.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        if (!emittersByUser.isEmpty()) {
+            dispatch(() -> emittersByUser.forEach((userId, emitters) ->
+                    emitters.forEach(emitter -> send(userId, emitter, SseEmitter.event().comment("ping")))));
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        sender.shutdownNow();
+        emittersByUser.values().forEach(emitters -> emitters.forEach(SseEmitter::complete));
+        emittersByUser.clear();
+    }
+
+    int connectionCount() {
+        return emittersByUser.values().stream().mapToInt(List::size).sum();
+    }
+
+    private void deliver(TransactionEvent event) {
+        Long fromUserId = event.getFromUserId();
+        Long toUserId = event.getToUserId();
+        sendToUser(fromUserId, "transaction", event.getTransaction());
+        if (!Objects.equals(fromUserId, toUserId)) {
+            sendToUser(toUserId, "transaction", event.getTransaction());
+        }
+        if (event.getFromBalance() != null) {
+            sendToUser(fromUserId, "balance",
+                    new CardBalanceDto(event.getTransaction().getFromCardId(), event.getFromBalance()));
+        }
+        if (event.getToBalance() != null) {
+            sendToUser(toUserId, "balance",
+                    new CardBalanceDto(event.getTransaction().getToCardId(), event.getToBalance()));
+        }
+    }
+
+    private void sendToUser(Long userId, String name, Object data) {
+        List<SseEmitter> emitters = emittersByUser.get(userId);
+        if (emitters != null) {
+            emitters.forEach(emitter -> send(userId, emitter, SseEmitter.event().name(name).data(data)));
+        }
+    }
+
+    private void send(Long userId, SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+        } catch (IOException | IllegalStateException e) {
+            // Клиент отключился: соединение больше не используется
+            remove(userId, emitter);
+            emitter.completeWithError(e);
+        }
+    }
+
+    private void dispatch(Runnable task) {
+        try {
+            sender.execute(task);
+        } catch (RejectedExecutionException e) {
+            dropped.increment();
+            log.warn("Очередь событий переводов переполнена, событие отброшено");
+        }
+    }
+
+    private void remove(Long userId, SseEmitter emitter) {
+        emittersByUser.computeIfPresent(userId, (id, emitters) -> {
+            emitters.remove(emitter);
+            return emitters.isEmpty() ? null : emitters;
+        });
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.BatchTransferResultDto;
+import com.example.bankcards.dto.CursorPageDto;
 import com.example.bankcards.dto.TransactionDto;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.Transaction;
@@ -8,57 +10,471 @@ import com.example.bankcards.exception.CardNotFoundException;
 import com.example.bankcards.exception.InsufficientBalanceException;
 import com.example.bankcards.exception.UnauthorizedException;
 import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.util.PageCursor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class TransactionService {
     
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 64;
+    
     private final TransactionRepository transactionRepository;
     private final CardService cardService;
+    private final TransferEngine transferEngine;
+    private final IdempotencyCache idempotencyCache;
+    private final OptimisticRetryExecutor retryExecutor;
+    private final TransferJournal transferJournal;
+    private final TransferJournalApplier journalApplier;
+    private final LedgerService ledgerService;
+    private final CardBalanceShardService shardService;
+    private final CardHoldRegistry holdRegistry;
+    private final TransferVelocityMonitor velocityMonitor;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransferLockingMode lockingMode;
     
-    public TransactionService(TransactionRepository transactionRepository, CardService cardService) {
+    public TransactionService(TransactionRepository transactionRepository, CardService cardService,
+                              TransferEngine transferEngine, IdempotencyCache idempotencyCache,
+                              OptimisticRetryExecutor retryExecutor, TransferJournal transferJournal,
+                              TransferJournalApplier journalApplier, LedgerService ledgerService,
+                              CardBalanceShardService shardService, CardHoldRegistry holdRegistry,
+                              TransferVelocityMonitor velocityMonitor, ApplicationEventPublisher eventPublisher,
+                              @Value("${transfer.locking-mode:STRIPED}") TransferLockingMode lockingMode) {
         this.transactionRepository = transactionRepository;
         this.cardService = cardService;
+        this.transferEngine = transferEngine;
+        this.idempotencyCache = idempotencyCache;
+        this.retryExecutor = retryExecutor;
+        this.transferJournal = transferJournal;
+        this.journalApplier = journalApplier;
+        this.ledgerService = ledgerService;
+        this.shardService = shardService;
+        this.holdRegistry = holdRegistry;
+        this.velocityMonitor = velocityMonitor;
+        this.eventPublisher = eventPublisher;
+        this.lockingMode = Objects.requireNonNullElse(lockingMode, TransferLockingMode.STRIPED);
     }
     
-    @Transactional
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public TransactionDto createTransaction(TransactionDto transactionDto, Long userId) {
+        return createTransaction(transactionDto, userId, null);
+    }
+    
+    /**
+     * Транзакцию БД открывает {@link TransferEngine} после захвата блокировок карт,
+     * поэтому сам метод выполняется вне транзакции. При конфликте версий карты
+     * перевод повторяется целиком в новой транзакции. Способ блокировки задает
+     * transfer.locking-mode, см. {@link TransferLockingMode}.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public TransactionDto createTransaction(TransactionDto transactionDto, Long userId, String idempotencyKey) {
+        String key = normalizeIdempotencyKey(idempotencyKey);
+        
+        // Повтор запроса обслуживается из кэша без обращения к БД
+        if (key != null) {
+            Optional<TransactionDto> cached = idempotencyCache.get(userId, transactionDto.getFromCardId(), key);
+            if (cached.isPresent()) {
+                return checkSameTransfer(cached.get(), transactionDto);
+            }
+        }
+        
+        if (transferJournal.isEnabled()) {
+            return journalTransfer(transactionDto, userId, key);
+        }
+        
+        TransactionDto result;
+        try {
+            result = retryExecutor.execute("createTransaction", () ->
+                    executeLocked(List.of(transactionDto.getFromCardId(), transactionDto.getToCardId()),
+                            () -> transfer(transactionDto, userId, key)));
+        } catch (DataIntegrityViolationException e) {
+            // Параллельный первый запрос с тем же ключом успел сохранить перевод: отдаем его результат
+            if (key == null) {
+                throw e;
+            }
+            result = transferEngine.executeUnlocked(() -> findStoredTransfer(transactionDto, userId, key))
+                    .orElseThrow(() -> e);
+        }
+        
+        if (key != null) {
+            idempotencyCache.put(userId, transactionDto.getFromCardId(), key, result);
+        }
+        return result;
+    }
+    
+    private TransactionDto transfer(TransactionDto transactionDto, Long userId, String idempotencyKey) {
+        Optional<TransactionDto> existing = findStoredTransfer(transactionDto, userId, idempotencyKey);
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+        
+        // В режиме PESSIMISTIC карты уже загружены запросом FOR UPDATE и берутся из контекста персистентности
+        Card fromCard = cardService.getCardEntityById(transactionDto.getFromCardId());
+        Card toCard = cardService.getCardEntityById(transactionDto.getToCardId());
+        
+        validateTransfer(fromCard, toCard, transactionDto.getAmount(), userId);
+        velocityMonitor.checkAndRecord(fromCard.getId(), transactionDto.getAmount());
+        
+        // Создаем транзакцию
+        Transaction transaction = new Transaction(fromCard, toCard, transactionDto.getAmount());
+        transaction.setStatus(TransactionStatus.PENDING);
+        transaction.setIdempotencyKey(idempotencyKey);
+        
+        Transaction savedTransaction = transactionRepository.save(transaction);
+        
+        // Выполняем перевод
+        return executeTransaction(savedTransaction);
+    }
+    
+    /**
+     * Перевод через журнал: под блокировками карт баланс проверяется с учетом еще не
+     * примененных списаний, перевод добавляется в журнал, и ответ возвращается после
+     * сброса журнала на диск. Балансы карт и строку транзакции пакетно обновляет
+     * {@link TransferJournalApplier}, поэтому возвращается перевод в статусе PENDING без ID.
+     */
+    private TransactionDto journalTransfer(TransactionDto transactionDto, Long userId, String idempotencyKey) {
+        long[] sequence = {0L};
+        TransactionDto result = transferEngine.execute(lockedCardIds(transactionDto.getFromCardId(), transactionDto.getToCardId()), () -> {
+            // Под блокировками карт повтор с тем же ключом не попадет в журнал дважды
+            if (idempotencyKey != null) {
+                Optional<TransactionDto> cached = idempotencyCache.get(userId, transactionDto.getFromCardId(), idempotencyKey);
+                if (cached.isPresent()) {
+                    return checkSameTransfer(cached.get(), transactionDto);
+                }
+            }
+            Optional<TransactionDto> existing = findStoredTransfer(transactionDto, userId, idempotencyKey);
+            if (existing.isPresent()) {
+                return existing.get();
+            }
+            
+            Card fromCard = cardService.getCardEntityById(transactionDto.getFromCardId());
+            Card toCard = cardService.getCardEntityById(transactionDto.getToCardId());
+            BigDecimal amount = transactionDto.getAmount();
+            validateTransfer(fromCard, toCard, amount.add(journalApplier.reservedAmount(fromCard.getId())), userId);
+            velocityMonitor.checkAndRecord(fromCard.getId(), amount);
+            
+            JournalRecord record = new JournalRecord(fromCard.getId(), toCard.getId(), userId, amount,
+                    idempotencyKey, LocalDateTime.now());
+            sequence[0] = transferJournal.append(record);
+            journalApplier.reserve(fromCard.getId(), amount);
+            
+            TransactionDto pending = new TransactionDto(null, fromCard.getId(), toCard.getId(), amount,
+                    TransactionStatus.PENDING, record.getCreatedAt(), null);
+            if (idempotencyKey != null) {
+                idempotencyCache.put(userId, fromCard.getId(), idempotencyKey, pending);
+            }
+            eventPublisher.publishEvent(new TransactionEvent(pending, fromCard.getUser().getId(), toCard.getUser().getId()));
+            return pending;
+        });
+        
+        // Ожидание fsync вне блокировок карт: один сброс подтверждает все накопившиеся записи
+        if (sequence[0] > 0) {
+            transferJournal.awaitDurable(sequence[0]);
+        }
+        return result;
+    }
+    
+    /**
+     * Кэш мог быть вытеснен: проверяем ключ карты отправителя в БД под теми же блокировками карт.
+     * Ключ действует в пределах карты, как уникальный индекс; перевод с чужой карты не виден
+     */
+    private Optional<TransactionDto> findStoredTransfer(TransactionDto transactionDto, Long userId, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return Optional.empty();
+        }
+        Optional<Transaction> existing = transactionRepository
+                .findByFromCardIdAndFromCardUserIdAndIdempotencyKey(transactionDto.getFromCardId(), userId, idempotencyKey);
+        if (existing.isEmpty()) {
+            return Optional.empty();
+        }
+        idempotencyCache.recordDatabaseHit();
+        return Optional.of(checkSameTransfer(convertToDto(existing.get()), transactionDto));
+    }
+    
+    /**
+     * Сохраняет перевод в статусе PENDING для асинхронной обработки.
+     * Баланс проверяется позже, при выполнении перевода.
+     */
+    @Transactional
+    public TransactionDto createPendingTransaction(TransactionDto transactionDto, Long userId) {
         Card fromCard = cardService.getCardEntityById(transactionDto.getFromCardId());
         Card toCard = cardService.getCardEntityById(transactionDto.getToCardId());
         
+        checkOwnership(fromCard, toCard, userId);
+        
+        Transaction transaction = new Transaction(fromCard, toCard, transactionDto.getAmount());
+        transaction.setStatus(TransactionStatus.PENDING);
+        return publishEvent(transactionRepository.save(transaction), null, null);
+    }
+    
+    /**
+     * Выполняет ранее сохраненный перевод в статусе PENDING и переводит его в COMPLETED или FAILED
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public TransactionDto processPendingTransaction(Long transactionId) {
+        Transaction pending = transactionRepository.findById(transactionId)
+                .orElseThrow(() -> new RuntimeException("Транзакция не найдена"));
+        Long fromCardId = pending.getFromCard().getId();
+        Long toCardId = pending.getToCard().getId();
+        
+        return retryExecutor.execute("processPendingTransaction", () ->
+                executeLocked(List.of(fromCardId, toCardId), () -> processPending(transactionId)));
+    }
+    
+    private TransactionDto processPending(Long transactionId) {
+        Transaction transaction = transactionRepository.findById(transactionId)
+                .orElseThrow(() -> new RuntimeException("Транзакция не найдена"));
+        
+        // Перевод мог быть отменен, пока ждал в очереди
+        if (transaction.getStatus() != TransactionStatus.PENDING) {
+            return convertToDto(transaction);
+        }
+        
+        Card fromCard = transaction.getFromCard();
+        Card toCard = transaction.getToCard();
+        try {
+            validateTransfer(fromCard, toCard, transaction.getAmount(), fromCard.getUser().getId());
+            velocityMonitor.checkAndRecord(fromCard.getId(), transaction.getAmount());
+        } catch (RuntimeException e) {
+            transaction.setStatus(TransactionStatus.FAILED);
+            transaction.setProcessedAt(LocalDateTime.now());
+            return publishEvent(transactionRepository.save(transaction), null, null);
+        }
+        
+        return executeTransaction(transaction);
+    }
+    
+    /**
+     * Помечает перевод FAILED, если его обработка завершилась ошибкой
+     */
+    @Transactional
+    public void failPendingTransaction(Long transactionId) {
+        transactionRepository.findById(transactionId)
+                .filter(transaction -> transaction.getStatus() == TransactionStatus.PENDING)
+                .ifPresent(transaction -> {
+                    transaction.setStatus(TransactionStatus.FAILED);
+                    transaction.setProcessedAt(LocalDateTime.now());
+                    publishEvent(transactionRepository.save(transaction), null, null);
+                });
+    }
+    
+    @Transactional(readOnly = true)
+    public List<Long> getPendingTransactionIds() {
+        return transactionRepository.findByStatus(TransactionStatus.PENDING).stream()
+                .map(Transaction::getId)
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Выполняет пакет переводов: все карты загружаются одним запросом IN,
+     * а все изменения уходят в БД одним flush пакетными JDBC-операциями.
+     * Отклоненные переводы не прерывают пакет и возвращаются с текстом ошибки.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<BatchTransferResultDto> createTransactions(List<TransactionDto> transfers, Long userId) {
+        Set<Long> cardIds = new LinkedHashSet<>();
+        for (TransactionDto transfer : transfers) {
+            cardIds.add(transfer.getFromCardId());
+            cardIds.add(transfer.getToCardId());
+        }
+        return retryExecutor.execute("createTransactions", () ->
+                executeLocked(cardIds, () -> transferBatch(transfers, cardIds, userId)));
+    }
+    
+    private List<BatchTransferResultDto> transferBatch(List<TransactionDto> transfers, Set<Long> cardIds, Long userId) {
+        Map<Long, Card> cards = cardService.getCardEntitiesByIds(cardIds);
+        BatchTransferResultDto[] results = new BatchTransferResultDto[transfers.size()];
+        Map<Long, BigDecimal> balances = new HashMap<>();
+        List<Transaction> completed = new ArrayList<>();
+        List<Integer> completedIndexes = new ArrayList<>();
+        // Балансы карт отправителя и получателя после каждого выполненного перевода
+        List<BigDecimal> completedBalances = new ArrayList<>();
+        
+        for (int i = 0; i < transfers.size(); i++) {
+            TransactionDto transfer = transfers.get(i);
+            Card fromCard = cards.get(transfer.getFromCardId());
+            Card toCard = cards.get(transfer.getToCardId());
+            BigDecimal amount = transfer.getAmount();
+            
+            try {
+                if (fromCard == null) {
+                    throw new CardNotFoundException(transfer.getFromCardId());
+                }
+                if (toCard == null) {
+                    throw new CardNotFoundException(transfer.getToCardId());
+                }
+                validateCards(fromCard, toCard, userId);
+                // Балансы уже учитывают предыдущие переводы пакета
+                balances.computeIfAbsent(toCard.getId(), id -> ledgerService.getBalance(toCard));
+                checkBalance(balances.computeIfAbsent(fromCard.getId(), id -> {
+                    guardDebit(fromCard);
+                    return ledgerService.getBalance(fromCard);
+                }).subtract(holdRegistry.heldAmount(fromCard.getId())), amount);
+                velocityMonitor.checkAndRecordBatchItem(fromCard.getId(), amount);
+            } catch (RuntimeException e) {
+                results[i] = BatchTransferResultDto.rejected(i, e.getMessage());
+                continue;
+            }
+            
+            // Горячая карта не заблокирована: ее баланс проверяет атомарное списание из шардов
+            if (!ledgerService.debit(fromCard, amount)) {
+                velocityMonitor.release(fromCard.getId(), amount);
+                results[i] = BatchTransferResultDto.rejected(i, new InsufficientBalanceException().getMessage());
+                continue;
+            }
+            ledgerService.credit(toCard, amount);
+            completedBalances.add(balances.merge(fromCard.getId(), amount.negate(), BigDecimal::add));
+            completedBalances.add(balances.merge(toCard.getId(), amount, BigDecimal::add));
+            
+            Transaction transaction = new Transaction(fromCard, toCard, amount);
+            transaction.setStatus(TransactionStatus.COMPLETED);
+            transaction.setProcessedAt(LocalDateTime.now());
+            completed.add(transaction);
+            completedIndexes.add(i);
+        }
+        
+        // Карты управляются контекстом персистентности: их обновления и вставки транзакций уходят одним flush
+        List<Transaction> saved = transactionRepository.saveAll(completed);
+        ledgerService.recordTransfers(saved);
+        transactionRepository.flush();
+        
+        for (int n = 0; n < saved.size(); n++) {
+            int index = completedIndexes.get(n);
+            results[index] = BatchTransferResultDto.completed(index,
+                    publishEvent(saved.get(n), completedBalances.get(2 * n), completedBalances.get(2 * n + 1)));
+        }
+        return List.of(results);
+    }
+    
+    /**
+     * Выполняет операцию в транзакции под блокировками карт согласно transfer.locking-mode.
+     * Журнал переводов всегда использует блокировки {@link TransferEngine}: резерв
+     * непримененных списаний хранится в памяти приложения.
+     */
+    <T> T executeLocked(Collection<Long> cardIds, Supplier<T> work) {
+        List<Long> lockable = shardService.lockableCardIds(cardIds);
+        return switch (lockingMode) {
+            case STRIPED -> transferEngine.execute(lockable, work);
+            case PESSIMISTIC -> transferEngine.executeUnlocked(() -> {
+                if (!lockable.isEmpty()) {
+                    cardService.lockCardEntities(lockable);
+                }
+                return work.get();
+            });
+            case OPTIMISTIC -> transferEngine.executeUnlocked(work);
+        };
+    }
+    
+    /**
+     * Горячие карты не блокируются: их баланс меняют атомарные UPDATE шардов
+     */
+    private List<Long> lockedCardIds(Long fromCardId, Long toCardId) {
+        return shardService.lockableCardIds(List.of(fromCardId, toCardId));
+    }
+    
+    private String normalizeIdempotencyKey(String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return null;
+        }
+        String key = idempotencyKey.trim();
+        if (key.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            throw new IllegalArgumentException("Ключ идемпотентности длиннее " + MAX_IDEMPOTENCY_KEY_LENGTH + " символов");
+        }
+        return key;
+    }
+    
+    /**
+     * Повтор с тем же ключом должен описывать тот же перевод
+     */
+    private TransactionDto checkSameTransfer(TransactionDto original, TransactionDto request) {
+        if (!original.getFromCardId().equals(request.getFromCardId()) ||
+            !original.getToCardId().equals(request.getToCardId()) ||
+            original.getAmount().compareTo(request.getAmount()) != 0) {
+            throw new IllegalArgumentException("Ключ идемпотентности уже использован для другого перевода");
+        }
+        return original;
+    }
+    
+    private void checkOwnership(Card fromCard, Card toCard, Long userId) {
         // Проверяем, что обе карты принадлежат пользователю
         if (!fromCard.getUser().getId().equals(userId) || !toCard.getUser().getId().equals(userId)) {
             throw new UnauthorizedException("Нет доступа к одной из карт");
         }
+    }
+    
+    private void validateTransfer(Card fromCard, Card toCard, BigDecimal amount, Long userId) {
+        validateCards(fromCard, toCard, userId);
+        checkBalance(availableBalance(fromCard), amount);
+    }
+    
+    /**
+     * В режиме OPTIMISTIC карта отправителя не блокируется, а при производных балансах
+     * и холдах списание не меняет строку карты, и @Version не заметит параллельное списание
+     * по тому же балансу. Поэтому версия карты отправителя увеличивается принудительно.
+     * Горячие карты списываются атомарным UPDATE шардов и в этом не нуждаются; при производных
+     * балансах шарды не используются, и {@link CardBalanceShardService} не считает карты горячими.
+     */
+    void guardDebit(Card fromCard) {
+        if (lockingMode == TransferLockingMode.OPTIMISTIC && !shardService.isHot(fromCard.getId())) {
+            cardService.forceVersionIncrement(fromCard);
+        }
+    }
+    
+    /**
+     * Баланс карты за вычетом активных холдов
+     */
+    BigDecimal availableBalance(Card card) {
+        return ledgerService.getBalance(card).subtract(holdRegistry.heldAmount(card.getId()));
+    }
+    
+    void validateCards(Card fromCard, Card toCard, Long userId) {
+        checkOwnership(fromCard, toCard, userId);
         
         // Проверяем, что карты активны
         if (fromCard.getStatus() != com.example.bankcards.entity.CardStatus.ACTIVE || 
             toCard.getStatus() != com.example.bankcards.entity.CardStatus.ACTIVE) {
             throw new RuntimeException("Одна из карт не активна");
         }
-        
-        // Проверяем баланс
-        if (fromCard.getBalance().compareTo(transactionDto.getAmount()) < 0) {
+    }
+    
+    private void checkBalance(BigDecimal balance, BigDecimal amount) {
+        if (balance.compareTo(amount) < 0) {
             throw new InsufficientBalanceException();
         }
-        
-        // Создаем транзакцию
-        Transaction transaction = new Transaction(fromCard, toCard, transactionDto.getAmount());
+    }
+    
+    /**
+     * Выполняет перевод без проверки доступного баланса: сумма уже зарезервирована холдом.
+     * Вызывается под блокировками карт.
+     */
+    TransactionDto executeReservedTransfer(Card fromCard, Card toCard, BigDecimal amount) {
+        velocityMonitor.checkAndRecord(fromCard.getId(), amount);
+        Transaction transaction = new Transaction(fromCard, toCard, amount);
         transaction.setStatus(TransactionStatus.PENDING);
-        
-        Transaction savedTransaction = transactionRepository.save(transaction);
-        
-        // Выполняем перевод
-        return executeTransaction(savedTransaction);
+        return executeTransaction(transactionRepository.save(transaction));
     }
     
     @Transactional
@@ -67,22 +483,36 @@ public class TransactionService {
             Card fromCard = transaction.getFromCard();
             Card toCard = transaction.getToCard();
             BigDecimal amount = transaction.getAmount();
+            guardDebit(fromCard);
             
-            // Списываем с карты отправителя
-            fromCard.setBalance(fromCard.getBalance().subtract(amount));
-            cardService.saveCard(fromCard);
-            
-            // Зачисляем на карту получателя
-            toCard.setBalance(toCard.getBalance().add(amount));
-            cardService.saveCard(toCard);
+            // В режиме производных балансов строки карт не изменяются, баланс дают проводки
+            if (!ledgerService.isDerivedBalances()) {
+                // Списываем с карты отправителя
+                if (!ledgerService.debit(fromCard, amount)) {
+                    throw new InsufficientBalanceException();
+                }
+                cardService.saveCard(fromCard);
+                
+                // Зачисляем на карту получателя
+                ledgerService.credit(toCard, amount);
+                cardService.saveCard(toCard);
+            }
+            ledgerService.recordTransfer(transaction);
             
             // Обновляем статус транзакции
             transaction.setStatus(TransactionStatus.COMPLETED);
             transaction.setProcessedAt(LocalDateTime.now());
             
             Transaction completedTransaction = transactionRepository.save(transaction);
-            return convertToDto(completedTransaction);
+            return publishEvent(completedTransaction, ledgerService.getBalance(fromCard), ledgerService.getBalance(toCard));
             
+        } catch (OptimisticLockingFailureException e) {
+            // Конфликт версий обрабатывается повтором всего перевода
+            throw e;
+        } catch (InsufficientBalanceException e) {
+            // Нехватка средств на горячей карте выясняется только при списании из шардов;
+            // клиент получает тот же ответ, что и для обычной карты
+            throw e;
         } catch (Exception e) {
             transaction.setStatus(TransactionStatus.FAILED);
             transactionRepository.save(transaction);
@@ -110,6 +540,22 @@ public class TransactionService {
         return transactions.map(this::convertToDto);
     }
     
+    /**
+     * Страница переводов пользователя после курсора after, от новых к старым, без подсчета
+     * общего числа. Один поиск size + 1 строк по проекции user_transactions, где у перевода
+     * есть строка для каждого участника, вместо OR по отправителю и получателю.
+     */
+    @Transactional(readOnly = true)
+    public CursorPageDto<TransactionDto> getUserTransactionsAfter(Long userId, String after, int size,
+                                                                  TransactionStatus status) {
+        PageCursor cursor = PageCursor.decode(after);
+        int pageSize = Math.max(1, Math.min(size, CardService.MAX_CURSOR_PAGE_SIZE));
+        List<Transaction> transactions = transactionRepository.findByUserIdBefore(userId, status,
+                cursor.getCreatedAt(), cursor.getId(), PageRequest.of(0, pageSize + 1));
+        return CursorPageDto.of(transactions, pageSize, this::convertToDto,
+                transaction -> new PageCursor(transaction.getCreatedAt(), transaction.getId()));
+    }
+    
     @Transactional(readOnly = true)
     public List<TransactionDto> getAllTransactions() {
         return transactionRepository.findAll().stream()
@@ -132,27 +578,47 @@ public class TransactionService {
             throw new RuntimeException("Нельзя отменить завершенную транзакцию");
         }
         
+        boolean refunded = false;
         if (transaction.getStatus() == TransactionStatus.PENDING) {
             // Возвращаем деньги, если транзакция была выполнена
             if (transaction.getProcessedAt() != null) {
+                refunded = true;
                 Card fromCard = transaction.getFromCard();
                 Card toCard = transaction.getToCard();
                 BigDecimal amount = transaction.getAmount();
                 
-                fromCard.setBalance(fromCard.getBalance().add(amount));
-                cardService.saveCard(fromCard);
-                
-                toCard.setBalance(toCard.getBalance().subtract(amount));
-                cardService.saveCard(toCard);
+                if (!ledgerService.isDerivedBalances()) {
+                    ledgerService.credit(fromCard, amount);
+                    cardService.saveCard(fromCard);
+                    
+                    ledgerService.debit(toCard, amount);
+                    cardService.saveCard(toCard);
+                }
+                ledgerService.recordReversal(transaction);
             }
         }
         
         transaction.setStatus(TransactionStatus.CANCELLED);
         Transaction cancelledTransaction = transactionRepository.save(transaction);
-        return convertToDto(cancelledTransaction);
+        if (refunded) {
+            return publishEvent(cancelledTransaction, ledgerService.getBalance(transaction.getFromCard()),
+                    ledgerService.getBalance(transaction.getToCard()));
+        }
+        return publishEvent(cancelledTransaction, null, null);
+    }
+    
+    /**
+     * Публикует изменение перевода для {@link TransactionEventHub}. Событие доставляется
+     * только после фиксации транзакции БД.
+     */
+    private TransactionDto publishEvent(Transaction transaction, BigDecimal fromBalance, BigDecimal toBalance) {
+        TransactionDto dto = convertToDto(transaction);
+        eventPublisher.publishEvent(new TransactionEvent(dto, transaction.getFromCard().getUser().getId(),
+                transaction.getToCard().getUser().getId(), fromBalance, toBalance));
+        return dto;
     }
     
-    private TransactionDto convertToDto(Transaction transaction) {
+    TransactionDto convertToDto(Transaction transaction) {
         return new TransactionDto(
                 transaction.getId(),
                 transaction.getFromCard().getId(),
@@ -0,0 +1,94 @@
+package com.example.bankcards.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Движок переводов: сериализует операции над одними и теми же картами
+ * с помощью полосатых (striped) блокировок и выполняет их в одной транзакции БД.
+ *
+ * Блокировки берутся в порядке возрастания индекса полосы, поэтому встречные
+ * переводы A→B и B→A не могут взаимно заблокироваться. Блокировки удерживаются
+ * до фиксации транзакции, так что списание, зачисление и запись транзакции
+ * становятся видимыми другим потокам только целиком.
+ *
+ * Блокировки действуют в пределах одного экземпляра приложения.
+ */
+@Component
+public class TransferEngine {
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+    private final TransactionTemplate transactionTemplate;
+
+    public TransferEngine(PlatformTransactionManager transactionManager,
+                          @Value("${transfer.lock-stripes:1024}") int stripeCount) {
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Выполняет перевод между двумя картами под их блокировками в одной транзакции
+     */
+    public <T> T execute(Long firstCardId, Long secondCardId, Supplier<T> work) {
+        return execute(List.of(firstCardId, secondCardId), work);
+    }
+
+    /**
+     * Выполняет операцию над набором карт под их блокировками в одной транзакции
+     */
+    public <T> T execute(Collection<Long> cardIds, Supplier<T> work) {
+        int[] indexes = stripeIndexes(cardIds);
+        int locked = 0;
+        try {
+            for (int index : indexes) {
+                stripes[index].lock();
+                locked++;
+            }
+            return transactionTemplate.execute(status -> work.get());
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                stripes[indexes[i]].unlock();
+            }
+        }
+    }
+
+    /**
+     * Выполняет операцию в транзакции без блокировок карт
+     */
+    public <T> T executeUnlocked(Supplier<T> work) {
+        return transactionTemplate.execute(status -> work.get());
+    }
+
+    /**
+     * Возвращает отсортированные уникальные индексы полос для карт
+     */
+    private int[] stripeIndexes(Collection<Long> cardIds) {
+        return cardIds.stream()
+                .mapToInt(this::stripeIndex)
+                .distinct()
+                .sorted()
+                .toArray();
+    }
+
+    int stripeIndex(Long cardId) {
+        long h = cardId * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    int stripeCount() {
+        return stripes.length;
+    }
+}
@@ -0,0 +1,431 @@
+package com.example.bankcards.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал переводов с упреждающей записью (write-ahead log).
+ *
+ * Записи добавляются в конец отображенных в память файлов-сегментов. Поток сброса
+ * вызывает fsync сразу для всех записей, накопившихся за время предыдущего сброса
+ * (group commit), поэтому задержка добавления не растет с числом одновременных переводов.
+ * Каждая запись защищена CRC32: оборванный при сбое хвост журнала отбрасывается при открытии.
+ *
+ * Формат записи: длина данных (int), CRC32 номера и данных (int), номер (long), данные.
+ * Нулевая длина означает конец сегмента. Читатель у журнала один — {@link TransferJournalApplier}.
+ */
+@Component
+public class TransferJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(TransferJournal.class);
+
+    private static final int HEADER_SIZE = 16;
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentSize;
+
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final Object flushMonitor = new Object();
+
+    private Segment active;
+    private volatile long appendedSequence;
+    private volatile long durableSequence;
+    private volatile boolean running;
+    private Thread flusher;
+
+    // Курсор последовательного чтения
+    private Segment readSegment;
+    private int readPosition;
+    private long readSequence = -1;
+
+    public TransferJournal(@Value("${transfer.journal.enabled:false}") boolean enabled,
+                           @Value("${transfer.journal.directory:./data/journal}") String directory,
+                           @Value("${transfer.journal.segment-size:64MB}") DataSize segmentSize) {
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.segmentSize = (int) Math.min(Integer.MAX_VALUE, segmentSize.toBytes());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Открывает журнал, восстанавливая записи после последней примененной
+     */
+    public void open(long lastAppliedSequence) throws IOException {
+        Files.createDirectories(directory);
+
+        long expected = -1;
+        boolean intact = true;
+        for (Path file : listSegmentFiles()) {
+            long firstSequence = parseFirstSequence(file);
+            if (!intact || (expected >= 0 && firstSequence != expected)) {
+                log.warn("Сегмент журнала {} отброшен: нарушена последовательность записей", file);
+                Files.delete(file);
+                intact = false;
+                continue;
+            }
+            Segment segment = mapSegment(file, firstSequence);
+            intact = recover(segment);
+            segments.add(segment);
+            expected = segment.lastSequence + 1;
+        }
+
+        if (segments.isEmpty() || expected - 1 < lastAppliedSequence) {
+            // Журнал отстает от контрольной точки (например, каталог очищен): продолжаем нумерацию после нее
+            for (Segment segment : segments) {
+                Files.deleteIfExists(segment.path);
+            }
+            segments.clear();
+            segments.add(createSegment(lastAppliedSequence + 1));
+        }
+
+        active = segments.get(segments.size() - 1);
+        appendedSequence = active.lastSequence;
+        durableSequence = appendedSequence;
+        readSequence = -1;
+
+        running = true;
+        flusher = new Thread(this::flushLoop, "transfer-journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+        log.info("Журнал переводов открыт: {}, последняя запись {}", directory, appendedSequence);
+    }
+
+    /**
+     * Добавляет запись в журнал и возвращает ее номер.
+     * Запись становится устойчивой после {@link #awaitDurable(long)}.
+     */
+    public long append(JournalRecord record) {
+        byte[] payload = record.encode();
+        int size = HEADER_SIZE + payload.length;
+        if (size + Integer.BYTES > segmentSize) {
+            throw new IllegalArgumentException("Запись журнала больше сегмента");
+        }
+
+        appendLock.lock();
+        try {
+            if (!running) {
+                throw new IllegalStateException("Журнал переводов закрыт");
+            }
+            // После записи должно остаться место под нулевую длину — признак конца сегмента
+            if (active.position + size + Integer.BYTES > active.buffer.capacity()) {
+                rotate();
+            }
+
+            long sequence = appendedSequence + 1;
+            MappedByteBuffer buffer = active.buffer;
+            int position = active.position;
+            buffer.putLong(position + 8, sequence);
+            buffer.put(position + HEADER_SIZE, payload);
+            buffer.putInt(position + 4, checksum(sequence, payload));
+            // Длина пишется последней: до этого запись не видна при чтении
+            buffer.putInt(position, payload.length);
+
+            active.position = position + size;
+            active.lastSequence = sequence;
+            appendedSequence = sequence;
+            return sequence;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Ждет, пока записи до указанного номера включительно не будут сброшены на диск
+     */
+    public void awaitDurable(long sequence) {
+        synchronized (flushMonitor) {
+            flushMonitor.notifyAll();
+            while (durableSequence < sequence) {
+                if (!running) {
+                    throw new IllegalStateException("Журнал переводов закрыт");
+                }
+                try {
+                    flushMonitor.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Прервано ожидание записи журнала переводов", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Ждет появления устойчивых записей после указанного номера, не дольше timeoutMillis
+     */
+    public void awaitRecordsAfter(long sequence, long timeoutMillis) throws InterruptedException {
+        synchronized (flushMonitor) {
+            if (durableSequence <= sequence && running) {
+                flushMonitor.wait(timeoutMillis);
+            }
+        }
+    }
+
+    /**
+     * Читает до limit устойчивых записей с номерами больше afterSequence
+     */
+    public List<JournalRecord> read(long afterSequence, int limit) {
+        long durable = durableSequence;
+        List<JournalRecord> records = new ArrayList<>();
+        if (afterSequence >= durable) {
+            return records;
+        }
+        if (readSequence != afterSequence) {
+            seek(afterSequence);
+        }
+        while (records.size() < limit && readSequence < durable) {
+            if (!nextRecordInSegment()) {
+                continue;
+            }
+            MappedByteBuffer buffer = readSegment.buffer;
+            int length = buffer.getInt(readPosition);
+            long sequence = buffer.getLong(readPosition + 8);
+            byte[] payload = new byte[length];
+            buffer.get(readPosition + HEADER_SIZE, payload);
+
+            records.add(JournalRecord.decode(sequence, payload));
+            readPosition += HEADER_SIZE + length;
+            readSequence = sequence;
+        }
+        return records;
+    }
+
+    /**
+     * Удаляет сегменты, все записи которых уже применены к таблицам
+     */
+    public void release(long appliedSequence) {
+        for (Segment segment : segments) {
+            if (segment == active || segment == readSegment || segment.lastSequence > appliedSequence) {
+                break;
+            }
+            segments.remove(segment);
+            try {
+                Files.deleteIfExists(segment.path);
+            } catch (IOException e) {
+                log.warn("Не удалось удалить сегмент журнала {}", segment.path, e);
+            }
+        }
+    }
+
+    public long lastSequence() {
+        return appendedSequence;
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        synchronized (flushMonitor) {
+            running = false;
+            flushMonitor.notifyAll();
+        }
+        flusher.join();
+        appendLock.lock();
+        try {
+            active.buffer.force();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private void flushLoop() {
+        while (running) {
+            long target;
+            Segment segment;
+            appendLock.lock();
+            try {
+                target = appendedSequence;
+                segment = active;
+            } finally {
+                appendLock.unlock();
+            }
+
+            if (target > durableSequence) {
+                // Записи предыдущих сегментов сброшены при смене сегмента
+                segment.buffer.force();
+                synchronized (flushMonitor) {
+                    durableSequence = target;
+                    flushMonitor.notifyAll();
+                }
+                continue;
+            }
+
+            synchronized (flushMonitor) {
+                while (running && appendedSequence == durableSequence) {
+                    try {
+                        flushMonitor.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    private void rotate() {
+        active.buffer.force();
+        try {
+            Segment next = createSegment(appendedSequence + 1);
+            segments.add(next);
+            active = next;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось создать сегмент журнала", e);
+        }
+    }
+
+    /**
+     * Находит начало следующей записи, переходя в следующий сегмент в конце текущего
+     */
+    private boolean nextRecordInSegment() {
+        int capacity = readSegment.buffer.capacity();
+        if (readPosition + HEADER_SIZE <= capacity && readSegment.buffer.getInt(readPosition) > 0) {
+            return true;
+        }
+        int index = segments.indexOf(readSegment);
+        readSegment = segments.get(index + 1);
+        readPosition = 0;
+        return false;
+    }
+
+    private void seek(long afterSequence) {
+        readSegment = segments.get(0);
+        if (afterSequence + 1 < readSegment.firstSequence) {
+            throw new IllegalStateException("Записи журнала после " + afterSequence + " уже удалены");
+        }
+        for (Segment segment : segments) {
+            if (segment.firstSequence <= afterSequence + 1) {
+                readSegment = segment;
+            }
+        }
+        readPosition = 0;
+        readSequence = readSegment.firstSequence - 1;
+        while (readSequence < afterSequence) {
+            if (nextRecordInSegment()) {
+                readPosition += HEADER_SIZE + readSegment.buffer.getInt(readPosition);
+                readSequence++;
+            }
+        }
+    }
+
+    /**
+     * Проверяет записи сегмента и затирает оборванный хвост.
+     * Возвращает false, если сегмент поврежден и следующие сегменты недействительны.
+     */
+    private boolean recover(Segment segment) throws IOException {
+        MappedByteBuffer buffer = segment.buffer;
+        int capacity = buffer.capacity();
+        int position = 0;
+        long expected = segment.firstSequence;
+
+        while (position + HEADER_SIZE <= capacity) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + HEADER_SIZE + length > capacity) {
+                break;
+            }
+            long sequence = buffer.getLong(position + 8);
+            byte[] payload = new byte[length];
+            buffer.get(position + HEADER_SIZE, payload);
+            if (sequence != expected || buffer.getInt(position + 4) != checksum(sequence, payload)) {
+                break;
+            }
+            position += HEADER_SIZE + length;
+            expected++;
+        }
+
+        segment.position = position;
+        segment.lastSequence = expected - 1;
+
+        if (position + Integer.BYTES <= capacity && buffer.getInt(position) != 0) {
+            log.warn("В сегменте журнала {} отброшен оборванный хвост после записи {}", segment.path, expected - 1);
+            for (int i = position; i < capacity; i++) {
+                buffer.put(i, (byte) 0);
+            }
+            buffer.force();
+            return false;
+        }
+        return true;
+    }
+
+    private Segment createSegment(long firstSequence) throws IOException {
+        Path file = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+        Segment segment = mapSegment(file, firstSequence);
+        segment.lastSequence = firstSequence - 1;
+        return segment;
+    }
+
+    private Segment mapSegment(Path file, long firstSequence) throws IOException {
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size() > 0 ? channel.size() : segmentSize;
+            return new Segment(file, firstSequence, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+    }
+
+    private List<Path> listSegmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted(Comparator.comparingLong(TransferJournal::parseFirstSequence))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static long parseFirstSequence(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static int checksum(long sequence, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(ByteBuffer.allocate(Long.BYTES).putLong(0, sequence));
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static final class Segment {
+        private final Path path;
+        private final long firstSequence;
+        private final MappedByteBuffer buffer;
+        private int position;
+        private volatile long lastSequence;
+
+        private Segment(Path path, long firstSequence, MappedByteBuffer buffer) {
+            this.path = path;
+            this.firstSequence = firstSequence;
+            this.buffer = buffer;
+        }
+    }
+}
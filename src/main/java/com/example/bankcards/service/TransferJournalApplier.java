@@ -0,0 +1,300 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransactionDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.JournalCheckpoint;
+import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.entity.TransactionStatus;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.JournalCheckpointRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Применяет записи {@link TransferJournal} к таблицам cards и transactions пакетами.
+ *
+ * Пакет выполняется под блокировками всех своих карт в {@link TransferEngine} одной транзакцией
+ * вместе с проводками в {@link LedgerService} и обновлением контрольной точки. При запуске
+ * все непримененные записи проигрываются до того, как приложение начнет принимать переводы.
+ *
+ * Также учитывает суммы, списанные в журнале, но еще не примененные к балансам карт.
+ */
+@Component
+public class TransferJournalApplier {
+
+    private static final Logger log = LoggerFactory.getLogger(TransferJournalApplier.class);
+    private static final Long CHECKPOINT_ID = 1L;
+
+    private final TransferJournal journal;
+    private final TransferEngine transferEngine;
+    private final OptimisticRetryExecutor retryExecutor;
+    private final CardRepository cardRepository;
+    private final TransactionRepository transactionRepository;
+    private final JournalCheckpointRepository checkpointRepository;
+    private final IdempotencyCache idempotencyCache;
+    private final LedgerService ledgerService;
+    private final CardBalanceShardService shardService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+    private final long pollMillis;
+
+    private final Map<Long, BigDecimal> reservedByCard = new ConcurrentHashMap<>();
+    private volatile long appliedSequence;
+    private volatile boolean running;
+    private Thread worker;
+
+    public TransferJournalApplier(TransferJournal journal, TransferEngine transferEngine,
+                                  OptimisticRetryExecutor retryExecutor, CardRepository cardRepository,
+                                  TransactionRepository transactionRepository,
+                                  JournalCheckpointRepository checkpointRepository,
+                                  IdempotencyCache idempotencyCache, LedgerService ledgerService,
+                                  CardBalanceShardService shardService, ApplicationEventPublisher eventPublisher,
+                                  @Value("${transfer.journal.apply-batch-size:500}") int batchSize,
+                                  @Value("${transfer.journal.apply-interval:50ms}") Duration applyInterval) {
+        this.journal = journal;
+        this.transferEngine = transferEngine;
+        this.retryExecutor = retryExecutor;
+        this.cardRepository = cardRepository;
+        this.transactionRepository = transactionRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.idempotencyCache = idempotencyCache;
+        this.ledgerService = ledgerService;
+        this.shardService = shardService;
+        this.eventPublisher = eventPublisher;
+        this.batchSize = Math.max(1, batchSize);
+        this.pollMillis = Math.max(1, applyInterval.toMillis());
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!journal.isEnabled()) {
+            return;
+        }
+        appliedSequence = checkpointRepository.findById(CHECKPOINT_ID)
+                .map(JournalCheckpoint::getLastSequence)
+                .orElse(0L);
+        journal.open(appliedSequence);
+
+        // Проигрываем журнал после сбоя
+        int replayed = 0;
+        int applied;
+        while ((applied = applyNextBatch()) > 0) {
+            replayed += applied;
+        }
+        if (replayed > 0) {
+            log.info("Из журнала переводов проиграно {} записей", replayed);
+        }
+
+        running = true;
+        worker = new Thread(this::applyLoop, "transfer-journal-applier");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+            worker.join();
+        }
+    }
+
+    /**
+     * Сумма, списанная с карты в журнале, но еще не примененная к ее балансу.
+     * Вызывается под блокировкой карты в {@link TransferEngine}.
+     */
+    public BigDecimal reservedAmount(Long cardId) {
+        return reservedByCard.getOrDefault(cardId, BigDecimal.ZERO);
+    }
+
+    public void reserve(Long cardId, BigDecimal amount) {
+        reservedByCard.merge(cardId, amount, BigDecimal::add);
+    }
+
+    public long getAppliedSequence() {
+        return appliedSequence;
+    }
+
+    /**
+     * Применяет следующий пакет записей и возвращает их число
+     */
+    int applyNextBatch() {
+        List<JournalRecord> records = journal.read(appliedSequence, batchSize);
+        if (records.isEmpty()) {
+            return 0;
+        }
+        Set<Long> cardIds = new LinkedHashSet<>();
+        for (JournalRecord record : records) {
+            cardIds.add(record.getFromCardId());
+            cardIds.add(record.getToCardId());
+        }
+
+        retryExecutor.execute("applyJournal", () ->
+                transferEngine.execute(shardService.lockableCardIds(cardIds), () -> applyBatch(records, cardIds)));
+
+        appliedSequence = records.get(records.size() - 1).getSequence();
+        journal.release(appliedSequence);
+        return records.size();
+    }
+
+    private Void applyBatch(List<JournalRecord> records, Set<Long> cardIds) {
+        Map<Long, Card> cards = cardRepository.findByIdIn(cardIds).stream()
+                .collect(Collectors.toMap(Card::getId, Function.identity()));
+
+        // Ключи идемпотентности, уже сохраненные в БД для той же карты отправителя, повторно не применяются
+        Set<String> keys = records.stream()
+                .map(JournalRecord::getIdempotencyKey)
+                .filter(key -> key != null)
+                .collect(Collectors.toSet());
+        Set<List<Object>> appliedKeys = new HashSet<>();
+        if (!keys.isEmpty()) {
+            transactionRepository.findByIdempotencyKeyIn(keys).forEach(transaction ->
+                    appliedKeys.add(List.of(transaction.getFromCard().getId(), transaction.getIdempotencyKey())));
+        }
+
+        Map<Long, BigDecimal> balances = new HashMap<>();
+        List<Transaction> transactions = new ArrayList<>();
+        List<Transaction> completed = new ArrayList<>();
+        List<JournalRecord> appliedRecords = new ArrayList<>();
+        // Балансы карт отправителя и получателя после каждого перевода, null — баланс не изменился
+        List<BigDecimal> eventBalances = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (JournalRecord record : records) {
+            String key = record.getIdempotencyKey();
+            Card fromCard = cards.get(record.getFromCardId());
+            Card toCard = cards.get(record.getToCardId());
+            if ((key != null && !appliedKeys.add(List.of(record.getFromCardId(), key))) || fromCard == null || toCard == null) {
+                log.warn("Запись журнала {} пропущена: повтор ключа или карта удалена", record.getSequence());
+                continue;
+            }
+
+            BigDecimal amount = record.getAmount();
+            Transaction transaction = new Transaction(fromCard, toCard, amount);
+            transaction.setCreatedAt(record.getCreatedAt());
+            transaction.setIdempotencyKey(key);
+            transaction.setProcessedAt(now);
+
+            BigDecimal fromBalance = balances.computeIfAbsent(fromCard.getId(), id -> ledgerService.getBalance(fromCard));
+            balances.computeIfAbsent(toCard.getId(), id -> ledgerService.getBalance(toCard));
+
+            // Баланс или статус карты могли измениться в обход журнала
+            if (fromCard.getStatus() == CardStatus.ACTIVE && toCard.getStatus() == CardStatus.ACTIVE
+                    && fromBalance.compareTo(amount) >= 0
+                    && ledgerService.debit(fromCard, amount)) {
+                ledgerService.credit(toCard, amount);
+                eventBalances.add(balances.merge(fromCard.getId(), amount.negate(), BigDecimal::add));
+                eventBalances.add(balances.merge(toCard.getId(), amount, BigDecimal::add));
+                transaction.setStatus(TransactionStatus.COMPLETED);
+                completed.add(transaction);
+            } else {
+                transaction.setStatus(TransactionStatus.FAILED);
+                eventBalances.add(null);
+                eventBalances.add(null);
+            }
+            transactions.add(transaction);
+            appliedRecords.add(record);
+        }
+
+        transactionRepository.saveAll(transactions);
+        ledgerService.recordTransfers(completed);
+        // ID переводов известны только после сохранения
+        for (int i = 0; i < transactions.size(); i++) {
+            Transaction transaction = transactions.get(i);
+            eventPublisher.publishEvent(new TransactionEvent(toDto(appliedRecords.get(i), transaction),
+                    transaction.getFromCard().getUser().getId(), transaction.getToCard().getUser().getId(),
+                    eventBalances.get(2 * i), eventBalances.get(2 * i + 1)));
+        }
+
+        JournalCheckpoint checkpoint = checkpointRepository.findById(CHECKPOINT_ID)
+                .orElseGet(() -> new JournalCheckpoint(CHECKPOINT_ID));
+        checkpoint.setLastSequence(records.get(records.size() - 1).getSequence());
+        checkpointRepository.save(checkpoint);
+        transactionRepository.flush();
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                records.forEach(record -> unreserve(record.getFromCardId(), record.getAmount()));
+                for (int i = 0; i < transactions.size(); i++) {
+                    updateIdempotencyCache(appliedRecords.get(i), transactions.get(i));
+                }
+            }
+        });
+        return null;
+    }
+
+    private void applyLoop() {
+        while (running) {
+            try {
+                if (applyNextBatch() == 0) {
+                    journal.awaitRecordsAfter(appliedSequence, pollMillis);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Ошибка применения журнала переводов после записи {}", appliedSequence, e);
+                try {
+                    Thread.sleep(pollMillis);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void unreserve(Long cardId, BigDecimal amount) {
+        reservedByCard.computeIfPresent(cardId, (id, reserved) -> {
+            BigDecimal left = reserved.subtract(amount);
+            return left.signum() <= 0 ? null : left;
+        });
+    }
+
+    /**
+     * Повтор запроса с тем же ключом должен вернуть итоговый статус, а не PENDING
+     */
+    private void updateIdempotencyCache(JournalRecord record, Transaction transaction) {
+        if (record.getIdempotencyKey() == null) {
+            return;
+        }
+        idempotencyCache.put(record.getUserId(), record.getFromCardId(), record.getIdempotencyKey(),
+                toDto(record, transaction));
+    }
+    
+    private TransactionDto toDto(JournalRecord record, Transaction transaction) {
+        return new TransactionDto(
+                transaction.getId(),
+                record.getFromCardId(),
+                record.getToCardId(),
+                transaction.getAmount(),
+                transaction.getStatus(),
+                transaction.getCreatedAt(),
+                transaction.getProcessedAt());
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.bankcards.service;
+
+/**
+ * Способ сериализации переводов по одним и тем же картам (transfer.locking-mode)
+ */
+public enum TransferLockingMode {
+
+    /**
+     * Полосатые блокировки {@link TransferEngine} внутри приложения и проверка @Version карт
+     */
+    STRIPED,
+
+    /**
+     * Блокировки строк карт в БД: SELECT ... FOR UPDATE одним запросом в порядке возрастания ID.
+     * Работает и при нескольких экземплярах приложения.
+     */
+    PESSIMISTIC,
+
+    /**
+     * Без блокировок: конфликт обнаруживает @Version карты, и перевод повторяется целиком.
+     * Версия карты отправителя увеличивается при каждом списании и холде, даже если
+     * строка карты не меняется (производные балансы, холды).
+     */
+    OPTIMISTIC
+}
@@ -0,0 +1,280 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.exception.TransferRateLimitException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ограничение частоты переводов по пользователю и по карте отправителя.
+ *
+ * Лимит проверяется до загрузки карты, поэтому корзина карты принадлежит паре
+ * (пользователь, карта): переводы с чужой карты расходуют корзину запрашивающего,
+ * и нельзя опустошить корзину чужой карты, заблокировав переводы ее владельца.
+ *
+ * Корзина токенов каждого ключа — одно значение AtomicLong в форме GCRA: теоретическое
+ * время следующего запроса. Запрос проходит, если это время опережает текущее не больше
+ * чем на (burst - 1) интервалов, и сдвигает его на один интервал через CAS. Блокировок
+ * и обращений к БД нет, отказ стоит одного чтения атомика.
+ *
+ * Корзина, время которой уже прошло, полна, и ее удаление ничего не меняет: такие ключи
+ * вытесняются периодически и при переполнении карты.
+ *
+ * Пакет переводов весит столько токенов, сколько в нем переводов: корзина пользователя
+ * платит за весь пакет, корзина каждой карты отправителя — за ее переводы. Пакет больше
+ * всплеска проходит только при полной корзине и оставляет ее в долгу на остаток.
+ *
+ * Лимиты задаются для каждой роли: transfer.rate-limit.roles.&lt;ROLE&gt;.{user,card}-{rate,burst},
+ * rate — переводов в секунду, 0 отключает ограничение.
+ */
+@Component
+public class TransferRateLimiter {
+
+    private static final String ROLES_PREFIX = "transfer.rate-limit.roles.";
+
+    private final boolean enabled;
+    private final int maxKeys;
+    private final Map<Role, Limit> userLimits = new EnumMap<>(Role.class);
+    private final Map<Role, Limit> cardLimits = new EnumMap<>(Role.class);
+    private final Map<Long, Bucket> userBuckets = new ConcurrentHashMap<>();
+    private final Map<CardKey, Bucket> cardBuckets = new ConcurrentHashMap<>();
+
+    private final Counter allowed;
+    private final Counter rejectedByUser;
+    private final Counter rejectedByCard;
+    private final Counter evicted;
+
+    public TransferRateLimiter(MeterRegistry meterRegistry, Environment environment,
+                               @Value("${transfer.rate-limit.enabled:true}") boolean enabled,
+                               @Value("${transfer.rate-limit.max-keys:100000}") int maxKeys) {
+        this.enabled = enabled;
+        this.maxKeys = Math.max(1, maxKeys);
+        for (Role role : Role.values()) {
+            userLimits.put(role, Limit.of(environment, role, "user", 10.0, 20));
+            cardLimits.put(role, Limit.of(environment, role, "card", 5.0, 10));
+        }
+
+        this.allowed = Counter.builder("transfers.rate_limit")
+                .tag("result", "allowed")
+                .register(meterRegistry);
+        this.rejectedByUser = Counter.builder("transfers.rate_limit")
+                .tag("result", "rejected")
+                .tag("scope", "user")
+                .register(meterRegistry);
+        this.rejectedByCard = Counter.builder("transfers.rate_limit")
+                .tag("result", "rejected")
+                .tag("scope", "card")
+                .register(meterRegistry);
+        this.evicted = Counter.builder("transfers.rate_limit.evicted").register(meterRegistry);
+        Gauge.builder("transfers.rate_limit.keys", this, TransferRateLimiter::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Списывает по токену из корзин пользователя и карты отправителя (если она указана).
+     * Если пуста корзина карты, токен пользователя возвращается.
+     *
+     * @throws TransferRateLimitException если одна из корзин пуста
+     */
+    public void acquire(Long userId, Role role, Long fromCardId) {
+        if (!enabled) {
+            return;
+        }
+        long now = System.nanoTime();
+        Role effectiveRole = role != null ? role : Role.USER;
+
+        Limit userLimit = userLimits.get(effectiveRole);
+
+        long wait = tryAcquire(userBuckets, userId, userLimit, now, 1);
+        if (wait > 0) {
+            rejectedByUser.increment();
+            throw new TransferRateLimitException(toRetryAfterSeconds(wait));
+        }
+        if (fromCardId != null) {
+            wait = tryAcquire(cardBuckets, new CardKey(userId, fromCardId), cardLimits.get(effectiveRole), now, 1);
+            if (wait > 0) {
+                refund(userBuckets, userId, userLimit, 1);
+                rejectedByCard.increment();
+                throw new TransferRateLimitException(toRetryAfterSeconds(wait));
+            }
+        }
+        allowed.increment();
+    }
+
+    /**
+     * Списывает токены за пакет переводов: из корзины пользователя — по числу всех переводов,
+     * из корзины каждой карты отправителя — по числу ее переводов. Если одна из корзин
+     * пуста, уже списанные токены возвращаются.
+     *
+     * @param transfersByCard число переводов пакета по ID карты отправителя
+     * @throws TransferRateLimitException если одна из корзин пуста
+     */
+    public void acquireBatch(Long userId, Role role, Map<Long, Integer> transfersByCard) {
+        if (!enabled || transfersByCard.isEmpty()) {
+            return;
+        }
+        long now = System.nanoTime();
+        Role effectiveRole = role != null ? role : Role.USER;
+        Limit userLimit = userLimits.get(effectiveRole);
+        Limit cardLimit = cardLimits.get(effectiveRole);
+        int total = transfersByCard.values().stream().mapToInt(Integer::intValue).sum();
+
+        long wait = tryAcquire(userBuckets, userId, userLimit, now, total);
+        if (wait > 0) {
+            rejectedByUser.increment();
+            throw new TransferRateLimitException(toRetryAfterSeconds(wait));
+        }
+        List<Long> charged = new ArrayList<>(transfersByCard.size());
+        for (Map.Entry<Long, Integer> entry : transfersByCard.entrySet()) {
+            wait = tryAcquire(cardBuckets, new CardKey(userId, entry.getKey()), cardLimit, now, entry.getValue());
+            if (wait > 0) {
+                refund(userBuckets, userId, userLimit, total);
+                for (Long cardId : charged) {
+                    refund(cardBuckets, new CardKey(userId, cardId), cardLimit, transfersByCard.get(cardId));
+                }
+                rejectedByCard.increment();
+                throw new TransferRateLimitException(toRetryAfterSeconds(wait));
+            }
+            charged.add(entry.getKey());
+        }
+        allowed.increment();
+    }
+
+    @Scheduled(fixedDelayString = "${transfer.rate-limit.sweep-interval-ms:60000}")
+    public void evictIdle() {
+        long now = System.nanoTime();
+        evictIdle(userBuckets, now);
+        evictIdle(cardBuckets, now);
+    }
+
+    public int size() {
+        return userBuckets.size() + cardBuckets.size();
+    }
+
+    /**
+     * @return 0, если токен списан, иначе время до появления токена в наносекундах
+     */
+    private <K> long tryAcquire(Map<K, Bucket> buckets, K key, Limit limit, long now, int weight) {
+        if (key == null || limit.isUnlimited()) {
+            return 0L;
+        }
+        Bucket bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= maxKeys) {
+                makeRoom(buckets, now);
+            }
+            bucket = buckets.computeIfAbsent(key, k -> new Bucket(now));
+        }
+        return bucket.tryAcquire(now, limit.intervalNanos, limit.toleranceNanos, weight);
+    }
+
+    private <K> void refund(Map<K, Bucket> buckets, K key, Limit limit, int weight) {
+        if (key == null || limit.isUnlimited()) {
+            return;
+        }
+        Bucket bucket = buckets.get(key);
+        if (bucket != null) {
+            bucket.refund(weight * limit.intervalNanos);
+        }
+    }
+
+    private void makeRoom(Map<?, Bucket> buckets, long now) {
+        evictIdle(buckets, now);
+        // Все ключи активны: вытесненный ключ получит полную корзину, но карта останется ограниченной
+        Iterator<Bucket> iterator = buckets.values().iterator();
+        while (buckets.size() >= maxKeys && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evicted.increment();
+        }
+    }
+
+    private void evictIdle(Map<?, Bucket> buckets, long now) {
+        buckets.entrySet().removeIf(entry -> {
+            boolean idle = entry.getValue().isFull(now);
+            if (idle) {
+                evicted.increment();
+            }
+            return idle;
+        });
+    }
+
+    private static long toRetryAfterSeconds(long waitNanos) {
+        return Math.max(1L, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+    }
+
+    private record CardKey(Long userId, Long cardId) {
+    }
+
+    private static final class Bucket {
+        // Теоретическое время следующего запроса по System.nanoTime()
+        private final AtomicLong theoreticalArrival;
+
+        private Bucket(long now) {
+            this.theoreticalArrival = new AtomicLong(now);
+        }
+
+        private long tryAcquire(long now, long intervalNanos, long toleranceNanos, int weight) {
+            // Запрос весом больше всплеска требует полной корзины, а не недостижимого запаса
+            long required = Math.min((weight - 1L) * intervalNanos, toleranceNanos);
+            while (true) {
+                long arrival = theoreticalArrival.get();
+                long start = Math.max(arrival, now);
+                long wait = start - now + required - toleranceNanos;
+                if (wait > 0) {
+                    return wait;
+                }
+                if (theoreticalArrival.compareAndSet(arrival, start + weight * intervalNanos)) {
+                    return 0L;
+                }
+            }
+        }
+
+        private void refund(long nanos) {
+            theoreticalArrival.addAndGet(-nanos);
+        }
+
+        private boolean isFull(long now) {
+            return theoreticalArrival.get() - now <= 0;
+        }
+    }
+
+    private static final class Limit {
+        private final long intervalNanos;
+        private final long toleranceNanos;
+
+        private Limit(long intervalNanos, long toleranceNanos) {
+            this.intervalNanos = intervalNanos;
+            this.toleranceNanos = toleranceNanos;
+        }
+
+        private static Limit of(Environment environment, Role role, String scope, double defaultRate, int defaultBurst) {
+            String prefix = ROLES_PREFIX + role.name() + "." + scope;
+            double rate = environment.getProperty(prefix + "-rate", Double.class, defaultRate);
+            int burst = Math.max(1, environment.getProperty(prefix + "-burst", Integer.class, defaultBurst));
+            if (rate <= 0) {
+                return new Limit(0L, 0L);
+            }
+            long interval = Math.max(1L, (long) (TimeUnit.SECONDS.toNanos(1) / rate));
+            return new Limit(interval, interval * (burst - 1));
+        }
+
+        private boolean isUnlimited() {
+            return intervalNanos == 0L;
+        }
+    }
+}
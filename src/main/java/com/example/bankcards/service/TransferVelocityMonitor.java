@@ -0,0 +1,309 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.TransactionStatus;
+import com.example.bankcards.exception.VelocityLimitExceededException;
+import com.example.bankcards.repository.TransactionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Проверка скорости переводов с карты: не больше max-count переводов и не больше
+ * max-amount суммы за последние window.
+ *
+ * Счетчики хранятся в памяти, а не считаются запросом COUNT по transactions: у каждой
+ * карты кольцевой буфер посекундных ячеек с текущими итогами окна. Продвижение окна
+ * обнуляет только ячейки, время которых прошло, поэтому проверка стоит O(1).
+ * Буферы защищены полосами блокировок по id карты, переводы с разных карт
+ * почти не конкурируют.
+ *
+ * Учитываются принятые переводы, включая еще не примененные; откат транзакции
+ * перевода возвращает из счетчиков все учтенные в ней переводы. После запуска счетчики
+ * восстанавливаются из переводов за последнее окно.
+ *
+ * Пакетные переводы (выплаты зарплаты с одной карты) по умолчанию не проверяются
+ * и не учитываются: их частоту ограничивает {@link TransferRateLimiter} по каждому
+ * переводу пакета. transfer.velocity.check-batches включает для них те же правила.
+ * Восстановление после запуска не отличает пакетные переводы и учитывает их тоже,
+ * поэтому в первое окно после запуска ограничение строже.
+ */
+@Component
+public class TransferVelocityMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(TransferVelocityMonitor.class);
+
+    private final TransactionRepository transactionRepository;
+    private final boolean enabled;
+    private final boolean checkBatches;
+    private final int windowSeconds;
+    private final long maxCount;
+    private final long maxAmountCents;
+    private final Object[] stripes;
+    private final Map<Long, Window> windows = new ConcurrentHashMap<>();
+
+    private final Counter countRejections;
+    private final Counter amountRejections;
+
+    public TransferVelocityMonitor(TransactionRepository transactionRepository, MeterRegistry meterRegistry,
+                                   @Value("${transfer.velocity.enabled:true}") boolean enabled,
+                                   @Value("${transfer.velocity.window:10m}") Duration window,
+                                   @Value("${transfer.velocity.max-count:20}") long maxCount,
+                                   @Value("${transfer.velocity.max-amount:500000}") BigDecimal maxAmount,
+                                   @Value("${transfer.velocity.stripes:256}") int stripeCount,
+                                   @Value("${transfer.velocity.check-batches:false}") boolean checkBatches) {
+        this.transactionRepository = transactionRepository;
+        this.enabled = enabled;
+        this.checkBatches = checkBatches;
+        this.windowSeconds = (int) Math.max(1, window.toSeconds());
+        this.maxCount = maxCount;
+        this.maxAmountCents = toCents(maxAmount);
+        this.stripes = new Object[Math.max(1, stripeCount)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Object();
+        }
+
+        this.countRejections = Counter.builder("transfers.velocity.rejected")
+                .tag("rule", "count")
+                .register(meterRegistry);
+        this.amountRejections = Counter.builder("transfers.velocity.rejected")
+                .tag("rule", "amount")
+                .register(meterRegistry);
+        Gauge.builder("transfers.velocity.cards", windows, Map::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Восстанавливает счетчики по переводам за последнее окно
+     */
+    @PostConstruct
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime since = LocalDateTime.now().minusSeconds(windowSeconds);
+        List<Object[]> rows = transactionRepository.findTransferVelocitySince(since,
+                List.of(TransactionStatus.PENDING, TransactionStatus.COMPLETED));
+        long now = currentSecond();
+        for (Object[] row : rows) {
+            Long cardId = (Long) row[0];
+            long second = toEpochSecond((LocalDateTime) row[2]);
+            synchronized (stripe(cardId)) {
+                windows.computeIfAbsent(cardId, id -> new Window(windowSeconds, now))
+                        .add(Math.min(second, now), 1, toCents((BigDecimal) row[1]));
+            }
+        }
+        if (!rows.isEmpty()) {
+            log.info("Счетчики скорости переводов восстановлены по {} переводам", rows.size());
+        }
+    }
+
+    /**
+     * Учитывает перевод с карты, если он не нарушает правил скорости. В транзакции
+     * перевода учет отменяется при ее откате.
+     *
+     * @throws VelocityLimitExceededException если перевод превышает число или сумму переводов за окно
+     */
+    public void checkAndRecord(Long cardId, BigDecimal amount) {
+        if (!enabled) {
+            return;
+        }
+        long cents = toCents(amount);
+        long second = currentSecond();
+        synchronized (stripe(cardId)) {
+            Window window = windows.computeIfAbsent(cardId, id -> new Window(windowSeconds, second));
+            window.advance(second);
+            if (window.totalCount + 1 > maxCount) {
+                countRejections.increment();
+                throw new VelocityLimitExceededException("Превышено число переводов с карты за " + windowSeconds + " секунд");
+            }
+            if (window.totalAmount + cents > maxAmountCents) {
+                amountRejections.increment();
+                throw new VelocityLimitExceededException("Превышена сумма переводов с карты за " + windowSeconds + " секунд");
+            }
+            window.add(second, 1, cents);
+        }
+        undoOnRollback(new Recorded(cardId, second, cents));
+    }
+
+    /**
+     * Проверка перевода из пакета: учитывается, только если включен transfer.velocity.check-batches
+     */
+    public void checkAndRecordBatchItem(Long cardId, BigDecimal amount) {
+        if (checkBatches) {
+            checkAndRecord(cardId, amount);
+        }
+    }
+
+    /**
+     * Возвращает из счетчиков перевод, отклоненный после учета в той же транзакции.
+     * Перевод больше не возвращается повторно при откате этой транзакции.
+     */
+    public void release(Long cardId, BigDecimal amount) {
+        if (!enabled) {
+            return;
+        }
+        long cents = toCents(amount);
+        List<Recorded> recorded = recordedInTransaction();
+        if (recorded == null) {
+            undo(cardId, currentSecond(), cents);
+            return;
+        }
+        for (int i = recorded.size() - 1; i >= 0; i--) {
+            Recorded entry = recorded.get(i);
+            if (entry.cardId().equals(cardId) && entry.cents() == cents) {
+                recorded.remove(i);
+                undo(entry.cardId(), entry.second(), entry.cents());
+                return;
+            }
+        }
+        // Перевод не учитывался: пакет без проверки скорости
+    }
+
+    /**
+     * Удаляет карты без переводов за окно
+     */
+    @Scheduled(fixedDelayString = "${transfer.velocity.sweep-interval-ms:60000}")
+    public void evictIdle() {
+        long now = currentSecond();
+        windows.keySet().forEach(cardId -> {
+            synchronized (stripe(cardId)) {
+                Window window = windows.get(cardId);
+                if (window != null) {
+                    window.advance(now);
+                    if (window.totalCount == 0) {
+                        windows.remove(cardId);
+                    }
+                }
+            }
+        });
+    }
+
+    public int trackedCards() {
+        return windows.size();
+    }
+
+    /**
+     * Учтенные в транзакции переводы копятся в одном списке и возвращаются одной
+     * синхронизацией, а не отдельной на каждый перевод пакета
+     */
+    private void undoOnRollback(Recorded entry) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        List<Recorded> recorded = recordedInTransaction();
+        if (recorded == null) {
+            List<Recorded> entries = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, entries);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(TransferVelocityMonitor.this);
+                    if (status != STATUS_COMMITTED) {
+                        entries.forEach(item -> undo(item.cardId(), item.second(), item.cents()));
+                    }
+                }
+            });
+            recorded = entries;
+        }
+        recorded.add(entry);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Recorded> recordedInTransaction() {
+        return (List<Recorded>) TransactionSynchronizationManager.getResource(this);
+    }
+
+    private void undo(Long cardId, long second, long cents) {
+        synchronized (stripe(cardId)) {
+            Window window = windows.get(cardId);
+            if (window != null) {
+                window.add(second, -1, -cents);
+            }
+        }
+    }
+
+    private Object stripe(Long cardId) {
+        return stripes[Math.floorMod(Long.hashCode(cardId) * 0x9E3779B9, stripes.length)];
+    }
+
+    long currentSecond() {
+        return System.currentTimeMillis() / 1000L;
+    }
+
+    private static long toEpochSecond(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toEpochSecond();
+    }
+
+    private static long toCents(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private record Recorded(Long cardId, long second, long cents) {
+    }
+
+    /**
+     * Кольцевой буфер посекундных ячеек за окно и итоги по нему
+     */
+    private static final class Window {
+        private final int[] counts;
+        private final long[] amounts;
+        private long head;
+        private long totalCount;
+        private long totalAmount;
+
+        private Window(int seconds, long now) {
+            this.counts = new int[seconds];
+            this.amounts = new long[seconds];
+            this.head = now;
+        }
+
+        /**
+         * Сдвигает окно к секунде now, обнуляя вышедшие из него ячейки
+         */
+        private void advance(long now) {
+            if (now <= head) {
+                return;
+            }
+            long steps = Math.min(now - head, counts.length);
+            for (long step = 1; step <= steps; step++) {
+                int slot = (int) Math.floorMod(head + step, (long) counts.length);
+                totalCount -= counts[slot];
+                totalAmount -= amounts[slot];
+                counts[slot] = 0;
+                amounts[slot] = 0L;
+            }
+            head = now;
+        }
+
+        private void add(long second, int count, long cents) {
+            advance(second);
+            // Ячейка секунды уже вышла из окна или перезаписана
+            if (second <= head - counts.length) {
+                return;
+            }
+            int slot = (int) Math.floorMod(second, (long) counts.length);
+            counts[slot] += count;
+            amounts[slot] += cents;
+            totalCount += count;
+            totalAmount += cents;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.UserCardSummaryDto;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.UserBalanceShard;
+import com.example.bankcards.entity.UserCardSummary;
+import com.example.bankcards.repository.UserBalanceShardRepository;
+import com.example.bankcards.repository.UserCardSummaryRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Сводка по картам пользователя (суммарный баланс и число карт по статусам), которая
+ * читается одной строкой user_card_summaries независимо от числа карт.
+ *
+ * Сервисы сообщают об изменениях карт приращениями. В транзакции приращения копятся
+ * по пользователям и применяются перед коммитом той же транзакции: по одному UPDATE
+ * на пользователя в порядке возрастания ID. Единый порядок не дает встречным переводам
+ * взаимно заблокироваться на строках сводок, а строка блокируется только на время коммита.
+ * Вне транзакции приращение применяется сразу.
+ *
+ * Баланс от переводов меняется намного чаще числа карт, поэтому его приращения идут
+ * не в строку сводки, а в случайный из N шардов user_balance_shards, как зачисления
+ * на горячие карты в {@link CardBalanceShardService}. Параллельные переводы одного
+ * пользователя расходятся по разным строкам, а строка сводки меняется только при
+ * выпуске, удалении и смене статуса карт. Чтение сводки — строка сводки и N шардов.
+ */
+@Service
+@Transactional
+public class UserCardSummaryService {
+
+    private final UserCardSummaryRepository summaryRepository;
+    private final UserBalanceShardRepository shardRepository;
+    private final int balanceShards;
+
+    public UserCardSummaryService(UserCardSummaryRepository summaryRepository,
+                                  UserBalanceShardRepository shardRepository,
+                                  @Value("${cards.summary.balance-shards:8}") int balanceShards) {
+        this.summaryRepository = summaryRepository;
+        this.shardRepository = shardRepository;
+        this.balanceShards = Math.max(1, balanceShards);
+    }
+
+    /**
+     * Создает пустую сводку нового пользователя и шарды его баланса
+     */
+    public void userCreated(Long userId) {
+        summaryRepository.save(new UserCardSummary(userId));
+        List<UserBalanceShard> shards = new ArrayList<>(balanceShards);
+        for (int i = 0; i < balanceShards; i++) {
+            shards.add(new UserBalanceShard(userId, i, BigDecimal.ZERO));
+        }
+        shardRepository.saveAll(shards);
+    }
+
+    @Transactional(readOnly = true)
+    public UserCardSummaryDto getSummary(Long userId) {
+        BigDecimal shardBalance = shardRepository.sumByUserId(userId);
+        return summaryRepository.findById(userId)
+                .map(summary -> new UserCardSummaryDto(userId, summary.getTotalBalance().add(shardBalance),
+                        summary.getActiveCards(), summary.getBlockedCards(), summary.getExpiredCards()))
+                .orElseGet(() -> new UserCardSummaryDto(userId, shardBalance, 0, 0, 0));
+    }
+
+    public void cardAdded(Long userId, CardStatus status, BigDecimal balance) {
+        Delta delta = new Delta();
+        delta.balance = balance;
+        delta.count(status, 1);
+        record(userId, delta);
+    }
+
+    public void cardRemoved(Long userId, CardStatus status, BigDecimal balance) {
+        Delta delta = new Delta();
+        delta.balance = balance.negate();
+        delta.count(status, -1);
+        record(userId, delta);
+    }
+
+    public void statusChanged(Long userId, CardStatus from, CardStatus to, int cards) {
+        if (from == to) {
+            return;
+        }
+        Delta delta = new Delta();
+        delta.count(from, -cards);
+        delta.count(to, cards);
+        record(userId, delta);
+    }
+
+    public void balanceChanged(Long userId, BigDecimal amount) {
+        if (amount.signum() == 0) {
+            return;
+        }
+        Delta delta = new Delta();
+        delta.balance = amount;
+        record(userId, delta);
+    }
+
+    private void record(Long userId, Delta delta) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(userId, delta);
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Map<Long, Delta> pending = (Map<Long, Delta>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Map<Long, Delta> deltas = new TreeMap<>();
+            TransactionSynchronizationManager.bindResource(this, deltas);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    deltas.forEach(UserCardSummaryService.this::apply);
+                    deltas.clear();
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(UserCardSummaryService.this);
+                }
+            });
+            pending = deltas;
+        }
+        pending.merge(userId, delta, Delta::add);
+    }
+
+    private void apply(Long userId, Delta delta) {
+        BigDecimal balance = delta.balance;
+        if (balance.signum() != 0
+                && shardRepository.add(userId, ThreadLocalRandom.current().nextInt(balanceShards), balance) > 0) {
+            balance = BigDecimal.ZERO;
+        }
+        // Шарда нет (пользователь создан при меньшем числе шардов): баланс идет в строку сводки
+        if (balance.signum() == 0 && delta.hasNoCounts()) {
+            return;
+        }
+        if (summaryRepository.applyDelta(userId, balance, delta.active, delta.blocked, delta.expired) == 0) {
+            // Сводки создаются вместе с пользователями и миграцией; без сводки у пользователя не было карт
+            UserCardSummary summary = new UserCardSummary(userId);
+            summary.setTotalBalance(balance);
+            summary.setActiveCards(delta.active);
+            summary.setBlockedCards(delta.blocked);
+            summary.setExpiredCards(delta.expired);
+            summaryRepository.save(summary);
+        }
+    }
+
+    private static final class Delta {
+        private BigDecimal balance = BigDecimal.ZERO;
+        private long active;
+        private long blocked;
+        private long expired;
+
+        private void count(CardStatus status, long cards) {
+            switch (status) {
+                case ACTIVE -> active += cards;
+                case BLOCKED -> blocked += cards;
+                case EXPIRED -> expired += cards;
+            }
+        }
+
+        private Delta add(Delta other) {
+            balance = balance.add(other.balance);
+            active += other.active;
+            blocked += other.blocked;
+            expired += other.expired;
+            return this;
+        }
+
+        private boolean hasNoCounts() {
+            return active == 0 && blocked == 0 && expired == 0;
+        }
+    }
+}
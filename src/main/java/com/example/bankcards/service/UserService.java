@@ -21,10 +21,13 @@ public class UserService implements UserDetailsService {
     
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final UserCardSummaryService summaryService;
     
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder,
+                       UserCardSummaryService summaryService) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.summaryService = summaryService;
     }
     
     @Override
@@ -44,6 +47,7 @@ public class UserService implements UserDetailsService {
         user.setEnabled(true);
         
         User savedUser = userRepository.save(user);
+        summaryService.userCreated(savedUser.getId());
         return convertToDto(savedUser);
     }
     
@@ -96,7 +100,7 @@ public class UserService implements UserDetailsService {
         return convertToDto(user);
     }
     
-    private UserDto convertToDto(User user) {
+    UserDto convertToDto(User user) {
         return new UserDto(
                 user.getId(),
                 user.getUsername(),
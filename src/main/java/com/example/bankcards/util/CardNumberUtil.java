@@ -1,46 +1,141 @@
 package com.example.bankcards.util;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+
 import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
 
+/**
+ * Шифрование номеров карт.
+ *
+ * Новые номера шифруются AES-GCM со случайным IV: "v2:" + Base64(IV || шифртекст || тег).
+ * Значения без префикса — шифртексты AES/ECB прежнего формата, они расшифровываются
+ * ключом cards.encryption.legacy-key.
+ *
+ * Шифртекст со случайным IV нельзя искать по равенству, поэтому для поиска по номеру
+ * хранится слепой индекс — HMAC-SHA256 номера на отдельном ключе cards.encryption.index-key.
+ * Он детерминирован и уникален для номера, но без ключа не позволяет подобрать номер.
+ *
+ * Новые номера начинаются с BIN из cards.number.bins (значение или диапазон "510000-559999"),
+ * остальные цифры берутся из SecureRandom, последняя — контрольная цифра Луна.
+ *
+ * Ключи читаются из конфигурации один раз. Объекты Cipher и Mac создаются по одному на поток
+ * и переиспользуются: getInstance ищет провайдера и дорог для каждого вызова,
+ * а сами объекты не потокобезопасны.
+ */
 @Component
 public class CardNumberUtil {
-    
+
     private static final String ALGORITHM = "AES";
-    private static final String SECRET_KEY = "BankCardSecretKey123"; // В продакшене должен быть в конфигурации
-    
+    private static final String GCM_TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final String LEGACY_TRANSFORMATION = "AES/ECB/PKCS5Padding";
+    private static final String GCM_PREFIX = "v2:";
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_LENGTH_BITS = 128;
+    private static final String INDEX_ALGORITHM = "HmacSHA256";
+    private static final int MIN_INDEX_KEY_LENGTH = 32;
+    private static final int CARD_NUMBER_LENGTH = 16;
+
+    private final SecretKeySpec key;
+    private final SecretKeySpec legacyKey;
+    private final SecretKeySpec indexKey;
+    private final BinRange[] binRanges;
+    private final SecureRandom random = new SecureRandom();
+    private final ThreadLocal<Cipher> gcmCiphers = ThreadLocal.withInitial(() -> newCipher(GCM_TRANSFORMATION));
+    private final ThreadLocal<Cipher> legacyCiphers = ThreadLocal.withInitial(() -> newCipher(LEGACY_TRANSFORMATION));
+    private final ThreadLocal<Mac> indexMacs = ThreadLocal.withInitial(this::newIndexMac);
+
+    public CardNumberUtil(@Value("${cards.encryption.key:BankCardEncryptionKey0123456789!}") String key,
+                          @Value("${cards.encryption.legacy-key:}") String legacyKey,
+                          @Value("${cards.encryption.index-key:BankCardBlindIndexKey0123456789ABCDEF}") String indexKey,
+                          @Value("${cards.number.bins:400000}") String[] bins) {
+        this.key = aesKey(key, "cards.encryption.key");
+        // Без ключа прежнего формата читаются только значения v2
+        this.legacyKey = legacyKey.isEmpty() ? null : aesKey(legacyKey, "cards.encryption.legacy-key");
+        this.indexKey = indexKey(indexKey);
+        if (bins.length == 0) {
+            throw new IllegalStateException("cards.number.bins не задан");
+        }
+        this.binRanges = new BinRange[bins.length];
+        for (int i = 0; i < bins.length; i++) {
+            binRanges[i] = BinRange.parse(bins[i].trim());
+        }
+    }
+
     /**
      * Шифрует номер карты
      */
     public String encryptCardNumber(String cardNumber) {
         try {
-            SecretKeySpec secretKey = new SecretKeySpec(SECRET_KEY.getBytes(), ALGORITHM);
-            Cipher cipher = Cipher.getInstance(ALGORITHM);
-            cipher.init(Cipher.ENCRYPT_MODE, secretKey);
-            byte[] encryptedBytes = cipher.doFinal(cardNumber.getBytes());
-            return Base64.getEncoder().encodeToString(encryptedBytes);
-        } catch (Exception e) {
+            return encrypt(gcmCiphers.get(), cardNumber);
+        } catch (GeneralSecurityException e) {
             throw new RuntimeException("Ошибка шифрования номера карты", e);
         }
     }
-    
+
     /**
-     * Расшифровывает номер карты
+     * Расшифровывает номер карты в формате v2 или прежнем формате
      */
     public String decryptCardNumber(String encryptedCardNumber) {
         try {
-            SecretKeySpec secretKey = new SecretKeySpec(SECRET_KEY.getBytes(), ALGORITHM);
-            Cipher cipher = Cipher.getInstance(ALGORITHM);
-            cipher.init(Cipher.DECRYPT_MODE, secretKey);
-            byte[] decryptedBytes = cipher.doFinal(Base64.getDecoder().decode(encryptedCardNumber));
-            return new String(decryptedBytes);
-        } catch (Exception e) {
+            return decrypt(encryptedCardNumber);
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new RuntimeException("Ошибка расшифровки номера карты", e);
+        }
+    }
+
+    /**
+     * Шифрует список номеров одним объектом Cipher текущего потока
+     */
+    public List<String> encryptCardNumbers(List<String> cardNumbers) {
+        Cipher cipher = gcmCiphers.get();
+        List<String> encrypted = new ArrayList<>(cardNumbers.size());
+        try {
+            for (String cardNumber : cardNumbers) {
+                encrypted.add(encrypt(cipher, cardNumber));
+            }
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Ошибка шифрования номера карты", e);
+        }
+        return encrypted;
+    }
+
+    /**
+     * Расшифровывает список номеров в порядке списка
+     */
+    public List<String> decryptCardNumbers(List<String> encryptedCardNumbers) {
+        List<String> decrypted = new ArrayList<>(encryptedCardNumbers.size());
+        try {
+            for (String encryptedCardNumber : encryptedCardNumbers) {
+                decrypted.add(decrypt(encryptedCardNumber));
+            }
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
             throw new RuntimeException("Ошибка расшифровки номера карты", e);
         }
+        return decrypted;
+    }
+
+    /**
+     * Слепой индекс номера карты для поиска и проверки уникальности: HMAC-SHA256 в hex.
+     * Пробелы и дефисы в номере не учитываются.
+     */
+    public String blindIndex(String cardNumber) {
+        String digits = cardNumber.replace(" ", "").replace("-", "");
+        Mac mac = indexMacs.get();
+        return HexFormat.of().formatHex(mac.doFinal(digits.getBytes(StandardCharsets.UTF_8)));
     }
-    
+
     /**
      * Маскирует номер карты для отображения
      */
@@ -48,19 +143,149 @@ public class CardNumberUtil {
         if (cardNumber == null || cardNumber.length() < 4) {
             return cardNumber;
         }
-        
-        String lastFour = cardNumber.substring(cardNumber.length() - 4);
+
+        return maskLastFour(lastFourDigits(cardNumber));
+    }
+
+    /**
+     * Последние 4 цифры номера карты — единственная часть номера, которую можно хранить открыто
+     */
+    public static String lastFourDigits(String cardNumber) {
+        return cardNumber.substring(cardNumber.length() - 4);
+    }
+
+    /**
+     * Маска номера по сохраненным последним 4 цифрам, без расшифровки
+     */
+    public static String maskLastFour(String lastFour) {
         return "**** **** **** " + lastFour;
     }
-    
+
     /**
-     * Генерирует новый номер карты
+     * Генерирует новый номер карты с контрольной цифрой Луна. Уникальность не проверяется,
+     * см. CardService
      */
     public String generateCardNumber() {
-        StringBuilder cardNumber = new StringBuilder();
-        for (int i = 0; i < 16; i++) {
-            cardNumber.append((int) (Math.random() * 10));
+        BinRange range = binRanges[binRanges.length == 1 ? 0 : random.nextInt(binRanges.length)];
+        StringBuilder cardNumber = new StringBuilder(CARD_NUMBER_LENGTH).append(range.next(random));
+        while (cardNumber.length() < CARD_NUMBER_LENGTH - 1) {
+            cardNumber.append((char) ('0' + random.nextInt(10)));
+        }
+        return cardNumber.append(luhnCheckDigit(cardNumber)).toString();
+    }
+
+    /**
+     * Проверяет контрольную цифру номера по алгоритму Луна
+     */
+    public static boolean isLuhnValid(String cardNumber) {
+        if (cardNumber == null || cardNumber.length() < 2 || !cardNumber.chars().allMatch(Character::isDigit)) {
+            return false;
+        }
+        int last = cardNumber.length() - 1;
+        return luhnCheckDigit(cardNumber.substring(0, last)) == cardNumber.charAt(last);
+    }
+
+    /**
+     * Контрольная цифра для номера без нее: цифры через одну справа удваиваются
+     */
+    private static char luhnCheckDigit(CharSequence payload) {
+        int sum = 0;
+        boolean doubled = true;
+        for (int i = payload.length() - 1; i >= 0; i--) {
+            int digit = payload.charAt(i) - '0';
+            if (doubled) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+            doubled = !doubled;
+        }
+        return (char) ('0' + (10 - sum % 10) % 10);
+    }
+
+    private String encrypt(Cipher cipher, String cardNumber) throws GeneralSecurityException {
+        byte[] iv = new byte[IV_LENGTH];
+        random.nextBytes(iv);
+        cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH_BITS, iv));
+        byte[] plain = cardNumber.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer output = ByteBuffer.allocate(IV_LENGTH + cipher.getOutputSize(plain.length));
+        output.put(iv);
+        cipher.doFinal(ByteBuffer.wrap(plain), output);
+        return GCM_PREFIX + Base64.getEncoder().encodeToString(output.array());
+    }
+
+    private String decrypt(String encryptedCardNumber) throws GeneralSecurityException {
+        if (encryptedCardNumber.startsWith(GCM_PREFIX)) {
+            byte[] data = Base64.getDecoder().decode(encryptedCardNumber.substring(GCM_PREFIX.length()));
+            Cipher cipher = gcmCiphers.get();
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH_BITS, data, 0, IV_LENGTH));
+            return new String(cipher.doFinal(data, IV_LENGTH, data.length - IV_LENGTH), StandardCharsets.UTF_8);
+        }
+        if (legacyKey == null) {
+            throw new IllegalStateException("Номер карты в прежнем формате, но cards.encryption.legacy-key не задан");
+        }
+        Cipher cipher = legacyCiphers.get();
+        cipher.init(Cipher.DECRYPT_MODE, legacyKey);
+        return new String(cipher.doFinal(Base64.getDecoder().decode(encryptedCardNumber)), StandardCharsets.UTF_8);
+    }
+
+    private static SecretKeySpec aesKey(String value, String property) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length != 16 && bytes.length != 24 && bytes.length != 32) {
+            throw new IllegalStateException(property + " должен занимать 16, 24 или 32 байта, получено " + bytes.length);
+        }
+        return new SecretKeySpec(bytes, ALGORITHM);
+    }
+
+    /**
+     * Диапазон BIN одинаковой длины, границы включительно
+     */
+    private record BinRange(long low, long high, int digits) {
+
+        private static BinRange parse(String value) {
+            int dash = value.indexOf('-');
+            String low = dash < 0 ? value : value.substring(0, dash).trim();
+            String high = dash < 0 ? value : value.substring(dash + 1).trim();
+            if (!low.matches("\\d{1,10}") || low.length() != high.length() || !high.matches("\\d+")
+                    || low.length() >= CARD_NUMBER_LENGTH - 1 || Long.parseLong(low) > Long.parseLong(high)) {
+                throw new IllegalStateException("Некорректный BIN в cards.number.bins: " + value);
+            }
+            return new BinRange(Long.parseLong(low), Long.parseLong(high), low.length());
+        }
+
+        private String next(SecureRandom random) {
+            long bin = low == high ? low : low + random.nextLong(high - low + 1);
+            String digits = Long.toString(bin);
+            return "0".repeat(this.digits - digits.length()) + digits;
+        }
+    }
+
+    private static SecretKeySpec indexKey(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length < MIN_INDEX_KEY_LENGTH) {
+            throw new IllegalStateException("cards.encryption.index-key должен занимать не меньше "
+                    + MIN_INDEX_KEY_LENGTH + " байт, получено " + bytes.length);
+        }
+        return new SecretKeySpec(bytes, INDEX_ALGORITHM);
+    }
+
+    private Mac newIndexMac() {
+        try {
+            Mac mac = Mac.getInstance(INDEX_ALGORITHM);
+            mac.init(indexKey);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Алгоритм " + INDEX_ALGORITHM + " недоступен", e);
+        }
+    }
+
+    private static Cipher newCipher(String transformation) {
+        try {
+            return Cipher.getInstance(transformation);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Алгоритм " + transformation + " недоступен", e);
         }
-        return cardNumber.toString();
     }
 }
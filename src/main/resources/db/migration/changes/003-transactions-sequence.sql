@@ -0,0 +1,5 @@
+-- Sequence with pooled allocation for transactions (IDENTITY disables Hibernate insert batching)
+CREATE SEQUENCE transactions_seq START WITH 1 INCREMENT BY 50;
+
+-- Start the pool above existing ids (pooled optimizer treats the value as the upper bound of a block)
+SELECT setval('transactions_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM transactions), false);
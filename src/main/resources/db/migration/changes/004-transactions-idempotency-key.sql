@@ -0,0 +1,4 @@
+-- Idempotency-Key of the original request; NULL for transfers created without the header
+ALTER TABLE transactions ADD COLUMN idempotency_key VARCHAR(64);
+
+CREATE UNIQUE INDEX idx_transactions_idempotency_key ON transactions(idempotency_key);
@@ -0,0 +1,3 @@
+-- Version columns for optimistic locking (@Version)
+ALTER TABLE cards ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE transactions ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,6 @@
+-- Checkpoint of the transfer journal: last journal record applied to cards and transactions
+CREATE TABLE journal_checkpoint (
+    id BIGINT PRIMARY KEY,
+    last_sequence BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP
+);
@@ -0,0 +1,31 @@
+-- Double-entry ledger: insert-only entries with signed amounts
+CREATE SEQUENCE ledger_entries_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE ledger_entries (
+    id BIGINT PRIMARY KEY,
+    card_id BIGINT NOT NULL REFERENCES cards(id) ON DELETE CASCADE,
+    transaction_id BIGINT REFERENCES transactions(id) ON DELETE SET NULL,
+    entry_type VARCHAR(20) NOT NULL,
+    amount DECIMAL(19,2) NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_ledger_entries_card_id ON ledger_entries(card_id, id);
+CREATE INDEX idx_ledger_entries_transaction_id ON ledger_entries(transaction_id);
+
+-- Balance snapshots: sum of entries up to last_entry_id
+CREATE TABLE balance_snapshots (
+    card_id BIGINT PRIMARY KEY REFERENCES cards(id) ON DELETE CASCADE,
+    balance DECIMAL(19,2) NOT NULL,
+    last_entry_id BIGINT NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Opening entries carry the current balances into the ledger
+INSERT INTO ledger_entries (id, card_id, entry_type, amount)
+SELECT nextval('ledger_entries_seq'), id, 'OPENING', balance FROM cards;
+
+INSERT INTO balance_snapshots (card_id, balance, last_entry_id)
+SELECT card_id, amount, id FROM ledger_entries;
+
+SELECT setval('ledger_entries_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM ledger_entries), false);
@@ -0,0 +1,10 @@
+-- Hot cards keep their balance split across sub-balance rows
+ALTER TABLE cards ADD COLUMN hot BOOLEAN NOT NULL DEFAULT FALSE;
+
+CREATE TABLE card_balance_shards (
+    id BIGSERIAL PRIMARY KEY,
+    card_id BIGINT NOT NULL REFERENCES cards(id) ON DELETE CASCADE,
+    shard_index INTEGER NOT NULL,
+    balance DECIMAL(19,2) NOT NULL DEFAULT 0.00,
+    UNIQUE (card_id, shard_index)
+);
@@ -0,0 +1,17 @@
+-- Authorization holds: funds reserved on the source card until capture, release or expiry
+CREATE TABLE card_holds (
+    id BIGSERIAL PRIMARY KEY,
+    from_card_id BIGINT NOT NULL REFERENCES cards(id) ON DELETE CASCADE,
+    to_card_id BIGINT NOT NULL REFERENCES cards(id) ON DELETE CASCADE,
+    amount DECIMAL(19,2) NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'ACTIVE',
+    expires_at TIMESTAMP NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    resolved_at TIMESTAMP,
+    transaction_id BIGINT REFERENCES transactions(id),
+    version BIGINT NOT NULL DEFAULT 0
+);
+
+-- Startup reload reads only active holds
+CREATE INDEX idx_card_holds_status ON card_holds(status);
+CREATE INDEX idx_card_holds_from_card ON card_holds(from_card_id);
@@ -0,0 +1,2 @@
+-- Velocity counters are rebuilt on startup from transfers of the last window
+CREATE INDEX idx_transactions_created_at ON transactions(created_at);
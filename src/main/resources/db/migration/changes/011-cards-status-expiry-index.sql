@@ -0,0 +1,2 @@
+-- The expiry sweeper selects ACTIVE cards with a past expiry_date in chunks
+CREATE INDEX idx_cards_status_expiry_date ON cards(status, expiry_date);
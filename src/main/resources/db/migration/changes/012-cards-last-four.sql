@@ -0,0 +1,3 @@
+-- Last four digits of the card number, stored in clear for the masked form.
+-- Existing rows are filled by CardLastFourBackfill: the digits require decryption.
+ALTER TABLE cards ADD COLUMN last_four VARCHAR(4);
@@ -0,0 +1,9 @@
+-- Blind index of the card number: HMAC-SHA256 in hex, see CardNumberUtil.blindIndex.
+-- Exact-number lookups and uniqueness checks go through this index; ciphertexts
+-- with a random IV are never equal for the same number.
+-- Existing rows are filled by CardLastFourBackfill: the index requires decryption.
+ALTER TABLE cards ADD COLUMN card_number_hash VARCHAR(64);
+CREATE UNIQUE INDEX idx_cards_card_number_hash ON cards(card_number_hash);
+
+-- Uniqueness of the ciphertext is meaningless now and only costs an index on insert
+ALTER TABLE cards DROP CONSTRAINT IF EXISTS cards_card_number_key;
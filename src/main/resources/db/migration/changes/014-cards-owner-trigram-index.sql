@@ -0,0 +1,5 @@
+-- Admin search matches any substring of the owner name (ILIKE '%...%'),
+-- which a B-tree index cannot serve. A trigram GIN index can.
+-- PostgreSQL only; other databases use the in-memory CardOwnerIndex.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX idx_cards_owner_trgm ON cards USING gin (owner gin_trgm_ops);
@@ -0,0 +1,6 @@
+-- Cursor pages seek to (created_at, id) below the cursor, newest first.
+-- Each listing reads only the rows of its page from one of these indexes,
+-- however deep the page is.
+CREATE INDEX idx_cards_user_created_at ON cards(user_id, created_at, id);
+CREATE INDEX idx_transactions_from_card_created_at ON transactions(from_card_id, created_at, id);
+CREATE INDEX idx_transactions_to_card_created_at ON transactions(to_card_id, created_at, id);
@@ -0,0 +1,19 @@
+-- Per-user card summary read model: total balance and card counts by status, maintained incrementally
+CREATE TABLE user_card_summaries (
+    user_id BIGINT PRIMARY KEY REFERENCES users(id) ON DELETE CASCADE,
+    total_balance DECIMAL(19,2) NOT NULL DEFAULT 0,
+    active_cards BIGINT NOT NULL DEFAULT 0,
+    blocked_cards BIGINT NOT NULL DEFAULT 0,
+    expired_cards BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Backfill from the ledger, which holds every balance change in all balance modes; users without cards get zeros
+INSERT INTO user_card_summaries (user_id, total_balance, active_cards, blocked_cards, expired_cards)
+SELECT u.id,
+       COALESCE((SELECT SUM(le.amount) FROM ledger_entries le JOIN cards c ON c.id = le.card_id
+                 WHERE c.user_id = u.id), 0),
+       (SELECT COUNT(*) FROM cards c WHERE c.user_id = u.id AND c.status = 'ACTIVE'),
+       (SELECT COUNT(*) FROM cards c WHERE c.user_id = u.id AND c.status = 'BLOCKED'),
+       (SELECT COUNT(*) FROM cards c WHERE c.user_id = u.id AND c.status = 'EXPIRED')
+FROM users u;
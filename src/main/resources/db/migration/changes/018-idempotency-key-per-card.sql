@@ -0,0 +1,4 @@
+-- Idempotency keys are scoped to the sender card instead of being globally unique
+DROP INDEX IF EXISTS idx_transactions_idempotency_key;
+
+CREATE UNIQUE INDEX idx_transactions_from_card_idempotency_key ON transactions(from_card_id, idempotency_key);
@@ -0,0 +1,9 @@
+-- Cursor pages now seek one card at a time with (created_at, id) < (?, ?) and
+-- order by the whole index key, newest first. Descending key columns let engines
+-- without backward index scans read only the rows of the page.
+DROP INDEX IF EXISTS idx_cards_user_created_at;
+DROP INDEX IF EXISTS idx_transactions_from_card_created_at;
+DROP INDEX IF EXISTS idx_transactions_to_card_created_at;
+CREATE INDEX idx_cards_user_created_at_desc ON cards(user_id DESC, created_at DESC, id DESC);
+CREATE INDEX idx_transactions_from_card_created_at_desc ON transactions(from_card_id DESC, created_at DESC, id DESC);
+CREATE INDEX idx_transactions_to_card_created_at_desc ON transactions(to_card_id DESC, created_at DESC, id DESC);
@@ -0,0 +1,13 @@
+-- Balance deltas of the per-user summary are spread over shard rows instead of one user_card_summaries row
+CREATE TABLE user_balance_shards (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    shard_index INTEGER NOT NULL,
+    balance DECIMAL(19,2) NOT NULL DEFAULT 0.00,
+    UNIQUE (user_id, shard_index)
+);
+
+-- Existing users get the default number of shards (cards.summary.balance-shards); the summary row keeps its total
+INSERT INTO user_balance_shards (user_id, shard_index)
+SELECT u.id, s.shard_index
+FROM users u CROSS JOIN generate_series(0, 7) AS s(shard_index);
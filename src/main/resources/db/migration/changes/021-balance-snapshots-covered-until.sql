@@ -0,0 +1,17 @@
+-- Snapshots cover entries created before covered_until instead of entries up to last_entry_id:
+-- pooled sequence ids are not in commit order, so an id watermark could skip a late commit
+UPDATE ledger_entries SET created_at = TIMESTAMP '1970-01-01 00:00:00' WHERE created_at IS NULL;
+ALTER TABLE ledger_entries ALTER COLUMN created_at SET NOT NULL;
+
+CREATE INDEX idx_ledger_entries_card_created_at ON ledger_entries(card_id, created_at);
+
+ALTER TABLE balance_snapshots ADD COLUMN covered_until TIMESTAMP;
+
+-- Runs while the application is stopped, so every entry is committed and snapshots are rebuilt from them
+UPDATE balance_snapshots s
+SET covered_until = CURRENT_TIMESTAMP,
+    balance = (SELECT COALESCE(SUM(e.amount), 0) FROM ledger_entries e
+               WHERE e.card_id = s.card_id AND e.created_at < CURRENT_TIMESTAMP);
+
+ALTER TABLE balance_snapshots ALTER COLUMN covered_until SET NOT NULL;
+ALTER TABLE balance_snapshots DROP COLUMN last_entry_id;
@@ -0,0 +1,33 @@
+-- Per-participant projection of transfers: a user's cursor page is one seek on
+-- (user_id, created_at, transaction_id) instead of a seek per card and direction.
+-- A transfer between two cards of the same user has a single row.
+UPDATE transactions SET created_at = CURRENT_TIMESTAMP WHERE created_at IS NULL;
+ALTER TABLE transactions ALTER COLUMN created_at SET NOT NULL;
+
+CREATE TABLE user_transactions (
+    id BIGINT PRIMARY KEY,
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    transaction_id BIGINT NOT NULL REFERENCES transactions(id) ON DELETE CASCADE,
+    created_at TIMESTAMP NOT NULL,
+    UNIQUE (user_id, transaction_id)
+);
+
+-- Sequence with pooled allocation (rows are inserted in the same JDBC batch as their transfers)
+CREATE SEQUENCE user_transactions_seq START WITH 1 INCREMENT BY 50;
+
+INSERT INTO user_transactions (id, user_id, transaction_id, created_at)
+SELECT ROW_NUMBER() OVER (ORDER BY p.transaction_id, p.user_id), p.user_id, p.transaction_id, p.created_at
+FROM (
+    SELECT t.id AS transaction_id, fc.user_id, t.created_at
+    FROM transactions t JOIN cards fc ON fc.id = t.from_card_id
+    UNION
+    SELECT t.id, tc.user_id, t.created_at
+    FROM transactions t JOIN cards tc ON tc.id = t.to_card_id
+) p;
+
+-- Start the pool above existing ids (pooled optimizer treats the value as the upper bound of a block)
+SELECT setval('user_transactions_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM user_transactions), false);
+
+CREATE INDEX idx_user_transactions_user_created_at_desc
+    ON user_transactions(user_id DESC, created_at DESC, transaction_id DESC);
+CREATE INDEX idx_user_transactions_transaction_id ON user_transactions(transaction_id);
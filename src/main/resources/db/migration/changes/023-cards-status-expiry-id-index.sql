@@ -0,0 +1,5 @@
+-- Bulk status changes with an expiry range (including the expiry sweeper) seek
+-- (expiry_date, id) > (?, ?) within one status and lock the chunk by id; with id
+-- in the key the chunk is read in index order without sorting the whole range.
+DROP INDEX IF EXISTS idx_cards_status_expiry_date;
+CREATE INDEX idx_cards_status_expiry_date_id ON cards(status, expiry_date, id);
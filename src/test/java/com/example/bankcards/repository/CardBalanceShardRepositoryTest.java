@@ -0,0 +1,72 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.CardBalanceShard;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@DisplayName("CardBalanceShardRepository Tests")
+class CardBalanceShardRepositoryTest {
+
+    private static final Long CARD_ID = 42L;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private CardBalanceShardRepository shardRepository;
+
+    @BeforeEach
+    void setUp() {
+        entityManager.persist(new CardBalanceShard(CARD_ID, 0, new BigDecimal("100.00")));
+        entityManager.persist(new CardBalanceShard(CARD_ID, 1, new BigDecimal("5.00")));
+        entityManager.flush();
+    }
+
+    @Test
+    @DisplayName("Should add to a shard with one UPDATE")
+    void credit() {
+        // When
+        int updated = shardRepository.credit(CARD_ID, 1, new BigDecimal("2.50"));
+        entityManager.clear();
+
+        // Then
+        assertEquals(1, updated);
+        assertEquals(0, new BigDecimal("107.50").compareTo(shardRepository.sumByCardId(CARD_ID)));
+    }
+
+    @Test
+    @DisplayName("Should debit a shard only when it holds the whole amount")
+    void debit() {
+        // When
+        int insufficient = shardRepository.debit(CARD_ID, 1, new BigDecimal("10.00"));
+        int debited = shardRepository.debit(CARD_ID, 0, new BigDecimal("10.00"));
+        entityManager.clear();
+
+        // Then
+        assertEquals(0, insufficient);
+        assertEquals(1, debited);
+        assertEquals(0, new BigDecimal("95.00").compareTo(shardRepository.sumByCardId(CARD_ID)));
+    }
+
+    @Test
+    @DisplayName("Should sum shards per card")
+    void sumByCardIds() {
+        // When
+        List<Object[]> rows = shardRepository.sumByCardIds(List.of(CARD_ID, 7L));
+
+        // Then
+        assertEquals(1, rows.size());
+        assertEquals(CARD_ID, rows.get(0)[0]);
+        assertEquals(0, new BigDecimal("105.00").compareTo((BigDecimal) rows.get(0)[1]));
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@DisplayName("CardRepository Tests")
+class CardRepositoryTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    private User user() {
+        User user = new User();
+        user.setUsername("cards");
+        user.setEmail("cards@example.com");
+        user.setPassword("secret");
+        user.setRole(Role.USER);
+        return entityManager.persist(user);
+    }
+
+    private Card card(User user, String owner, LocalDateTime createdAt, CardStatus status) {
+        return card(user, owner, createdAt, status, LocalDate.now().plusYears(1));
+    }
+
+    private Card card(User user, String owner, LocalDateTime createdAt, CardStatus status, LocalDate expiryDate) {
+        Card card = new Card();
+        card.setCardNumber("encrypted-" + owner);
+        card.setOwner(owner);
+        card.setExpiryDate(expiryDate);
+        card.setStatus(status);
+        card.setCreatedAt(createdAt);
+        card.setUser(user);
+        return entityManager.persist(card);
+    }
+
+    @Test
+    @DisplayName("Should seek user cards strictly before the cursor pair and filter by status")
+    void findByUserIdBefore_SeeksCursorPair() {
+        // Given
+        User user = user();
+        Card older = card(user, "Older", NOW.minusDays(1), CardStatus.ACTIVE);
+        card(user, "Expired", NOW.minusHours(1), CardStatus.EXPIRED);
+        Card sameTimeLower = card(user, "Lower", NOW, CardStatus.BLOCKED);
+        Card cursor = card(user, "Cursor", NOW, CardStatus.ACTIVE);
+        entityManager.flush();
+        entityManager.clear();
+
+        // When
+        List<Card> page = cardRepository.findByUserIdBefore(user.getId(), List.of(CardStatus.ACTIVE, CardStatus.BLOCKED),
+                null, cursor.getCreatedAt(), cursor.getId(), PageRequest.of(0, 10));
+
+        // Then
+        assertEquals(List.of(sameTimeLower.getId(), older.getId()), page.stream().map(Card::getId).toList());
+    }
+
+    @Test
+    @DisplayName("Should take expiring cards in (expiry date, id) order and return them locked in id order")
+    void lockForStatusChangeByExpiry_SeeksExpiryCursor() {
+        // Given
+        User user = user();
+        LocalDate today = LocalDate.of(2024, 1, 10);
+        Card laterLower = card(user, "Later Lower", NOW, CardStatus.ACTIVE, today.minusDays(3));
+        Card earliest = card(user, "Earliest", NOW, CardStatus.ACTIVE, today.minusDays(5));
+        Card laterHigher = card(user, "Later Higher", NOW, CardStatus.ACTIVE, today.minusDays(3));
+        card(user, "Blocked", NOW, CardStatus.BLOCKED, today.minusDays(1));
+        card(user, "Valid", NOW, CardStatus.ACTIVE, today.plusDays(1));
+        card(user, "Expired", NOW, CardStatus.EXPIRED, today.minusDays(5));
+        entityManager.flush();
+        entityManager.clear();
+
+        // When
+        List<Object[]> first = cardRepository.lockForStatusChangeByExpiry(LocalDate.of(1, 1, 1), 0L,
+                CardStatus.EXPIRED, null, CardStatus.ACTIVE, today.minusDays(1), 2);
+        List<Object[]> second = cardRepository.lockForStatusChangeByExpiry(today.minusDays(3), laterLower.getId(),
+                CardStatus.EXPIRED, user.getId(), CardStatus.ACTIVE, today.minusDays(1), 2);
+
+        // Then
+        assertEquals(List.of(laterLower.getId(), earliest.getId()), first.stream().map(row -> row[0]).toList());
+        assertEquals(today.minusDays(5), first.get(1)[3]);
+        assertEquals(List.of(laterHigher.getId()), second.stream().map(row -> row[0]).toList());
+    }
+}
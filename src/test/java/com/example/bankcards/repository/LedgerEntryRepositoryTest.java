@@ -0,0 +1,105 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.BalanceSnapshot;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.LedgerEntry;
+import com.example.bankcards.entity.LedgerEntryType;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@DisplayName("LedgerEntryRepository Tests")
+class LedgerEntryRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private LedgerEntryRepository ledgerEntryRepository;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setUsername("ledger");
+        user.setEmail("ledger@example.com");
+        user.setPassword("secret");
+        user.setRole(Role.USER);
+        entityManager.persist(user);
+    }
+
+    private Card card(String owner) {
+        Card card = new Card();
+        card.setCardNumber("encrypted-" + owner);
+        card.setOwner(owner);
+        card.setExpiryDate(LocalDate.now().plusYears(1));
+        card.setUser(user);
+        return entityManager.persist(card);
+    }
+
+    private LedgerEntry entry(Card card, String amount) {
+        return entityManager.persist(new LedgerEntry(card.getId(), null, LedgerEntryType.ADJUSTMENT, new BigDecimal(amount)));
+    }
+
+    private static void pause() {
+        try {
+            Thread.sleep(5);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    @DisplayName("Should return snapshot balance and entries after it for every card in one query")
+    void findBalanceParts() {
+        // Given
+        Card withSnapshot = card("Snapshot");
+        Card withoutSnapshot = card("Entries");
+        Card empty = card("Empty");
+        entry(withSnapshot, "100.00");
+        entityManager.flush();
+        pause();
+        LocalDateTime coveredUntil = LocalDateTime.now();
+        pause();
+        entry(withSnapshot, "25.50");
+        entry(withoutSnapshot, "40.00");
+        entry(withoutSnapshot, "-15.00");
+        BalanceSnapshot snapshot = new BalanceSnapshot(withSnapshot.getId());
+        snapshot.setBalance(new BigDecimal("100.00"));
+        snapshot.setCoveredUntil(coveredUntil);
+        entityManager.persist(snapshot);
+        entityManager.flush();
+        entityManager.clear();
+
+        // When
+        List<Object[]> rows = ledgerEntryRepository.findBalanceParts(
+                List.of(withSnapshot.getId(), withoutSnapshot.getId(), empty.getId()));
+
+        // Then
+        Map<Long, Object[]> byCard = new HashMap<>();
+        rows.forEach(row -> byCard.put((Long) row[0], row));
+        assertEquals(3, byCard.size());
+        assertEquals(0, new BigDecimal("100.00").compareTo((BigDecimal) byCard.get(withSnapshot.getId())[1]));
+        assertEquals(0, new BigDecimal("25.50").compareTo((BigDecimal) byCard.get(withSnapshot.getId())[2]));
+        assertNull(byCard.get(withoutSnapshot.getId())[1]);
+        assertEquals(0, new BigDecimal("25.00").compareTo((BigDecimal) byCard.get(withoutSnapshot.getId())[2]));
+        assertNull(byCard.get(empty.getId())[1]);
+        assertNull(byCard.get(empty.getId())[2]);
+    }
+}
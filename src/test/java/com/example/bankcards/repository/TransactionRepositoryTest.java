@@ -0,0 +1,140 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.entity.TransactionStatus;
+import com.example.bankcards.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@DisplayName("TransactionRepository Tests")
+class TransactionRepositoryTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    private Card first;
+    private Card second;
+    private Card foreign;
+    private Card foreignSecond;
+
+    @BeforeEach
+    void setUp() {
+        User user = user("keyset");
+        first = card(user, "First");
+        second = card(user, "Second");
+        User other = user("other");
+        foreign = card(other, "Foreign");
+        foreignSecond = card(other, "Foreign Second");
+    }
+
+    private User user(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPassword("secret");
+        user.setRole(Role.USER);
+        return entityManager.persist(user);
+    }
+
+    private Card card(User user, String owner) {
+        Card card = new Card();
+        card.setCardNumber("encrypted-" + owner);
+        card.setOwner(owner);
+        card.setExpiryDate(LocalDate.now().plusYears(1));
+        card.setUser(user);
+        return entityManager.persist(card);
+    }
+
+    private Transaction transfer(Card from, Card to, LocalDateTime createdAt, TransactionStatus status) {
+        Transaction transaction = new Transaction(from, to, BigDecimal.TEN);
+        transaction.setStatus(status);
+        transaction.setCreatedAt(createdAt);
+        return entityManager.persist(transaction);
+    }
+
+    @Test
+    @DisplayName("Should seek sent and received transfers of a user strictly before the cursor pair")
+    void findByUserIdBefore_SeeksCursorPair() {
+        // Given
+        Transaction oldest = transfer(foreign, first, NOW.minusMinutes(2), TransactionStatus.COMPLETED);
+        Transaction sameTimeLower = transfer(first, second, NOW, TransactionStatus.COMPLETED);
+        Transaction cursor = transfer(first, foreign, NOW, TransactionStatus.COMPLETED);
+        transfer(second, first, NOW, TransactionStatus.COMPLETED);
+        Transaction foreignOnly = transfer(foreign, foreignSecond, NOW.minusMinutes(1), TransactionStatus.COMPLETED);
+        entityManager.flush();
+        entityManager.clear();
+
+        // When
+        List<Transaction> page = transactionRepository.findByUserIdBefore(first.getUser().getId(), null,
+                cursor.getCreatedAt(), cursor.getId(), PageRequest.of(0, 10));
+        List<Transaction> foreignPage = transactionRepository.findByUserIdBefore(foreign.getUser().getId(), null,
+                NOW.plusMinutes(1), Long.MAX_VALUE, PageRequest.of(0, 10));
+
+        // Then: перевод между своими картами входит в страницу один раз
+        assertEquals(List.of(sameTimeLower.getId(), oldest.getId()), page.stream().map(Transaction::getId).toList());
+        assertEquals(List.of(cursor.getId(), foreignOnly.getId(), oldest.getId()),
+                foreignPage.stream().map(Transaction::getId).toList());
+    }
+
+    @Test
+    @DisplayName("Should filter user transfers by status and limit the page")
+    void findByUserIdBefore_StatusAndLimit() {
+        // Given
+        Transaction newest = transfer(foreign, second, NOW.minusMinutes(1), TransactionStatus.COMPLETED);
+        transfer(first, foreign, NOW.minusMinutes(2), TransactionStatus.FAILED);
+        Transaction older = transfer(first, second, NOW.minusMinutes(3), TransactionStatus.COMPLETED);
+        transfer(second, foreign, NOW.minusMinutes(4), TransactionStatus.COMPLETED);
+        entityManager.flush();
+        entityManager.clear();
+
+        // When
+        List<Transaction> page = transactionRepository.findByUserIdBefore(first.getUser().getId(),
+                TransactionStatus.COMPLETED, NOW, Long.MAX_VALUE, PageRequest.of(0, 2));
+
+        // Then
+        assertEquals(List.of(newest.getId(), older.getId()), page.stream().map(Transaction::getId).toList());
+    }
+
+    @Test
+    @DisplayName("Should scope an idempotency key to the sender card of its owner")
+    void findByIdempotencyKey_PerSenderCard() {
+        // Given
+        Transaction fromFirst = transfer(first, second, NOW, TransactionStatus.COMPLETED);
+        fromFirst.setIdempotencyKey("retry-key");
+        Transaction fromSecond = transfer(second, first, NOW, TransactionStatus.COMPLETED);
+        fromSecond.setIdempotencyKey("retry-key");
+        entityManager.flush();
+        entityManager.clear();
+
+        // When & Then
+        assertEquals(fromFirst.getId(), transactionRepository
+                .findByFromCardIdAndFromCardUserIdAndIdempotencyKey(first.getId(), first.getUser().getId(), "retry-key")
+                .orElseThrow().getId());
+        assertEquals(fromSecond.getId(), transactionRepository
+                .findByFromCardIdAndFromCardUserIdAndIdempotencyKey(second.getId(), first.getUser().getId(), "retry-key")
+                .orElseThrow().getId());
+        assertTrue(transactionRepository
+                .findByFromCardIdAndFromCardUserIdAndIdempotencyKey(first.getId(), first.getUser().getId() + 1, "retry-key")
+                .isEmpty());
+    }
+}
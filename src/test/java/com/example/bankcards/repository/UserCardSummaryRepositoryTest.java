@@ -0,0 +1,83 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.UserBalanceShard;
+import com.example.bankcards.entity.UserCardSummary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@DisplayName("UserCardSummaryRepository Tests")
+class UserCardSummaryRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private UserCardSummaryRepository summaryRepository;
+
+    @Autowired
+    private UserBalanceShardRepository shardRepository;
+
+    private Long userId;
+
+    @BeforeEach
+    void setUp() {
+        User user = new User();
+        user.setUsername("summary");
+        user.setEmail("summary@example.com");
+        user.setPassword("secret");
+        user.setRole(Role.USER);
+        userId = entityManager.persist(user).getId();
+
+        UserCardSummary summary = new UserCardSummary(userId);
+        summary.setTotalBalance(new BigDecimal("100.00"));
+        summary.setActiveCards(2);
+        entityManager.persist(summary);
+        entityManager.persist(new UserBalanceShard(userId, 0, BigDecimal.ZERO));
+        entityManager.persist(new UserBalanceShard(userId, 1, new BigDecimal("5.00")));
+        entityManager.flush();
+    }
+
+    @Test
+    @DisplayName("Should add balance and card count deltas with one UPDATE")
+    void applyDelta() {
+        // When
+        int updated = summaryRepository.applyDelta(userId, new BigDecimal("-20.25"), -1, 1, 0);
+        int missing = summaryRepository.applyDelta(userId + 1, BigDecimal.TEN, 1, 0, 0);
+        entityManager.clear();
+
+        // Then
+        assertEquals(1, updated);
+        assertEquals(0, missing);
+        UserCardSummary summary = summaryRepository.findById(userId).orElseThrow();
+        assertEquals(0, new BigDecimal("79.75").compareTo(summary.getTotalBalance()));
+        assertEquals(1, summary.getActiveCards());
+        assertEquals(1, summary.getBlockedCards());
+        assertEquals(0, summary.getExpiredCards());
+    }
+
+    @Test
+    @DisplayName("Should add a balance delta to one shard and sum all shards of the user")
+    void addToShard() {
+        // When
+        int updated = shardRepository.add(userId, 0, new BigDecimal("12.50"));
+        int missing = shardRepository.add(userId, 5, BigDecimal.TEN);
+        entityManager.clear();
+
+        // Then
+        assertEquals(1, updated);
+        assertEquals(0, missing);
+        assertEquals(0, new BigDecimal("17.50").compareTo(shardRepository.sumByUserId(userId)));
+        assertEquals(0, BigDecimal.ZERO.compareTo(shardRepository.sumByUserId(userId + 1)));
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardDto;
+import com.example.bankcards.dto.UserDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("AdminExportService Tests")
+class AdminExportServiceTest {
+
+    @Mock
+    private CardRepository cardRepository;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private CardService cardService;
+
+    @Mock
+    private TransactionService transactionService;
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private EntityManager entityManager;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private AdminExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        exportService = new AdminExportService(cardRepository, transactionRepository, userRepository,
+                cardService, transactionService, userService, entityManager, objectMapper);
+    }
+
+    private static User user(long id, String username, String email) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername(username);
+        user.setEmail(email);
+        user.setRole(Role.USER);
+        user.setEnabled(true);
+        return user;
+    }
+
+    private static UserDto userDto(User user) {
+        return new UserDto(user.getId(), user.getUsername(), user.getEmail(), user.getRole(), user.isEnabled());
+    }
+
+    @Nested
+    @DisplayName("NDJSON")
+    class NdjsonTests {
+
+        @Test
+        @DisplayName("Должен писать по одному JSON-объекту в строке и отсоединять сущности")
+        void shouldWriteOneJsonObjectPerLine() throws Exception {
+            // Given
+            User first = user(1L, "alice", "alice@example.com");
+            User second = user(2L, "bob", "bob@example.com");
+            when(userRepository.streamAll()).thenReturn(Stream.of(first, second));
+            when(userService.convertToDto(first)).thenReturn(userDto(first));
+            when(userService.convertToDto(second)).thenReturn(userDto(second));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+            // When
+            long written = exportService.exportUsers(ExportFormat.NDJSON, out);
+
+            // Then
+            assertEquals(2, written);
+            String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+            assertEquals(2, lines.length);
+            JsonNode firstLine = objectMapper.readTree(lines[0]);
+            assertEquals("alice", firstLine.get("username").asText());
+            assertEquals("bob@example.com", objectMapper.readTree(lines[1]).get("email").asText());
+            verify(entityManager).detach(first);
+            verify(entityManager).detach(second);
+        }
+
+        @Test
+        @DisplayName("Должен закрывать поток из репозитория")
+        void shouldCloseRepositoryStream() throws Exception {
+            // Given
+            AtomicBoolean closed = new AtomicBoolean();
+            when(userRepository.streamAll()).thenReturn(Stream.<User>empty().onClose(() -> closed.set(true)));
+
+            // When
+            long written = exportService.exportUsers(ExportFormat.NDJSON, new ByteArrayOutputStream());
+
+            // Then
+            assertEquals(0, written);
+            assertTrue(closed.get());
+        }
+
+        @Test
+        @DisplayName("Должен очищать контекст персистентности пакетами")
+        void shouldClearPersistenceContextPeriodically() throws Exception {
+            // Given
+            int total = AdminExportService.FLUSH_INTERVAL * 2 + 5;
+            when(userRepository.streamAll()).thenReturn(Stream.iterate(1L, id -> id + 1).limit(total)
+                    .map(id -> user(id, "user" + id, "user" + id + "@example.com")));
+            when(userService.convertToDto(any(User.class))).thenAnswer(invocation -> userDto(invocation.getArgument(0)));
+
+            // When
+            long written = exportService.exportUsers(ExportFormat.NDJSON, new ByteArrayOutputStream());
+
+            // Then: после первой строки и после каждой тысячи
+            assertEquals(total, written);
+            verify(entityManager, times(3)).clear();
+        }
+    }
+
+    @Nested
+    @DisplayName("CSV")
+    class CsvTests {
+
+        @Test
+        @DisplayName("Должен писать заголовок и строки карт")
+        void shouldWriteHeaderAndRows() throws Exception {
+            // Given
+            Card card = new Card();
+            card.setId(5L);
+            CardDto dto = new CardDto(5L, "**** **** **** 1234", "Ivan, Petrov", LocalDate.of(2030, 1, 31),
+                    CardStatus.ACTIVE, new BigDecimal("100.00"), 7L);
+            dto.setAvailableBalance(new BigDecimal("80.00"));
+            when(cardRepository.streamAll()).thenReturn(Stream.of(card));
+            when(cardService.convertToDtos(List.of(card))).thenReturn(List.of(dto));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+            // When
+            exportService.exportCards(ExportFormat.CSV, out);
+
+            // Then
+            String[] lines = out.toString(StandardCharsets.UTF_8).split("\r\n");
+            assertEquals("id,cardNumber,owner,expiryDate,status,balance,availableBalance,userId", lines[0]);
+            assertEquals("5,**** **** **** 1234,\"Ivan, Petrov\",2030-01-31,ACTIVE,100.00,80.00,7", lines[1]);
+            verify(entityManager).detach(card);
+        }
+
+        @Test
+        @DisplayName("Должен экранировать кавычки и переводы строк")
+        void shouldQuoteSpecialCharacters() {
+            assertEquals("\"say \"\"hi\"\"\"", AdminExportService.csvCell("say \"hi\""));
+            assertEquals("\"a\nb\"", AdminExportService.csvCell("a\nb"));
+            assertEquals("", AdminExportService.csvCell(null));
+        }
+
+        @Test
+        @DisplayName("Должен обезвреживать формулы в строковых ячейках")
+        void shouldNeutralizeFormulas() {
+            assertEquals("'=SUM(A1:A2)", AdminExportService.csvCell("=SUM(A1:A2)"));
+            assertEquals("'@cmd", AdminExportService.csvCell("@cmd"));
+            assertEquals("-5.00", AdminExportService.csvCell(new BigDecimal("-5.00")));
+        }
+    }
+
+    @Test
+    @DisplayName("Должен отклонять неизвестный формат")
+    void shouldRejectUnknownFormat() {
+        assertEquals(ExportFormat.CSV, ExportFormat.of("CSV"));
+        assertThrows(IllegalArgumentException.class, () -> ExportFormat.of("xml"));
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.bankcards.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Бенчмарк конкуренции за одну «горячую» карту-получателя: переводов в секунду
+ * с зачислением в строку cards и в случайный из N шардов card_balance_shards.
+ *
+ * Каждый перевод — транзакция H2: условное списание с одной из многих карт-отправителей,
+ * зачисление на горячую карту и вставка строки transactions. Пауза workMicros после
+ * зачисления имитирует задержку сети до БД, пока блокировка строки удерживается.
+ *
+ * Не входит в обычный прогон тестов, запуск:
+ * mvn test -Dtest=CardBalanceShardBenchmark [-Dbenchmark.seconds=2] [-Dbenchmark.workMicros=200] [-Dbenchmark.shards=16]
+ */
+@Tag("benchmark")
+@DisplayName("CardBalanceShard Benchmark")
+class CardBalanceShardBenchmark {
+
+    private static final int[] THREADS = {1, 2, 4, 8, 16, 32};
+    private static final int SENDERS = 1_000;
+    private static final long HOT_CARD_ID = 0L;
+    private static final BigDecimal INITIAL_BALANCE = BigDecimal.valueOf(1_000_000);
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    private final long durationMillis = Long.getLong("benchmark.seconds", 1L) * 1000L;
+    private final long workNanos = Long.getLong("benchmark.workMicros", 200L) * 1000L;
+    private final int shards = Integer.getInteger("benchmark.shards", 16);
+
+    @Test
+    @DisplayName("Transfers per second to a single hot card with and without sharding")
+    void throughput() throws Exception {
+        System.out.printf("%-8s %15s %15s%n", "threads", "single row/sec", "sharded/sec");
+        for (int threads : THREADS) {
+            double single = run(threads, 1);
+            double sharded = run(threads, shards);
+            System.out.printf("%-8d %15.0f %15.0f%n", threads, single, sharded);
+        }
+    }
+
+    /**
+     * shardCount = 1 — зачисление в строку cards, иначе в случайный шард
+     */
+    private double run(int threads, int shardCount) throws Exception {
+        String url = "jdbc:h2:mem:shard-bench-" + DATABASES.incrementAndGet() + ";DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=60000";
+        try (Connection setup = DriverManager.getConnection(url)) {
+            createSchema(setup);
+
+            LongAdder completed = new LongAdder();
+            AtomicBoolean running = new AtomicBoolean(true);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> workers = new ArrayList<>();
+            List<Throwable> errors = new ArrayList<>();
+
+            for (int t = 0; t < threads; t++) {
+                Thread worker = new Thread(() -> {
+                    try (Connection connection = DriverManager.getConnection(url)) {
+                        connection.setAutoCommit(false);
+                        awaitQuietly(start);
+                        while (running.get()) {
+                            if (transfer(connection, shardCount)) {
+                                completed.increment();
+                            }
+                        }
+                    } catch (SQLException e) {
+                        synchronized (errors) {
+                            errors.add(e);
+                        }
+                    }
+                });
+                workers.add(worker);
+                worker.start();
+            }
+
+            long began = System.nanoTime();
+            start.countDown();
+            Thread.sleep(durationMillis);
+            running.set(false);
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            double seconds = (System.nanoTime() - began) / 1_000_000_000.0;
+
+            assertTrue(errors.isEmpty(), () -> "Ошибка перевода: " + errors.get(0));
+            // Деньги не должны появляться и исчезать
+            assertEquals(0, INITIAL_BALANCE.multiply(BigDecimal.valueOf(SENDERS + 1)).compareTo(totalBalance(setup)));
+
+            try (Statement statement = setup.createStatement()) {
+                statement.execute("SHUTDOWN");
+            }
+            return completed.sum() / seconds;
+        }
+    }
+
+    private boolean transfer(Connection connection, int shardCount) throws SQLException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long fromCardId = 1 + random.nextInt(SENDERS);
+        BigDecimal amount = BigDecimal.valueOf(1 + random.nextInt(100));
+        try {
+            try (PreparedStatement debit = connection.prepareStatement(
+                    "UPDATE cards SET balance = balance - ?, version = version + 1 WHERE id = ? AND balance >= ?")) {
+                debit.setBigDecimal(1, amount);
+                debit.setLong(2, fromCardId);
+                debit.setBigDecimal(3, amount);
+                if (debit.executeUpdate() == 0) {
+                    connection.rollback();
+                    return false;
+                }
+            }
+
+            if (shardCount == 1) {
+                try (PreparedStatement credit = connection.prepareStatement(
+                        "UPDATE cards SET balance = balance + ?, version = version + 1 WHERE id = ?")) {
+                    credit.setBigDecimal(1, amount);
+                    credit.setLong(2, HOT_CARD_ID);
+                    credit.executeUpdate();
+                }
+            } else {
+                try (PreparedStatement credit = connection.prepareStatement(
+                        "UPDATE card_balance_shards SET balance = balance + ? WHERE card_id = ? AND shard_index = ?")) {
+                    credit.setBigDecimal(1, amount);
+                    credit.setLong(2, HOT_CARD_ID);
+                    credit.setInt(3, random.nextInt(shardCount));
+                    credit.executeUpdate();
+                }
+            }
+
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO transactions (from_card_id, to_card_id, amount) VALUES (?, ?, ?)")) {
+                insert.setLong(1, fromCardId);
+                insert.setLong(2, HOT_CARD_ID);
+                insert.setBigDecimal(3, amount);
+                insert.executeUpdate();
+            }
+
+            spin(workNanos);
+            connection.commit();
+            return true;
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        }
+    }
+
+    private void createSchema(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE cards (id BIGINT PRIMARY KEY, balance DECIMAL(19,2) NOT NULL, " +
+                    "version BIGINT NOT NULL DEFAULT 0)");
+            statement.execute("CREATE TABLE card_balance_shards (card_id BIGINT NOT NULL, shard_index INT NOT NULL, " +
+                    "balance DECIMAL(19,2) NOT NULL, PRIMARY KEY (card_id, shard_index))");
+            statement.execute("CREATE TABLE transactions (id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                    "from_card_id BIGINT NOT NULL, to_card_id BIGINT NOT NULL, amount DECIMAL(19,2) NOT NULL)");
+        }
+        try (PreparedStatement card = connection.prepareStatement("INSERT INTO cards (id, balance) VALUES (?, ?)")) {
+            for (long id = 0; id <= SENDERS; id++) {
+                card.setLong(1, id);
+                card.setBigDecimal(2, id == HOT_CARD_ID ? BigDecimal.ZERO : INITIAL_BALANCE);
+                card.addBatch();
+            }
+            card.executeBatch();
+        }
+        // Начальный баланс горячей карты лежит в шарде 0; без шардирования зачисления идут в строку cards
+        try (PreparedStatement shard = connection.prepareStatement(
+                "INSERT INTO card_balance_shards (card_id, shard_index, balance) VALUES (?, ?, ?)")) {
+            for (int i = 0; i < shards; i++) {
+                shard.setLong(1, HOT_CARD_ID);
+                shard.setInt(2, i);
+                shard.setBigDecimal(3, i == 0 ? INITIAL_BALANCE : BigDecimal.ZERO);
+                shard.addBatch();
+            }
+            shard.executeBatch();
+        }
+    }
+
+    private BigDecimal totalBalance(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery(
+                     "SELECT (SELECT SUM(balance) FROM cards) + (SELECT SUM(balance) FROM card_balance_shards)")) {
+            result.next();
+            return result.getBigDecimal(1);
+        }
+    }
+
+    private static void spin(long nanos) {
+        long deadline = System.nanoTime() + nanos;
+        while (System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardBalanceShardRepository;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataAccessException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Шардированный баланс на настоящей БД: зачисления идут параллельно
+ * с выравниванием шардов и ручной установкой баланса.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@DisplayName("CardBalanceShardService Concurrency Tests")
+class CardBalanceShardServiceConcurrencyTest {
+
+    private static final int CREDIT_THREADS = 4;
+    private static final int CREDITS_PER_THREAD = 50;
+    private static final BigDecimal CREDIT = new BigDecimal("1.00");
+
+    @Autowired
+    private CardBalanceShardRepository shardRepository;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private CardBalanceShardService shardService;
+    private TransactionTemplate transactionTemplate;
+    private Long cardId;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        shardService = new CardBalanceShardService(shardRepository, cardRepository,
+                new TransferEngine(transactionManager, 16), transactionManager, 4, false, entityManager);
+
+        User user = new User();
+        user.setUsername("shards");
+        user.setEmail("shards@example.com");
+        user.setPassword("secret");
+        user.setRole(Role.USER);
+        userRepository.save(user);
+
+        Card card = new Card();
+        card.setCardNumber("encrypted-shards");
+        card.setOwner("Shards");
+        card.setExpiryDate(LocalDate.now().plusYears(1));
+        card.setBalance(new BigDecimal("100.00"));
+        card.setUser(user);
+        cardId = cardRepository.save(card).getId();
+        shardService.enableSharding(cardId, 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionTemplate.executeWithoutResult(status -> shardRepository.deleteByCardId(cardId));
+        cardRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Should not lose credits committed while shards are rebalanced or the balance is set")
+    void credits_SurviveRebalanceAndSetBalance() throws Exception {
+        // Given
+        ExecutorService executor = Executors.newFixedThreadPool(CREDIT_THREADS + 2);
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Future<BigDecimal>> credits = new ArrayList<>();
+
+        // When
+        for (int t = 0; t < CREDIT_THREADS; t++) {
+            credits.add(executor.submit(() -> {
+                BigDecimal credited = BigDecimal.ZERO;
+                for (int i = 0; i < CREDITS_PER_THREAD; i++) {
+                    try {
+                        transactionTemplate.executeWithoutResult(status -> shardService.credit(cardId, CREDIT));
+                        credited = credited.add(CREDIT);
+                    } catch (DataAccessException e) {
+                        // Таймаут блокировки: зачисление откатилось и в сумму не входит
+                    }
+                }
+                return credited;
+            }));
+        }
+        Future<?> rebalancer = executor.submit(() -> {
+            while (running.get()) {
+                shardService.rebalance();
+            }
+        });
+        Future<BigDecimal> adjuster = executor.submit(() -> {
+            BigDecimal adjusted = BigDecimal.ZERO;
+            for (int i = 0; running.get(); i++) {
+                BigDecimal target = BigDecimal.valueOf(1000 + i % 2 * 500).setScale(2);
+                try {
+                    BigDecimal previous = transactionTemplate.execute(status -> shardService.setBalance(cardId, target));
+                    adjusted = adjusted.add(target.subtract(previous));
+                } catch (DataAccessException e) {
+                    // Таймаут блокировки: установка откатилась
+                }
+            }
+            return adjusted;
+        });
+
+        BigDecimal credited = BigDecimal.ZERO;
+        for (Future<BigDecimal> credit : credits) {
+            credited = credited.add(credit.get(60, TimeUnit.SECONDS));
+        }
+        running.set(false);
+        rebalancer.get(60, TimeUnit.SECONDS);
+        BigDecimal adjusted = adjuster.get(60, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        // Then
+        BigDecimal expected = new BigDecimal("100.00").add(credited).add(adjusted);
+        BigDecimal actual = shardRepository.sumByCardId(cardId);
+        assertTrue(credited.signum() > 0);
+        assertEquals(0, expected.compareTo(actual), "ожидался баланс " + expected + ", в шардах " + actual);
+    }
+
+    @Test
+    @DisplayName("Should debit through the locked fallback with shards credited earlier in the same transaction")
+    void debit_FallbackAfterCreditInSameTransaction() {
+        // When: пакетный перевод — списание через блокировку, зачисление UPDATE и снова списание через блокировку
+        boolean[] debited = new boolean[2];
+        transactionTemplate.executeWithoutResult(status -> {
+            debited[0] = shardService.debit(cardId, new BigDecimal("30.00"));
+            shardService.credit(cardId, new BigDecimal("100.00"));
+            debited[1] = shardService.debit(cardId, new BigDecimal("150.00"));
+        });
+
+        // Then
+        assertTrue(debited[0]);
+        assertTrue(debited[1]);
+        assertEquals(0, new BigDecimal("20.00").compareTo(shardRepository.sumByCardId(cardId)));
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.CardBalanceShard;
+import com.example.bankcards.repository.CardBalanceShardRepository;
+import com.example.bankcards.repository.CardRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("CardBalanceShardService Tests")
+class CardBalanceShardServiceTest {
+
+    private static final Long CARD_ID = 1L;
+
+    @Mock
+    private CardBalanceShardRepository shardRepository;
+
+    @Mock
+    private CardRepository cardRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    private CardBalanceShardService shardService;
+
+    @BeforeEach
+    void setUp() {
+        shardService = new CardBalanceShardService(shardRepository, cardRepository,
+                new TransferEngine(mock(PlatformTransactionManager.class), 16),
+                mock(PlatformTransactionManager.class), 4, false, entityManager);
+        when(cardRepository.findHotCardIds()).thenReturn(List.of(CARD_ID));
+        when(shardRepository.countByCardId(CARD_ID)).thenReturn(3);
+        shardService.loadHotCards();
+    }
+
+    @Test
+    @DisplayName("Should debit a single shard when it holds the whole amount")
+    void debit_SingleShard() {
+        // Given
+        when(shardRepository.debit(eq(CARD_ID), anyInt(), any(BigDecimal.class))).thenReturn(1);
+
+        // When
+        boolean debited = shardService.debit(CARD_ID, BigDecimal.valueOf(50));
+
+        // Then
+        assertTrue(debited);
+        verify(shardRepository, times(1)).debit(eq(CARD_ID), anyInt(), eq(BigDecimal.valueOf(50)));
+        verify(shardRepository, never()).findByCardIdForUpdate(any());
+    }
+
+    @Test
+    @DisplayName("Should drain several shards under lock when no shard holds the whole amount")
+    void debit_FallbackDrainsShards() {
+        // Given
+        List<CardBalanceShard> shards = List.of(
+                new CardBalanceShard(CARD_ID, 0, BigDecimal.valueOf(40)),
+                new CardBalanceShard(CARD_ID, 1, BigDecimal.valueOf(40)),
+                new CardBalanceShard(CARD_ID, 2, BigDecimal.valueOf(40)));
+        when(shardRepository.debit(eq(CARD_ID), anyInt(), any(BigDecimal.class))).thenReturn(0);
+        when(shardRepository.findByCardIdForUpdate(CARD_ID)).thenReturn(shards);
+
+        // When
+        boolean debited = shardService.debit(CARD_ID, BigDecimal.valueOf(100));
+
+        // Then
+        assertTrue(debited);
+        verify(shardRepository, times(3)).debit(eq(CARD_ID), anyInt(), any(BigDecimal.class));
+        BigDecimal left = shards.stream().map(CardBalanceShard::getBalance).reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertEquals(0, BigDecimal.valueOf(20).compareTo(left));
+        verify(shardRepository).saveAll(shards);
+    }
+
+    @Test
+    @DisplayName("Should refuse debit when all shards together hold less than the amount")
+    void debit_InsufficientTotal() {
+        // Given
+        when(shardRepository.debit(eq(CARD_ID), anyInt(), any(BigDecimal.class))).thenReturn(0);
+        when(shardRepository.findByCardIdForUpdate(CARD_ID)).thenReturn(List.of(
+                new CardBalanceShard(CARD_ID, 0, BigDecimal.valueOf(10)),
+                new CardBalanceShard(CARD_ID, 1, BigDecimal.valueOf(10)),
+                new CardBalanceShard(CARD_ID, 2, BigDecimal.valueOf(10))));
+
+        // When
+        boolean debited = shardService.debit(CARD_ID, BigDecimal.valueOf(100));
+
+        // Then
+        assertFalse(debited);
+        verify(shardRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    @DisplayName("Should split the balance evenly and return the previous total of the locked shards")
+    void setBalance_DistributesEvenly() {
+        // Given
+        List<CardBalanceShard> shards = List.of(
+                new CardBalanceShard(CARD_ID, 0, BigDecimal.ZERO),
+                new CardBalanceShard(CARD_ID, 1, BigDecimal.valueOf(100)),
+                new CardBalanceShard(CARD_ID, 2, BigDecimal.ZERO));
+        when(shardRepository.findByCardIdForUpdate(CARD_ID)).thenReturn(shards);
+
+        // When
+        BigDecimal previous = shardService.setBalance(CARD_ID, new BigDecimal("100.00"));
+
+        // Then
+        assertEquals(BigDecimal.valueOf(100), previous);
+        assertEquals(new BigDecimal("33.34"), shards.get(0).getBalance());
+        assertEquals(new BigDecimal("33.33"), shards.get(1).getBalance());
+        assertEquals(new BigDecimal("33.33"), shards.get(2).getBalance());
+    }
+
+    @Test
+    @DisplayName("Should exclude hot cards from engine locks")
+    void lockableCardIds_ExcludesHotCards() {
+        // When
+        List<Long> lockable = shardService.lockableCardIds(List.of(CARD_ID, 2L));
+
+        // Then
+        assertEquals(List.of(2L), lockable);
+    }
+
+    @Test
+    @DisplayName("Should reject shard count outside the allowed range")
+    void enableSharding_InvalidShardCount() {
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () -> shardService.enableSharding(2L, 1));
+        verify(cardRepository, never()).findById(any());
+    }
+
+    @Test
+    @DisplayName("Should reject sharding and lock cards marked hot when balances are derived")
+    void derivedBalances_NoHotCards() {
+        // Given
+        CardBalanceShardService derived = new CardBalanceShardService(shardRepository, cardRepository,
+                new TransferEngine(mock(PlatformTransactionManager.class), 16),
+                mock(PlatformTransactionManager.class), 4, true, entityManager);
+
+        // When
+        derived.loadHotCards();
+
+        // Then
+        assertFalse(derived.isHot(CARD_ID));
+        assertEquals(List.of(CARD_ID, 2L), derived.lockableCardIds(List.of(CARD_ID, 2L)));
+        assertThrows(IllegalArgumentException.class, () -> derived.enableSharding(2L, 4));
+        verify(cardRepository, never()).findById(any());
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.BulkCardIssueDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.util.CardNumberUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * Бенчмарк массового выпуска карт без БД: пропускная способность в картах в секунду
+ * для генерации номера, слепого индекса, шифрования и сборки карт в одном потоке
+ * и в пуле {@link CardBulkIssuer}. Репозиторий заглушен, поэтому это верхняя граница:
+ * в реальной БД к ней добавляются пакетные вставки карт и проводок.
+ *
+ * Не входит в обычный прогон тестов, запуск:
+ * mvn test -Dtest=CardBulkIssueBenchmark [-Dbenchmark.cards=10000] [-Dbenchmark.rounds=5]
+ */
+@Tag("benchmark")
+@DisplayName("CardBulkIssue Benchmark")
+class CardBulkIssueBenchmark {
+
+    private final int cards = Integer.getInteger("benchmark.cards", BulkCardIssueDto.MAX_CARDS);
+    private final int rounds = Integer.getInteger("benchmark.rounds", 5);
+
+    @Test
+    @DisplayName("Bulk issuance throughput, one thread versus all processors")
+    void throughput() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        System.out.printf("%-10s %12s %14s%n", "threads", "ms", "cards/sec");
+        for (int threads : new int[]{1, processors}) {
+            CardBulkIssuer issuer = issuer(threads);
+            try {
+                BulkCardIssueDto request = new BulkCardIssueDto(List.of(
+                        new BulkCardIssueDto.Item(1L, "ACME Employee", LocalDate.now().plusYears(3), BigDecimal.ZERO, cards)));
+                issuer.issue(request, chunk -> { });
+                long best = Long.MAX_VALUE;
+                for (int round = 0; round < rounds; round++) {
+                    long started = System.nanoTime();
+                    int issued = issuer.issue(request, chunk -> { });
+                    best = Math.min(best, System.nanoTime() - started);
+                    assertEquals(cards, issued);
+                }
+                System.out.printf("%-10d %12.1f %14.0f%n", threads, best / 1_000_000.0, cards / (best / 1_000_000_000.0));
+            } finally {
+                issuer.shutdown();
+            }
+        }
+    }
+
+    private static CardBulkIssuer issuer(int threads) {
+        CardRepository cardRepository = mock(CardRepository.class);
+        AtomicLong ids = new AtomicLong();
+        when(cardRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Card> saved = invocation.getArgument(0);
+            saved.forEach(card -> card.setId(ids.incrementAndGet()));
+            return saved;
+        });
+        UserService userService = mock(UserService.class);
+        User user = new User();
+        user.setId(1L);
+        when(userService.getUserEntityById(anyLong())).thenReturn(user);
+        CardNumberUtil cardNumberUtil = new CardNumberUtil("BankCardEncryptionKey0123456789!", "",
+                "BankCardBlindIndexKey0123456789ABCDEF", new String[]{"400000", "510000-559999"});
+        CardOwnerIndex ownerIndex = new CardOwnerIndex(mock(CardRepository.class), null, "database");
+        return new CardBulkIssuer(cardRepository, userService, cardNumberUtil,
+                new TransferEngine(mock(PlatformTransactionManager.class), 16), mock(LedgerService.class),
+                new IssuedCardNumberFilter(mock(CardRepository.class), new SimpleMeterRegistry(), 1_000_000, 0.001),
+                ownerIndex, mock(UserCardSummaryService.class), threads, 500);
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.BulkCardIssueDto;
+import com.example.bankcards.dto.CardDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.UserNotFoundException;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.util.CardNumberUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@DisplayName("CardBulkIssuer Tests")
+class CardBulkIssuerTest {
+
+    private static final LocalDate EXPIRY = LocalDate.now().plusYears(3);
+
+    private CardRepository cardRepository;
+    private UserService userService;
+    private LedgerService ledgerService;
+    private UserCardSummaryService summaryService;
+    private CardNumberUtil cardNumberUtil;
+    private CardBulkIssuer issuer;
+
+    @BeforeEach
+    void setUp() {
+        cardRepository = mock(CardRepository.class);
+        userService = mock(UserService.class);
+        ledgerService = mock(LedgerService.class);
+        summaryService = mock(UserCardSummaryService.class);
+        cardNumberUtil = new CardNumberUtil("BankCardEncryptionKey0123456789!", "",
+                "BankCardBlindIndexKey0123456789ABCDEF", new String[]{"400000"});
+
+        AtomicLong ids = new AtomicLong();
+        when(cardRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Card> cards = invocation.getArgument(0);
+            cards.forEach(card -> card.setId(ids.incrementAndGet()));
+            return cards;
+        });
+        when(userService.getUserEntityById(1L)).thenReturn(user(1L));
+        when(userService.getUserEntityById(2L)).thenReturn(user(2L));
+
+        CardOwnerIndex ownerIndex = new CardOwnerIndex(mock(CardRepository.class), null, "memory");
+        ownerIndex.load();
+        issuer = new CardBulkIssuer(cardRepository, userService, cardNumberUtil,
+                new TransferEngine(mock(PlatformTransactionManager.class), 16), ledgerService,
+                new IssuedCardNumberFilter(mock(CardRepository.class), new SimpleMeterRegistry(), 1000, 0.001),
+                ownerIndex, summaryService, 4, 3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        issuer.shutdown();
+    }
+
+    private static User user(Long id) {
+        User user = new User();
+        user.setId(id);
+        return user;
+    }
+
+    @Test
+    @DisplayName("Should issue cards for several users chunk by chunk")
+    void issue_InChunks() {
+        // Given
+        BulkCardIssueDto request = new BulkCardIssueDto(List.of(
+                new BulkCardIssueDto.Item(1L, "ACME Employee", EXPIRY, BigDecimal.TEN, 5),
+                new BulkCardIssueDto.Item(2L, "ACME Manager", EXPIRY, null, 2)));
+        List<List<CardDto>> chunks = new ArrayList<>();
+
+        // When
+        int issued = issuer.issue(request, chunks::add);
+
+        // Then
+        assertEquals(7, issued);
+        assertEquals(List.of(3, 3, 1), chunks.stream().map(List::size).toList());
+        List<CardDto> cards = chunks.stream().flatMap(List::stream).toList();
+        assertEquals(5, cards.stream().filter(card -> card.getUserId().equals(1L)).count());
+        assertEquals(0, BigDecimal.ZERO.compareTo(cards.get(6).getBalance()));
+        assertTrue(cards.stream().allMatch(card -> card.getCardNumber().startsWith("**** **** **** ")));
+        verify(cardRepository, times(3)).saveAll(anyList());
+        verify(ledgerService, times(7)).recordOpening(any(Card.class));
+        verify(summaryService, times(5)).cardAdded(1L, CardStatus.ACTIVE, BigDecimal.TEN);
+        verify(summaryService, times(2)).cardAdded(2L, CardStatus.ACTIVE, BigDecimal.ZERO);
+        verify(userService, times(1)).getUserEntityById(1L);
+    }
+
+    @Test
+    @DisplayName("Should give every card a distinct encrypted Luhn-valid number")
+    void issue_DistinctNumbers() {
+        // Given
+        BulkCardIssueDto request = new BulkCardIssueDto(List.of(
+                new BulkCardIssueDto.Item(1L, "ACME Employee", EXPIRY, BigDecimal.ZERO, 50)));
+        List<Card> saved = new ArrayList<>();
+        AtomicLong ids = new AtomicLong();
+        when(cardRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Card> cards = invocation.getArgument(0);
+            cards.forEach(card -> card.setId(ids.incrementAndGet()));
+            saved.addAll(cards);
+            return cards;
+        });
+
+        // When
+        issuer.issue(request, cards -> { });
+
+        // Then
+        Set<String> hashes = new HashSet<>();
+        for (Card card : saved) {
+            String number = cardNumberUtil.decryptCardNumber(card.getCardNumber());
+            assertTrue(CardNumberUtil.isLuhnValid(number));
+            assertEquals(cardNumberUtil.blindIndex(number), card.getCardNumberHash());
+            assertEquals(number.substring(12), card.getLastFour());
+            hashes.add(card.getCardNumberHash());
+        }
+        assertEquals(50, hashes.size());
+    }
+
+    @Test
+    @DisplayName("Should reject request over the card limit before issuing")
+    void issue_TooManyCards() {
+        // Given
+        BulkCardIssueDto request = new BulkCardIssueDto(List.of(
+                new BulkCardIssueDto.Item(1L, "ACME Employee", EXPIRY, BigDecimal.ZERO, BulkCardIssueDto.MAX_CARDS),
+                new BulkCardIssueDto.Item(2L, "ACME Manager", EXPIRY, BigDecimal.ZERO, 1)));
+
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () -> issuer.issue(request, cards -> { }));
+        verify(cardRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    @DisplayName("Should reject unknown user before issuing")
+    void validate_UnknownUser() {
+        // Given
+        when(userService.getUserEntityById(3L)).thenThrow(new UserNotFoundException(3L));
+        BulkCardIssueDto request = new BulkCardIssueDto(List.of(
+                new BulkCardIssueDto.Item(1L, "ACME Employee", EXPIRY, BigDecimal.ZERO, 1),
+                new BulkCardIssueDto.Item(3L, "Nobody", EXPIRY, BigDecimal.ZERO, 1)));
+
+        // When & Then
+        assertThrows(UserNotFoundException.class, () -> issuer.validate(request));
+        verify(cardRepository, never()).saveAll(anyList());
+    }
+}
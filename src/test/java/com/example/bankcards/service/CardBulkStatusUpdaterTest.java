@@ -0,0 +1,228 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.BulkCardStatusDto;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.repository.CardRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@DisplayName("CardBulkStatusUpdater Tests")
+class CardBulkStatusUpdaterTest {
+
+    private CardRepository cardRepository;
+    private ApplicationEventPublisher eventPublisher;
+    private CardReadCache cardReadCache;
+    private UserCardSummaryService summaryService;
+    private CardBulkStatusUpdater updater;
+
+    @BeforeEach
+    void setUp() {
+        cardRepository = mock(CardRepository.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        cardReadCache = spy(new CardReadCache(new SimpleMeterRegistry(), 100, Duration.ofMinutes(10)));
+        summaryService = mock(UserCardSummaryService.class);
+        updater = new CardBulkStatusUpdater(cardRepository,
+                new TransferEngine(mock(PlatformTransactionManager.class), 16), cardReadCache, eventPublisher,
+                summaryService, 2);
+        when(cardRepository.updateStatus(anyList(), any(CardStatus.class)))
+                .thenAnswer(invocation -> ((List<?>) invocation.getArgument(0)).size());
+    }
+
+    private static Object[] row(long cardId, long userId) {
+        return row(cardId, userId, CardStatus.ACTIVE);
+    }
+
+    private static Object[] row(long cardId, long userId, CardStatus status) {
+        return new Object[]{cardId, userId, status};
+    }
+
+    private static Object[] expiring(long cardId, long userId, LocalDate expiryDate) {
+        return new Object[]{cardId, userId, CardStatus.ACTIVE, expiryDate};
+    }
+
+    @Nested
+    @DisplayName("By Card Ids")
+    class ByCardIdsTests {
+
+        @Test
+        @DisplayName("Should lock and update distinct ids in ascending chunks")
+        void updateStatus_Chunks() {
+            // Given
+            when(cardRepository.lockForStatusChange(List.of(1L, 3L), CardStatus.BLOCKED))
+                    .thenReturn(List.of(row(1L, 10L), row(3L, 20L)));
+            when(cardRepository.lockForStatusChange(List.of(5L), CardStatus.BLOCKED))
+                    .thenReturn(List.<Object[]>of(row(5L, 10L)));
+
+            // When
+            int updated = updater.updateStatus(new BulkCardStatusDto(CardStatus.BLOCKED, List.of(5L, 1L, 3L, 1L)));
+
+            // Then
+            assertEquals(3, updated);
+            verify(cardRepository).updateStatus(List.of(1L, 3L), CardStatus.BLOCKED);
+            verify(cardRepository).updateStatus(List.of(5L), CardStatus.BLOCKED);
+            verify(cardReadCache).invalidate(List.of(1L, 3L));
+        }
+
+        @Test
+        @DisplayName("Should publish changed cards grouped by owner")
+        void updateStatus_PublishesEvents() {
+            // Given
+            when(cardRepository.lockForStatusChange(List.of(1L, 3L), CardStatus.BLOCKED))
+                    .thenReturn(List.of(row(1L, 10L), row(3L, 10L)));
+
+            // When
+            updater.updateStatus(new BulkCardStatusDto(CardStatus.BLOCKED, List.of(1L, 3L)));
+
+            // Then
+            ArgumentCaptor<CardStatusEvent> event = ArgumentCaptor.forClass(CardStatusEvent.class);
+            verify(eventPublisher).publishEvent(event.capture());
+            assertEquals(CardStatus.BLOCKED, event.getValue().getStatus());
+            assertEquals(Map.of(10L, List.of(1L, 3L)), event.getValue().getCardIdsByUser());
+        }
+
+        @Test
+        @DisplayName("Should move summary counts per owner and previous status")
+        void updateStatus_UpdatesSummaries() {
+            // Given
+            when(cardRepository.lockForStatusChange(List.of(1L, 3L), CardStatus.BLOCKED))
+                    .thenReturn(List.of(row(1L, 10L), row(3L, 10L, CardStatus.EXPIRED)));
+            when(cardRepository.lockForStatusChange(List.of(5L), CardStatus.BLOCKED))
+                    .thenReturn(List.<Object[]>of(row(5L, 10L)));
+
+            // When
+            updater.updateStatus(new BulkCardStatusDto(CardStatus.BLOCKED, List.of(1L, 3L, 5L)));
+
+            // Then
+            verify(summaryService, times(2)).statusChanged(10L, CardStatus.ACTIVE, CardStatus.BLOCKED, 1);
+            verify(summaryService).statusChanged(10L, CardStatus.EXPIRED, CardStatus.BLOCKED, 1);
+            verifyNoMoreInteractions(summaryService);
+        }
+
+        @Test
+        @DisplayName("Should use the chunk size passed by the caller")
+        void updateStatus_CustomChunkSize() {
+            // Given
+            when(cardRepository.lockForStatusChange(List.of(1L, 3L, 5L), CardStatus.BLOCKED))
+                    .thenReturn(List.of(row(1L, 10L), row(3L, 10L), row(5L, 20L)));
+
+            // When
+            int updated = updater.updateStatus(new BulkCardStatusDto(CardStatus.BLOCKED, List.of(1L, 3L, 5L)), 3);
+
+            // Then
+            assertEquals(3, updated);
+            verify(cardRepository).updateStatus(List.of(1L, 3L, 5L), CardStatus.BLOCKED);
+            verify(summaryService).statusChanged(10L, CardStatus.ACTIVE, CardStatus.BLOCKED, 2);
+            verify(summaryService).statusChanged(20L, CardStatus.ACTIVE, CardStatus.BLOCKED, 1);
+        }
+
+        @Test
+        @DisplayName("Should skip cards that already have the status")
+        void updateStatus_NothingToChange() {
+            // Given
+            when(cardRepository.lockForStatusChange(List.of(1L), CardStatus.BLOCKED)).thenReturn(List.of());
+
+            // When
+            int updated = updater.updateStatus(new BulkCardStatusDto(CardStatus.BLOCKED, List.of(1L)));
+
+            // Then
+            assertEquals(0, updated);
+            verify(cardRepository, never()).updateStatus(anyList(), any());
+            verifyNoInteractions(eventPublisher);
+        }
+    }
+
+    @Nested
+    @DisplayName("By Filter")
+    class ByFilterTests {
+
+        @Test
+        @DisplayName("Should page through matching cards by id")
+        void updateStatus_Filter() {
+            // Given
+            BulkCardStatusDto request = new BulkCardStatusDto(CardStatus.BLOCKED, null);
+            request.setUserId(10L);
+            request.setCurrentStatus(CardStatus.ACTIVE);
+            when(cardRepository.lockForStatusChangeByFilter(eq(0L), eq(CardStatus.BLOCKED), eq(10L),
+                    eq(CardStatus.ACTIVE), any(Pageable.class)))
+                    .thenReturn(List.of(row(2L, 10L), row(4L, 10L)));
+            when(cardRepository.lockForStatusChangeByFilter(eq(4L), eq(CardStatus.BLOCKED), eq(10L),
+                    eq(CardStatus.ACTIVE), any(Pageable.class)))
+                    .thenReturn(List.<Object[]>of(row(7L, 10L)));
+
+            // When
+            int updated = updater.updateStatus(request);
+
+            // Then
+            assertEquals(3, updated);
+            verify(cardRepository).updateStatus(List.of(2L, 4L), CardStatus.BLOCKED);
+            verify(cardRepository).updateStatus(List.of(7L), CardStatus.BLOCKED);
+            verify(eventPublisher, times(2)).publishEvent(any(CardStatusEvent.class));
+        }
+
+        @Test
+        @DisplayName("Should seek an expiry range by (expiry date, id) instead of paging the table by id")
+        void updateStatus_ExpiryRange() {
+            // Given
+            BulkCardStatusDto request = new BulkCardStatusDto(CardStatus.EXPIRED, null);
+            request.setCurrentStatus(CardStatus.ACTIVE);
+            LocalDate expiresFrom = LocalDate.of(2024, 1, 1);
+            LocalDate expiresTo = LocalDate.of(2024, 1, 31);
+            request.setExpiresFrom(expiresFrom);
+            request.setExpiresTo(expiresTo);
+            // Часть возвращается в порядке ID; курсор — последняя карта в порядке (срок, ID)
+            when(cardRepository.lockForStatusChangeByExpiry(expiresFrom, 0L, CardStatus.EXPIRED, null,
+                    CardStatus.ACTIVE, expiresTo, 2))
+                    .thenReturn(List.of(expiring(3L, 10L, LocalDate.of(2024, 1, 9)),
+                            expiring(8L, 11L, LocalDate.of(2024, 1, 2))));
+            when(cardRepository.lockForStatusChangeByExpiry(LocalDate.of(2024, 1, 9), 3L, CardStatus.EXPIRED, null,
+                    CardStatus.ACTIVE, expiresTo, 2))
+                    .thenReturn(List.<Object[]>of(expiring(5L, 10L, LocalDate.of(2024, 1, 20))));
+
+            // When
+            int updated = updater.updateStatus(request);
+
+            // Then
+            assertEquals(3, updated);
+            verify(cardRepository).updateStatus(List.of(3L, 8L), CardStatus.EXPIRED);
+            verify(cardRepository).updateStatus(List.of(5L), CardStatus.EXPIRED);
+            verify(cardRepository, never()).lockForStatusChangeByFilter(any(), any(), any(), any(), any());
+        }
+    }
+
+    @Test
+    @DisplayName("Should reject request without card ids and filter")
+    void updateStatus_NoSelection() {
+        assertThrows(IllegalArgumentException.class,
+                () -> updater.updateStatus(new BulkCardStatusDto(CardStatus.BLOCKED, List.of())));
+        verifyNoInteractions(cardRepository);
+    }
+
+    @Test
+    @DisplayName("Should reject request with both card ids and filter")
+    void updateStatus_IdsAndFilter() {
+        // Given
+        BulkCardStatusDto request = new BulkCardStatusDto(CardStatus.BLOCKED, List.of(1L));
+        request.setUserId(10L);
+
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () -> updater.updateStatus(request));
+    }
+}
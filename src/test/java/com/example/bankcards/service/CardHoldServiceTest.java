@@ -0,0 +1,293 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardHoldDto;
+import com.example.bankcards.dto.TransactionDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardHold;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.HoldStatus;
+import com.example.bankcards.entity.TransactionStatus;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.HoldNotFoundException;
+import com.example.bankcards.exception.InsufficientBalanceException;
+import com.example.bankcards.repository.CardHoldRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("CardHoldService Tests")
+class CardHoldServiceTest {
+
+    @Mock
+    private CardHoldRepository holdRepository;
+
+    @Mock
+    private TransactionService transactionService;
+
+    @Mock
+    private CardService cardService;
+
+    @Mock
+    private TransferJournalApplier journalApplier;
+
+    private CardHoldRegistry holdRegistry;
+    private CardHoldService cardHoldService;
+
+    private Card fromCard;
+    private Card toCard;
+    private static final Long USER_ID = 1L;
+    private static final Long FROM_CARD_ID = 1L;
+    private static final Long TO_CARD_ID = 2L;
+    private static final Long HOLD_ID = 10L;
+
+    @BeforeEach
+    void setUp() {
+        // Тик в 1 мс: истекшие холды видны планировщику без ожидания тика в 100 мс
+        holdRegistry = new CardHoldRegistry(holdRepository, 1);
+        cardHoldService = new CardHoldService(holdRepository, holdRegistry, transactionService, cardService,
+                journalApplier, new OptimisticRetryExecutor(new SimpleMeterRegistry(), 3,
+                        Duration.ofMillis(1), Duration.ofMillis(5)),
+                mock(PlatformTransactionManager.class), Duration.ofDays(7), Duration.ofDays(30), 500);
+
+        User user = new User();
+        user.setId(USER_ID);
+        fromCard = new Card();
+        fromCard.setId(FROM_CARD_ID);
+        fromCard.setBalance(BigDecimal.valueOf(1000));
+        fromCard.setStatus(CardStatus.ACTIVE);
+        fromCard.setUser(user);
+        toCard = new Card();
+        toCard.setId(TO_CARD_ID);
+        toCard.setBalance(BigDecimal.valueOf(500));
+        toCard.setStatus(CardStatus.ACTIVE);
+        toCard.setUser(user);
+
+        // Перевод под блокировками выполняется сразу в текущем потоке
+        lenient().when(transactionService.executeLocked(anyCollection(), any()))
+                .thenAnswer(invocation -> ((Supplier<?>) invocation.getArgument(1)).get());
+        lenient().when(cardService.getCardEntityById(FROM_CARD_ID)).thenReturn(fromCard);
+        lenient().when(cardService.getCardEntityById(TO_CARD_ID)).thenReturn(toCard);
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    private CardHold activeHold(BigDecimal amount) {
+        CardHold hold = new CardHold(FROM_CARD_ID, TO_CARD_ID, amount, LocalDateTime.now().plusHours(1));
+        hold.setId(HOLD_ID);
+        return hold;
+    }
+
+    private void commit() {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+        synchronizations.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+    }
+
+    @Nested
+    @DisplayName("Authorize Tests")
+    class AuthorizeTests {
+
+        @Test
+        @DisplayName("Should reserve amount and reduce available balance")
+        void authorize_Success() {
+            // Given
+            CardHoldDto request = new CardHoldDto();
+            request.setFromCardId(FROM_CARD_ID);
+            request.setToCardId(TO_CARD_ID);
+            request.setAmount(BigDecimal.valueOf(300));
+            when(transactionService.availableBalance(fromCard)).thenReturn(BigDecimal.valueOf(1000));
+            when(journalApplier.reservedAmount(FROM_CARD_ID)).thenReturn(BigDecimal.ZERO);
+            when(holdRepository.save(any(CardHold.class))).thenAnswer(invocation -> {
+                CardHold hold = invocation.getArgument(0);
+                hold.setId(HOLD_ID);
+                return hold;
+            });
+
+            // When
+            CardHoldDto result = cardHoldService.authorize(request, USER_ID);
+            commit();
+
+            // Then
+            assertEquals(HoldStatus.ACTIVE, result.getStatus());
+            assertEquals(0, BigDecimal.valueOf(300).compareTo(holdRegistry.heldAmount(FROM_CARD_ID)));
+            assertTrue(result.getExpiresAt().isAfter(LocalDateTime.now().plusDays(6)));
+            verify(transactionService).guardDebit(fromCard);
+        }
+
+        @Test
+        @DisplayName("Should reject hold exceeding available balance")
+        void authorize_InsufficientAvailableBalance() {
+            // Given
+            CardHoldDto request = new CardHoldDto();
+            request.setFromCardId(FROM_CARD_ID);
+            request.setToCardId(TO_CARD_ID);
+            request.setAmount(BigDecimal.valueOf(300));
+            when(transactionService.availableBalance(fromCard)).thenReturn(BigDecimal.valueOf(200));
+            when(journalApplier.reservedAmount(FROM_CARD_ID)).thenReturn(BigDecimal.ZERO);
+
+            // When & Then
+            assertThrows(InsufficientBalanceException.class, () -> cardHoldService.authorize(request, USER_ID));
+            verify(holdRepository, never()).save(any());
+        }
+
+        @Test
+        @DisplayName("Should reject TTL above the maximum")
+        void authorize_TtlTooLong() {
+            // Given
+            CardHoldDto request = new CardHoldDto();
+            request.setAmount(BigDecimal.valueOf(300));
+            request.setTtlSeconds(Duration.ofDays(31).toSeconds());
+
+            // When & Then
+            assertThrows(IllegalArgumentException.class, () -> cardHoldService.authorize(request, USER_ID));
+            verifyNoInteractions(holdRepository);
+        }
+    }
+
+    @Nested
+    @DisplayName("Capture And Release Tests")
+    class CaptureReleaseTests {
+
+        @Test
+        @DisplayName("Should capture part of the hold and free the whole hold after commit")
+        void capture_Partial() {
+            // Given
+            CardHold hold = activeHold(BigDecimal.valueOf(300));
+            holdRegistry.add(hold);
+            when(holdRepository.findById(HOLD_ID)).thenReturn(Optional.of(hold));
+            when(transactionService.availableBalance(fromCard)).thenReturn(BigDecimal.valueOf(700));
+            TransactionDto transaction = new TransactionDto(5L, FROM_CARD_ID, TO_CARD_ID, BigDecimal.valueOf(200),
+                    TransactionStatus.COMPLETED, LocalDateTime.now(), LocalDateTime.now());
+            when(transactionService.executeReservedTransfer(fromCard, toCard, BigDecimal.valueOf(200)))
+                    .thenReturn(transaction);
+
+            // When
+            TransactionDto result = cardHoldService.capture(HOLD_ID, BigDecimal.valueOf(200), USER_ID);
+
+            // Then
+            assertEquals(5L, result.getId());
+            assertEquals(HoldStatus.CAPTURED, hold.getStatus());
+            assertEquals(5L, hold.getTransactionId());
+            // До фиксации сумма холда еще зарезервирована
+            assertEquals(0, BigDecimal.valueOf(300).compareTo(holdRegistry.heldAmount(FROM_CARD_ID)));
+            commit();
+            assertEquals(0, BigDecimal.ZERO.compareTo(holdRegistry.heldAmount(FROM_CARD_ID)));
+        }
+
+        @Test
+        @DisplayName("Should reject capture above the hold amount")
+        void capture_AmountAboveHold() {
+            // Given
+            CardHold hold = activeHold(BigDecimal.valueOf(300));
+            when(holdRepository.findById(HOLD_ID)).thenReturn(Optional.of(hold));
+
+            // When & Then
+            assertThrows(IllegalArgumentException.class,
+                    () -> cardHoldService.capture(HOLD_ID, BigDecimal.valueOf(301), USER_ID));
+            verify(transactionService, never()).executeReservedTransfer(any(), any(), any());
+        }
+
+        @Test
+        @DisplayName("Should reject capture of a released hold")
+        void capture_NotActive() {
+            // Given
+            CardHold hold = activeHold(BigDecimal.valueOf(300));
+            hold.setStatus(HoldStatus.RELEASED);
+            when(holdRepository.findById(HOLD_ID)).thenReturn(Optional.of(hold));
+
+            // When & Then
+            assertThrows(IllegalArgumentException.class, () -> cardHoldService.capture(HOLD_ID, null, USER_ID));
+        }
+
+        @Test
+        @DisplayName("Should release hold")
+        void release_Success() {
+            // Given
+            CardHold hold = activeHold(BigDecimal.valueOf(300));
+            holdRegistry.add(hold);
+            when(holdRepository.findById(HOLD_ID)).thenReturn(Optional.of(hold));
+
+            // When
+            CardHoldDto result = cardHoldService.release(HOLD_ID, USER_ID);
+            commit();
+
+            // Then
+            assertEquals(HoldStatus.RELEASED, result.getStatus());
+            assertEquals(0, holdRegistry.activeCount());
+        }
+
+        @Test
+        @DisplayName("Should throw HoldNotFoundException for unknown hold")
+        void release_NotFound() {
+            // Given
+            when(holdRepository.findById(HOLD_ID)).thenReturn(Optional.empty());
+
+            // When & Then
+            assertThrows(HoldNotFoundException.class, () -> cardHoldService.release(HOLD_ID, USER_ID));
+        }
+    }
+
+    @Nested
+    @DisplayName("Expiry Tests")
+    class ExpiryTests {
+
+        @Test
+        @DisplayName("Should expire holds whose deadline passed")
+        void expireHolds_ExpiresDueHolds() throws InterruptedException {
+            // Given
+            CardHold hold = activeHold(BigDecimal.valueOf(300));
+            hold.setExpiresAt(LocalDateTime.now().minusSeconds(1));
+            holdRegistry.add(hold);
+            when(holdRepository.expire(anyCollection(), any(LocalDateTime.class))).thenReturn(1);
+            Thread.sleep(2);
+
+            // When
+            cardHoldService.expireHolds();
+
+            // Then
+            verify(holdRepository).expire(eq(List.of(HOLD_ID)), any(LocalDateTime.class));
+            assertEquals(0, holdRegistry.activeCount());
+            assertEquals(0, BigDecimal.ZERO.compareTo(holdRegistry.heldAmount(FROM_CARD_ID)));
+        }
+
+        @Test
+        @DisplayName("Should not touch database when nothing expired")
+        void expireHolds_NothingDue() {
+            // Given
+            holdRegistry.add(activeHold(BigDecimal.valueOf(300)));
+
+            // When
+            cardHoldService.expireHolds();
+
+            // Then
+            verify(holdRepository, never()).expire(anyCollection(), any());
+            assertEquals(1, holdRegistry.activeCount());
+        }
+    }
+}
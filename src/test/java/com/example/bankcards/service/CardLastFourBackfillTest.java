@@ -0,0 +1,58 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.util.CardNumberUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@DisplayName("CardLastFourBackfill Tests")
+class CardLastFourBackfillTest {
+
+    @Test
+    @DisplayName("Should fill last four digits and blind index chunk by chunk in id order")
+    void backfill_FillsAllChunks() {
+        // Given
+        CardRepository cardRepository = mock(CardRepository.class);
+        CardNumberUtil cardNumberUtil = mock(CardNumberUtil.class);
+        String first = "encrypted1";
+        String second = "encrypted2";
+        String third = "encrypted3";
+        when(cardNumberUtil.decryptCardNumber(first)).thenReturn("1111222233334444");
+        when(cardNumberUtil.decryptCardNumber(second)).thenReturn("5555666677778888");
+        when(cardNumberUtil.decryptCardNumber(third)).thenReturn("9999000011112222");
+        when(cardRepository.findWithoutNumberColumns(eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(new Object[]{1L, first}, new Object[]{2L, second}));
+        when(cardRepository.findWithoutNumberColumns(eq(2L), any(Pageable.class)))
+                .thenReturn(List.<Object[]>of(new Object[]{5L, third}));
+        when(cardRepository.findWithoutNumberColumns(eq(5L), any(Pageable.class))).thenReturn(List.of());
+        when(cardNumberUtil.blindIndex(anyString())).thenAnswer(invocation -> "hash" + invocation.getArgument(0));
+        when(cardRepository.fillNumberColumns(anyLong(), anyString(), anyString())).thenReturn(1);
+
+        IssuedCardNumberFilter issuedNumbers = new IssuedCardNumberFilter(mock(CardRepository.class),
+                new SimpleMeterRegistry(), 1000, 0.001);
+        CardLastFourBackfill backfill = new CardLastFourBackfill(cardRepository, cardNumberUtil,
+                new TransferEngine(mock(PlatformTransactionManager.class), 16), issuedNumbers, true, 2, 2);
+
+        // When
+        int filled = backfill.backfill();
+
+        // Then
+        assertEquals(3, filled);
+        verify(cardRepository).fillNumberColumns(1L, "4444", "hash1111222233334444");
+        verify(cardRepository).fillNumberColumns(2L, "8888", "hash5555666677778888");
+        verify(cardRepository).fillNumberColumns(5L, "2222", "hash9999000011112222");
+        assertTrue(issuedNumbers.mightContain("hash5555666677778888"));
+    }
+}
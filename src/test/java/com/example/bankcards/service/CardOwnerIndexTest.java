@@ -0,0 +1,86 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.repository.CardRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@DisplayName("CardOwnerIndex Tests")
+class CardOwnerIndexTest {
+
+    private CardRepository cardRepository;
+    private CardOwnerIndex index;
+
+    @BeforeEach
+    void setUp() {
+        cardRepository = mock(CardRepository.class);
+        when(cardRepository.findOwners(eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(new Object[]{1L, "Ivan Petrov"}, new Object[]{2L, "Petr Ivanov"}));
+        when(cardRepository.findOwners(eq(2L), any(Pageable.class)))
+                .thenReturn(List.<Object[]>of(new Object[]{3L, "Мария Петрова"}));
+        when(cardRepository.findOwners(eq(3L), any(Pageable.class))).thenReturn(List.of());
+        index = new CardOwnerIndex(cardRepository, null, "memory");
+        index.load();
+    }
+
+    @Test
+    @DisplayName("Should find substrings case-insensitively in id order")
+    void search_Substring() {
+        assertEquals(List.of(1L, 2L), index.search("IVAN"));
+        assertEquals(List.of(1L), index.search("n petr"));
+        assertEquals(List.of(3L), index.search("петров"));
+        assertEquals(List.of(), index.search("sidorov"));
+    }
+
+    @Test
+    @DisplayName("Should reject candidates sharing trigrams but not the substring")
+    void search_VerifiesCandidates() {
+        // Given: обе триграммы "nanan" есть у "nana", но подстроки нет
+        index.cardCreated(20L, "Nana");
+
+        // When & Then
+        assertEquals(List.of(), index.search("nanan"));
+        assertEquals(List.of(20L), index.search("nana"));
+    }
+
+    @Test
+    @DisplayName("Should scan owners for queries shorter than a trigram")
+    void search_ShortQuery() {
+        assertEquals(List.of(1L, 2L), index.search("Pe"));
+    }
+
+    @Test
+    @DisplayName("Should add and remove cards")
+    void addRemove() {
+        // When
+        index.cardCreated(10L, "Ivan Sidorov");
+        index.cardDeleted(1L);
+
+        // Then
+        assertEquals(List.of(2L, 10L), index.search("ivan"));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    @DisplayName("Should not build index in database mode")
+    void databaseMode() {
+        // Given
+        CardOwnerIndex databaseIndex = new CardOwnerIndex(cardRepository, null, "database");
+
+        // When
+        databaseIndex.load();
+        databaseIndex.cardCreated(10L, "Ivan Sidorov");
+
+        // Then
+        assertFalse(databaseIndex.isEnabled());
+        assertEquals(0, databaseIndex.size());
+    }
+}
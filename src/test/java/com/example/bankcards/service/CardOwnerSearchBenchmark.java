@@ -0,0 +1,101 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.repository.CardRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Бенчмарк поиска карт по подстроке имени владельца: задержка запроса при переборе всех
+ * имен, как у ILIKE '%...%' без индекса, и по триграммному {@link CardOwnerIndex}.
+ *
+ * Перебор идет по строкам в памяти, без чтения страниц таблицы, поэтому это нижняя
+ * граница времени полного сканирования в БД.
+ *
+ * Не входит в обычный прогон тестов, запуск:
+ * mvn test -Dtest=CardOwnerSearchBenchmark [-Dbenchmark.cards=1000000] [-Dbenchmark.repeats=20]
+ * Для 10 млн карт: -Dbenchmark.cards=10000000 -DargLine=-Xmx6g
+ */
+@Tag("benchmark")
+@DisplayName("CardOwnerSearch Benchmark")
+class CardOwnerSearchBenchmark {
+
+    private static final String[] FIRST_NAMES = {
+            "Ivan", "Petr", "Anna", "Maria", "Olga", "Sergey", "Dmitry", "Elena", "Alexey", "Natalia",
+            "Andrey", "Irina", "Pavel", "Tatiana", "Mikhail", "Svetlana", "Nikolay", "Yulia", "Artem", "Daria"};
+    private static final String[] SYLLABLES = {
+            "ka", "ro", "mi", "le", "no", "va", "se", "tu", "po", "da", "ri", "go",
+            "zo", "be", "lu", "sha", "che", "vo", "te", "ny", "ko", "ma", "ze", "pi"};
+    private static final String[] SUFFIXES = {"ov", "ev", "in", "sky", "enko", "ova"};
+
+    private final int cardCount = Integer.getInteger("benchmark.cards", 1_000_000);
+    private final int repeats = Integer.getInteger("benchmark.repeats", 20);
+
+    @Test
+    @DisplayName("Substring search latency, full scan versus trigram index")
+    void latency() {
+        Random random = new Random(42);
+        String[] owners = new String[cardCount];
+        CardOwnerIndex index = new CardOwnerIndex(mock(CardRepository.class), null, "memory");
+        index.load();
+        long buildStarted = System.nanoTime();
+        for (int i = 0; i < cardCount; i++) {
+            owners[i] = randomOwner(random);
+            index.add((long) i + 1, owners[i]);
+        }
+        System.out.printf("cards: %d, index built in %d ms%n", cardCount, (System.nanoTime() - buildStarted) / 1_000_000);
+
+        String sample = owners[random.nextInt(cardCount)];
+        String surname = sample.substring(sample.indexOf(' ') + 1);
+        String[] queries = {sample, surname, surname.substring(0, Math.min(5, surname.length())), "ivan", "ov"};
+
+        System.out.printf("%-24s %10s %12s %12s%n", "query", "matches", "scan ms", "index ms");
+        for (String query : queries) {
+            List<Long> scanned = scan(owners, query);
+            List<Long> indexed = index.search(query);
+            assertEquals(scanned, indexed, query);
+
+            long scanNanos = 0;
+            long indexNanos = 0;
+            for (int r = 0; r < repeats; r++) {
+                long started = System.nanoTime();
+                scan(owners, query);
+                scanNanos += System.nanoTime() - started;
+                started = System.nanoTime();
+                index.search(query);
+                indexNanos += System.nanoTime() - started;
+            }
+            System.out.printf("%-24s %10d %12.3f %12.3f%n", query, indexed.size(),
+                    scanNanos / 1_000_000.0 / repeats, indexNanos / 1_000_000.0 / repeats);
+        }
+    }
+
+    private static List<Long> scan(String[] owners, String query) {
+        String normalized = query.toLowerCase(Locale.ROOT);
+        List<Long> matches = new ArrayList<>();
+        for (int i = 0; i < owners.length; i++) {
+            if (owners[i].toLowerCase(Locale.ROOT).contains(normalized)) {
+                matches.add((long) i + 1);
+            }
+        }
+        return matches;
+    }
+
+    private static String randomOwner(Random random) {
+        StringBuilder owner = new StringBuilder(FIRST_NAMES[random.nextInt(FIRST_NAMES.length)]).append(' ');
+        int syllables = 2 + random.nextInt(2);
+        for (int i = 0; i < syllables; i++) {
+            owner.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        owner.setCharAt(owner.indexOf(" ") + 1, Character.toUpperCase(owner.charAt(owner.indexOf(" ") + 1)));
+        return owner.append(SUFFIXES[random.nextInt(SUFFIXES.length)]).toString();
+    }
+}
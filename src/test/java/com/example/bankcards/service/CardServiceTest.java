@@ -1,14 +1,23 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.BulkCardStatusDto;
 import com.example.bankcards.dto.CardDto;
 import com.example.bankcards.dto.CreateCardDto;
+import com.example.bankcards.dto.CursorPageDto;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.CardStatus;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.CardNotFoundException;
 import com.example.bankcards.exception.UnauthorizedException;
+import com.example.bankcards.repository.BalanceSnapshotRepository;
+import com.example.bankcards.repository.CardBalanceShardRepository;
+import com.example.bankcards.repository.CardHoldRepository;
+import com.example.bankcards.repository.LedgerEntryRepository;
 import com.example.bankcards.repository.CardRepository;
 import com.example.bankcards.util.CardNumberUtil;
+import com.example.bankcards.util.PageCursor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -16,14 +25,19 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -44,6 +58,42 @@ class CardServiceTest {
     @Mock
     private CardNumberUtil cardNumberUtil;
 
+    @Mock
+    private UserCardSummaryService summaryService;
+
+    @Mock
+    private CardBulkStatusUpdater bulkStatusUpdater;
+
+    @Spy
+    private TransferEngine transferEngine = new TransferEngine(mock(PlatformTransactionManager.class), 16);
+
+    @Spy
+    private OptimisticRetryExecutor retryExecutor = new OptimisticRetryExecutor(new SimpleMeterRegistry(), 3,
+            Duration.ofMillis(1), Duration.ofMillis(5));
+
+    @Spy
+    private CardBalanceShardService shardService = new CardBalanceShardService(mock(CardBalanceShardRepository.class),
+            mock(CardRepository.class), new TransferEngine(mock(PlatformTransactionManager.class), 16),
+            mock(PlatformTransactionManager.class), 8, false, mock(EntityManager.class));
+
+    @Spy
+    private CardReadCache cardReadCache = new CardReadCache(new SimpleMeterRegistry(), 100, Duration.ofMinutes(10));
+
+    @Spy
+    private LedgerService ledgerService = new LedgerService(mock(LedgerEntryRepository.class),
+            mock(BalanceSnapshotRepository.class), shardService, cardReadCache,
+            mock(UserCardSummaryService.class), new TransferEngine(mock(PlatformTransactionManager.class), 16), false, 500, Duration.ofMinutes(5));
+
+    @Spy
+    private CardHoldRegistry holdRegistry = new CardHoldRegistry(mock(CardHoldRepository.class), 100);
+
+    @Spy
+    private CardOwnerIndex ownerIndex = new CardOwnerIndex(mock(CardRepository.class), null, "memory");
+
+    @Spy
+    private IssuedCardNumberFilter issuedNumbers = new IssuedCardNumberFilter(mock(CardRepository.class),
+            new SimpleMeterRegistry(), 1000, 0.001);
+
     @InjectMocks
     private CardService cardService;
 
@@ -63,6 +113,7 @@ class CardServiceTest {
         testCard = new Card();
         testCard.setId(CARD_ID);
         testCard.setCardNumber("encrypted1234567890123456");
+        testCard.setLastFour("3456");
         testCard.setOwner("Test Owner");
         testCard.setExpiryDate(LocalDate.now().plusYears(2));
         testCard.setStatus(CardStatus.ACTIVE);
@@ -73,6 +124,7 @@ class CardServiceTest {
         createCardDto.setOwner("Test Owner");
         createCardDto.setExpiryDate(LocalDate.now().plusYears(2));
         createCardDto.setInitialBalance(BigDecimal.valueOf(1000));
+        ownerIndex.load();
     }
 
     @Nested
@@ -86,9 +138,8 @@ class CardServiceTest {
             when(userService.getUserEntityById(USER_ID)).thenReturn(testUser);
             when(cardNumberUtil.generateCardNumber()).thenReturn("1234567890123456");
             when(cardNumberUtil.encryptCardNumber("1234567890123456")).thenReturn("encrypted1234567890123456");
+            when(cardNumberUtil.blindIndex("1234567890123456")).thenReturn("hash3456");
             when(cardRepository.save(any(Card.class))).thenReturn(testCard);
-            when(cardNumberUtil.maskCardNumber("1234567890123456")).thenReturn("**** **** **** 3456");
-            when(cardNumberUtil.decryptCardNumber("encrypted1234567890123456")).thenReturn("1234567890123456");
 
             // When
             CardDto result = cardService.createCard(createCardDto, USER_ID);
@@ -102,7 +153,65 @@ class CardServiceTest {
             
             verify(userService).getUserEntityById(USER_ID);
             verify(cardNumberUtil).generateCardNumber();
-            verify(cardRepository).save(any(Card.class));
+            verify(cardRepository).save(argThat((Card card) ->
+                    "3456".equals(card.getLastFour()) && "hash3456".equals(card.getCardNumberHash())));
+            verify(cardRepository, never()).existsByCardNumberHash(any());
+            assertTrue(issuedNumbers.mightContain("hash3456"));
+            verify(ledgerService).recordOpening(testCard);
+            verify(summaryService).cardAdded(USER_ID, CardStatus.ACTIVE, BigDecimal.valueOf(1000));
+        }
+
+        @Test
+        @DisplayName("Should regenerate card number already taken by another card")
+        void createCard_RegeneratesTakenNumber() {
+            // Given
+            issuedNumbers.put("takenHash");
+            when(userService.getUserEntityById(USER_ID)).thenReturn(testUser);
+            when(cardNumberUtil.generateCardNumber()).thenReturn("1111222233334444", "1234567890123456");
+            when(cardNumberUtil.blindIndex("1111222233334444")).thenReturn("takenHash");
+            when(cardNumberUtil.blindIndex("1234567890123456")).thenReturn("hash3456");
+            when(cardRepository.existsByCardNumberHash("takenHash")).thenReturn(true);
+            when(cardNumberUtil.encryptCardNumber("1234567890123456")).thenReturn("encrypted1234567890123456");
+            when(cardRepository.save(any(Card.class))).thenReturn(testCard);
+
+            // When
+            cardService.createCard(createCardDto, USER_ID);
+
+            // Then
+            verify(cardNumberUtil, times(2)).generateCardNumber();
+            verify(cardRepository, never()).existsByCardNumberHash("hash3456");
+            verify(cardRepository).save(argThat((Card card) -> "hash3456".equals(card.getCardNumberHash())));
+        }
+    }
+
+    @Nested
+    @DisplayName("Lookup By Number Tests")
+    class LookupByNumberTests {
+
+        @Test
+        @DisplayName("Should find card by blind index without decryption")
+        void getCardByNumber_Success() {
+            // Given
+            when(cardNumberUtil.blindIndex("1234567890123456")).thenReturn("hash3456");
+            when(cardRepository.findByCardNumberHash("hash3456")).thenReturn(Optional.of(testCard));
+
+            // When
+            CardDto result = cardService.getCardByNumber("1234567890123456");
+
+            // Then
+            assertEquals(CARD_ID, result.getId());
+            verify(cardNumberUtil, never()).decryptCardNumber(any());
+        }
+
+        @Test
+        @DisplayName("Should throw CardNotFoundException for unknown number")
+        void getCardByNumber_NotFound() {
+            // Given
+            when(cardNumberUtil.blindIndex("1234567890123456")).thenReturn("hash3456");
+            when(cardRepository.findByCardNumberHash("hash3456")).thenReturn(Optional.empty());
+
+            // When & Then
+            assertThrows(CardNotFoundException.class, () -> cardService.getCardByNumber("1234567890123456"));
         }
     }
 
@@ -115,8 +224,6 @@ class CardServiceTest {
         void getCardById_Success() {
             // Given
             when(cardRepository.findById(CARD_ID)).thenReturn(Optional.of(testCard));
-            when(cardNumberUtil.maskCardNumber("1234567890123456")).thenReturn("**** **** **** 3456");
-            when(cardNumberUtil.decryptCardNumber("encrypted1234567890123456")).thenReturn("1234567890123456");
 
             // When
             CardDto result = cardService.getCardById(CARD_ID, USER_ID);
@@ -126,6 +233,23 @@ class CardServiceTest {
             assertEquals(CARD_ID, result.getId());
             assertEquals("**** **** **** 3456", result.getCardNumber());
             verify(cardRepository).findById(CARD_ID);
+            verify(cardNumberUtil, never()).decryptCardNumber(any());
+        }
+
+        @Test
+        @DisplayName("Should mask card without stored last four digits by decrypting its number")
+        void getCardById_WithoutLastFour() {
+            // Given
+            testCard.setLastFour(null);
+            when(cardRepository.findById(CARD_ID)).thenReturn(Optional.of(testCard));
+            when(cardNumberUtil.decryptCardNumber("encrypted1234567890123456")).thenReturn("1234567890123456");
+            when(cardNumberUtil.maskCardNumber("1234567890123456")).thenReturn("**** **** **** 3456");
+
+            // When
+            CardDto result = cardService.getCardById(CARD_ID, USER_ID);
+
+            // Then
+            assertEquals("**** **** **** 3456", result.getCardNumber());
         }
 
         @Test
@@ -150,6 +274,82 @@ class CardServiceTest {
             assertThrows(UnauthorizedException.class, () -> cardService.getCardById(CARD_ID, differentUserId));
             verify(cardRepository).findById(CARD_ID);
         }
+
+        @Test
+        @DisplayName("Should serve repeated reads from card cache")
+        void getCardById_Cached() {
+            // Given
+            when(cardRepository.findById(CARD_ID)).thenReturn(Optional.of(testCard));
+            cardService.getCardById(CARD_ID, USER_ID).setOwner("Changed by caller");
+
+            // When
+            CardDto result = cardService.getCardById(CARD_ID, USER_ID);
+
+            // Then
+            assertEquals("Test Owner", result.getOwner());
+            verify(cardRepository, times(1)).findById(CARD_ID);
+        }
+
+        @Test
+        @DisplayName("Should check ownership of cached card")
+        void getCardById_CachedUnauthorized() {
+            // Given
+            when(cardRepository.findById(CARD_ID)).thenReturn(Optional.of(testCard));
+            cardService.getCardById(CARD_ID, USER_ID);
+
+            // When & Then
+            assertThrows(UnauthorizedException.class, () -> cardService.getCardById(CARD_ID, 2L));
+            verify(cardRepository, times(1)).findById(CARD_ID);
+        }
+
+        @Test
+        @DisplayName("Should reload card after status update")
+        void getCardById_InvalidatedByStatusUpdate() {
+            // Given
+            when(cardRepository.findById(CARD_ID)).thenReturn(Optional.of(testCard));
+            when(cardRepository.save(any(Card.class))).thenReturn(testCard);
+            cardService.getCardById(CARD_ID, USER_ID);
+
+            // When
+            cardService.updateCardStatus(CARD_ID, CardStatus.BLOCKED, USER_ID);
+            CardDto result = cardService.getCardById(CARD_ID, USER_ID);
+
+            // Then
+            assertEquals(CardStatus.BLOCKED, result.getStatus());
+            verify(cardReadCache).invalidate(CARD_ID);
+        }
+
+        @Test
+        @DisplayName("Should reload card after balance change")
+        void getCardById_InvalidatedByBalanceUpdate() {
+            // Given
+            when(cardRepository.findById(CARD_ID)).thenReturn(Optional.of(testCard));
+            when(cardRepository.save(any(Card.class))).thenReturn(testCard);
+            cardService.getCardById(CARD_ID, USER_ID);
+
+            // When
+            cardService.updateCardBalance(CARD_ID, USER_ID, BigDecimal.valueOf(2000));
+            CardDto result = cardService.getCardById(CARD_ID, USER_ID);
+
+            // Then
+            assertEquals(0, BigDecimal.valueOf(2000).compareTo(result.getBalance()));
+        }
+
+        @Test
+        @DisplayName("Should recompute available balance of cached card from current holds")
+        void getCardById_CachedAvailableBalance() {
+            // Given
+            when(cardRepository.findById(CARD_ID)).thenReturn(Optional.of(testCard));
+            cardService.getCardById(CARD_ID, USER_ID);
+            doReturn(BigDecimal.valueOf(300)).when(holdRegistry).heldAmount(CARD_ID);
+
+            // When
+            CardDto result = cardService.getCardById(CARD_ID, USER_ID);
+
+            // Then
+            assertEquals(0, BigDecimal.valueOf(700).compareTo(result.getAvailableBalance()));
+            verify(cardRepository, times(1)).findById(CARD_ID);
+        }
     }
 
     @Nested
@@ -163,8 +363,6 @@ class CardServiceTest {
             Pageable pageable = PageRequest.of(0, 10);
             Page<Card> cardPage = new PageImpl<>(List.of(testCard));
             when(cardRepository.findByUserIdAndStatusNot(USER_ID, CardStatus.EXPIRED, pageable)).thenReturn(cardPage);
-            when(cardNumberUtil.maskCardNumber("1234567890123456")).thenReturn("**** **** **** 3456");
-            when(cardNumberUtil.decryptCardNumber("encrypted1234567890123456")).thenReturn("1234567890123456");
 
             // When
             Page<CardDto> result = cardService.getUserCards(USER_ID, pageable, null, null);
@@ -174,6 +372,8 @@ class CardServiceTest {
             assertEquals(1, result.getContent().size());
             assertEquals("**** **** **** 3456", result.getContent().get(0).getCardNumber());
             verify(cardRepository).findByUserIdAndStatusNot(USER_ID, CardStatus.EXPIRED, pageable);
+            verify(ledgerService).getBalances(List.of(testCard));
+            verify(ledgerService, never()).getBalance(any(Card.class));
         }
 
         @Test
@@ -183,8 +383,6 @@ class CardServiceTest {
             Pageable pageable = PageRequest.of(0, 10);
             Page<Card> cardPage = new PageImpl<>(List.of(testCard));
             when(cardRepository.findByUserIdAndFilters(USER_ID, CardStatus.ACTIVE, "Test", pageable)).thenReturn(cardPage);
-            when(cardNumberUtil.maskCardNumber("1234567890123456")).thenReturn("**** **** **** 3456");
-            when(cardNumberUtil.decryptCardNumber("encrypted1234567890123456")).thenReturn("1234567890123456");
 
             // When
             Page<CardDto> result = cardService.getUserCards(USER_ID, pageable, CardStatus.ACTIVE, "Test");
@@ -196,6 +394,81 @@ class CardServiceTest {
         }
     }
 
+    @Nested
+    @DisplayName("Cursor Page Tests")
+    class CursorPageTests {
+
+        @Test
+        @DisplayName("Should return page with cursor of its last card when more cards exist")
+        void getUserCardsAfter_HasNext() {
+            // Given
+            LocalDateTime createdAt = LocalDateTime.of(2024, 1, 1, 12, 0);
+            testCard.setCreatedAt(createdAt);
+            Card older = new Card();
+            older.setId(CARD_ID - 1);
+            older.setLastFour("0000");
+            older.setUser(testUser);
+            when(cardRepository.findByUserIdBefore(eq(USER_ID), argThat((Collection<CardStatus> statuses) ->
+                            !statuses.contains(CardStatus.EXPIRED) && statuses.contains(CardStatus.ACTIVE)),
+                    isNull(), eq(PageCursor.FIRST.getCreatedAt()), eq(Long.MAX_VALUE), eq(PageRequest.of(0, 2))))
+                    .thenReturn(List.of(testCard, older));
+
+            // When
+            CursorPageDto<CardDto> page = cardService.getUserCardsAfter(USER_ID, null, 1, null, " ");
+
+            // Then
+            assertEquals(1, page.getContent().size());
+            assertTrue(page.isHasNext());
+            PageCursor cursor = PageCursor.decode(page.getNext());
+            assertEquals(createdAt, cursor.getCreatedAt());
+            assertEquals(CARD_ID, cursor.getId());
+        }
+
+        @Test
+        @DisplayName("Should reject malformed cursor")
+        void getUserCardsAfter_InvalidCursor() {
+            assertThrows(IllegalArgumentException.class,
+                    () -> cardService.getUserCardsAfter(USER_ID, "not-a-cursor", 20, null, null));
+        }
+    }
+
+    @Nested
+    @DisplayName("Search By Owner Tests")
+    class SearchByOwnerTests {
+
+        @Test
+        @DisplayName("Should search owners through in-memory trigram index")
+        void searchCardsByOwner_MemoryIndex() {
+            // Given
+            ownerIndex.cardCreated(CARD_ID, "Test Owner");
+            ownerIndex.cardCreated(2L, "Another Person");
+            when(cardRepository.findByIdIn(List.of(CARD_ID))).thenReturn(List.of(testCard));
+
+            // When
+            Page<CardDto> result = cardService.searchCardsByOwner("t own", PageRequest.of(0, 10));
+
+            // Then
+            assertEquals(1, result.getTotalElements());
+            assertEquals(CARD_ID, result.getContent().get(0).getId());
+            verify(cardRepository, never()).searchByOwner(any(), any());
+        }
+
+        @Test
+        @DisplayName("Should search owners in database with escaped LIKE pattern")
+        void searchCardsByOwner_Database() {
+            // Given
+            doReturn(false).when(ownerIndex).isEnabled();
+            Pageable pageable = PageRequest.of(0, 10);
+            when(cardRepository.searchByOwner("50\\%\\_off", pageable)).thenReturn(new PageImpl<>(List.of(testCard)));
+
+            // When
+            Page<CardDto> result = cardService.searchCardsByOwner("50%_off", pageable);
+
+            // Then
+            assertEquals(1, result.getContent().size());
+        }
+    }
+
     @Nested
     @DisplayName("Update Card Tests")
     class UpdateCardTests {
@@ -207,8 +480,6 @@ class CardServiceTest {
             CardStatus newStatus = CardStatus.BLOCKED;
             when(cardRepository.findById(CARD_ID)).thenReturn(Optional.of(testCard));
             when(cardRepository.save(any(Card.class))).thenReturn(testCard);
-            when(cardNumberUtil.maskCardNumber("1234567890123456")).thenReturn("**** **** **** 3456");
-            when(cardNumberUtil.decryptCardNumber("encrypted1234567890123456")).thenReturn("1234567890123456");
 
             // When
             CardDto result = cardService.updateCardStatus(CARD_ID, newStatus, USER_ID);
@@ -217,6 +488,7 @@ class CardServiceTest {
             assertNotNull(result);
             verify(cardRepository).findById(CARD_ID);
             verify(cardRepository).save(any(Card.class));
+            verify(summaryService).statusChanged(USER_ID, CardStatus.ACTIVE, CardStatus.BLOCKED, 1);
         }
 
         @Test
@@ -226,8 +498,6 @@ class CardServiceTest {
             BigDecimal newBalance = BigDecimal.valueOf(2000);
             when(cardRepository.findById(CARD_ID)).thenReturn(Optional.of(testCard));
             when(cardRepository.save(any(Card.class))).thenReturn(testCard);
-            when(cardNumberUtil.maskCardNumber("1234567890123456")).thenReturn("**** **** **** 3456");
-            when(cardNumberUtil.decryptCardNumber("encrypted1234567890123456")).thenReturn("1234567890123456");
 
             // When
             CardDto result = cardService.updateCardBalance(CARD_ID, USER_ID, newBalance);
@@ -255,6 +525,21 @@ class CardServiceTest {
             // Then
             verify(cardRepository).findById(CARD_ID);
             verify(cardRepository).delete(testCard);
+            verify(summaryService).cardRemoved(USER_ID, CardStatus.ACTIVE, BigDecimal.valueOf(1000));
+        }
+
+        @Test
+        @DisplayName("Should remove deleted card from owner index")
+        void deleteCard_RemovesFromOwnerIndex() {
+            // Given
+            ownerIndex.cardCreated(CARD_ID, "Test Owner");
+            when(cardRepository.findById(CARD_ID)).thenReturn(Optional.of(testCard));
+
+            // When
+            cardService.deleteCard(CARD_ID, USER_ID);
+
+            // Then
+            assertTrue(ownerIndex.search("owner").isEmpty());
         }
     }
 
@@ -293,20 +578,21 @@ class CardServiceTest {
         }
 
         @Test
-        @DisplayName("Should check and update expired cards successfully")
+        @DisplayName("Should expire active cards past their expiry date through bulk status change")
         void checkAndUpdateExpiredCards_Success() {
             // Given
-            LocalDate today = LocalDate.now();
-            List<Card> expiredCards = List.of(testCard);
-            when(cardRepository.findExpiredCards(today)).thenReturn(expiredCards);
-            when(cardRepository.save(any(Card.class))).thenReturn(testCard);
+            LocalDate yesterday = LocalDate.now().minusDays(1);
+            when(bulkStatusUpdater.updateStatus(argThat((BulkCardStatusDto request) ->
+                    request.getStatus() == CardStatus.EXPIRED && request.getCurrentStatus() == CardStatus.ACTIVE
+                            && yesterday.equals(request.getExpiresTo()) && !request.hasCardIds()), eq(2)))
+                    .thenReturn(5);
 
             // When
-            cardService.checkAndUpdateExpiredCards();
+            int expired = cardService.checkAndUpdateExpiredCards(2);
 
             // Then
-            verify(cardRepository).findExpiredCards(today);
-            verify(cardRepository).save(any(Card.class));
+            assertEquals(5, expired);
+            verify(cardRepository, never()).save(any(Card.class));
         }
     }
 }
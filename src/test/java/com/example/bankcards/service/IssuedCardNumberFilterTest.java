@@ -0,0 +1,63 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.repository.CardRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@DisplayName("IssuedCardNumberFilter Tests")
+class IssuedCardNumberFilterTest {
+
+    @Test
+    @DisplayName("Should load issued blind indexes chunk by chunk in id order")
+    void load_AllChunks() {
+        // Given
+        CardRepository cardRepository = mock(CardRepository.class);
+        when(cardRepository.findCardNumberHashes(eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(new Object[]{1L, "hash1"}, new Object[]{4L, "hash4"}));
+        when(cardRepository.findCardNumberHashes(eq(4L), any(Pageable.class)))
+                .thenReturn(List.<Object[]>of(new Object[]{9L, "hash9"}));
+        when(cardRepository.findCardNumberHashes(eq(9L), any(Pageable.class))).thenReturn(List.of());
+        IssuedCardNumberFilter filter = new IssuedCardNumberFilter(cardRepository, new SimpleMeterRegistry(), 1000, 0.001);
+
+        // When
+        filter.load();
+
+        // Then
+        assertTrue(filter.mightContain("hash1"));
+        assertTrue(filter.mightContain("hash4"));
+        assertTrue(filter.mightContain("hash9"));
+        assertFalse(filter.mightContain("hash2"));
+    }
+
+    @Test
+    @DisplayName("Should never miss added values and keep false positives near configured rate")
+    void mightContain_FalsePositiveRate() {
+        // Given
+        IssuedCardNumberFilter filter = new IssuedCardNumberFilter(mock(CardRepository.class),
+                new SimpleMeterRegistry(), 10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("issued" + i);
+        }
+
+        // When
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("issued" + i));
+            if (filter.mightContain("absent" + i)) {
+                falsePositives++;
+            }
+        }
+
+        // Then
+        assertTrue(falsePositives < 300, "false positives: " + falsePositives);
+    }
+}
@@ -0,0 +1,259 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.BalanceSnapshot;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.LedgerEntry;
+import com.example.bankcards.entity.LedgerEntryType;
+import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.BalanceSnapshotRepository;
+import com.example.bankcards.repository.LedgerEntryRepository;
+import com.example.bankcards.repository.LedgerEntryRepository.LedgerDelta;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("LedgerService Tests")
+class LedgerServiceTest {
+
+    @Mock
+    private LedgerEntryRepository ledgerEntryRepository;
+
+    @Mock
+    private BalanceSnapshotRepository snapshotRepository;
+
+    @Mock
+    private CardBalanceShardService shardService;
+
+    @Mock
+    private UserCardSummaryService summaryService;
+
+    private CardReadCache cardReadCache;
+    private LedgerService ledgerService;
+    private Card fromCard;
+    private Card toCard;
+
+    @BeforeEach
+    void setUp() {
+        cardReadCache = spy(new CardReadCache(new SimpleMeterRegistry(), 100, Duration.ofMinutes(10)));
+        ledgerService = new LedgerService(ledgerEntryRepository, snapshotRepository, shardService, cardReadCache, summaryService,
+                new TransferEngine(mock(PlatformTransactionManager.class), 16), true, 500, Duration.ofMinutes(5));
+
+        User sender = new User();
+        sender.setId(1L);
+        User recipient = new User();
+        recipient.setId(2L);
+
+        fromCard = new Card();
+        fromCard.setId(1L);
+        fromCard.setBalance(BigDecimal.valueOf(1000));
+        fromCard.setUser(sender);
+        toCard = new Card();
+        toCard.setId(2L);
+        toCard.setUser(recipient);
+    }
+
+    @Test
+    @DisplayName("Should write a debit and a credit entry per transfer")
+    void recordTransfer_WritesSignedEntries() {
+        // Given
+        Transaction transaction = new Transaction(fromCard, toCard, BigDecimal.valueOf(100));
+        transaction.setId(10L);
+
+        // When
+        ledgerService.recordTransfer(transaction);
+
+        // Then
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<LedgerEntry>> captor = ArgumentCaptor.forClass(List.class);
+        verify(ledgerEntryRepository).saveAll(captor.capture());
+        List<LedgerEntry> entries = new ArrayList<>(captor.getValue());
+        assertEquals(2, entries.size());
+        assertEquals(1L, entries.get(0).getCardId());
+        assertEquals(0, BigDecimal.valueOf(-100).compareTo(entries.get(0).getAmount()));
+        assertEquals(2L, entries.get(1).getCardId());
+        assertEquals(0, BigDecimal.valueOf(100).compareTo(entries.get(1).getAmount()));
+        assertTrue(entries.stream().allMatch(entry -> entry.getType() == LedgerEntryType.TRANSFER
+                && entry.getTransactionId().equals(10L)));
+    }
+
+    @Test
+    @DisplayName("Should derive balance from snapshot and later entries")
+    void getBalance_SnapshotPlusEntries() {
+        // Given
+        BalanceSnapshot snapshot = new BalanceSnapshot(1L);
+        snapshot.setBalance(BigDecimal.valueOf(700));
+        snapshot.setCoveredUntil(LocalDateTime.of(2026, 1, 1, 12, 0));
+        when(snapshotRepository.findById(1L)).thenReturn(Optional.of(snapshot));
+        when(ledgerEntryRepository.sumByCardIdSince(1L, LocalDateTime.of(2026, 1, 1, 12, 0)))
+                .thenReturn(BigDecimal.valueOf(-200));
+
+        // When
+        BigDecimal balance = ledgerService.getBalance(fromCard);
+
+        // Then
+        assertEquals(0, BigDecimal.valueOf(500).compareTo(balance));
+    }
+
+    @Test
+    @DisplayName("Should move snapshot forward by entries older than the lag")
+    void refreshSnapshots_AdvancesSnapshot() {
+        // Given
+        BalanceSnapshot snapshot = new BalanceSnapshot(1L);
+        snapshot.setBalance(BigDecimal.valueOf(700));
+        snapshot.setCoveredUntil(LocalDateTime.now().minusHours(1));
+        LedgerDelta delta = mock(LedgerDelta.class);
+        when(delta.getCardId()).thenReturn(1L);
+        when(delta.getAmount()).thenReturn(BigDecimal.valueOf(-200));
+        when(ledgerEntryRepository.findCardIdsWithEntriesBefore(any())).thenReturn(List.of(1L));
+        when(snapshotRepository.findByCardIdsForUpdate(List.of(1L))).thenReturn(List.of(snapshot));
+        when(ledgerEntryRepository.findDeltasBefore(eq(List.of(1L)), any())).thenReturn(List.of(delta));
+        LocalDateTime lowerBound = LocalDateTime.now().minusMinutes(5);
+
+        // When
+        ledgerService.refreshSnapshots();
+
+        // Then
+        ArgumentCaptor<LocalDateTime> before = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(ledgerEntryRepository).findCardIdsWithEntriesBefore(before.capture());
+        assertFalse(before.getValue().isBefore(lowerBound));
+        assertTrue(before.getValue().isBefore(LocalDateTime.now().minusMinutes(4)));
+        assertEquals(0, BigDecimal.valueOf(500).compareTo(snapshot.getBalance()));
+        assertEquals(before.getValue(), snapshot.getCoveredUntil());
+        verify(snapshotRepository).saveAll(anyList());
+    }
+
+    @Test
+    @DisplayName("Should use Card.balance when balances are not derived")
+    void getBalance_CardMode() {
+        // Given
+        LedgerService cardMode = new LedgerService(ledgerEntryRepository, snapshotRepository, shardService,
+                new CardReadCache(new SimpleMeterRegistry(), 100, Duration.ofMinutes(10)), summaryService,
+                new TransferEngine(mock(PlatformTransactionManager.class), 16), false, 500, Duration.ofMinutes(5));
+
+        // When & Then
+        assertEquals(0, BigDecimal.valueOf(1000).compareTo(cardMode.getBalance(fromCard)));
+        verifyNoInteractions(snapshotRepository, ledgerEntryRepository);
+    }
+
+    @Test
+    @DisplayName("Should move balance of a hot card through its shards")
+    void debitAndCredit_HotCard() {
+        // Given
+        LedgerService cardMode = new LedgerService(ledgerEntryRepository, snapshotRepository, shardService,
+                new CardReadCache(new SimpleMeterRegistry(), 100, Duration.ofMinutes(10)), summaryService,
+                new TransferEngine(mock(PlatformTransactionManager.class), 16), false, 500, Duration.ofMinutes(5));
+        fromCard.setHot(true);
+        toCard.setHot(true);
+        toCard.setBalance(BigDecimal.ZERO);
+        when(shardService.debit(1L, BigDecimal.TEN)).thenReturn(false);
+
+        // When
+        boolean debited = cardMode.debit(fromCard, BigDecimal.TEN);
+        cardMode.credit(toCard, BigDecimal.TEN);
+
+        // Then
+        assertFalse(debited);
+        verify(shardService).credit(2L, BigDecimal.TEN);
+        assertEquals(0, BigDecimal.valueOf(1000).compareTo(fromCard.getBalance()));
+        assertEquals(0, BigDecimal.ZERO.compareTo(toCard.getBalance()));
+        verify(summaryService, never()).balanceChanged(1L, BigDecimal.TEN.negate());
+        verify(summaryService).balanceChanged(2L, BigDecimal.TEN);
+    }
+
+    @Test
+    @DisplayName("Should adjust a hot card by the previous total of its locked shards")
+    void setBalance_HotCard_UsesLockedShardTotal() {
+        // Given
+        LedgerService cardMode = new LedgerService(ledgerEntryRepository, snapshotRepository, shardService,
+                new CardReadCache(new SimpleMeterRegistry(), 100, Duration.ofMinutes(10)), summaryService,
+                new TransferEngine(mock(PlatformTransactionManager.class), 16), false, 500, Duration.ofMinutes(5));
+        fromCard.setHot(true);
+        fromCard.setBalance(BigDecimal.ZERO);
+        when(shardService.setBalance(1L, BigDecimal.valueOf(500))).thenReturn(BigDecimal.valueOf(320));
+
+        // When
+        cardMode.setBalance(fromCard, BigDecimal.valueOf(500));
+
+        // Then
+        verify(shardService, never()).getBalance(any());
+        ArgumentCaptor<LedgerEntry> entry = ArgumentCaptor.forClass(LedgerEntry.class);
+        verify(ledgerEntryRepository).save(entry.capture());
+        assertEquals(0, BigDecimal.valueOf(180).compareTo(entry.getValue().getAmount()));
+        verify(summaryService).balanceChanged(1L, BigDecimal.valueOf(180));
+        assertEquals(0, BigDecimal.ZERO.compareTo(fromCard.getBalance()));
+    }
+
+    @Test
+    @DisplayName("Should move summary balances on reversal when balances are derived")
+    void recordReversal_DerivedBalances_UpdatesSummaries() {
+        // Given
+        Transaction transaction = new Transaction(fromCard, toCard, BigDecimal.valueOf(100));
+        transaction.setId(10L);
+
+        // When
+        ledgerService.recordReversal(transaction);
+
+        // Then
+        verify(summaryService).balanceChanged(1L, BigDecimal.valueOf(100));
+        verify(summaryService).balanceChanged(2L, BigDecimal.valueOf(-100));
+        verify(cardReadCache).invalidate(List.of(1L, 2L));
+    }
+
+    @Test
+    @DisplayName("Should read derived balances of a page of cards in one query")
+    void getBalances_Derived() {
+        // Given
+        when(ledgerEntryRepository.findBalanceParts(List.of(1L, 2L))).thenReturn(List.of(
+                new Object[]{1L, BigDecimal.valueOf(500), BigDecimal.valueOf(20)},
+                new Object[]{2L, null, null}));
+
+        // When
+        Map<Long, BigDecimal> balances = ledgerService.getBalances(List.of(fromCard, toCard));
+
+        // Then
+        assertEquals(0, BigDecimal.valueOf(520).compareTo(balances.get(1L)));
+        assertEquals(0, BigDecimal.ZERO.compareTo(balances.get(2L)));
+        verify(ledgerEntryRepository, never()).sumByCardIdSince(any(), any());
+        verifyNoInteractions(snapshotRepository);
+    }
+
+    @Test
+    @DisplayName("Should sum shards of hot cards in one query and use Card.balance for the rest")
+    void getBalances_CardMode() {
+        // Given
+        LedgerService cardMode = new LedgerService(ledgerEntryRepository, snapshotRepository, shardService,
+                cardReadCache, summaryService, new TransferEngine(mock(PlatformTransactionManager.class), 16), false, 500, Duration.ofMinutes(5));
+        toCard.setHot(true);
+        when(shardService.getBalances(List.of(2L))).thenReturn(Map.of(2L, BigDecimal.valueOf(70)));
+
+        // When
+        Map<Long, BigDecimal> balances = cardMode.getBalances(List.of(fromCard, toCard));
+
+        // Then
+        assertEquals(0, BigDecimal.valueOf(1000).compareTo(balances.get(1L)));
+        assertEquals(0, BigDecimal.valueOf(70).compareTo(balances.get(2L)));
+        verify(shardService, never()).getBalance(any());
+    }
+}
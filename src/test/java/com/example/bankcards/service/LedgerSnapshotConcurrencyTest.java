@@ -0,0 +1,122 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.repository.BalanceSnapshotRepository;
+import com.example.bankcards.repository.LedgerEntryRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Снимки производных балансов на настоящей БД: проводка с меньшим ID фиксируется
+ * после обновления снимка, как при блоках ID на разных узлах.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@DisplayName("LedgerService Snapshot Concurrency Tests")
+class LedgerSnapshotConcurrencyTest {
+
+    private static final Long CARD_ID = 42L;
+
+    @Autowired
+    private LedgerEntryRepository ledgerEntryRepository;
+
+    @Autowired
+    private BalanceSnapshotRepository snapshotRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private TransactionTemplate transactionTemplate;
+    private LedgerService ledgerService;
+    private Card card;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        ledgerService = new LedgerService(ledgerEntryRepository, snapshotRepository,
+                mock(CardBalanceShardService.class),
+                new CardReadCache(new SimpleMeterRegistry(), 100, Duration.ofMinutes(10)),
+                mock(UserCardSummaryService.class), new TransferEngine(transactionManager, 16),
+                true, 500, Duration.ofSeconds(30));
+        card = new Card();
+        card.setId(CARD_ID);
+    }
+
+    @AfterEach
+    void tearDown() {
+        snapshotRepository.deleteAll();
+        ledgerEntryRepository.deleteAll();
+    }
+
+    private void insertEntry(long id, String amount, LocalDateTime createdAt) {
+        entityManager.createNativeQuery("INSERT INTO ledger_entries (id, card_id, entry_type, amount, created_at) " +
+                        "VALUES (?, ?, 'ADJUSTMENT', ?, ?)")
+                .setParameter(1, id)
+                .setParameter(2, CARD_ID)
+                .setParameter(3, new BigDecimal(amount))
+                .setParameter(4, createdAt)
+                .executeUpdate();
+    }
+
+    @Test
+    @DisplayName("Should keep an entry with a lower id that commits after the snapshot")
+    void refreshSnapshots_LowerIdCommitsLater() throws Exception {
+        // Given: старая проводка с большим ID зафиксирована, проводка с меньшим ID еще в транзакции
+        transactionTemplate.executeWithoutResult(status ->
+                insertEntry(2000L, "100.00", LocalDateTime.now().minusMinutes(1)));
+        CountDownLatch inserted = new CountDownLatch(1);
+        CountDownLatch snapshotted = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> lateCommit = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+                insertEntry(1000L, "25.50", LocalDateTime.now());
+                inserted.countDown();
+                try {
+                    assertTrue(snapshotted.await(10, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+            assertTrue(inserted.await(10, TimeUnit.SECONDS));
+
+            // When
+            ledgerService.refreshSnapshots();
+            snapshotted.countDown();
+            lateCommit.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Then
+        assertEquals(0, new BigDecimal("100.00").compareTo(
+                snapshotRepository.findById(CARD_ID).orElseThrow().getBalance()));
+        BigDecimal balance = transactionTemplate.execute(status -> ledgerService.getBalance(card));
+        assertEquals(0, new BigDecimal("125.50").compareTo(balance));
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.HotCardDto;
+import com.example.bankcards.entity.Card;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("OptimisticRetryExecutor Tests")
+class OptimisticRetryExecutorTest {
+
+    private static final Long CARD_ID = 7L;
+
+    private SimpleMeterRegistry meterRegistry;
+    private OptimisticRetryExecutor retryExecutor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        retryExecutor = new OptimisticRetryExecutor(meterRegistry, 3, Duration.ofMillis(1), Duration.ofMillis(5));
+    }
+
+    @Test
+    @DisplayName("Should retry after a version conflict and return the result")
+    void execute_RetriesAndSucceeds() {
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = retryExecutor.execute("updateCardBalance", () -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new ObjectOptimisticLockingFailureException(Card.class, CARD_ID);
+            }
+            return "ok";
+        });
+
+        assertEquals("ok", result);
+        assertEquals(3, calls.get());
+        assertEquals(2.0, meterRegistry.get("transfers.optimistic.conflicts").tag("operation", "updateCardBalance").counter().count());
+        assertEquals(2.0, meterRegistry.get("transfers.optimistic.retries").tag("operation", "updateCardBalance").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should give up after the maximum number of attempts")
+    void execute_GivesUpAfterMaxAttempts() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(ObjectOptimisticLockingFailureException.class, () ->
+            retryExecutor.execute("createTransaction", () -> {
+                calls.incrementAndGet();
+                throw new ObjectOptimisticLockingFailureException(Card.class, CARD_ID);
+            }));
+
+        assertEquals(3, calls.get());
+        assertEquals(1.0, meterRegistry.get("transfers.optimistic.exhausted").tag("operation", "createTransaction").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should not retry other exceptions")
+    void execute_DoesNotRetryOtherExceptions() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(IllegalStateException.class, () ->
+            retryExecutor.execute("createTransaction", () -> {
+                calls.incrementAndGet();
+                throw new IllegalStateException("boom");
+            }));
+
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    @DisplayName("Should report cards with the most conflicts")
+    void getHotCards_OrderedByConflicts() {
+        retryExecutor.execute("createTransaction", new ConflictingAction(1, 2L));
+        retryExecutor.execute("createTransaction", new ConflictingAction(2, CARD_ID));
+
+        List<HotCardDto> hotCards = retryExecutor.getHotCards(10);
+
+        assertEquals(2, hotCards.size());
+        assertEquals(CARD_ID, hotCards.get(0).getCardId());
+        assertEquals(2, hotCards.get(0).getConflicts());
+    }
+
+    private static class ConflictingAction implements Supplier<String> {
+        private final AtomicInteger remainingConflicts;
+        private final Long cardId;
+
+        ConflictingAction(int conflicts, Long cardId) {
+            this.remainingConflicts = new AtomicInteger(conflicts);
+            this.cardId = cardId;
+        }
+
+        @Override
+        public String get() {
+            if (remainingConflicts.getAndDecrement() > 0) {
+                throw new ObjectOptimisticLockingFailureException(Card.class, cardId);
+            }
+            return "ok";
+        }
+    }
+}
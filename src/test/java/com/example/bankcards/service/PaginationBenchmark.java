@@ -0,0 +1,230 @@
+package com.example.bankcards.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Бенчмарк страниц переводов тяжелого пользователя в H2: задержка страницы на разной
+ * глубине при OFFSET с подсчетом COUNT по запросу с OR, как у GET /api/transactions,
+ * при поиске по курсору двумя запросами с card_id IN (...) и условием курсора через OR,
+ * и при одном поиске по проекции user_transactions с условием (created_at, id) &lt; (?, ?),
+ * как у GET /api/transactions/cursor.
+ *
+ * Не входит в обычный прогон тестов, запуск:
+ * mvn test -Dtest=PaginationBenchmark [-Dbenchmark.transactions=500000] [-Dbenchmark.repeats=5]
+ */
+@Tag("benchmark")
+@DisplayName("Pagination Benchmark")
+class PaginationBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+    private static final int USER_CARDS = 5;
+    private static final int OTHER_CARDS = 1_000;
+    private static final long HEAVY_USER_ID = 1L;
+    private static final int[] PAGES = {0, 10, 100, 1_000, 10_000};
+    private static final String USER_CARD_IDS = "(1, 2, 3, 4, 5)";
+
+    private static final String OFFSET_WHERE = "FROM transactions t " +
+            "JOIN cards fc ON fc.id = t.from_card_id JOIN cards tc ON tc.id = t.to_card_id " +
+            "WHERE (fc.user_id = ? OR tc.user_id = ?)";
+    private static final String SEEK = "SELECT t.id, t.created_at FROM transactions t WHERE t.%s IN " + USER_CARD_IDS +
+            " AND (t.created_at < ? OR (t.created_at = ? AND t.id < ?)) ORDER BY t.created_at DESC, t.id DESC LIMIT ?";
+    // Как генерирует Hibernate для TransactionRepository.findByUserIdBefore
+    private static final String USER_SEEK = "SELECT t.id, t.created_at FROM user_transactions ut " +
+            "JOIN transactions t ON t.id = ut.transaction_id WHERE ut.user_id = ? " +
+            "AND (ut.created_at, ut.transaction_id) < (CAST(? AS TIMESTAMP(6)), CAST(? AS BIGINT)) " +
+            "ORDER BY ut.user_id DESC, ut.created_at DESC, ut.transaction_id DESC LIMIT ?";
+
+    private final int transactionCount = Integer.getInteger("benchmark.transactions", 500_000);
+    private final int repeats = Integer.getInteger("benchmark.repeats", 5);
+
+    @Test
+    @DisplayName("Page latency by depth, offset with count versus keyset")
+    void latency() throws Exception {
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:pagination-bench;DB_CLOSE_DELAY=-1")) {
+            createSchema(connection);
+
+            System.out.printf("%-8s %12s %12s %12s%n", "page", "offset ms", "in-list ms", "per-user ms");
+            for (int page : PAGES) {
+                long offset = (long) page * PAGE_SIZE;
+                if (offset >= transactionCount) {
+                    break;
+                }
+                Object[] cursor = page == 0 ? null : rowAt(connection, offset - 1);
+
+                long offsetNanos = 0;
+                long keysetNanos = 0;
+                long perUserNanos = 0;
+                for (int r = 0; r < repeats; r++) {
+                    long started = System.nanoTime();
+                    assertEquals(PAGE_SIZE, offsetPage(connection, offset));
+                    offsetNanos += System.nanoTime() - started;
+
+                    started = System.nanoTime();
+                    assertEquals(PAGE_SIZE, keysetPage(connection, cursor));
+                    keysetNanos += System.nanoTime() - started;
+
+                    started = System.nanoTime();
+                    assertEquals(PAGE_SIZE, perUserPage(connection, cursor));
+                    perUserNanos += System.nanoTime() - started;
+                }
+                System.out.printf("%-8d %12.2f %12.2f %12.2f%n", page, offsetNanos / 1_000_000.0 / repeats,
+                        keysetNanos / 1_000_000.0 / repeats, perUserNanos / 1_000_000.0 / repeats);
+            }
+
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SHUTDOWN");
+            }
+        }
+    }
+
+    /**
+     * @return число строк страницы
+     */
+    private int offsetPage(Connection connection, long offset) throws SQLException {
+        try (PreparedStatement count = connection.prepareStatement("SELECT COUNT(*) " + OFFSET_WHERE)) {
+            count.setLong(1, HEAVY_USER_ID);
+            count.setLong(2, HEAVY_USER_ID);
+            try (ResultSet result = count.executeQuery()) {
+                result.next();
+            }
+        }
+        try (PreparedStatement select = connection.prepareStatement("SELECT t.id, t.created_at " + OFFSET_WHERE +
+                " ORDER BY t.created_at DESC, t.id DESC LIMIT ? OFFSET ?")) {
+            select.setLong(1, HEAVY_USER_ID);
+            select.setLong(2, HEAVY_USER_ID);
+            select.setInt(3, PAGE_SIZE);
+            select.setLong(4, offset);
+            return countRows(select);
+        }
+    }
+
+    /**
+     * Два поиска по size + 1 строк; слияние в приложении не влияет на порядок величин
+     *
+     * @return число строк страницы
+     */
+    private int keysetPage(Connection connection, Object[] cursor) throws SQLException {
+        Timestamp createdAt = cursor == null
+                ? Timestamp.valueOf(LocalDateTime.of(9999, 12, 31, 23, 59, 59))
+                : (Timestamp) cursor[1];
+        long id = cursor == null ? Long.MAX_VALUE : (Long) cursor[0];
+        int rows = 0;
+        for (String column : new String[]{"from_card_id", "to_card_id"}) {
+            try (PreparedStatement seek = connection.prepareStatement(String.format(SEEK, column))) {
+                seek.setTimestamp(1, createdAt);
+                seek.setTimestamp(2, createdAt);
+                seek.setLong(3, id);
+                seek.setInt(4, PAGE_SIZE + 1);
+                rows += countRows(seek);
+            }
+        }
+        return Math.min(rows, PAGE_SIZE);
+    }
+
+    /**
+     * Один поиск size + 1 строк по проекции переводов пользователя
+     *
+     * @return число строк страницы
+     */
+    private int perUserPage(Connection connection, Object[] cursor) throws SQLException {
+        Timestamp createdAt = cursor == null
+                ? Timestamp.valueOf(LocalDateTime.of(9999, 12, 31, 23, 59, 59))
+                : (Timestamp) cursor[1];
+        long id = cursor == null ? Long.MAX_VALUE : (Long) cursor[0];
+        try (PreparedStatement seek = connection.prepareStatement(USER_SEEK)) {
+            seek.setLong(1, HEAVY_USER_ID);
+            seek.setTimestamp(2, createdAt);
+            seek.setLong(3, id);
+            seek.setInt(4, PAGE_SIZE + 1);
+            return Math.min(countRows(seek), PAGE_SIZE);
+        }
+    }
+
+    private Object[] rowAt(Connection connection, long offset) throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement("SELECT t.id, t.created_at " + OFFSET_WHERE +
+                " ORDER BY t.created_at DESC, t.id DESC LIMIT 1 OFFSET ?")) {
+            select.setLong(1, HEAVY_USER_ID);
+            select.setLong(2, HEAVY_USER_ID);
+            select.setLong(3, offset);
+            try (ResultSet result = select.executeQuery()) {
+                result.next();
+                return new Object[]{result.getLong(1), result.getTimestamp(2)};
+            }
+        }
+    }
+
+    private static int countRows(PreparedStatement statement) throws SQLException {
+        int rows = 0;
+        try (ResultSet result = statement.executeQuery()) {
+            while (result.next()) {
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    private void createSchema(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE cards (id BIGINT PRIMARY KEY, user_id BIGINT NOT NULL)");
+            statement.execute("CREATE TABLE transactions (id BIGINT PRIMARY KEY, from_card_id BIGINT NOT NULL, " +
+                    "to_card_id BIGINT NOT NULL, created_at TIMESTAMP NOT NULL)");
+            statement.execute("CREATE INDEX idx_cards_user_id ON cards(user_id)");
+            statement.execute("CREATE INDEX idx_transactions_from_card_id ON transactions(from_card_id)");
+            statement.execute("CREATE INDEX idx_transactions_to_card_id ON transactions(to_card_id)");
+            statement.execute("CREATE INDEX idx_transactions_from_card_created_at_desc " +
+                    "ON transactions(from_card_id DESC, created_at DESC, id DESC)");
+            statement.execute("CREATE INDEX idx_transactions_to_card_created_at_desc " +
+                    "ON transactions(to_card_id DESC, created_at DESC, id DESC)");
+            statement.execute("CREATE TABLE user_transactions (id BIGINT PRIMARY KEY, user_id BIGINT NOT NULL, " +
+                    "transaction_id BIGINT NOT NULL, created_at TIMESTAMP NOT NULL)");
+            statement.execute("CREATE INDEX idx_user_transactions_user_created_at_desc " +
+                    "ON user_transactions(user_id DESC, created_at DESC, transaction_id DESC)");
+        }
+        try (PreparedStatement card = connection.prepareStatement("INSERT INTO cards (id, user_id) VALUES (?, ?)")) {
+            for (long id = 1; id <= USER_CARDS + OTHER_CARDS; id++) {
+                card.setLong(1, id);
+                card.setLong(2, id <= USER_CARDS ? HEAVY_USER_ID : 2 + id % 100);
+                card.addBatch();
+            }
+            card.executeBatch();
+        }
+        // Половина переводов с карт пользователя, половина на них; по два перевода в секунду
+        LocalDateTime start = LocalDateTime.of(2020, 1, 1, 0, 0);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO transactions (id, from_card_id, to_card_id, created_at) VALUES (?, ?, ?, ?)")) {
+            for (long id = 1; id <= transactionCount; id++) {
+                long own = 1 + id % USER_CARDS;
+                long other = USER_CARDS + 1 + id % OTHER_CARDS;
+                insert.setLong(1, id);
+                insert.setLong(2, id % 2 == 0 ? own : other);
+                insert.setLong(3, id % 2 == 0 ? other : own);
+                insert.setTimestamp(4, Timestamp.valueOf(start.plusSeconds(id / 2)));
+                insert.addBatch();
+                if (id % 10_000 == 0) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO user_transactions (id, user_id, transaction_id, created_at) " +
+                    "SELECT ROW_NUMBER() OVER (ORDER BY p.transaction_id, p.user_id), p.user_id, p.transaction_id, p.created_at " +
+                    "FROM (SELECT t.id AS transaction_id, c.user_id, t.created_at FROM transactions t " +
+                    "JOIN cards c ON c.id = t.from_card_id UNION SELECT t.id, c.user_id, t.created_at " +
+                    "FROM transactions t JOIN cards c ON c.id = t.to_card_id) p");
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.bankcards.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("TimingWheel Tests")
+class TimingWheelTest {
+
+    private static final long TICK = 100L;
+
+    @Test
+    @DisplayName("Should expire key on the tick of its deadline")
+    void advance_ExpiresAtDeadline() {
+        // Given
+        TimingWheel<Long> wheel = new TimingWheel<>(TICK, 0L);
+        wheel.schedule(1L, 1_000L);
+
+        // When & Then
+        assertTrue(wheel.advance(900L).isEmpty());
+        assertEquals(List.of(1L), wheel.advance(1_000L));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    @DisplayName("Should expire deadlines on higher levels and in overflow")
+    void advance_CascadesFromHigherLevels() {
+        // Given
+        TimingWheel<Long> wheel = new TimingWheel<>(TICK, 0L);
+        long minute = 60_000L;
+        long month = 30L * 24 * 60 * minute;
+        wheel.schedule(1L, minute);
+        wheel.schedule(2L, month);
+
+        // When & Then
+        assertEquals(List.of(), wheel.advance(minute - TICK));
+        assertEquals(List.of(1L), wheel.advance(minute));
+        assertEquals(List.of(), wheel.advance(month - TICK));
+        assertEquals(List.of(2L), wheel.advance(month));
+    }
+
+    @Test
+    @DisplayName("Should not expire cancelled key")
+    void cancel_RemovesKey() {
+        // Given
+        TimingWheel<Long> wheel = new TimingWheel<>(TICK, 0L);
+        wheel.schedule(1L, 500L);
+
+        // When
+        assertTrue(wheel.cancel(1L));
+
+        // Then
+        assertTrue(wheel.advance(1_000L).isEmpty());
+        assertFalse(wheel.cancel(1L));
+    }
+
+    @Test
+    @DisplayName("Should replace deadline when key is scheduled again")
+    void schedule_ReplacesDeadline() {
+        // Given
+        TimingWheel<Long> wheel = new TimingWheel<>(TICK, 0L);
+        wheel.schedule(1L, 500L);
+
+        // When
+        wheel.schedule(1L, 10_000L);
+
+        // Then
+        assertTrue(wheel.advance(9_900L).isEmpty());
+        assertEquals(List.of(1L), wheel.advance(10_000L));
+    }
+
+    @Test
+    @DisplayName("Should expire past deadline on the next tick")
+    void schedule_PastDeadline() {
+        // Given
+        TimingWheel<Long> wheel = new TimingWheel<>(TICK, 5_000L);
+
+        // When
+        wheel.schedule(1L, 1_000L);
+
+        // Then
+        assertEquals(List.of(1L), wheel.advance(5_100L));
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransactionDto;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.TransactionStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("TransactionEventHub Tests")
+class TransactionEventHubTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private TransactionEventHub hub;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        hub = new TransactionEventHub(meterRegistry, Duration.ofMinutes(1), 2, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        hub.close();
+    }
+
+    @Test
+    @DisplayName("Should keep at most the configured number of connections per user")
+    void subscribe_LimitsConnectionsPerUser() {
+        // When
+        SseEmitter first = hub.subscribe(1L);
+        hub.subscribe(1L);
+        hub.subscribe(1L);
+        hub.subscribe(2L);
+
+        // Then
+        assertNotNull(first);
+        assertEquals(3, hub.connectionCount());
+        assertEquals(3.0, meterRegistry.get("transactions.stream.connections").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Should not queue events for users without open streams")
+    void onTransactionEvent_NoSubscribers() {
+        // Given
+        TransactionDto transaction = new TransactionDto(1L, 1L, 2L, BigDecimal.TEN, TransactionStatus.COMPLETED,
+                LocalDateTime.now(), LocalDateTime.now());
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            hub.onTransactionEvent(new TransactionEvent(transaction, 5L, 6L, BigDecimal.ONE, BigDecimal.TEN));
+        }
+
+        // Then
+        assertEquals(0.0, meterRegistry.get("transactions.stream.dropped").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should not queue card status events for users without open streams")
+    void onCardStatusEvent_NoSubscribers() {
+        // Given
+        hub.subscribe(1L);
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            hub.onCardStatusEvent(new CardStatusEvent(CardStatus.BLOCKED, Map.of(5L, List.of(10L, 11L))));
+        }
+
+        // Then
+        assertEquals(0.0, meterRegistry.get("transactions.stream.dropped").counter().count());
+    }
+}
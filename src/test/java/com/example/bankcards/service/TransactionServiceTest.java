@@ -1,14 +1,26 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.BatchTransferResultDto;
+import com.example.bankcards.dto.CursorPageDto;
 import com.example.bankcards.dto.TransactionDto;
 import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardHold;
 import com.example.bankcards.entity.CardStatus;
 import com.example.bankcards.entity.Transaction;
 import com.example.bankcards.entity.TransactionStatus;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.InsufficientBalanceException;
 import com.example.bankcards.exception.UnauthorizedException;
+import com.example.bankcards.exception.VelocityLimitExceededException;
+import com.example.bankcards.repository.BalanceSnapshotRepository;
+import com.example.bankcards.repository.CardBalanceShardRepository;
+import com.example.bankcards.repository.CardHoldRepository;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.LedgerEntryRepository;
 import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.util.PageCursor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -16,19 +28,29 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -41,6 +63,44 @@ class TransactionServiceTest {
     @Mock
     private CardService cardService;
 
+    @Spy
+    private TransferEngine transferEngine = new TransferEngine(mock(PlatformTransactionManager.class), 16);
+
+    @Spy
+    private IdempotencyCache idempotencyCache = new IdempotencyCache(new SimpleMeterRegistry(), 100, Duration.ofHours(1));
+
+    @Spy
+    private OptimisticRetryExecutor retryExecutor = new OptimisticRetryExecutor(new SimpleMeterRegistry(), 3,
+            Duration.ofMillis(1), Duration.ofMillis(5));
+
+    @Spy
+    private CardBalanceShardService shardService = new CardBalanceShardService(mock(CardBalanceShardRepository.class),
+            mock(CardRepository.class), new TransferEngine(mock(PlatformTransactionManager.class), 16),
+            mock(PlatformTransactionManager.class), 8, false, mock(EntityManager.class));
+
+    @Spy
+    private LedgerService ledgerService = new LedgerService(mock(LedgerEntryRepository.class),
+            mock(BalanceSnapshotRepository.class), shardService,
+            new CardReadCache(new SimpleMeterRegistry(), 100, Duration.ofMinutes(10)),
+            mock(UserCardSummaryService.class), new TransferEngine(mock(PlatformTransactionManager.class), 16),
+            false, 500, Duration.ofMinutes(5));
+
+    @Spy
+    private CardHoldRegistry holdRegistry = new CardHoldRegistry(mock(CardHoldRepository.class), 100);
+
+    @Spy
+    private TransferVelocityMonitor velocityMonitor = new TransferVelocityMonitor(mock(TransactionRepository.class),
+            new SimpleMeterRegistry(), true, Duration.ofMinutes(10), 5, BigDecimal.valueOf(10_000), 16, false);
+
+    @Mock
+    private TransferJournal transferJournal;
+
+    @Mock
+    private TransferJournalApplier journalApplier;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private TransactionService transactionService;
 
@@ -94,7 +154,6 @@ class TransactionServiceTest {
             // Given
             when(cardService.getCardEntityById(FROM_CARD_ID)).thenReturn(fromCard);
             when(cardService.getCardEntityById(TO_CARD_ID)).thenReturn(toCard);
-            when(transactionRepository.save(any(Transaction.class))).thenReturn(testTransaction);
             when(cardService.saveCard(any(Card.class))).thenReturn(fromCard, toCard);
             when(transactionRepository.save(any(Transaction.class))).thenReturn(testTransaction);
 
@@ -106,6 +165,11 @@ class TransactionServiceTest {
             verify(cardService, times(2)).getCardEntityById(any());
             verify(transactionRepository, times(2)).save(any(Transaction.class));
             verify(cardService, times(2)).saveCard(any(Card.class));
+            verify(ledgerService).recordTransfer(testTransaction);
+            verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof TransactionEvent e
+                    && e.getTransaction().getStatus() == TransactionStatus.COMPLETED
+                    && e.getFromBalance().compareTo(BigDecimal.valueOf(900)) == 0
+                    && e.getToBalance().compareTo(BigDecimal.valueOf(600)) == 0));
         }
 
         @Test
@@ -166,6 +230,429 @@ class TransactionServiceTest {
                 transactionService.createTransaction(transactionDto, USER_ID));
             verify(cardService, times(2)).getCardEntityById(any());
         }
+
+        @Test
+        @DisplayName("Should throw InsufficientBalanceException when the hot card shard debit fails")
+        void createTransaction_HotCardInsufficientBalance() {
+            // Given
+            when(cardService.getCardEntityById(FROM_CARD_ID)).thenReturn(fromCard);
+            when(cardService.getCardEntityById(TO_CARD_ID)).thenReturn(toCard);
+            when(transactionRepository.save(any(Transaction.class))).thenReturn(testTransaction);
+            doReturn(false).when(ledgerService).debit(any(Card.class), any(BigDecimal.class));
+
+            // When & Then
+            assertThrows(InsufficientBalanceException.class, () ->
+                transactionService.createTransaction(transactionDto, USER_ID));
+            verify(ledgerService, never()).credit(any(), any());
+        }
+
+        @Test
+        @DisplayName("Should reject transfer exceeding balance minus active holds")
+        void createTransaction_InsufficientAvailableBalance() {
+            // Given
+            CardHold hold = new CardHold(FROM_CARD_ID, TO_CARD_ID, BigDecimal.valueOf(950),
+                    LocalDateTime.now().plusDays(1));
+            hold.setId(1L);
+            holdRegistry.add(hold);
+            when(cardService.getCardEntityById(FROM_CARD_ID)).thenReturn(fromCard);
+            when(cardService.getCardEntityById(TO_CARD_ID)).thenReturn(toCard);
+
+            // When & Then
+            assertThrows(InsufficientBalanceException.class, () ->
+                transactionService.createTransaction(transactionDto, USER_ID));
+            verify(transactionRepository, never()).save(any());
+        }
+
+        @Test
+        @DisplayName("Should reject transfer exceeding card velocity limit")
+        void createTransaction_VelocityLimitExceeded() {
+            // Given
+            for (int i = 0; i < 5; i++) {
+                velocityMonitor.checkAndRecord(FROM_CARD_ID, BigDecimal.ONE);
+            }
+            when(cardService.getCardEntityById(FROM_CARD_ID)).thenReturn(fromCard);
+            when(cardService.getCardEntityById(TO_CARD_ID)).thenReturn(toCard);
+
+            // When & Then
+            assertThrows(VelocityLimitExceededException.class, () ->
+                transactionService.createTransaction(transactionDto, USER_ID));
+            verify(transactionRepository, never()).save(any());
+        }
+    }
+
+    @Nested
+    @DisplayName("Idempotency Tests")
+    class IdempotencyTests {
+
+        private static final String KEY = "retry-key-1";
+
+        @Test
+        @DisplayName("Should return cached result for a repeated key without a second transfer")
+        void createTransaction_RepeatedKey_ReturnsCachedResult() {
+            // Given
+            when(transactionRepository.findByFromCardIdAndFromCardUserIdAndIdempotencyKey(FROM_CARD_ID, USER_ID, KEY)).thenReturn(Optional.empty());
+            when(cardService.getCardEntityById(FROM_CARD_ID)).thenReturn(fromCard);
+            when(cardService.getCardEntityById(TO_CARD_ID)).thenReturn(toCard);
+            when(transactionRepository.save(any(Transaction.class))).thenReturn(testTransaction);
+
+            // When
+            TransactionDto first = transactionService.createTransaction(transactionDto, USER_ID, KEY);
+            TransactionDto retry = transactionService.createTransaction(transactionDto, USER_ID, KEY);
+
+            // Then
+            assertSame(first, retry);
+            verify(transactionRepository).save(argThat((Transaction t) -> KEY.equals(t.getIdempotencyKey())));
+            verify(transactionRepository, times(1)).findByFromCardIdAndFromCardUserIdAndIdempotencyKey(FROM_CARD_ID, USER_ID, KEY);
+            verify(cardService, times(2)).getCardEntityById(any());
+            assertEquals(0.5, idempotencyCache.hitRate());
+        }
+
+        @Test
+        @DisplayName("Should start a new transfer when the key is reused from another card of the user")
+        void createTransaction_SameKeyOtherCard_NewTransfer() {
+            // Given
+            when(cardService.getCardEntityById(FROM_CARD_ID)).thenReturn(fromCard);
+            when(cardService.getCardEntityById(TO_CARD_ID)).thenReturn(toCard);
+            when(transactionRepository.save(any(Transaction.class))).thenReturn(testTransaction);
+            TransactionDto reverse = new TransactionDto();
+            reverse.setFromCardId(TO_CARD_ID);
+            reverse.setToCardId(FROM_CARD_ID);
+            reverse.setAmount(BigDecimal.valueOf(50));
+
+            // When
+            transactionService.createTransaction(transactionDto, USER_ID, KEY);
+            transactionService.createTransaction(reverse, USER_ID, KEY);
+
+            // Then
+            verify(transactionRepository).findByFromCardIdAndFromCardUserIdAndIdempotencyKey(FROM_CARD_ID, USER_ID, KEY);
+            verify(transactionRepository).findByFromCardIdAndFromCardUserIdAndIdempotencyKey(TO_CARD_ID, USER_ID, KEY);
+            verify(transactionRepository, times(2)).save(argThat((Transaction t) ->
+                    t.getStatus() == TransactionStatus.PENDING && KEY.equals(t.getIdempotencyKey())));
+        }
+
+        @Test
+        @DisplayName("Should fall back to the database when the key is not cached")
+        void createTransaction_KnownKey_ReturnsStoredTransaction() {
+            // Given
+            testTransaction.setIdempotencyKey(KEY);
+            when(transactionRepository.findByFromCardIdAndFromCardUserIdAndIdempotencyKey(FROM_CARD_ID, USER_ID, KEY)).thenReturn(Optional.of(testTransaction));
+
+            // When
+            TransactionDto result = transactionService.createTransaction(transactionDto, USER_ID, KEY);
+
+            // Then
+            assertEquals(TRANSACTION_ID, result.getId());
+            verify(cardService, never()).getCardEntityById(any());
+            verify(transactionRepository, never()).save(any(Transaction.class));
+        }
+
+        @Test
+        @DisplayName("Should reject a key reused for a different transfer")
+        void createTransaction_KeyReusedForDifferentTransfer() {
+            // Given
+            idempotencyCache.put(USER_ID, FROM_CARD_ID, KEY, new TransactionDto(TRANSACTION_ID, FROM_CARD_ID, TO_CARD_ID,
+                    BigDecimal.valueOf(999), TransactionStatus.COMPLETED, LocalDateTime.now(), LocalDateTime.now()));
+
+            // When & Then
+            assertThrows(IllegalArgumentException.class, () ->
+                transactionService.createTransaction(transactionDto, USER_ID, KEY));
+            verifyNoInteractions(transactionRepository);
+        }
+
+        @Test
+        @DisplayName("Should replay the stored transfer when a concurrent first request wins the unique index")
+        void createTransaction_ConcurrentFirstUse_ReplaysStoredTransfer() {
+            // Given
+            testTransaction.setIdempotencyKey(KEY);
+            when(transactionRepository.findByFromCardIdAndFromCardUserIdAndIdempotencyKey(FROM_CARD_ID, USER_ID, KEY))
+                    .thenReturn(Optional.empty(), Optional.of(testTransaction));
+            when(cardService.getCardEntityById(FROM_CARD_ID)).thenReturn(fromCard);
+            when(cardService.getCardEntityById(TO_CARD_ID)).thenReturn(toCard);
+            when(transactionRepository.save(any(Transaction.class)))
+                    .thenThrow(new DataIntegrityViolationException("idx_transactions_from_card_idempotency_key"));
+
+            // When
+            TransactionDto result = transactionService.createTransaction(transactionDto, USER_ID, KEY);
+
+            // Then
+            assertEquals(TRANSACTION_ID, result.getId());
+            verify(transactionRepository, times(2)).findByFromCardIdAndFromCardUserIdAndIdempotencyKey(FROM_CARD_ID, USER_ID, KEY);
+        }
+
+        @Test
+        @DisplayName("Should rethrow the constraint violation when no stored transfer exists")
+        void createTransaction_ConstraintViolationWithoutStoredTransfer() {
+            // Given
+            when(transactionRepository.findByFromCardIdAndFromCardUserIdAndIdempotencyKey(FROM_CARD_ID, USER_ID, KEY))
+                    .thenReturn(Optional.empty());
+            when(cardService.getCardEntityById(FROM_CARD_ID)).thenReturn(fromCard);
+            when(cardService.getCardEntityById(TO_CARD_ID)).thenReturn(toCard);
+            when(transactionRepository.save(any(Transaction.class)))
+                    .thenThrow(new DataIntegrityViolationException("constraint"));
+
+            // When & Then
+            assertThrows(DataIntegrityViolationException.class, () ->
+                transactionService.createTransaction(transactionDto, USER_ID, KEY));
+        }
+    }
+
+    @Nested
+    @DisplayName("Journal Transfer Tests")
+    class JournalTransferTests {
+
+        @BeforeEach
+        void enableJournal() {
+            when(transferJournal.isEnabled()).thenReturn(true);
+            when(cardService.getCardEntityById(FROM_CARD_ID)).thenReturn(fromCard);
+            when(cardService.getCardEntityById(TO_CARD_ID)).thenReturn(toCard);
+        }
+
+        @Test
+        @DisplayName("Should append transfer to journal and return PENDING after flush")
+        void createTransaction_AppendsToJournal() {
+            // Given
+            when(journalApplier.reservedAmount(FROM_CARD_ID)).thenReturn(BigDecimal.ZERO);
+            when(transferJournal.append(any(JournalRecord.class))).thenReturn(7L);
+
+            // When
+            TransactionDto result = transactionService.createTransaction(transactionDto, USER_ID);
+
+            // Then
+            assertEquals(TransactionStatus.PENDING, result.getStatus());
+            assertNull(result.getId());
+            verify(journalApplier).reserve(FROM_CARD_ID, BigDecimal.valueOf(100));
+            verify(transferJournal).awaitDurable(7L);
+            verify(transactionRepository, never()).save(any(Transaction.class));
+            verify(cardService, never()).saveCard(any(Card.class));
+        }
+
+        @Test
+        @DisplayName("Should count unapplied journal debits against balance")
+        void createTransaction_ReservedBalance() {
+            // Given
+            when(journalApplier.reservedAmount(FROM_CARD_ID)).thenReturn(BigDecimal.valueOf(950));
+
+            // When & Then
+            assertThrows(InsufficientBalanceException.class,
+                    () -> transactionService.createTransaction(transactionDto, USER_ID));
+            verify(transferJournal, never()).append(any(JournalRecord.class));
+            verify(journalApplier, never()).reserve(any(), any());
+        }
+    }
+
+    @Nested
+    @DisplayName("Locking Mode Tests")
+    class LockingModeTests {
+
+        private TransactionService serviceWithMode(TransferLockingMode mode) {
+            return new TransactionService(transactionRepository, cardService, transferEngine, idempotencyCache,
+                    retryExecutor, transferJournal, journalApplier, ledgerService, shardService, holdRegistry, velocityMonitor,
+                    eventPublisher, mode);
+        }
+
+        @BeforeEach
+        void stubTransfer() {
+            when(cardService.getCardEntityById(FROM_CARD_ID)).thenReturn(fromCard);
+            when(cardService.getCardEntityById(TO_CARD_ID)).thenReturn(toCard);
+            when(transactionRepository.save(any(Transaction.class))).thenReturn(testTransaction);
+        }
+
+        @Test
+        @DisplayName("Should lock both cards with one FOR UPDATE query instead of engine locks")
+        void createTransaction_Pessimistic() {
+            // Given
+            TransactionService service = serviceWithMode(TransferLockingMode.PESSIMISTIC);
+            when(cardService.lockCardEntities(List.of(FROM_CARD_ID, TO_CARD_ID)))
+                    .thenReturn(Map.of(FROM_CARD_ID, fromCard, TO_CARD_ID, toCard));
+
+            // When
+            TransactionDto result = service.createTransaction(transactionDto, USER_ID);
+
+            // Then
+            assertEquals(TransactionStatus.COMPLETED, result.getStatus());
+            verify(cardService).lockCardEntities(List.of(FROM_CARD_ID, TO_CARD_ID));
+            verify(transferEngine, never()).execute(anyCollection(), any());
+            verify(cardService, never()).forceVersionIncrement(any());
+        }
+
+        @Test
+        @DisplayName("Should rely on card versions and retry the whole transfer on conflict")
+        void createTransaction_Optimistic() {
+            // Given
+            TransactionService service = serviceWithMode(TransferLockingMode.OPTIMISTIC);
+            when(cardService.saveCard(any(Card.class)))
+                    .thenThrow(new ObjectOptimisticLockingFailureException(Card.class, FROM_CARD_ID))
+                    .thenReturn(fromCard, toCard);
+
+            // When
+            TransactionDto result = service.createTransaction(transactionDto, USER_ID);
+
+            // Then
+            assertEquals(TransactionStatus.COMPLETED, result.getStatus());
+            verify(transferEngine, times(2)).executeUnlocked(any());
+            verify(transferEngine, never()).execute(anyCollection(), any());
+            verify(cardService, never()).lockCardEntities(any());
+        }
+
+        @Test
+        @DisplayName("Should force a version increment of the sender card only")
+        void createTransaction_Optimistic_BumpsSenderVersion() {
+            // Given
+            TransactionService service = serviceWithMode(TransferLockingMode.OPTIMISTIC);
+
+            // When
+            TransactionDto result = service.createTransaction(transactionDto, USER_ID);
+
+            // Then
+            assertEquals(TransactionStatus.COMPLETED, result.getStatus());
+            verify(cardService).forceVersionIncrement(fromCard);
+            verify(cardService, never()).forceVersionIncrement(toCard);
+        }
+    }
+
+    @Nested
+    @DisplayName("Pending Transaction Tests")
+    class PendingTransactionTests {
+
+        @Test
+        @DisplayName("Should save transfer as PENDING without moving money")
+        void createPendingTransaction_Success() {
+            // Given
+            when(cardService.getCardEntityById(FROM_CARD_ID)).thenReturn(fromCard);
+            when(cardService.getCardEntityById(TO_CARD_ID)).thenReturn(toCard);
+            when(transactionRepository.save(any(Transaction.class))).thenReturn(testTransaction);
+
+            // When
+            TransactionDto result = transactionService.createPendingTransaction(transactionDto, USER_ID);
+
+            // Then
+            assertEquals(TransactionStatus.PENDING, result.getStatus());
+            assertEquals(0, BigDecimal.valueOf(1000).compareTo(fromCard.getBalance()));
+            verify(cardService, never()).saveCard(any(Card.class));
+        }
+
+        @Test
+        @DisplayName("Should complete a pending transfer")
+        void processPendingTransaction_Completes() {
+            // Given
+            when(transactionRepository.findById(TRANSACTION_ID)).thenReturn(Optional.of(testTransaction));
+            when(transactionRepository.save(any(Transaction.class))).thenReturn(testTransaction);
+
+            // When
+            TransactionDto result = transactionService.processPendingTransaction(TRANSACTION_ID);
+
+            // Then
+            assertEquals(TransactionStatus.COMPLETED, result.getStatus());
+            assertEquals(0, BigDecimal.valueOf(900).compareTo(fromCard.getBalance()));
+            assertEquals(0, BigDecimal.valueOf(600).compareTo(toCard.getBalance()));
+        }
+
+        @Test
+        @DisplayName("Should mark a pending transfer FAILED when balance is insufficient")
+        void processPendingTransaction_InsufficientBalance() {
+            // Given
+            testTransaction.setAmount(BigDecimal.valueOf(5000));
+            when(transactionRepository.findById(TRANSACTION_ID)).thenReturn(Optional.of(testTransaction));
+            when(transactionRepository.save(any(Transaction.class))).thenReturn(testTransaction);
+
+            // When
+            TransactionDto result = transactionService.processPendingTransaction(TRANSACTION_ID);
+
+            // Then
+            assertEquals(TransactionStatus.FAILED, result.getStatus());
+            assertEquals(0, BigDecimal.valueOf(1000).compareTo(fromCard.getBalance()));
+            verify(cardService, never()).saveCard(any(Card.class));
+        }
+
+        @Test
+        @DisplayName("Should skip a transfer cancelled while queued")
+        void processPendingTransaction_Cancelled() {
+            // Given
+            testTransaction.setStatus(TransactionStatus.CANCELLED);
+            when(transactionRepository.findById(TRANSACTION_ID)).thenReturn(Optional.of(testTransaction));
+
+            // When
+            TransactionDto result = transactionService.processPendingTransaction(TRANSACTION_ID);
+
+            // Then
+            assertEquals(TransactionStatus.CANCELLED, result.getStatus());
+            verify(transactionRepository, never()).save(any(Transaction.class));
+        }
+    }
+
+    @Nested
+    @DisplayName("Batch Transaction Tests")
+    class BatchTransactionTests {
+
+        @Test
+        @DisplayName("Should load cards once and flush all transfers together")
+        void createTransactions_Success() {
+            // Given
+            TransactionDto back = new TransactionDto();
+            back.setFromCardId(TO_CARD_ID);
+            back.setToCardId(FROM_CARD_ID);
+            back.setAmount(BigDecimal.valueOf(50));
+            when(cardService.getCardEntitiesByIds(any())).thenReturn(Map.of(FROM_CARD_ID, fromCard, TO_CARD_ID, toCard));
+            when(transactionRepository.saveAll(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+            // When
+            List<BatchTransferResultDto> results = transactionService.createTransactions(List.of(transactionDto, back), USER_ID);
+
+            // Then
+            assertEquals(2, results.size());
+            assertTrue(results.get(0).isSuccess());
+            assertTrue(results.get(1).isSuccess());
+            assertEquals(0, BigDecimal.valueOf(950).compareTo(fromCard.getBalance()));
+            assertEquals(0, BigDecimal.valueOf(550).compareTo(toCard.getBalance()));
+            verify(cardService).getCardEntitiesByIds(any());
+            verify(cardService, never()).getCardEntityById(any());
+            verify(transactionRepository).flush();
+        }
+
+        @Test
+        @DisplayName("Should reject only the transfers that fail validation")
+        void createTransactions_PartialRejection() {
+            // Given
+            TransactionDto tooLarge = new TransactionDto();
+            tooLarge.setFromCardId(FROM_CARD_ID);
+            tooLarge.setToCardId(TO_CARD_ID);
+            tooLarge.setAmount(BigDecimal.valueOf(950));
+            when(cardService.getCardEntitiesByIds(any())).thenReturn(Map.of(FROM_CARD_ID, fromCard, TO_CARD_ID, toCard));
+            when(transactionRepository.saveAll(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+            // When
+            List<BatchTransferResultDto> results = transactionService.createTransactions(List.of(transactionDto, tooLarge), USER_ID);
+
+            // Then
+            assertTrue(results.get(0).isSuccess());
+            assertFalse(results.get(1).isSuccess());
+            assertEquals(1, results.get(1).getIndex());
+            assertNotNull(results.get(1).getError());
+            assertEquals(0, BigDecimal.valueOf(900).compareTo(fromCard.getBalance()));
+        }
+
+        @Test
+        @DisplayName("Should not apply card velocity rules to batch transfers by default")
+        void createTransactions_ExemptFromVelocity() {
+            // Given: лимит монитора — 5 переводов с карты за окно
+            List<TransactionDto> payroll = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                TransactionDto transfer = new TransactionDto();
+                transfer.setFromCardId(FROM_CARD_ID);
+                transfer.setToCardId(TO_CARD_ID);
+                transfer.setAmount(BigDecimal.TEN);
+                payroll.add(transfer);
+            }
+            when(cardService.getCardEntitiesByIds(any())).thenReturn(Map.of(FROM_CARD_ID, fromCard, TO_CARD_ID, toCard));
+            when(transactionRepository.saveAll(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+            // When
+            List<BatchTransferResultDto> results = transactionService.createTransactions(payroll, USER_ID);
+
+            // Then
+            assertTrue(results.stream().allMatch(BatchTransferResultDto::isSuccess));
+            verify(velocityMonitor, never()).checkAndRecord(any(), any());
+        }
     }
 
     @Nested
@@ -239,6 +726,59 @@ class TransactionServiceTest {
         }
     }
 
+    @Nested
+    @DisplayName("Cursor Page Tests")
+    class CursorPageTests {
+
+        private Transaction transaction(long id, LocalDateTime createdAt) {
+            Transaction transaction = new Transaction(fromCard, toCard, BigDecimal.TEN);
+            transaction.setId(id);
+            transaction.setStatus(TransactionStatus.COMPLETED);
+            transaction.setCreatedAt(createdAt);
+            return transaction;
+        }
+
+        @Test
+        @DisplayName("Should read one page of size + 1 rows and build the next cursor")
+        void getUserTransactionsAfter_FirstPage() {
+            // Given
+            LocalDateTime now = LocalDateTime.of(2024, 1, 1, 12, 0);
+            when(transactionRepository.findByUserIdBefore(eq(USER_ID), isNull(), eq(PageCursor.FIRST.getCreatedAt()),
+                    eq(Long.MAX_VALUE), eq(PageRequest.of(0, 4))))
+                    .thenReturn(List.of(transaction(5L, now), transaction(4L, now.minusMinutes(1)),
+                            transaction(3L, now.minusMinutes(2)), transaction(2L, now.minusMinutes(3))));
+
+            // When
+            CursorPageDto<TransactionDto> page = transactionService.getUserTransactionsAfter(USER_ID, null, 3, null);
+
+            // Then
+            assertEquals(List.of(5L, 4L, 3L), page.getContent().stream().map(TransactionDto::getId).toList());
+            assertTrue(page.isHasNext());
+            PageCursor cursor = PageCursor.decode(page.getNext());
+            assertEquals(3L, cursor.getId());
+            assertEquals(now.minusMinutes(2), cursor.getCreatedAt());
+        }
+
+        @Test
+        @DisplayName("Should seek after decoded cursor and report last page")
+        void getUserTransactionsAfter_LastPage() {
+            // Given
+            LocalDateTime createdAt = LocalDateTime.of(2024, 1, 1, 12, 0);
+            String after = new PageCursor(createdAt, 7L).encode();
+            when(transactionRepository.findByUserIdBefore(eq(USER_ID), eq(TransactionStatus.COMPLETED),
+                    eq(createdAt), eq(7L), any())).thenReturn(List.of(transaction(6L, createdAt)));
+
+            // When
+            CursorPageDto<TransactionDto> page = transactionService.getUserTransactionsAfter(USER_ID, after, 20,
+                    TransactionStatus.COMPLETED);
+
+            // Then
+            assertEquals(1, page.getContent().size());
+            assertFalse(page.isHasNext());
+            assertNull(page.getNext());
+        }
+    }
+
     @Nested
     @DisplayName("Cancel Transaction Tests")
     class CancelTransactionTests {
@@ -0,0 +1,143 @@
+package com.example.bankcards.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Бенчмарк пропускной способности {@link TransferEngine}: переводов в секунду
+ * на 1–64 потоках для «горячего» (несколько карт) и «холодного» (много карт) наборов.
+ *
+ * Не входит в обычный прогон тестов, запуск:
+ * mvn test -Dtest=TransferEngineBenchmark [-Dbenchmark.seconds=2] [-Dbenchmark.workMicros=5]
+ */
+@Tag("benchmark")
+@DisplayName("TransferEngine Benchmark")
+class TransferEngineBenchmark {
+
+    private static final int[] THREADS = {1, 2, 4, 8, 16, 32, 64};
+    private static final int HOT_CARDS = 4;
+    private static final int COLD_CARDS = 100_000;
+    private static final long INITIAL_BALANCE = 1_000_000L;
+
+    private final long durationMillis = Long.getLong("benchmark.seconds", 1L) * 1000L;
+    private final long workNanos = Long.getLong("benchmark.workMicros", 5L) * 1000L;
+
+    @Test
+    @DisplayName("Transfers per second on hot and cold card sets")
+    void throughput() throws Exception {
+        System.out.printf("%-8s %-6s %15s%n", "threads", "set", "transfers/sec");
+        for (int threads : THREADS) {
+            for (int cards : new int[]{HOT_CARDS, COLD_CARDS}) {
+                double rate = run(threads, cards);
+                System.out.printf("%-8d %-6s %15.0f%n", threads, cards == HOT_CARDS ? "hot" : "cold", rate);
+            }
+        }
+    }
+
+    private double run(int threads, int cardCount) throws InterruptedException {
+        TransferEngine engine = new TransferEngine(new NoOpTransactionManager(), 1024);
+        long[] balances = new long[cardCount];
+        Arrays.fill(balances, INITIAL_BALANCE);
+
+        LongAdder completed = new LongAdder();
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                awaitQuietly(start);
+                while (running.get()) {
+                    int from = random.nextInt(cardCount);
+                    int to = random.nextInt(cardCount - 1);
+                    if (to >= from) {
+                        to++;
+                    }
+                    long amount = 1 + random.nextInt(100);
+                    int fromIndex = from;
+                    int toIndex = to;
+                    boolean done = engine.execute((long) from, (long) to, () -> {
+                        if (balances[fromIndex] < amount) {
+                            return false;
+                        }
+                        balances[fromIndex] -= amount;
+                        spin(workNanos);
+                        balances[toIndex] += amount;
+                        return true;
+                    });
+                    if (done) {
+                        completed.increment();
+                    }
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+
+        long began = System.nanoTime();
+        start.countDown();
+        Thread.sleep(durationMillis);
+        running.set(false);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        double seconds = (System.nanoTime() - began) / 1_000_000_000.0;
+
+        // Деньги не должны появляться и исчезать
+        long total = 0;
+        for (long balance : balances) {
+            assertTrue(balance >= 0);
+            total += balance;
+        }
+        assertEquals(INITIAL_BALANCE * cardCount, total);
+
+        return completed.sum() / seconds;
+    }
+
+    private static void spin(long nanos) {
+        long deadline = System.nanoTime() + nanos;
+        while (System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class NoOpTransactionManager implements PlatformTransactionManager {
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.bankcards.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("TransferEngine Tests")
+class TransferEngineTest {
+
+    private PlatformTransactionManager transactionManager;
+    private TransferEngine transferEngine;
+
+    @BeforeEach
+    void setUp() {
+        transactionManager = mock(PlatformTransactionManager.class);
+        transferEngine = new TransferEngine(transactionManager, 16);
+    }
+
+    @Test
+    @DisplayName("Should round stripe count up to a power of two")
+    void stripeCount_RoundedToPowerOfTwo() {
+        assertEquals(16, transferEngine.stripeCount());
+        assertEquals(1024, new TransferEngine(transactionManager, 1000).stripeCount());
+    }
+
+    @Test
+    @DisplayName("Should run work in a transaction and return its result")
+    void execute_CommitsTransaction() {
+        String result = transferEngine.execute(1L, 2L, () -> "done");
+
+        assertEquals("done", result);
+        verify(transactionManager).getTransaction(any());
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    @DisplayName("Should roll back and release locks when work fails")
+    void execute_RollsBackOnFailure() {
+        assertThrows(IllegalStateException.class, () -> transferEngine.execute(1L, 2L, () -> {
+            throw new IllegalStateException("boom");
+        }));
+
+        verify(transactionManager).rollback(any());
+        assertEquals("ok", transferEngine.execute(2L, 1L, () -> "ok"));
+    }
+
+    @Test
+    @DisplayName("Should not deadlock on opposite-direction transfers")
+    void execute_OppositeDirectionsDoNotDeadlock() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                boolean forward = i % 2 == 0;
+                futures.add(executor.submit(() -> {
+                    for (int n = 0; n < 1_000; n++) {
+                        if (forward) {
+                            transferEngine.execute(1L, 2L, () -> null);
+                        } else {
+                            transferEngine.execute(2L, 1L, () -> null);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.bankcards.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("TransferJournal Tests")
+class TransferJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private TransferJournal journal;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Should read back appended records after flush")
+    void appendAndRead() throws IOException {
+        journal = open(DataSize.ofMegabytes(1), 0L);
+
+        long first = journal.append(record(1L, 2L, "10.50", "key-1"));
+        long second = journal.append(record(2L, 1L, "3", null));
+        journal.awaitDurable(second);
+
+        List<JournalRecord> records = journal.read(0L, 10);
+        assertEquals(2, records.size());
+        assertEquals(first, records.get(0).getSequence());
+        assertEquals(0, new BigDecimal("10.50").compareTo(records.get(0).getAmount()));
+        assertEquals("key-1", records.get(0).getIdempotencyKey());
+        assertNull(records.get(1).getIdempotencyKey());
+        assertTrue(journal.read(second, 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should recover records and continue numbering after reopen")
+    void reopenRecovers() throws Exception {
+        journal = open(DataSize.ofMegabytes(1), 0L);
+        journal.append(record(1L, 2L, "1", null));
+        long last = journal.append(record(1L, 2L, "2", null));
+        journal.awaitDurable(last);
+        journal.close();
+
+        journal = open(DataSize.ofMegabytes(1), 1L);
+
+        List<JournalRecord> unapplied = journal.read(1L, 10);
+        assertEquals(1, unapplied.size());
+        assertEquals(last, unapplied.get(0).getSequence());
+        assertEquals(last + 1, journal.append(record(1L, 2L, "3", null)));
+    }
+
+    @Test
+    @DisplayName("Should discard a torn record at the tail")
+    void discardsTornTail() throws Exception {
+        journal = open(DataSize.ofMegabytes(1), 0L);
+        journal.append(record(1L, 2L, "1", null));
+        long torn = journal.append(record(1L, 2L, "2", null));
+        journal.awaitDurable(torn);
+        journal.close();
+
+        // Портим данные последней записи, как при обрыве записи на диск
+        Path segment = segmentFiles().get(0);
+        int tornOffset = 16 + record(1L, 2L, "1", null).encode().length;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) 0xFF, (byte) 0xFF}), tornOffset + 20);
+        }
+
+        journal = open(DataSize.ofMegabytes(1), 0L);
+
+        assertEquals(1, journal.read(0L, 10).size());
+        assertEquals(torn, journal.append(record(1L, 2L, "3", null)));
+    }
+
+    @Test
+    @DisplayName("Should rotate segments and delete applied ones")
+    void rotatesAndReleases() throws IOException {
+        journal = open(DataSize.ofBytes(256), 0L);
+
+        long last = 0;
+        for (int i = 0; i < 20; i++) {
+            last = journal.append(record(1L, 2L, String.valueOf(i + 1), null));
+        }
+        journal.awaitDurable(last);
+        int segmentsBefore = segmentFiles().size();
+        assertTrue(segmentsBefore > 1);
+
+        List<JournalRecord> records = journal.read(0L, 100);
+        assertEquals(20, records.size());
+        for (int i = 0; i < records.size(); i++) {
+            assertEquals(i + 1, records.get(i).getSequence());
+        }
+
+        journal.release(last);
+        assertTrue(segmentFiles().size() < segmentsBefore);
+        assertEquals(last + 1, journal.append(record(1L, 2L, "1", null)));
+    }
+
+    private TransferJournal open(DataSize segmentSize, long lastApplied) throws IOException {
+        TransferJournal opened = new TransferJournal(true, directory.toString(), segmentSize);
+        opened.open(lastApplied);
+        return opened;
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    private static JournalRecord record(long fromCardId, long toCardId, String amount, String key) {
+        return new JournalRecord(fromCardId, toCardId, 1L, new BigDecimal(amount), key,
+                LocalDateTime.of(2024, 1, 1, 12, 0));
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.bankcards.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Бенчмарк режимов {@link TransferLockingMode} на встречных переводах A→B и B→A
+ * между несколькими картами: переводов в секунду и число повторов из-за конфликтов версий.
+ *
+ * Каждый перевод — транзакция H2 через {@link TransferEngine}: чтение обеих карт
+ * (в режиме PESSIMISTIC одним SELECT ... FOR UPDATE ORDER BY id), пауза workMicros,
+ * обновление карт с проверкой version и вставка строки transactions.
+ *
+ * Не входит в обычный прогон тестов, запуск:
+ * mvn test -Dtest=TransferLockingModeBenchmark [-Dbenchmark.seconds=2] [-Dbenchmark.workMicros=100] [-Dbenchmark.cards=4]
+ */
+@Tag("benchmark")
+@DisplayName("TransferLockingMode Benchmark")
+class TransferLockingModeBenchmark {
+
+    private static final int[] THREADS = {1, 2, 4, 8, 16, 32};
+    private static final BigDecimal INITIAL_BALANCE = BigDecimal.valueOf(1_000_000);
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    private final long durationMillis = Long.getLong("benchmark.seconds", 1L) * 1000L;
+    private final long workNanos = Long.getLong("benchmark.workMicros", 100L) * 1000L;
+    private final int cardCount = Integer.getInteger("benchmark.cards", 4);
+
+    @Test
+    @DisplayName("Transfers per second and retries for each locking mode")
+    void throughput() throws Exception {
+        System.out.printf("%-8s %-12s %15s %10s%n", "threads", "mode", "transfers/sec", "retries");
+        for (int threads : THREADS) {
+            for (TransferLockingMode mode : TransferLockingMode.values()) {
+                long[] retries = new long[1];
+                double rate = run(threads, mode, retries);
+                System.out.printf("%-8d %-12s %15.0f %10d%n", threads, mode, rate, retries[0]);
+            }
+        }
+    }
+
+    private double run(int threads, TransferLockingMode mode, long[] retries) throws Exception {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:locking-bench-" + DATABASES.incrementAndGet() + ";DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=60000");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        createSchema(jdbc);
+
+        TransferEngine engine = new TransferEngine(new DataSourceTransactionManager(dataSource), 1024);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        OptimisticRetryExecutor retryExecutor = new OptimisticRetryExecutor(meterRegistry, 100,
+                Duration.ofMillis(1), Duration.ofMillis(20));
+
+        LongAdder completed = new LongAdder();
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        List<Throwable> errors = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                awaitQuietly(start);
+                while (running.get()) {
+                    long from = random.nextInt(cardCount);
+                    long to = random.nextInt(cardCount - 1);
+                    if (to >= from) {
+                        to++;
+                    }
+                    long fromId = from;
+                    long toId = to;
+                    BigDecimal amount = BigDecimal.valueOf(1 + random.nextInt(100));
+                    try {
+                        boolean done = retryExecutor.execute("benchmark", () -> switch (mode) {
+                            case STRIPED -> engine.execute(fromId, toId, () -> transfer(jdbc, fromId, toId, amount, false));
+                            case PESSIMISTIC -> engine.executeUnlocked(() -> transfer(jdbc, fromId, toId, amount, true));
+                            case OPTIMISTIC -> engine.executeUnlocked(() -> transfer(jdbc, fromId, toId, amount, false));
+                        });
+                        if (done) {
+                            completed.increment();
+                        }
+                    } catch (RuntimeException e) {
+                        synchronized (errors) {
+                            errors.add(e);
+                        }
+                        return;
+                    }
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+
+        long began = System.nanoTime();
+        start.countDown();
+        Thread.sleep(durationMillis);
+        running.set(false);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        double seconds = (System.nanoTime() - began) / 1_000_000_000.0;
+
+        assertTrue(errors.isEmpty(), () -> mode + ": " + errors.get(0));
+        // Деньги не должны появляться и исчезать
+        BigDecimal total = jdbc.queryForObject("SELECT SUM(balance) FROM cards", BigDecimal.class);
+        assertEquals(0, INITIAL_BALANCE.multiply(BigDecimal.valueOf(cardCount)).compareTo(total));
+
+        retries[0] = (long) meterRegistry.find("transfers.optimistic.conflicts").counters().stream()
+                .mapToDouble(Counter::count)
+                .sum();
+        jdbc.execute("SHUTDOWN");
+        return completed.sum() / seconds;
+    }
+
+    private boolean transfer(JdbcTemplate jdbc, long fromId, long toId, BigDecimal amount, boolean forUpdate) {
+        String select = "SELECT id, balance, version FROM cards WHERE id IN (?, ?) ORDER BY id"
+                + (forUpdate ? " FOR UPDATE" : "");
+        List<Map<String, Object>> rows = jdbc.queryForList(select, fromId, toId);
+        Map<String, Object> fromRow = rows.get(0).get("ID").equals(fromId) ? rows.get(0) : rows.get(1);
+        Map<String, Object> toRow = fromRow == rows.get(0) ? rows.get(1) : rows.get(0);
+
+        BigDecimal fromBalance = (BigDecimal) fromRow.get("BALANCE");
+        if (fromBalance.compareTo(amount) < 0) {
+            return false;
+        }
+        spin(workNanos);
+
+        // Как и Hibernate для @Version, обновление проверяет прочитанную версию
+        update(jdbc, fromId, fromBalance.subtract(amount), (Long) fromRow.get("VERSION"));
+        update(jdbc, toId, ((BigDecimal) toRow.get("BALANCE")).add(amount), (Long) toRow.get("VERSION"));
+        jdbc.update("INSERT INTO transactions (from_card_id, to_card_id, amount) VALUES (?, ?, ?)", fromId, toId, amount);
+        return true;
+    }
+
+    private void update(JdbcTemplate jdbc, long cardId, BigDecimal balance, long version) {
+        int updated = jdbc.update("UPDATE cards SET balance = ?, version = version + 1 WHERE id = ? AND version = ?",
+                balance, cardId, version);
+        if (updated == 0) {
+            throw new OptimisticLockingFailureException("Карта " + cardId + " изменена параллельно");
+        }
+    }
+
+    private void createSchema(JdbcTemplate jdbc) {
+        jdbc.execute("CREATE TABLE cards (id BIGINT PRIMARY KEY, balance DECIMAL(19,2) NOT NULL, " +
+                "version BIGINT NOT NULL DEFAULT 0)");
+        jdbc.execute("CREATE TABLE transactions (id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                "from_card_id BIGINT NOT NULL, to_card_id BIGINT NOT NULL, amount DECIMAL(19,2) NOT NULL)");
+        for (long id = 0; id < cardCount; id++) {
+            jdbc.update("INSERT INTO cards (id, balance) VALUES (?, ?)", id, INITIAL_BALANCE);
+        }
+    }
+
+    private static void spin(long nanos) {
+        long deadline = System.nanoTime() + nanos;
+        while (System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.exception.TransferRateLimitException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("TransferRateLimiter Tests")
+class TransferRateLimiterTest {
+
+    private static final Long USER_ID = 1L;
+    private static final Long CARD_ID = 10L;
+
+    // Очень низкая скорость: за время теста корзина не пополняется
+    private TransferRateLimiter limiter(int maxKeys) {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("transfer.rate-limit.roles.USER.user-rate", "0.001")
+                .withProperty("transfer.rate-limit.roles.USER.user-burst", "5")
+                .withProperty("transfer.rate-limit.roles.USER.card-rate", "0.001")
+                .withProperty("transfer.rate-limit.roles.USER.card-burst", "3")
+                .withProperty("transfer.rate-limit.roles.ADMIN.user-rate", "0")
+                .withProperty("transfer.rate-limit.roles.ADMIN.card-rate", "0");
+        return new TransferRateLimiter(new SimpleMeterRegistry(), environment, true, maxKeys);
+    }
+
+    @Test
+    @DisplayName("Should allow burst and reject the next request with Retry-After")
+    void acquire_RejectsAfterBurst() {
+        // Given
+        TransferRateLimiter limiter = limiter(100);
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire(USER_ID, Role.USER, null);
+        }
+
+        // When & Then
+        TransferRateLimitException exception = assertThrows(TransferRateLimitException.class,
+                () -> limiter.acquire(USER_ID, Role.USER, null));
+        assertTrue(exception.getRetryAfterSeconds() >= 1);
+    }
+
+    @Test
+    @DisplayName("Should limit source card independently of user")
+    void acquire_LimitsCard() {
+        // Given
+        TransferRateLimiter limiter = limiter(100);
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire(USER_ID, Role.USER, CARD_ID);
+        }
+
+        // When & Then
+        assertThrows(TransferRateLimitException.class, () -> limiter.acquire(USER_ID, Role.USER, CARD_ID));
+        limiter.acquire(USER_ID, Role.USER, CARD_ID + 1);
+    }
+
+    @Test
+    @DisplayName("Should return the user token when the sender card bucket is empty")
+    void acquire_RefundsUserOnCardRejection() {
+        // Given
+        TransferRateLimiter limiter = limiter(100);
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire(USER_ID, Role.USER, CARD_ID);
+        }
+
+        // When
+        for (int i = 0; i < 3; i++) {
+            assertThrows(TransferRateLimitException.class, () -> limiter.acquire(USER_ID, Role.USER, CARD_ID));
+        }
+
+        // Then: отказы по карте не расходуют оставшиеся два токена пользователя
+        limiter.acquire(USER_ID, Role.USER, CARD_ID + 1);
+        limiter.acquire(USER_ID, Role.USER, CARD_ID + 1);
+        assertThrows(TransferRateLimitException.class, () -> limiter.acquire(USER_ID, Role.USER, null));
+    }
+
+    @Test
+    @DisplayName("Should not let another user drain the card bucket of the owner")
+    void acquire_CardBucketPerUser() {
+        // Given: чужой пользователь указывает карту владельца, пока владение еще не проверено
+        TransferRateLimiter limiter = limiter(100);
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire(2L, Role.USER, CARD_ID);
+        }
+        assertThrows(TransferRateLimitException.class, () -> limiter.acquire(2L, Role.USER, CARD_ID));
+
+        // When & Then
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire(USER_ID, Role.USER, CARD_ID);
+        }
+    }
+
+    @Test
+    @DisplayName("Should charge a batch one token per transfer from user and sender card buckets")
+    void acquireBatch_ChargesPerTransfer() {
+        // Given
+        TransferRateLimiter limiter = limiter(100);
+        limiter.acquireBatch(USER_ID, Role.USER, Map.of(CARD_ID, 2, CARD_ID + 1, 1));
+
+        // When & Then: у карты остался один токен из трех, у пользователя — два из пяти
+        limiter.acquire(USER_ID, Role.USER, CARD_ID);
+        assertThrows(TransferRateLimitException.class, () -> limiter.acquire(USER_ID, Role.USER, CARD_ID));
+        limiter.acquire(USER_ID, Role.USER, null);
+        assertThrows(TransferRateLimitException.class, () -> limiter.acquire(USER_ID, Role.USER, null));
+    }
+
+    @Test
+    @DisplayName("Should let a batch larger than the burst through a full bucket only")
+    void acquireBatch_LargerThanBurst() {
+        // Given
+        TransferRateLimiter limiter = limiter(100);
+
+        // When
+        limiter.acquireBatch(USER_ID, Role.USER, Map.of(CARD_ID, 4));
+
+        // Then
+        assertThrows(TransferRateLimitException.class, () -> limiter.acquire(USER_ID, Role.USER, CARD_ID));
+        assertThrows(TransferRateLimitException.class,
+                () -> limiter.acquireBatch(USER_ID, Role.USER, Map.of(CARD_ID, 1)));
+    }
+
+    @Test
+    @DisplayName("Should return tokens already taken when a sender card bucket is empty")
+    void acquireBatch_RefundsOnRejection() {
+        // Given
+        TransferRateLimiter limiter = limiter(100);
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire(USER_ID, Role.USER, CARD_ID);
+        }
+
+        // When
+        assertThrows(TransferRateLimitException.class,
+                () -> limiter.acquireBatch(USER_ID, Role.USER, new TreeMap<>(Map.of(CARD_ID - 1, 1, CARD_ID, 1))));
+
+        // Then: без возврата пользователю не хватило бы двух оставшихся токенов
+        limiter.acquire(USER_ID, Role.USER, CARD_ID - 1);
+        limiter.acquire(USER_ID, Role.USER, CARD_ID - 1);
+    }
+
+    @Test
+    @DisplayName("Should not limit role with zero rate")
+    void acquire_UnlimitedRole() {
+        // Given
+        TransferRateLimiter limiter = limiter(100);
+
+        // When & Then
+        for (int i = 0; i < 1000; i++) {
+            limiter.acquire(USER_ID, Role.ADMIN, CARD_ID);
+        }
+        assertEquals(0, limiter.size());
+    }
+
+    @Test
+    @DisplayName("Should keep number of buckets bounded")
+    void acquire_BoundedKeys() {
+        // Given
+        TransferRateLimiter limiter = limiter(10);
+
+        // When
+        for (long userId = 0; userId < 100; userId++) {
+            limiter.acquire(userId, Role.USER, null);
+        }
+
+        // Then
+        assertTrue(limiter.size() <= 10);
+    }
+
+    @Test
+    @DisplayName("Should grant exactly burst tokens to concurrent requests")
+    void acquire_Concurrent() throws InterruptedException {
+        // Given
+        TransferRateLimiter limiter = limiter(100);
+        AtomicInteger granted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < 10; i++) {
+                        try {
+                            limiter.acquire(USER_ID, Role.USER, null);
+                            granted.incrementAndGet();
+                        } catch (TransferRateLimitException ignored) {
+                            // Корзина пуста
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        // When
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Then
+        assertEquals(5, granted.get());
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.exception.VelocityLimitExceededException;
+import com.example.bankcards.repository.TransactionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Бенчмарк стоимости {@link TransferVelocityMonitor#checkAndRecord} на пути перевода:
+ * наносекунд на проверку при конкурентных переводах со случайных карт.
+ *
+ * Не входит в обычный прогон тестов, запуск:
+ * mvn test -Dtest=TransferVelocityMonitorBenchmark [-Dbenchmark.seconds=2] [-Dbenchmark.cards=10000]
+ */
+@Tag("benchmark")
+@DisplayName("TransferVelocityMonitor Benchmark")
+class TransferVelocityMonitorBenchmark {
+
+    private static final int[] THREADS = {1, 2, 4, 8, 16};
+
+    private final long durationMillis = Long.getLong("benchmark.seconds", 1L) * 1000L;
+    private final int cardCount = Integer.getInteger("benchmark.cards", 10_000);
+
+    @Test
+    @DisplayName("Nanoseconds per velocity check")
+    void checkCost() throws Exception {
+        System.out.printf("%-8s %15s %12s%n", "threads", "checks/sec", "ns/check");
+        for (int threads : THREADS) {
+            TransferVelocityMonitor monitor = new TransferVelocityMonitor(mock(TransactionRepository.class),
+                    new SimpleMeterRegistry(), true, Duration.ofMinutes(10), Long.MAX_VALUE,
+                    BigDecimal.valueOf(Long.MAX_VALUE / 1000), 256, false);
+            LongAdder checks = new LongAdder();
+            AtomicBoolean running = new AtomicBoolean(true);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                Thread worker = new Thread(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    BigDecimal amount = BigDecimal.valueOf(100);
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    while (running.get()) {
+                        try {
+                            monitor.checkAndRecord((long) random.nextInt(cardCount), amount);
+                        } catch (VelocityLimitExceededException ignored) {
+                            // Лимиты заданы так, что отказов нет
+                        }
+                        checks.increment();
+                    }
+                });
+                workers.add(worker);
+                worker.start();
+            }
+
+            long began = System.nanoTime();
+            start.countDown();
+            Thread.sleep(durationMillis);
+            running.set(false);
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            double seconds = (System.nanoTime() - began) / 1_000_000_000.0;
+            double rate = checks.sum() / seconds;
+            System.out.printf("%-8d %15.0f %12.0f%n", threads, rate, threads * 1_000_000_000.0 / rate);
+        }
+    }
+}
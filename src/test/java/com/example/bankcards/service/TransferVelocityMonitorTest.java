@@ -0,0 +1,191 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.exception.VelocityLimitExceededException;
+import com.example.bankcards.repository.TransactionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("TransferVelocityMonitor Tests")
+class TransferVelocityMonitorTest {
+
+    private static final Long CARD_ID = 1L;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    private long second;
+    private TransferVelocityMonitor monitor;
+
+    @BeforeEach
+    void setUp() {
+        second = System.currentTimeMillis() / 1000L;
+        // Окно 60 секунд, не больше 3 переводов и 1000 суммы; время задается тестом
+        monitor = new TransferVelocityMonitor(transactionRepository, new SimpleMeterRegistry(), true,
+                Duration.ofSeconds(60), 3, BigDecimal.valueOf(1000), 16, false) {
+            @Override
+            long currentSecond() {
+                return second;
+            }
+        };
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("Should reject transfer above count limit within window")
+    void checkAndRecord_CountLimit() {
+        // Given
+        monitor.checkAndRecord(CARD_ID, BigDecimal.TEN);
+        monitor.checkAndRecord(CARD_ID, BigDecimal.TEN);
+        monitor.checkAndRecord(CARD_ID, BigDecimal.TEN);
+
+        // When & Then
+        assertThrows(VelocityLimitExceededException.class, () -> monitor.checkAndRecord(CARD_ID, BigDecimal.TEN));
+        monitor.checkAndRecord(2L, BigDecimal.TEN);
+    }
+
+    @Test
+    @DisplayName("Should reject transfer above amount limit within window")
+    void checkAndRecord_AmountLimit() {
+        // Given
+        monitor.checkAndRecord(CARD_ID, new BigDecimal("999.99"));
+
+        // When & Then
+        assertThrows(VelocityLimitExceededException.class,
+                () -> monitor.checkAndRecord(CARD_ID, new BigDecimal("0.02")));
+        monitor.checkAndRecord(CARD_ID, new BigDecimal("0.01"));
+    }
+
+    @Test
+    @DisplayName("Should forget transfers that left the window")
+    void checkAndRecord_WindowSlides() {
+        // Given
+        monitor.checkAndRecord(CARD_ID, BigDecimal.TEN);
+        second += 30;
+        monitor.checkAndRecord(CARD_ID, BigDecimal.TEN);
+        monitor.checkAndRecord(CARD_ID, BigDecimal.TEN);
+        assertThrows(VelocityLimitExceededException.class, () -> monitor.checkAndRecord(CARD_ID, BigDecimal.TEN));
+
+        // When: первый перевод вышел из окна
+        second += 30;
+
+        // Then
+        monitor.checkAndRecord(CARD_ID, BigDecimal.TEN);
+        assertThrows(VelocityLimitExceededException.class, () -> monitor.checkAndRecord(CARD_ID, BigDecimal.TEN));
+    }
+
+    @Test
+    @DisplayName("Should return transfer to counters when transaction rolls back")
+    void checkAndRecord_UndoneOnRollback() {
+        // Given
+        TransactionSynchronizationManager.initSynchronization();
+        monitor.checkAndRecord(CARD_ID, new BigDecimal("900"));
+
+        // When
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        TransactionSynchronizationManager.clearSynchronization();
+
+        // Then
+        monitor.checkAndRecord(CARD_ID, new BigDecimal("900"));
+    }
+
+    @Test
+    @DisplayName("Should return every transfer of a rolled back transaction with one synchronization")
+    void checkAndRecord_BatchUndoneOnRollback() {
+        // Given
+        TransactionSynchronizationManager.initSynchronization();
+        monitor.checkAndRecord(CARD_ID, BigDecimal.TEN);
+        monitor.checkAndRecord(CARD_ID, BigDecimal.TEN);
+        monitor.checkAndRecord(2L, BigDecimal.TEN);
+        assertEquals(1, TransactionSynchronizationManager.getSynchronizations().size());
+
+        // When
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        TransactionSynchronizationManager.clearSynchronization();
+
+        // Then
+        assertFalse(TransactionSynchronizationManager.hasResource(monitor));
+        for (int i = 0; i < 3; i++) {
+            monitor.checkAndRecord(CARD_ID, BigDecimal.TEN);
+        }
+    }
+
+    @Test
+    @DisplayName("Should not return a released transfer again on rollback")
+    void release_NotUndoneTwice() {
+        // Given
+        monitor.checkAndRecord(CARD_ID, BigDecimal.TEN);
+        TransactionSynchronizationManager.initSynchronization();
+        monitor.checkAndRecord(CARD_ID, BigDecimal.TEN);
+        monitor.release(CARD_ID, BigDecimal.TEN);
+
+        // When
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        TransactionSynchronizationManager.clearSynchronization();
+
+        // Then: перевод вне транзакции по-прежнему учтен
+        monitor.checkAndRecord(CARD_ID, BigDecimal.TEN);
+        monitor.checkAndRecord(CARD_ID, BigDecimal.TEN);
+        assertThrows(VelocityLimitExceededException.class, () -> monitor.checkAndRecord(CARD_ID, BigDecimal.TEN));
+    }
+
+    @Test
+    @DisplayName("Should rebuild counters from recent transactions")
+    void rebuild_FromTransactions() {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+        when(transactionRepository.findTransferVelocitySince(any(LocalDateTime.class), anyCollection()))
+                .thenReturn(List.of(
+                        new Object[]{CARD_ID, BigDecimal.TEN, now.minusSeconds(20)},
+                        new Object[]{CARD_ID, BigDecimal.TEN, now.minusSeconds(5)},
+                        new Object[]{CARD_ID, BigDecimal.TEN, now.minusSeconds(1)}));
+
+        // When
+        monitor.rebuild();
+
+        // Then
+        assertEquals(1, monitor.trackedCards());
+        assertThrows(VelocityLimitExceededException.class, () -> monitor.checkAndRecord(CARD_ID, BigDecimal.TEN));
+    }
+
+    @Test
+    @DisplayName("Should evict cards without transfers in window")
+    void evictIdle_RemovesExpiredCards() {
+        // Given
+        monitor.checkAndRecord(CARD_ID, BigDecimal.TEN);
+
+        // When
+        second += 61;
+        monitor.evictIdle();
+
+        // Then
+        assertEquals(0, monitor.trackedCards());
+    }
+}
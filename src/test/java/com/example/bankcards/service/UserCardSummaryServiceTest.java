@@ -0,0 +1,205 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.UserCardSummaryDto;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.UserBalanceShard;
+import com.example.bankcards.entity.UserCardSummary;
+import com.example.bankcards.repository.UserBalanceShardRepository;
+import com.example.bankcards.repository.UserCardSummaryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("UserCardSummaryService Tests")
+class UserCardSummaryServiceTest {
+
+    @Mock
+    private UserCardSummaryRepository summaryRepository;
+
+    @Mock
+    private UserBalanceShardRepository shardRepository;
+
+    private UserCardSummaryService summaryService;
+
+    @BeforeEach
+    void setUp() {
+        summaryService = new UserCardSummaryService(summaryRepository, shardRepository, 4);
+    }
+
+    @Nested
+    @DisplayName("Without Transaction")
+    class ImmediateTests {
+
+        @Test
+        @DisplayName("Should apply counts to the summary row and balance to a shard immediately")
+        void cardAdded_AppliesDelta() {
+            // Given
+            when(shardRepository.add(eq(1L), anyInt(), eq(BigDecimal.TEN))).thenReturn(1);
+            when(summaryRepository.applyDelta(1L, BigDecimal.ZERO, 1, 0, 0)).thenReturn(1);
+
+            // When
+            summaryService.cardAdded(1L, CardStatus.ACTIVE, BigDecimal.TEN);
+
+            // Then
+            verify(shardRepository).add(eq(1L), intThat(shard -> shard >= 0 && shard < 4), eq(BigDecimal.TEN));
+            verify(summaryRepository).applyDelta(1L, BigDecimal.ZERO, 1, 0, 0);
+            verify(summaryRepository, never()).save(any());
+        }
+
+        @Test
+        @DisplayName("Should not touch the summary row for a balance-only delta")
+        void balanceChanged_OnlyShard() {
+            // Given
+            when(shardRepository.add(eq(1L), anyInt(), eq(BigDecimal.TEN))).thenReturn(1);
+
+            // When
+            summaryService.balanceChanged(1L, BigDecimal.TEN);
+
+            // Then
+            verify(shardRepository).add(eq(1L), anyInt(), eq(BigDecimal.TEN));
+            verifyNoInteractions(summaryRepository);
+        }
+
+        @Test
+        @DisplayName("Should apply the balance to the summary row when the user has no such shard")
+        void balanceChanged_MissingShard() {
+            // Given
+            when(shardRepository.add(eq(1L), anyInt(), eq(BigDecimal.TEN))).thenReturn(0);
+            when(summaryRepository.applyDelta(1L, BigDecimal.TEN, 0, 0, 0)).thenReturn(1);
+
+            // When
+            summaryService.balanceChanged(1L, BigDecimal.TEN);
+
+            // Then
+            verify(summaryRepository).applyDelta(1L, BigDecimal.TEN, 0, 0, 0);
+        }
+
+        @Test
+        @DisplayName("Should create a summary from the delta when the user has none")
+        void cardAdded_CreatesMissingSummary() {
+            // Given
+            when(shardRepository.add(eq(1L), anyInt(), eq(BigDecimal.TEN))).thenReturn(0);
+            when(summaryRepository.applyDelta(1L, BigDecimal.TEN, 0, 1, 0)).thenReturn(0);
+
+            // When
+            summaryService.cardAdded(1L, CardStatus.BLOCKED, BigDecimal.TEN);
+
+            // Then
+            ArgumentCaptor<UserCardSummary> summary = ArgumentCaptor.forClass(UserCardSummary.class);
+            verify(summaryRepository).save(summary.capture());
+            assertEquals(1L, summary.getValue().getUserId());
+            assertEquals(BigDecimal.TEN, summary.getValue().getTotalBalance());
+            assertEquals(1, summary.getValue().getBlockedCards());
+        }
+
+        @Test
+        @DisplayName("Should ignore status change to the same status")
+        void statusChanged_SameStatus() {
+            // When
+            summaryService.statusChanged(1L, CardStatus.ACTIVE, CardStatus.ACTIVE, 3);
+
+            // Then
+            verifyNoInteractions(summaryRepository, shardRepository);
+        }
+
+        @Test
+        @DisplayName("Should create the summary and all balance shards of a new user")
+        void userCreated_CreatesShards() {
+            // When
+            summaryService.userCreated(1L);
+
+            // Then
+            verify(summaryRepository).save(any(UserCardSummary.class));
+            ArgumentCaptor<Iterable<UserBalanceShard>> shards = ArgumentCaptor.forClass(Iterable.class);
+            verify(shardRepository).saveAll(shards.capture());
+            List<Integer> indexes = new ArrayList<>();
+            shards.getValue().forEach(shard -> indexes.add(shard.getShardIndex()));
+            assertEquals(List.of(0, 1, 2, 3), indexes);
+        }
+    }
+
+    @Test
+    @DisplayName("Should merge deltas per user and apply them before commit in ascending user id")
+    void record_InTransaction_AppliedBeforeCommit() {
+        // Given
+        when(shardRepository.add(any(), anyInt(), any())).thenReturn(1);
+        when(summaryRepository.applyDelta(any(), any(), anyLong(), anyLong(), anyLong())).thenReturn(1);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // When
+            summaryService.balanceChanged(2L, BigDecimal.valueOf(-100));
+            summaryService.balanceChanged(1L, BigDecimal.valueOf(100));
+            summaryService.statusChanged(2L, CardStatus.ACTIVE, CardStatus.BLOCKED, 1);
+            summaryService.balanceChanged(2L, BigDecimal.valueOf(40));
+            verifyNoInteractions(summaryRepository, shardRepository);
+
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            synchronizations.forEach(synchronization -> synchronization.beforeCommit(false));
+            synchronizations.forEach(synchronization ->
+                    synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // Then
+        InOrder inOrder = inOrder(shardRepository, summaryRepository);
+        inOrder.verify(shardRepository).add(eq(1L), anyInt(), eq(BigDecimal.valueOf(100)));
+        inOrder.verify(shardRepository).add(eq(2L), anyInt(), eq(BigDecimal.valueOf(-60)));
+        inOrder.verify(summaryRepository).applyDelta(2L, BigDecimal.ZERO, -1, 1, 0);
+        verifyNoMoreInteractions(summaryRepository, shardRepository);
+        assertFalse(TransactionSynchronizationManager.hasResource(summaryService));
+    }
+
+    @Test
+    @DisplayName("Should add the balance shards to the summary row total")
+    void getSummary_AddsShards() {
+        // Given
+        UserCardSummary summary = new UserCardSummary(1L);
+        summary.setTotalBalance(new BigDecimal("100.00"));
+        summary.setActiveCards(2);
+        when(shardRepository.sumByUserId(1L)).thenReturn(new BigDecimal("-30.50"));
+        when(summaryRepository.findById(1L)).thenReturn(Optional.of(summary));
+
+        // When
+        UserCardSummaryDto result = summaryService.getSummary(1L);
+
+        // Then
+        assertEquals(0, new BigDecimal("69.50").compareTo(result.getTotalBalance()));
+        assertEquals(2, result.getActiveCards());
+    }
+
+    @Test
+    @DisplayName("Should return zeros for a user without summary")
+    void getSummary_Missing() {
+        // Given
+        when(shardRepository.sumByUserId(1L)).thenReturn(BigDecimal.ZERO);
+        when(summaryRepository.findById(1L)).thenReturn(Optional.empty());
+
+        // When
+        UserCardSummaryDto result = summaryService.getSummary(1L);
+
+        // Then
+        assertEquals(0, BigDecimal.ZERO.compareTo(result.getTotalBalance()));
+        assertEquals(0, result.getTotalCards());
+    }
+}
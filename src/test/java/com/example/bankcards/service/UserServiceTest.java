@@ -34,6 +34,9 @@ class UserServiceTest {
     @Mock
     private PasswordEncoder passwordEncoder;
 
+    @Mock
+    private UserCardSummaryService summaryService;
+
     @InjectMocks
     private UserService userService;
 
@@ -116,6 +119,7 @@ class UserServiceTest {
             assertTrue(result.isEnabled());
             verify(passwordEncoder).encode(PASSWORD);
             verify(userRepository).save(any(User.class));
+            verify(summaryService).userCreated(USER_ID);
         }
 
         @Test
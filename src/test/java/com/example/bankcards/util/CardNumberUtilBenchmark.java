@@ -0,0 +1,126 @@
+package com.example.bankcards.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Бенчмарк {@link CardNumberUtil}: операций в секунду для прежней реализации
+ * (SecretKeySpec и Cipher.getInstance на каждый вызов, AES/ECB) и текущей
+ * (Cipher на поток, AES-GCM), а также пакетной расшифровки списка номеров.
+ *
+ * Не входит в обычный прогон тестов, запуск:
+ * mvn test -Dtest=CardNumberUtilBenchmark [-Dbenchmark.seconds=2] [-Dbenchmark.batch=100]
+ */
+@Tag("benchmark")
+@DisplayName("CardNumberUtil Benchmark")
+class CardNumberUtilBenchmark {
+
+    private static final int[] THREADS = {1, 4, 16};
+    private static final String KEY = "BankCardEncryptionKey0123456789!";
+    private static final String LEGACY_KEY = "LegacyCardKey123";
+    private static final String INDEX_KEY = "BankCardBlindIndexKey0123456789ABCDEF";
+    private static final String[] BINS = {"400000", "510000-519999"};
+    private static final String CARD_NUMBER = "1234567890123456";
+
+    private final long durationMillis = Long.getLong("benchmark.seconds", 1L) * 1000L;
+    private final int batch = Integer.getInteger("benchmark.batch", 100);
+
+    @Test
+    @DisplayName("Encrypt and decrypt ops per second, old versus new")
+    void throughput() throws Exception {
+        CardNumberUtil util = new CardNumberUtil(KEY, LEGACY_KEY, INDEX_KEY, BINS);
+        String legacyEncrypted = legacyEncrypt(CARD_NUMBER);
+        String encrypted = util.encryptCardNumber(CARD_NUMBER);
+        List<String> encryptedBatch = util.encryptCardNumbers(Collections.nCopies(batch, CARD_NUMBER));
+        assertEquals(CARD_NUMBER, legacyDecrypt(legacyEncrypted));
+
+        System.out.printf("%-8s %-16s %15s%n", "threads", "operation", "ops/sec");
+        for (int threads : THREADS) {
+            print(threads, "old encrypt", run(threads, 1, ignored -> legacyEncrypt(CARD_NUMBER)));
+            print(threads, "new encrypt", run(threads, 1, ignored -> util.encryptCardNumber(CARD_NUMBER)));
+            print(threads, "old decrypt", run(threads, 1, ignored -> legacyDecrypt(legacyEncrypted)));
+            print(threads, "new decrypt", run(threads, 1, ignored -> util.decryptCardNumber(encrypted)));
+            print(threads, "batch decrypt", run(threads, batch, ignored -> {
+                util.decryptCardNumbers(encryptedBatch);
+                return null;
+            }));
+        }
+    }
+
+    private void print(int threads, String operation, double rate) {
+        System.out.printf("%-8d %-16s %15.0f%n", threads, operation, rate);
+    }
+
+    /**
+     * @param opsPerCall число номеров, обрабатываемых одним вызовом
+     */
+    private double run(int threads, int opsPerCall, UnaryOperator<String> operation) throws InterruptedException {
+        LongAdder completed = new LongAdder();
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                while (running.get()) {
+                    operation.apply(CARD_NUMBER);
+                    completed.add(opsPerCall);
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+
+        long began = System.nanoTime();
+        start.countDown();
+        Thread.sleep(durationMillis);
+        running.set(false);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return completed.sum() / ((System.nanoTime() - began) / 1_000_000_000.0);
+    }
+
+    // Прежняя реализация: ключ и Cipher создаются при каждом вызове
+    private static String legacyEncrypt(String cardNumber) {
+        try {
+            SecretKeySpec secretKey = new SecretKeySpec(LEGACY_KEY.getBytes(StandardCharsets.UTF_8), "AES");
+            Cipher cipher = Cipher.getInstance("AES");
+            cipher.init(Cipher.ENCRYPT_MODE, secretKey);
+            return Base64.getEncoder().encodeToString(cipher.doFinal(cardNumber.getBytes(StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String legacyDecrypt(String encryptedCardNumber) {
+        try {
+            SecretKeySpec secretKey = new SecretKeySpec(LEGACY_KEY.getBytes(StandardCharsets.UTF_8), "AES");
+            Cipher cipher = Cipher.getInstance("AES");
+            cipher.init(Cipher.DECRYPT_MODE, secretKey);
+            return new String(cipher.doFinal(Base64.getDecoder().decode(encryptedCardNumber)), StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
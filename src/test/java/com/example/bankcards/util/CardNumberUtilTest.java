@@ -0,0 +1,127 @@
+package com.example.bankcards.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("CardNumberUtil Tests")
+class CardNumberUtilTest {
+
+    private static final String KEY = "BankCardEncryptionKey0123456789!";
+    private static final String LEGACY_KEY = "LegacyCardKey123";
+    private static final String INDEX_KEY = "BankCardBlindIndexKey0123456789ABCDEF";
+    private static final String[] BINS = {"400000", "510000-519999"};
+    private static final String CARD_NUMBER = "1234567890123456";
+
+    private final CardNumberUtil cardNumberUtil = new CardNumberUtil(KEY, LEGACY_KEY, INDEX_KEY, BINS);
+
+    @Test
+    @DisplayName("Should encrypt with v2 prefix and random IV and decrypt back")
+    void encryptDecrypt_RoundTrip() {
+        // When
+        String first = cardNumberUtil.encryptCardNumber(CARD_NUMBER);
+        String second = cardNumberUtil.encryptCardNumber(CARD_NUMBER);
+
+        // Then
+        assertTrue(first.startsWith("v2:"));
+        assertNotEquals(first, second);
+        assertEquals(CARD_NUMBER, cardNumberUtil.decryptCardNumber(first));
+        assertEquals(CARD_NUMBER, cardNumberUtil.decryptCardNumber(second));
+    }
+
+    @Test
+    @DisplayName("Should read legacy ECB ciphertext without prefix")
+    void decrypt_LegacyFormat() throws Exception {
+        // Given
+        Cipher cipher = Cipher.getInstance("AES");
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(LEGACY_KEY.getBytes(StandardCharsets.UTF_8), "AES"));
+        String legacy = Base64.getEncoder().encodeToString(cipher.doFinal(CARD_NUMBER.getBytes(StandardCharsets.UTF_8)));
+
+        // When & Then
+        assertEquals(CARD_NUMBER, cardNumberUtil.decryptCardNumber(legacy));
+    }
+
+    @Test
+    @DisplayName("Should reject tampered ciphertext")
+    void decrypt_Tampered() {
+        // Given
+        String encrypted = cardNumberUtil.encryptCardNumber(CARD_NUMBER);
+        // Символ внутри шифртекста после префикса и IV
+        int index = 30;
+        char replacement = encrypted.charAt(index) == 'A' ? 'B' : 'A';
+        String tampered = encrypted.substring(0, index) + replacement + encrypted.substring(index + 1);
+
+        // When & Then
+        assertThrows(RuntimeException.class, () -> cardNumberUtil.decryptCardNumber(tampered));
+    }
+
+    @Test
+    @DisplayName("Should encrypt and decrypt lists preserving order")
+    void batch_RoundTrip() {
+        // Given
+        List<String> numbers = List.of("1111222233334444", "5555666677778888", "9999000011112222");
+
+        // When
+        List<String> decrypted = cardNumberUtil.decryptCardNumbers(cardNumberUtil.encryptCardNumbers(numbers));
+
+        // Then
+        assertEquals(numbers, decrypted);
+    }
+
+    @Test
+    @DisplayName("Should compute deterministic blind index independent of separators")
+    void blindIndex_Deterministic() {
+        // When
+        String index = cardNumberUtil.blindIndex(CARD_NUMBER);
+
+        // Then
+        assertEquals(64, index.length());
+        assertEquals(index, cardNumberUtil.blindIndex("1234 5678 9012 3456"));
+        assertNotEquals(index, cardNumberUtil.blindIndex("1234567890123457"));
+        assertNotEquals(index, new CardNumberUtil(KEY, LEGACY_KEY, INDEX_KEY + "2", BINS).blindIndex(CARD_NUMBER));
+    }
+
+    @Test
+    @DisplayName("Should generate Luhn-valid numbers within configured BINs")
+    void generateCardNumber_LuhnValidWithinBins() {
+        for (int i = 0; i < 1000; i++) {
+            // When
+            String cardNumber = cardNumberUtil.generateCardNumber();
+
+            // Then
+            assertEquals(16, cardNumber.length());
+            assertTrue(CardNumberUtil.isLuhnValid(cardNumber), cardNumber);
+            int bin = Integer.parseInt(cardNumber.substring(0, 6));
+            assertTrue(bin == 400000 || (bin >= 510000 && bin <= 519999), cardNumber);
+        }
+    }
+
+    @Test
+    @DisplayName("Should validate check digit by Luhn algorithm")
+    void isLuhnValid() {
+        assertTrue(CardNumberUtil.isLuhnValid("4111111111111111"));
+        assertTrue(CardNumberUtil.isLuhnValid("79927398713"));
+        assertFalse(CardNumberUtil.isLuhnValid("4111111111111112"));
+        assertFalse(CardNumberUtil.isLuhnValid("4111-1111"));
+    }
+
+    @Test
+    @DisplayName("Should reject malformed BIN range")
+    void constructor_InvalidBin() {
+        assertThrows(IllegalStateException.class,
+                () -> new CardNumberUtil(KEY, LEGACY_KEY, INDEX_KEY, new String[]{"5100-519999"}));
+    }
+
+    @Test
+    @DisplayName("Should reject key of invalid AES length")
+    void constructor_InvalidKey() {
+        assertThrows(IllegalStateException.class, () -> new CardNumberUtil("BankCardSecretKey123", "", INDEX_KEY, BINS));
+    }
+}
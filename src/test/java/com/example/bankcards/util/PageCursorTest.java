@@ -0,0 +1,42 @@
+package com.example.bankcards.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("PageCursor Tests")
+class PageCursorTest {
+
+    @Test
+    @DisplayName("Should encode and decode position")
+    void encodeDecode_RoundTrip() {
+        // Given
+        LocalDateTime createdAt = LocalDateTime.of(2024, 3, 15, 10, 30, 45, 123_456_000);
+
+        // When
+        String token = new PageCursor(createdAt, 42L).encode();
+        PageCursor decoded = PageCursor.decode(token);
+
+        // Then
+        assertFalse(token.contains("|"));
+        assertEquals(createdAt, decoded.getCreatedAt());
+        assertEquals(42L, decoded.getId());
+    }
+
+    @Test
+    @DisplayName("Should start from first page without token")
+    void decode_Blank() {
+        assertSame(PageCursor.FIRST, PageCursor.decode(null));
+        assertSame(PageCursor.FIRST, PageCursor.decode(""));
+    }
+
+    @Test
+    @DisplayName("Should reject malformed token")
+    void decode_Invalid() {
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode("not-a-cursor"));
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode("%%%"));
+    }
+}